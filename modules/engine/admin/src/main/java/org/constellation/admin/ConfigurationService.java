@@ -30,6 +30,7 @@ import javax.xml.namespace.QName;
 import org.apache.sis.xml.MarshallerPool;
 import org.constellation.ServiceDef;
 import org.constellation.business.IConfigurationService;
+import org.constellation.business.IStyleBusiness;
 import org.constellation.configuration.DataBrief;
 import org.constellation.database.api.jooq.tables.pojos.Provider;
 import org.constellation.database.api.jooq.tables.pojos.Service;
@@ -59,6 +60,9 @@ public class ConfigurationService implements IConfigurationService {
     @Autowired
     private LayerRepository layerRepository;
 
+    @Autowired
+    private IStyleBusiness styleBusiness;
+
 
 //    /**
 //     * Store configuration, this method is too "generic" and should be refactored/splited.
@@ -267,6 +271,7 @@ public class ConfigurationService implements IConfigurationService {
     @Override
     @Transactional
     public void deleteProvider(String providerID) {
+        styleBusiness.invalidateProviderStyles(providerID);
         providerRepository.deleteByIdentifier(providerID);
 
     }
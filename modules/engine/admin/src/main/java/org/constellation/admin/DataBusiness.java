@@ -50,6 +50,8 @@ import org.constellation.admin.util.ImageStatisticDeserializer;
 import org.constellation.api.DataType;
 import org.constellation.business.IDataBusiness;
 import org.constellation.business.IDataCoverageJob;
+import org.constellation.business.ILayerBusiness;
+import org.constellation.business.IStyleBusiness;
 import org.constellation.configuration.*;
 import org.constellation.dto.CoverageMetadataBean;
 import org.constellation.dto.FileBean;
@@ -177,6 +179,18 @@ public class DataBusiness implements IDataBusiness {
      */
     @Inject
     private ServiceRepository serviceRepository;
+
+    /**
+     * Injected layer business, notifying the services of the removed layers.
+     */
+    @Inject
+    private ILayerBusiness layerBusiness;
+
+    /**
+     * Injected style business, removing the styles of the deleted providers from its cache.
+     */
+    @Inject
+    private IStyleBusiness styleBusiness;
     
     /**
      * {@inheritDoc}
@@ -642,9 +656,13 @@ public class DataBusiness implements IDataBusiness {
         final int dataID = data.getId();
         if (!included) {
             // 1. remove layer involving the data
-            for (Layer layer : layerRepository.findByDataId(dataID)) {
+            final List<Layer> layers = layerRepository.findByDataId(dataID);
+            for (Layer layer : layers) {
                 layerRepository.delete(layer.getId());
             }
+            if (!layers.isEmpty()) {
+                layerBusiness.fireLayerChange(null, null);
+            }
 
             // 2. unlink from csw
             dataRepository.removeDataFromAllCSW(dataID);
@@ -669,6 +687,7 @@ public class DataBusiness implements IDataBusiness {
                 final Provider p = providerRepository.findOne(providerID);
                 final DataProvider dp = DataProviders.getInstance().getProvider(p.getIdentifier());
                 DataProviders.getInstance().removeProvider(dp);
+                styleBusiness.invalidateProviderStyles(p.getIdentifier());
                 providerRepository.delete(providerID);
 
                 //notify post delete
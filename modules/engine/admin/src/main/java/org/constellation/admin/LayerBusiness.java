@@ -19,6 +19,8 @@
 
 package org.constellation.admin;
 
+import java.beans.PropertyChangeListener;
+import java.beans.PropertyChangeSupport;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.util.ArrayList;
@@ -68,6 +70,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Primary;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 
 /**
@@ -95,6 +99,8 @@ public class LayerBusiness implements ILayerBusiness {
     @Inject
     private IDataBusiness dataBusiness;
 
+    private final PropertyChangeSupport listeners = new PropertyChangeSupport(this);
+
     @Override
     @Transactional
     public void add(final AddLayer addLayerData) throws ConfigurationException {
@@ -164,6 +170,7 @@ public class LayerBusiness implements ILayerBusiness {
             for (int styleID : styleRepository.getStyleIdsForData(data.getId())) {
                 styleRepository.linkStyleToLayer(styleID, layerID);
             }
+            fireLayerChange(serviceType, serviceId);
             //style
             
             //update service ISO metadata
@@ -187,6 +194,7 @@ public class LayerBusiness implements ILayerBusiness {
     @Transactional
     public void updateLayerTitle(LayerSummary layer) throws ConfigurationException {
         layerRepository.updateLayerTitle(layer);
+        fireLayerChange(null, null);
     }
 
     @Override
@@ -197,6 +205,7 @@ public class LayerBusiness implements ILayerBusiness {
             final Layer layer = layerRepository.findByServiceIdAndLayerName(service.getId(), name, namespace);
             if (layer != null) {
                 layerRepository.delete(layer.getId());
+                fireLayerChange(spec, serviceId);
             } else {
                 throw new TargetNotFoundException("Unable to find a layer: {" + namespace + "}" + name);
             }
@@ -214,6 +223,7 @@ public class LayerBusiness implements ILayerBusiness {
             for (Layer layer : layers) {
                 layerRepository.delete(layer.getId());
             }
+            fireLayerChange(spec, serviceId);
         } else {
             throw new TargetNotFoundException("Unable to find a service:" + serviceId);
         }
@@ -226,6 +236,49 @@ public class LayerBusiness implements ILayerBusiness {
         for (Layer layer : layers) {
             layerRepository.delete(layer.getId());
         }
+        fireLayerChange(null, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addLayerListener(final PropertyChangeListener listener) {
+        listeners.addPropertyChangeListener(listener);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeLayerListener(final PropertyChangeListener listener) {
+        listeners.removePropertyChangeListener(listener);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * If a transaction is running, the event is delayed until its completion,
+     * so that the listeners reloading the layers will see the committed state.
+     */
+    @Override
+    public void fireLayerChange(final String serviceType, final String serviceId) {
+        final String serviceKey;
+        if (serviceType != null && serviceId != null) {
+            serviceKey = serviceType.toLowerCase() + ':' + serviceId;
+        } else {
+            serviceKey = null;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(final int status) {
+                    listeners.firePropertyChange(LAYERS_PROPERTY, null, serviceKey);
+                }
+            });
+        } else {
+            listeners.firePropertyChange(LAYERS_PROPERTY, null, serviceKey);
+        }
     }
 
     /**
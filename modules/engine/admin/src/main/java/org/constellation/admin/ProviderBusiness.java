@@ -33,6 +33,7 @@ import org.constellation.api.ProviderType;
 import org.constellation.business.IDataBusiness;
 import org.constellation.business.IProcessBusiness;
 import org.constellation.business.IProviderBusiness;
+import org.constellation.business.IStyleBusiness;
 import org.constellation.configuration.ConfigDirectory;
 import org.constellation.configuration.ConfigurationException;
 import org.constellation.configuration.CstlConfigurationRuntimeException;
@@ -133,6 +134,9 @@ public class ProviderBusiness implements IProviderBusiness {
     @Inject
     private IProcessBusiness processBusiness;
 
+    @Inject
+    private IStyleBusiness styleBusiness;
+
     @Override
     public List<Provider> getProviders() {
         return providerRepository.findAll();
@@ -161,6 +165,7 @@ public class ProviderBusiness implements IProviderBusiness {
     @Override
     @Transactional
     public void removeProvider(final String identifier) {
+        styleBusiness.invalidateProviderStyles(identifier);
         providerRepository.deleteByIdentifier(identifier);
     }
 
@@ -175,6 +180,7 @@ public class ProviderBusiness implements IProviderBusiness {
             }catch(ConfigurationException ex){
                 LOGGER.log(Level.WARNING,ex.getLocalizedMessage(),ex);
             }
+            styleBusiness.invalidateProviderStyles(p.getIdentifier());
             providerRepository.delete(p.getId());
             final File provDir = ConfigDirectory.getDataIntegratedDirectory(p.getIdentifier());
             FileUtilities.deleteDirectory(provDir);
@@ -19,6 +19,9 @@
 package org.constellation.admin;
 
 import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import org.apache.sis.util.logging.Logging;
 import org.constellation.admin.util.IOUtilities;
 import org.constellation.api.StyleType;
@@ -65,18 +68,27 @@ import org.opengis.util.FactoryException;
 import org.springframework.context.annotation.Primary;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import javax.inject.Inject;
 import javax.xml.bind.JAXBException;
 import javax.xml.namespace.QName;
+import java.beans.PropertyChangeListener;
+import java.beans.PropertyChangeSupport;
 import java.io.IOException;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -128,6 +140,53 @@ public class StyleBusiness implements IStyleBusiness {
      */
     private static final Logger LOGGER = Logging.getLogger("org.constellation.admin");
 
+    /**
+     * Default maximum number of parsed styles kept in memory.
+     */
+    private static final int DEFAULT_STYLE_CACHE_SIZE = 500;
+
+    /**
+     * Parsed styles, by provider identifier and style name.
+     */
+    private final Cache<StyleKey, MutableStyle> styleCache;
+
+    /**
+     * Parsed styles, by style id.
+     */
+    private final Cache<Integer, MutableStyle> styleIdCache;
+
+    /**
+     * Incremented on each invalidation, a style parsed from a record read before
+     * an invalidation must not be put in cache.
+     */
+    private final AtomicLong cacheGeneration = new AtomicLong();
+
+    private final AtomicLong parseCount = new AtomicLong();
+
+    /**
+     * Cumulated parsing time, in nanoseconds.
+     */
+    private final AtomicLong parseTime = new AtomicLong();
+
+    /**
+     * The listeners notified when a style changes.
+     */
+    private final PropertyChangeSupport listeners = new PropertyChangeSupport(this);
+
+    public StyleBusiness() {
+        int cacheSize = DEFAULT_STYLE_CACHE_SIZE;
+        final String value = Application.getProperty(AppProperty.STYLE_CACHE_SIZE);
+        if (value != null) {
+            try {
+                cacheSize = Integer.parseInt(value);
+            } catch (NumberFormatException ex) {
+                LOGGER.log(Level.WARNING, "Unable to parse the style cache size:{0}", value);
+            }
+        }
+        styleCache   = CacheBuilder.newBuilder().maximumSize(cacheSize).recordStats().build();
+        styleIdCache = CacheBuilder.newBuilder().maximumSize(cacheSize).recordStats().build();
+    }
+
     /**
      * Ensures that a style provider with the specified identifier really
      * exists.
@@ -312,8 +371,20 @@ public class StyleBusiness implements IStyleBusiness {
      */
     @Override
     public MutableStyle getStyle(final String providerId, final String styleName) throws TargetNotFoundException {
-        final Style style = ensureExistingStyle(providerId, styleName);
-        return parseStyle(style.getName(), style.getBody());
+        final StyleKey key = new StyleKey(providerId, styleName);
+        MutableStyle result = styleCache.getIfPresent(key);
+        if (result == null) {
+            final long generation = cacheGeneration.get();
+            final Style style = ensureExistingStyle(providerId, styleName);
+            result = parseAndTime(style);
+            if (result != null && generation == cacheGeneration.get()) {
+                styleCache.put(key, result);
+                styleIdCache.put(style.getId(), result);
+                result = copy(result);
+            }
+            return result;
+        }
+        return copy(result);
     }
 
     /**
@@ -326,11 +397,157 @@ public class StyleBusiness implements IStyleBusiness {
      */
     @Override
     public MutableStyle getStyle(int styleId) throws TargetNotFoundException {
-        Style style = styleRepository.findById(styleId);
-        if (style == null) {
-            throw new TargetNotFoundException("Style with id"+styleId+" not found.");
+        MutableStyle result = styleIdCache.getIfPresent(styleId);
+        if (result == null) {
+            final long generation = cacheGeneration.get();
+            final Style style = styleRepository.findById(styleId);
+            if (style == null) {
+                throw new TargetNotFoundException("Style with id"+styleId+" not found.");
+            }
+            result = parseAndTime(style);
+            if (result != null && generation == cacheGeneration.get()) {
+                styleIdCache.put(styleId, result);
+                result = copy(result);
+            }
+            return result;
+        }
+        return copy(result);
+    }
+
+    /**
+     * Copy a cached style, so the callers can modify the returned style without altering the cache.
+     * The symbolizers, filters and descriptions are immutable and are shared with the cached style.
+     */
+    private static MutableStyle copy(final MutableStyle style) {
+        final MutableStyle result = SF.style();
+        result.setName(style.getName());
+        result.setDescription(style.getDescription());
+        result.setDefault(style.isDefault());
+        result.setDefaultSpecification(style.getDefaultSpecification());
+        for (final MutableFeatureTypeStyle fts : style.featureTypeStyles()) {
+            final MutableFeatureTypeStyle ftsCopy = SF.featureTypeStyle();
+            ftsCopy.setName(fts.getName());
+            ftsCopy.setDescription(fts.getDescription());
+            ftsCopy.setFeatureInstanceIDs(fts.getFeatureInstanceIDs());
+            ftsCopy.setOnlineResource(fts.getOnlineResource());
+            ftsCopy.featureTypeNames().addAll(fts.featureTypeNames());
+            ftsCopy.semanticTypeIdentifiers().addAll(fts.semanticTypeIdentifiers());
+            for (final MutableRule rule : fts.rules()) {
+                final MutableRule ruleCopy = SF.rule();
+                ruleCopy.setName(rule.getName());
+                ruleCopy.setDescription(rule.getDescription());
+                ruleCopy.setLegendGraphic(rule.getLegend());
+                ruleCopy.setFilter(rule.getFilter());
+                ruleCopy.setElseFilter(rule.isElseFilter());
+                ruleCopy.setMinScaleDenominator(rule.getMinScaleDenominator());
+                ruleCopy.setMaxScaleDenominator(rule.getMaxScaleDenominator());
+                ruleCopy.setOnlineResource(rule.getOnlineResource());
+                ruleCopy.symbolizers().addAll(rule.symbolizers());
+                ftsCopy.rules().add(ruleCopy);
+            }
+            result.featureTypeStyles().add(ftsCopy);
+        }
+        return result;
+    }
+
+    /**
+     * Parse the body of a style record, recording the parsing time.
+     */
+    private MutableStyle parseAndTime(final Style style) {
+        final long start = System.nanoTime();
+        final MutableStyle result = parseStyle(style.getName(), style.getBody());
+        parseTime.addAndGet(System.nanoTime() - start);
+        parseCount.incrementAndGet();
+        return result;
+    }
+
+    /**
+     * Remove a style from the parsed style cache and notify the style listeners. If a transaction is running,
+     * the style is removed again after its completion, so a concurrent reader can not keep the previous version
+     * in cache, and the listeners are notified then.
+     *
+     * @param providerId the style provider identifier.
+     * @param styleName the style name.
+     * @param styleId the style id, can be {@code null} for a new style.
+     */
+    private void invalidateStyle(final String providerId, final String styleName, final Integer styleId) {
+        final StyleKey key = new StyleKey(providerId, styleName);
+        cacheGeneration.incrementAndGet();
+        styleCache.invalidate(key);
+        if (styleId != null) {
+            styleIdCache.invalidate(styleId);
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(final int status) {
+                    cacheGeneration.incrementAndGet();
+                    styleCache.invalidate(key);
+                    if (styleId != null) {
+                        styleIdCache.invalidate(styleId);
+                    }
+                    listeners.firePropertyChange(STYLES_PROPERTY, null, providerId + ':' + styleName);
+                }
+            });
+        } else {
+            listeners.firePropertyChange(STYLES_PROPERTY, null, providerId + ':' + styleName);
         }
-        return parseStyle(style.getName(), style.getBody());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Long> getStyleCacheStatistics() {
+        final CacheStats byName = styleCache.stats();
+        final CacheStats byId   = styleIdCache.stats();
+        final Map<String, Long> stats = new HashMap<>();
+        stats.put("size",       styleCache.size() + styleIdCache.size());
+        stats.put("hitCount",   byName.hitCount() + byId.hitCount());
+        stats.put("missCount",  byName.missCount() + byId.missCount());
+        stats.put("parseCount", parseCount.get());
+        stats.put("parseTime",  TimeUnit.NANOSECONDS.toMillis(parseTime.get()));
+        return stats;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void invalidateProviderStyles(final String providerId) {
+        final Provider provider = providerRepository.findByIdentifier(providerId);
+        if (provider != null) {
+            for (Style style : styleRepository.findByProvider(provider.getId())) {
+                invalidateStyle(providerId, style.getName(), style.getId());
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clearStyleCache() {
+        cacheGeneration.incrementAndGet();
+        styleCache.invalidateAll();
+        styleIdCache.invalidateAll();
+        listeners.firePropertyChange(STYLES_PROPERTY, null, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addStyleListener(final PropertyChangeListener listener) {
+        listeners.addPropertyChangeListener(listener);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeStyleListener(final PropertyChangeListener listener) {
+        listeners.removePropertyChangeListener(listener);
     }
 
     /**
@@ -368,8 +585,7 @@ public class StyleBusiness implements IStyleBusiness {
     @Override
     public Function getFunctionColorMap(String providerId, String styleName, String ruleName) throws TargetNotFoundException {
         // get style
-        final Style style = ensureExistingStyle(providerId, styleName);
-        final MutableStyle mStyle = parseStyle(style.getName(), style.getBody());
+        final MutableStyle mStyle = getStyle(providerId, styleName);
         final List<MutableRule> mutableRules = new ArrayList<MutableRule>(0);
         if (!mStyle.featureTypeStyles().isEmpty()) {
             mutableRules.addAll(mStyle.featureTypeStyles().get(0).rules());
@@ -559,7 +775,9 @@ public class StyleBusiness implements IStyleBusiness {
         if (s != null) {
             s.setBody(sw.toString());
             s.setType(getTypeFromMutableStyle(style));
-            return styleRepository.save(s);
+            final Style saved = styleRepository.save(s);
+            invalidateStyle(providerId, styleName, s.getId());
+            return saved;
         } else {
             Integer userId = userRepository.findOne(securityManager.getCurrentUserLogin()).transform(new com.google.common.base.Function<CstlUser, Integer>() {
                 @Override
@@ -575,6 +793,7 @@ public class StyleBusiness implements IStyleBusiness {
             newStyle.setBody(sw.toString());
             newStyle.setOwner(userId);
             newStyle.setId(styleRepository.create(newStyle));
+            invalidateStyle(providerId, styleName, newStyle.getId());
             return newStyle;
         }
     }
@@ -597,8 +816,10 @@ public class StyleBusiness implements IStyleBusiness {
         ensureNonNull("providerId", providerId);
         ensureNonNull("styleId", styleName);
         final Provider provider = ensureExistingProvider(providerId);
-        ensureExistingStyle(providerId, styleName);
+        final Style style = ensureExistingStyle(providerId, styleName);
         styleRepository.deleteStyle(provider.getId(), styleName);
+        invalidateStyle(providerId, styleName, style.getId());
+        layerBusiness.fireLayerChange(null, null);
     }
 
     /**
@@ -677,6 +898,7 @@ public class StyleBusiness implements IStyleBusiness {
         final Layer layer = layerRepository.findByServiceIdAndLayerName(service.getId(), layerName);
         final Style style = ensureExistingStyle(styleProviderId, styleName);
         styleRepository.unlinkStyleToLayer(style.getId(), layer.getId());
+        layerBusiness.fireLayerChange(serviceType, serviceIdentifier);
     }
 
     @Override
@@ -687,6 +909,7 @@ public class StyleBusiness implements IStyleBusiness {
         final Layer layer = layerRepository.findByServiceIdAndLayerName(service.getId(), layerName);
         final Style style = ensureExistingStyle(styleProviderId, styleName);
         styleRepository.linkStyleToLayer(style.getId(), layer.getId());
+        layerBusiness.fireLayerChange(serviceType, serviceIdentifier);
     }
 
     public MutableStyle parseStyle(final String name, final String xml) {
@@ -820,6 +1043,42 @@ public class StyleBusiness implements IStyleBusiness {
             style.setOwner(optionalUser.get().getId());
         style.setProvider(providerId);
         style.setType(type.name());
-        styleRepository.create(style);
+        final int styleId = styleRepository.create(style);
+        final Provider provider = providerRepository.findOne(providerId);
+        if (provider != null) {
+            invalidateStyle(provider.getIdentifier(), name, styleId);
+        } else {
+            clearStyleCache();
+        }
+    }
+
+    /**
+     * The key of a parsed style in cache, the provider identifier and the style name
+     * may contain any character.
+     */
+    private static final class StyleKey {
+
+        private final String providerId;
+
+        private final String styleName;
+
+        StyleKey(final String providerId, final String styleName) {
+            this.providerId = providerId;
+            this.styleName  = styleName;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (obj instanceof StyleKey) {
+                final StyleKey that = (StyleKey) obj;
+                return Objects.equals(providerId, that.providerId) && Objects.equals(styleName, that.styleName);
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(providerId, styleName);
+        }
     }
 }
@@ -0,0 +1,238 @@
+/*
+ *    Constellation - An open source and standard compliant SDI
+ *    http://www.constellation-sdi.org
+ *
+ * Copyright 2014 Geomatys.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.constellation.admin;
+
+import org.constellation.api.StyleType;
+import org.constellation.business.IProviderBusiness;
+import org.constellation.business.IStyleBusiness;
+import org.constellation.configuration.ConfigDirectory;
+import org.constellation.configuration.TargetNotFoundException;
+import org.constellation.database.api.jooq.tables.pojos.Provider;
+import org.constellation.database.api.repository.ProviderRepository;
+import org.geotoolkit.factory.FactoryFinder;
+import org.geotoolkit.factory.Hints;
+import org.geotoolkit.style.MutableStyle;
+import org.geotoolkit.style.MutableStyleFactory;
+import org.geotoolkit.style.StyleConstants;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.opengis.style.LineSymbolizer;
+import org.opengis.style.PointSymbolizer;
+import org.opengis.style.PolygonSymbolizer;
+import org.opengis.style.Symbolizer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Test the parsed style cache of {@link StyleBusiness}.
+ *
+ * @author Guilhem Legal (Geomatys)
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration("classpath:/cstl/spring/test-context.xml")
+@ActiveProfiles({"standard" })
+public class StyleBusinessTest {
+
+    private static final MutableStyleFactory SF = (MutableStyleFactory) FactoryFinder.getStyleFactory(new Hints(Hints.STYLE_FACTORY,
+            MutableStyleFactory.class));
+
+    private static final String PROVIDER_ID = "styleCacheTest";
+
+    @Autowired
+    private IStyleBusiness styleBusiness;
+
+    @Autowired
+    private IProviderBusiness providerBusiness;
+
+    @Autowired
+    private ProviderRepository providerRepository;
+
+    @BeforeClass
+    public static void initTestDir() {
+        ConfigDirectory.setupTestEnvironement("StyleBusinessTest");
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        ConfigDirectory.shutdownTestEnvironement("StyleBusinessTest");
+    }
+
+    private Provider createProvider() {
+        return createProvider(PROVIDER_ID);
+    }
+
+    private Provider createProvider(final String identifier) {
+        final Provider provider = new Provider();
+        provider.setIdentifier(identifier);
+        provider.setType("STYLE");
+        provider.setImpl("sld");
+        provider.setConfig("");
+        return providerRepository.insert(provider);
+    }
+
+    private static MutableStyle createStyle(final String name) {
+        return createStyle(name, StyleConstants.DEFAULT_LINE_SYMBOLIZER);
+    }
+
+    private static MutableStyle createStyle(final String name, final Symbolizer symbolizer) {
+        final MutableStyle style = SF.style(symbolizer);
+        style.setName(name);
+        return style;
+    }
+
+    private static Symbolizer getSymbolizer(final MutableStyle style) {
+        return style.featureTypeStyles().get(0).rules().get(0).symbolizers().get(0);
+    }
+
+    /**
+     * A style modified by a caller must not alter the style returned to the next callers.
+     */
+    @Test
+    @Transactional
+    public void cachedStyleCopyTest() throws Exception {
+        createProvider();
+        final int styleId = styleBusiness.createStyle(PROVIDER_ID, createStyle("copyTest")).getId();
+
+        final MutableStyle first = styleBusiness.getStyle(PROVIDER_ID, "copyTest");
+        Assert.assertEquals(1, first.featureTypeStyles().size());
+        first.featureTypeStyles().clear();
+        first.setName("modified");
+
+        final MutableStyle second = styleBusiness.getStyle(PROVIDER_ID, "copyTest");
+        Assert.assertNotSame(first, second);
+        Assert.assertEquals("copyTest", second.getName());
+        Assert.assertEquals(1, second.featureTypeStyles().size());
+        Assert.assertEquals(1, second.featureTypeStyles().get(0).rules().get(0).symbolizers().size());
+
+        final MutableStyle byId = styleBusiness.getStyle(styleId);
+        Assert.assertNotSame(second, byId);
+        Assert.assertEquals(1, byId.featureTypeStyles().size());
+    }
+
+    /**
+     * A style written after a failed lookup must be found by the next lookup.
+     */
+    @Test
+    @Transactional
+    public void writeStyleTest() throws Exception {
+        final Provider provider = createProvider();
+        try {
+            styleBusiness.getStyle(PROVIDER_ID, "writeTest");
+            Assert.fail("The style should not exist yet.");
+        } catch (TargetNotFoundException ex) {
+            // expected
+        }
+        styleBusiness.writeStyle("writeTest", provider.getId(), StyleType.VECTOR, createStyle("writeTest"));
+        final MutableStyle style = styleBusiness.getStyle(PROVIDER_ID, "writeTest");
+        Assert.assertEquals("writeTest", style.getName());
+        Assert.assertEquals(1, style.featureTypeStyles().size());
+    }
+
+    /**
+     * A style read before being overwritten must be read again from the database.
+     */
+    @Test
+    @Transactional
+    public void overwriteStyleTest() throws Exception {
+        final Provider provider = createProvider();
+        final int styleId = styleBusiness.createStyle(PROVIDER_ID, createStyle("overwriteTest")).getId();
+        Assert.assertTrue(getSymbolizer(styleBusiness.getStyle(PROVIDER_ID, "overwriteTest")) instanceof LineSymbolizer);
+        Assert.assertTrue(getSymbolizer(styleBusiness.getStyle(styleId)) instanceof LineSymbolizer);
+
+        styleBusiness.writeStyle("overwriteTest", provider.getId(), StyleType.VECTOR,
+                createStyle("overwriteTest", StyleConstants.DEFAULT_POINT_SYMBOLIZER));
+        Assert.assertTrue(getSymbolizer(styleBusiness.getStyle(PROVIDER_ID, "overwriteTest")) instanceof PointSymbolizer);
+        Assert.assertTrue(getSymbolizer(styleBusiness.getStyle(styleId)) instanceof PointSymbolizer);
+
+        styleBusiness.setStyle(PROVIDER_ID, "overwriteTest", createStyle("overwriteTest", StyleConstants.DEFAULT_POLYGON_SYMBOLIZER));
+        Assert.assertTrue(getSymbolizer(styleBusiness.getStyle(PROVIDER_ID, "overwriteTest")) instanceof PolygonSymbolizer);
+        Assert.assertTrue(getSymbolizer(styleBusiness.getStyle(styleId)) instanceof PolygonSymbolizer);
+    }
+
+    /**
+     * A style read before being deleted must not be found anymore.
+     */
+    @Test
+    @Transactional
+    public void deleteStyleTest() throws Exception {
+        createProvider();
+        final int styleId = styleBusiness.createStyle(PROVIDER_ID, createStyle("deleteTest")).getId();
+        styleBusiness.getStyle(PROVIDER_ID, "deleteTest");
+        styleBusiness.getStyle(styleId);
+
+        styleBusiness.deleteStyle(PROVIDER_ID, "deleteTest");
+        assertStyleNotFound(PROVIDER_ID, "deleteTest", styleId);
+    }
+
+    /**
+     * The styles of a deleted provider, removed in cascade by the database, must not be found anymore.
+     */
+    @Test
+    @Transactional
+    public void deleteProviderTest() throws Exception {
+        createProvider();
+        final int styleId = styleBusiness.createStyle(PROVIDER_ID, createStyle("providerTest")).getId();
+        styleBusiness.getStyle(PROVIDER_ID, "providerTest");
+        styleBusiness.getStyle(styleId);
+
+        providerBusiness.removeProvider(PROVIDER_ID);
+        assertStyleNotFound(PROVIDER_ID, "providerTest", styleId);
+    }
+
+    /**
+     * The provider identifiers and the style names containing the separator of the style
+     * keys ({@code ':'}) must not be mixed up in cache.
+     */
+    @Test
+    @Transactional
+    public void separatorKeyTest() throws Exception {
+        createProvider("styleCacheTest:a");
+        createProvider("styleCacheTest");
+        styleBusiness.createStyle("styleCacheTest:a", createStyle("b", StyleConstants.DEFAULT_LINE_SYMBOLIZER));
+        styleBusiness.createStyle("styleCacheTest",   createStyle("a:b", StyleConstants.DEFAULT_POINT_SYMBOLIZER));
+
+        Assert.assertTrue(getSymbolizer(styleBusiness.getStyle("styleCacheTest:a", "b")) instanceof LineSymbolizer);
+        Assert.assertTrue(getSymbolizer(styleBusiness.getStyle("styleCacheTest", "a:b")) instanceof PointSymbolizer);
+        Assert.assertTrue(getSymbolizer(styleBusiness.getStyle("styleCacheTest:a", "b")) instanceof LineSymbolizer);
+
+        styleBusiness.deleteStyle("styleCacheTest:a", "b");
+        Assert.assertTrue(getSymbolizer(styleBusiness.getStyle("styleCacheTest", "a:b")) instanceof PointSymbolizer);
+    }
+
+    private void assertStyleNotFound(final String providerId, final String styleName, final int styleId) {
+        try {
+            styleBusiness.getStyle(providerId, styleName);
+            Assert.fail("The style should have been removed.");
+        } catch (TargetNotFoundException ex) {
+            // expected
+        }
+        try {
+            styleBusiness.getStyle(styleId);
+            Assert.fail("The style should have been removed.");
+        } catch (TargetNotFoundException ex) {
+            // expected
+        }
+    }
+}
@@ -245,6 +245,9 @@ public class StyledPyramidCoverageProcess extends AbstractPyramidCoverageProcess
         //finally create provider from store configuration
         if (dataProvider == null) {
             dataProvider = createProvider(providerID, outputCoverageStore, dataset.getId());
+        } else {
+            // the pyramid has been updated, the services holding its mosaics or tiles must drop them.
+            dataProvider.reload();
         }
 
         if (providerEntity == null) {
@@ -18,6 +18,7 @@
  */
 package org.constellation.business;
 
+import java.beans.PropertyChangeListener;
 import java.util.List;
 
 import org.constellation.configuration.ConfigurationException;
@@ -30,6 +31,14 @@ import org.constellation.dto.AddLayer;
  * @author Cédric Briançon (Geomatys)
  */
 public interface ILayerBusiness {
+
+    /**
+     * Name of the property fired when the layers of a service are added, removed or modified.
+     * The new value of the event is the service key ({@code "<type>:<identifier>"}, type in lower case),
+     * or {@code null} if the change may concern any service.
+     */
+    String LAYERS_PROPERTY = "layers";
+
     void removeAll();
 
     void add(AddLayer layer) throws ConfigurationException;
@@ -75,4 +84,20 @@ public interface ILayerBusiness {
      */
     List<LayerSummary> getLayerRefFromStyleId(final Integer styleId);
 
+    /**
+     * Register a listener notified (after transaction commit) each time the layers of a service change.
+     *
+     * @param listener the listener to add.
+     */
+    void addLayerListener(PropertyChangeListener listener);
+
+    void removeLayerListener(PropertyChangeListener listener);
+
+    /**
+     * Notify the layer listeners that the layers of the specified service have changed.
+     *
+     * @param serviceType the service type, or {@code null} if the change may concern any service.
+     * @param serviceId the service identifier, or {@code null} if the change may concern any service.
+     */
+    void fireLayerChange(String serviceType, String serviceId);
 }
@@ -28,20 +28,36 @@ import org.geotoolkit.style.MutableStyle;
 import org.opengis.filter.expression.Function;
 
 import javax.xml.namespace.QName;
+import java.beans.PropertyChangeListener;
 import java.io.IOException;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 /**
  * @author Cédric Briançon (Geomatys)
  */
 public interface IStyleBusiness {
+
+    /**
+     * The property name of the events fired when a style changes.
+     */
+    String STYLES_PROPERTY = "styles";
+
     void deleteStyle(String id, String name) throws ConfigurationException;
 
     void writeStyle(String key, Integer id, StyleType styleType, MutableStyle style) throws IOException;
 
+    /**
+     * Return the parsed style. The parsed styles are cached, each call returns
+     * a new copy which can be modified by the caller.
+     */
     MutableStyle getStyle(String providerID, String styleName) throws TargetNotFoundException;
 
+    /**
+     * Return the parsed style. The parsed styles are cached, each call returns
+     * a new copy which can be modified by the caller.
+     */
     MutableStyle getStyle(int styleId) throws TargetNotFoundException;
 
     boolean existsStyle(final String providerId, final String styleName) throws TargetNotFoundException;
@@ -67,4 +83,33 @@ public interface IStyleBusiness {
     void linkToData(String styleProvider, String styleName, String dataProvider, QName dataId) throws ConfigurationException;
 
     void unlinkFromData(String styleProvider, String styleName, String dataProvider, QName dataId) throws ConfigurationException;
+
+    /**
+     * Return the statistics of the parsed style cache : size, hitCount, missCount,
+     * parseCount and parseTime (cumulated, in milliseconds).
+     */
+    Map<String, Long> getStyleCacheStatistics();
+
+    /**
+     * Remove the parsed styles of a provider from the cache. Must be called before deleting the provider,
+     * which removes its styles in cascade.
+     *
+     * @param providerId the provider identifier.
+     */
+    void invalidateProviderStyles(String providerId);
+
+    /**
+     * Remove all the parsed styles from the cache.
+     */
+    void clearStyleCache();
+
+    /**
+     * Register a listener notified (after transaction commit) each time a style is created, updated or removed.
+     * The new value of the events is the style key "providerId:styleName", or {@code null} if any style may have changed.
+     *
+     * @param listener the listener to add.
+     */
+    void addStyleListener(PropertyChangeListener listener);
+
+    void removeStyleListener(PropertyChangeListener listener);
 }
@@ -206,6 +206,12 @@ public final class ExceptionCode extends CodeList<ExceptionCode> {
      * Used by WCS 2.0
      */
     public static final ExceptionCode AXIS_LABEL_INVALID = new ExceptionCode("InvalidAxisLabel");
+
+    /**
+     * The server is too busy to accept the request.
+     * Used by WPS
+     */
+    public static final ExceptionCode SERVER_BUSY = new ExceptionCode("SERVER_BUSY");
     
     
     /**
@@ -76,7 +76,76 @@ public enum AppProperty {
      * Flag that enable or disable automatic statistic computing.
      * If disable, may cause errors on style creation dashboard
      */
-    DATA_AUTO_ANALYSE("data.auto.analyse");
+    DATA_AUTO_ANALYSE("data.auto.analyse"),
+
+    /**
+     * Maximum number of parsed styles kept in memory (default 500).
+     */
+    STYLE_CACHE_SIZE("style.cache.size"),
+
+    /**
+     * Number of threads used to create the data providers at start-up (default 1, sequential).
+     * A value of 0 use one thread per available processor.
+     */
+    PROVIDER_STARTUP_THREADS("provider.startup.threads"),
+
+    /**
+     * Flag that defer the opening of the provider data stores until their first use.
+     * A lookup by data name, without provider identifier, still opens all the stores.
+     */
+    PROVIDER_LAZY_LOADING("provider.lazy.loading"),
+
+    /**
+     * Maximum size in megabytes of the encoded tiles kept in memory by each WMTS service (default 0, disabled).
+     */
+    WMTS_TILE_CACHE_SIZE("wmts.tile.cache.size"),
+
+    /**
+     * Number of threads building the documents during a CSW index creation.
+     * The default value 0 use one thread per available processor.
+     */
+    CSW_INDEXATION_THREADS("csw.indexation.threads"),
+
+    /**
+     * Number of threads reading the records of a CSW response.
+     * The default value 0 use one thread per available processor.
+     */
+    CSW_READER_THREADS("csw.reader.threads"),
+
+    /**
+     * Maximum size in megabytes of the record files kept parsed in memory by each filesystem CSW service (default 32).
+     * This is the size of the files, the heap used by their parsed DOM trees is several times larger.
+     * The value 0 disable the cache.
+     */
+    CSW_RECORD_CACHE_SIZE("csw.record.cache.size"),
+
+    /**
+     * Maximum size in megabytes of the compressed tiles kept in memory by each Deflate GeoTIFF response of WCS (default 64).
+     * The whole image is compressed before being sent, the tiles beyond this size are written in a temporary file.
+     * The value 0 always use a temporary file.
+     */
+    WCS_DEFLATE_MEMORY_SIZE("wcs.deflate.memory.size"),
+
+    /**
+     * Number of threads running the synchronous WPS executions (default one per available processor).
+     */
+    WPS_SYNC_THREADS("wps.sync.threads"),
+
+    /**
+     * Number of threads running the asynchronous WPS executions (default one per available processor).
+     */
+    WPS_ASYNC_THREADS("wps.async.threads"),
+
+    /**
+     * Maximum number of WPS executions waiting for a thread, for each of the sync and async pools (default 100).
+     * The executions beyond are refused with a ServerBusy exception.
+     */
+    WPS_QUEUE_SIZE("wps.queue.size"),
+
+    /**
+     * Maximum number of executions queued or running for each WPS process (default 0, no limit).
+     */
+    WPS_PROCESS_MAX_JOBS("wps.process.max.jobs");
 
     private final String key;
 
@@ -0,0 +1,147 @@
+/*
+ *    Constellation - An open source and standard compliant SDI
+ *    http://www.constellation-sdi.org
+ *
+ * Copyright 2014 Geomatys.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.constellation.util;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.geotoolkit.referencing.CRS;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.operation.MathTransform;
+import org.opengis.util.FactoryException;
+
+import java.util.Arrays;
+
+/**
+ * A shared cache of the coordinate reference systems decoded from their codes,
+ * and of the transforms between them.
+ *
+ * Decoding a code goes through the EPSG factory, which is expensive when it
+ * is done for each request. The methods of this class have the same contract
+ * as the {@link CRS} methods they replace.
+ *
+ * @author Guilhem Legal (Geomatys)
+ */
+public final class CRSCache {
+
+    /**
+     * The maximum number of entries of each cache, the codes come from the requests.
+     */
+    private static final int MAX_ENTRIES = 1000;
+
+    private static final Cache<Object, CoordinateReferenceSystem> CRS_CACHE =
+            CacheBuilder.newBuilder().maximumSize(MAX_ENTRIES).build();
+
+    private static final Cache<Object, MathTransform> TRANSFORM_CACHE =
+            CacheBuilder.newBuilder().maximumSize(MAX_ENTRIES).build();
+
+    private CRSCache() {}
+
+    /**
+     * Return the coordinate reference system of a code, with the default axis order.
+     *
+     * @see CRS#decode(String)
+     */
+    public static CoordinateReferenceSystem decode(final String code) throws FactoryException {
+        return decodeCached(code, null);
+    }
+
+    /**
+     * Return the coordinate reference system of a code.
+     *
+     * @see CRS#decode(String, boolean)
+     */
+    public static CoordinateReferenceSystem decode(final String code, final boolean longitudeFirst) throws FactoryException {
+        return decodeCached(code, longitudeFirst);
+    }
+
+    private static CoordinateReferenceSystem decodeCached(final String code, final Boolean longitudeFirst) throws FactoryException {
+        if (code == null) {
+            // let the factory report the error
+            return (longitudeFirst == null) ? CRS.decode(code) : CRS.decode(code, longitudeFirst);
+        }
+        final Key key = new Key(code.trim(), longitudeFirst);
+        CoordinateReferenceSystem crs = CRS_CACHE.getIfPresent(key);
+        if (crs == null) {
+            // the failed decodings are not cached
+            crs = (longitudeFirst == null) ? CRS.decode(code) : CRS.decode(code, longitudeFirst);
+            CRS_CACHE.put(key, crs);
+        }
+        return crs;
+    }
+
+    /**
+     * Return the transform between two coordinate reference systems.
+     *
+     * @see CRS#findMathTransform(CoordinateReferenceSystem, CoordinateReferenceSystem)
+     */
+    public static MathTransform findMathTransform(final CoordinateReferenceSystem source,
+            final CoordinateReferenceSystem target) throws FactoryException {
+        return findMathTransform(source, target, false);
+    }
+
+    /**
+     * Return the transform between two coordinate reference systems.
+     *
+     * @see CRS#findMathTransform(CoordinateReferenceSystem, CoordinateReferenceSystem, boolean)
+     */
+    public static MathTransform findMathTransform(final CoordinateReferenceSystem source,
+            final CoordinateReferenceSystem target, final boolean lenient) throws FactoryException {
+        if (source == null || target == null) {
+            // let the factory report the error
+            return CRS.findMathTransform(source, target, lenient);
+        }
+        final Key key = new Key(source, target, lenient);
+        MathTransform transform = TRANSFORM_CACHE.getIfPresent(key);
+        if (transform == null) {
+            transform = CRS.findMathTransform(source, target, lenient);
+            TRANSFORM_CACHE.put(key, transform);
+        }
+        return transform;
+    }
+
+    /**
+     * Remove all the entries of the caches, after a modification of the EPSG database.
+     */
+    public static void clear() {
+        CRS_CACHE.invalidateAll();
+        TRANSFORM_CACHE.invalidateAll();
+    }
+
+    /**
+     * A cache key made of several values.
+     */
+    private static final class Key {
+
+        private final Object[] values;
+
+        private Key(final Object... values) {
+            this.values = values;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            return obj instanceof Key && Arrays.equals(values, ((Key) obj).values);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(values);
+        }
+    }
+}
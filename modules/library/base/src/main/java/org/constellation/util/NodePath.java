@@ -0,0 +1,248 @@
+/*
+ *    Constellation - An open source and standard compliant SDI
+ *    http://www.constellation-sdi.org
+ *
+ * Copyright 2014 Geomatys.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.constellation.util;
+
+import org.apache.sis.util.logging.Logging;
+import org.w3c.dom.Node;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * A metadata path compiled for the evaluation on a DOM node.
+ *
+ * The path is in the form {@code /prefix:Type/prefix:step1/prefix:step2[n]/...}, optionally
+ * with a condition : {@code /prefix:Type/step1#conditional/path=value/step2}.
+ * It is parsed once, then evaluated on each metadata without any string manipulation.
+ *
+ * @author Guilhem Legal (Geomatys)
+ */
+public final class NodePath {
+
+    private static final Logger LOGGER = Logging.getLogger("org.constellation.util");
+
+    private final String path;
+
+    private final String namespace;
+
+    private final String type;
+
+    /**
+     * The local names and ordinals of the steps of the value path.
+     */
+    private final String[] steps;
+    private final int[] ordinals;
+
+    /**
+     * The key of each prefix of the value path, used to share the nodes between the paths evaluated on the same document.
+     */
+    private final String[] keys;
+
+    /**
+     * The ordinal at the end of the path, used to extract one coordinate of a corner.
+     */
+    private final int lastOrdinal;
+
+    /**
+     * The number of steps shared by the value path and the conditional path,
+     * or -1 if there is no condition.
+     */
+    private final int commonLength;
+
+    private final String[] conditionalSteps;
+    private final int[] conditionalOrdinals;
+
+    private final String conditionalValue;
+
+    /**
+     * Parse the specified path.
+     *
+     * @param fullPathID a path in the form {@code /prefix:Type/step1/step2...}.
+     */
+    public NodePath(final String fullPathID) {
+        this.path = fullPathID;
+        final String prefix = fullPathID.substring(1, fullPathID.indexOf(':'));
+        final String relativePath = fullPathID.substring(fullPathID.indexOf(':') + 1);
+        this.namespace = XpathUtils.getNamespaceFromPrefix(prefix);
+        this.type      = relativePath.substring(0, relativePath.indexOf('/'));
+
+        String pathID;
+        String conditionalPath = null;
+        String condValue       = null;
+        final int separator = relativePath.indexOf('#');
+        if (separator != -1) {
+            pathID          = relativePath.substring(0, separator);
+            conditionalPath = pathID + '/' + relativePath.substring(separator + 1, relativePath.indexOf('='));
+            condValue       = relativePath.substring(relativePath.indexOf('=') + 1);
+            final int nextSeparator = condValue.indexOf('/');
+            if (nextSeparator == -1) {
+                throw new IllegalArgumentException("A conditionnal path must be in the form ...start_path#conditional_path=value/endPath");
+            }
+            pathID    = pathID + condValue.substring(nextSeparator);
+            condValue = condValue.substring(0, nextSeparator);
+        } else {
+            pathID = relativePath;
+        }
+        this.conditionalValue = condValue;
+
+        int ordinal = -1;
+        if (pathID.endsWith("]") && pathID.indexOf('[') != -1) {
+            try {
+                ordinal = Integer.parseInt(pathID.substring(pathID.lastIndexOf('[') + 1, pathID.length() - 1));
+            } catch (NumberFormatException ex) {
+                LOGGER.warning("Unable to parse last path ordinal");
+            }
+        }
+        this.lastOrdinal = ordinal;
+
+        // the first part is the type
+        final String[] parts = pathID.split("/");
+        final int nbStep = parts.length - 1;
+        this.steps    = new String[nbStep];
+        this.ordinals = new int[nbStep];
+        this.keys     = new String[nbStep];
+        final StringBuilder key = new StringBuilder(String.valueOf(namespace)).append('|').append(parts[0]);
+        for (int i = 0; i < nbStep; i++) {
+            final String part = parts[i + 1];
+            steps[i]    = localName(part);
+            ordinals[i] = NodeUtilities.extractOrdinal(part);
+            keys[i]     = key.append('/').append(part).toString();
+        }
+
+        if (conditionalPath != null) {
+            final String[] cparts = conditionalPath.split("/");
+            final int min = Math.min(parts.length, cparts.length);
+            int common = 1;
+            while (common < min && parts[common].equals(cparts[common])) {
+                common++;
+            }
+            this.commonLength        = common - 1;
+            this.conditionalSteps    = new String[cparts.length - common];
+            this.conditionalOrdinals = new int[cparts.length - common];
+            for (int i = common; i < cparts.length; i++) {
+                conditionalSteps[i - common]    = localName(cparts[i]);
+                conditionalOrdinals[i - common] = NodeUtilities.extractOrdinal(cparts[i]);
+            }
+        } else {
+            this.commonLength        = -1;
+            this.conditionalSteps    = null;
+            this.conditionalOrdinals = null;
+        }
+    }
+
+    /**
+     * Remove the ordinal and the namespace prefix of a path part.
+     */
+    private static String localName(String part) {
+        final int braceIndex = part.indexOf('[');
+        if (braceIndex != -1) {
+            part = part.substring(0, braceIndex);
+        }
+        final int separatorIndex = part.indexOf(':');
+        if (separatorIndex != -1) {
+            part = part.substring(separatorIndex + 1);
+        }
+        return part;
+    }
+
+    /**
+     * @return {@code true} if this path applies to the specified metadata root node.
+     */
+    public boolean matchType(final Node metadata) {
+        return (type.equals(metadata.getLocalName()) || type.equals("*")) && namespace.equals(metadata.getNamespaceURI());
+    }
+
+    /**
+     * @return the ordinal at the end of the path, or -1.
+     */
+    public int getLastOrdinal() {
+        return lastOrdinal;
+    }
+
+    /**
+     * Return the nodes denoted by this path in the specified metadata.
+     *
+     * @param metadata the metadata root node.
+     * @param visited the nodes already found for the path prefixes in this metadata, updated by this method.
+     *                Can be {@code null}.
+     * @return the nodes denoted by this path.
+     */
+    public List<Node> getNodes(final Node metadata, final Map<String, List<Node>> visited) {
+        if (commonLength == -1) {
+            return walk(metadata, steps.length, visited);
+        }
+        final List<Node> results = new ArrayList<>();
+        for (Node n : walk(metadata, commonLength, visited)) {
+            boolean match = false;
+            for (Node cNode : walk(Arrays.asList(n), conditionalSteps, conditionalOrdinals, 0, conditionalSteps.length)) {
+                if (conditionalValue.equalsIgnoreCase(cNode.getTextContent())) {
+                    match = true;
+                    break;
+                }
+            }
+            if (match) {
+                results.addAll(walk(Arrays.asList(n), steps, ordinals, commonLength, steps.length));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Walk the first steps of the value path from the root node, reusing the longest prefix already visited.
+     */
+    private List<Node> walk(final Node metadata, final int length, final Map<String, List<Node>> visited) {
+        if (length == 0) {
+            return Arrays.asList(metadata);
+        }
+        if (visited == null) {
+            return walk(Arrays.asList(metadata), steps, ordinals, 0, length);
+        }
+        int start = length;
+        List<Node> nodes = null;
+        while (start > 0 && nodes == null) {
+            nodes = visited.get(keys[start - 1]);
+            if (nodes == null) {
+                start--;
+            }
+        }
+        if (nodes == null) {
+            nodes = Arrays.asList(metadata);
+        }
+        for (int i = start; i < length && !nodes.isEmpty(); i++) {
+            nodes = NodeUtilities.getNodes(steps[i], nodes, ordinals[i], false);
+            visited.put(keys[i], nodes);
+        }
+        return nodes;
+    }
+
+    private static List<Node> walk(List<Node> nodes, final String[] steps, final int[] ordinals, final int start, final int end) {
+        for (int i = start; i < end && !nodes.isEmpty(); i++) {
+            nodes = NodeUtilities.getNodes(steps[i], nodes, ordinals[i], false);
+        }
+        return nodes;
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+}
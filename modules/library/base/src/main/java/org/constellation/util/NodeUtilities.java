@@ -31,6 +31,9 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -44,6 +47,11 @@ public class NodeUtilities {
 
     private static final Logger LOGGER = Logging.getLogger("org.constellation.util");
 
+    /**
+     * The compiled metadata paths, by path.
+     */
+    private static final ConcurrentMap<String, NodePath> COMPILED_PATHS = new ConcurrentHashMap<>();
+
     public static List<Node> getNodes(final String propertyName, final List<Node> nodes, final int ordinal, final boolean create) {
         final List<Node> result = new ArrayList<>();
         for (Node e : nodes) {
@@ -238,54 +246,66 @@ public class NodeUtilities {
      * @return
      */
     public static List<Object> extractValues(final Node metadata, final List<String> paths) {
+        if (paths == null) {
+            return extractPathValues(metadata, null, null);
+        }
+        return extractPathValues(metadata, compilePaths(paths), null);
+    }
+
+    /**
+     * Return the compiled form of the specified path.
+     * The compiled paths are cached, so each distinct path is parsed only once.
+     *
+     * @param path a path in the form {@code /prefix:Type/step1/step2...}.
+     * @return the compiled path.
+     */
+    public static NodePath compilePath(final String path) {
+        NodePath compiled = COMPILED_PATHS.get(path);
+        if (compiled == null) {
+            compiled = new NodePath(path);
+            final NodePath previous = COMPILED_PATHS.putIfAbsent(path, compiled);
+            if (previous != null) {
+                compiled = previous;
+            }
+        }
+        return compiled;
+    }
+
+    /**
+     * Return the compiled form of the specified paths.
+     *
+     * @param paths a list of path in the form {@code /prefix:Type/step1/step2...}.
+     * @return the compiled paths.
+     */
+    public static List<NodePath> compilePaths(final List<String> paths) {
+        final List<NodePath> results = new ArrayList<>(paths.size());
+        for (String path : paths) {
+            results.add(compilePath(path));
+        }
+        return results;
+    }
+
+    /**
+     * Extract the values denoted by the specified compiled paths.
+     * if there is no values corresponding to the paths the method return "null" (the string)
+     *
+     * @param metadata the metadata root node.
+     * @param paths the compiled paths.
+     * @param visited the nodes already found in this metadata for the path prefixes.
+     *                Sharing this map between the calls made on the same metadata avoid to walk
+     *                again the common part of the paths. Can be {@code null}.
+     * @return the extracted values.
+     */
+    public static List<Object> extractPathValues(final Node metadata, final List<NodePath> paths, final Map<String, List<Node>> visited) {
         final List<Object> response  = new ArrayList<>();
 
         if (paths != null) {
-            for (String fullPathID: paths) {
-
-               // remove Standard
-               final String pathPrefix = fullPathID.substring(1, fullPathID.indexOf(':'));
-               fullPathID = fullPathID.substring(fullPathID.indexOf(':') + 1);
-               final String pathType =  fullPathID.substring(0, fullPathID.indexOf('/'));
-               if (!matchType(metadata, pathType, pathPrefix)) {
-                   continue;
-               }
-                String pathID;
-                String conditionalPath  = null;
-                String conditionalValue = null;
-
-                // if the path ID contains a # we have a conditional value next to the searched value.
-                final int separator = fullPathID.indexOf('#');
-                if (separator != -1) {
-                    pathID               = fullPathID.substring(0, separator);
-                    conditionalPath      = pathID + '/' + fullPathID.substring(separator + 1, fullPathID.indexOf('='));
-                    conditionalValue     = fullPathID.substring(fullPathID.indexOf('=') + 1);
-                    int nextSeparator    = conditionalValue.indexOf('/');
-                    if (nextSeparator == -1) {
-                        throw new IllegalArgumentException("A conditionnal path must be in the form ...start_path#conditional_path=value/endPath");
-                    } else {
-                        pathID = pathID + conditionalValue.substring(nextSeparator);
-                        conditionalValue = conditionalValue.substring(0, nextSeparator);
-                    }
-                } else {
-                    pathID = fullPathID;
+            for (NodePath path : paths) {
+                if (!path.matchType(metadata)) {
+                    continue;
                 }
-
-                int ordinal = -1;
-                if (pathID.endsWith("]") && pathID.indexOf('[') != -1) {
-                    try {
-                        ordinal = Integer.parseInt(pathID.substring(pathID.lastIndexOf('[') + 1, pathID.length() - 1));
-                    } catch (NumberFormatException ex) {
-                        LOGGER.warning("Unable to parse last path ordinal");
-                    }
-                }
-                final List<Node> nodes;
-                if (conditionalPath == null) {
-                    nodes = getNodeFromPath(metadata, pathID);
-                } else {
-                    nodes  = getNodeFromConditionalPath(pathID, conditionalPath, conditionalValue, metadata);
-                }
-                final List<Object> value = getStringValue(nodes, ordinal);
+                final List<Node> nodes = path.getNodes(metadata, visited);
+                final List<Object> value = getStringValue(nodes, path.getLastOrdinal());
                 if (!value.isEmpty() && !value.equals(Arrays.asList(NULL_VALUE))) {
                     response.addAll(value);
                 }
@@ -383,9 +403,4 @@ public class NodeUtilities {
         }*/
         return result;
     }
-
-    private static boolean matchType(final Node n, final String type, final String prefix) {
-        final String namespace = XpathUtils.getNamespaceFromPrefix(prefix);
-        return (type.equals(n.getLocalName()) || type.equals("*")) && namespace.equals(n.getNamespaceURI());
-    }
 }
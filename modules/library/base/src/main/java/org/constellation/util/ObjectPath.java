@@ -0,0 +1,177 @@
+/*
+ *    Constellation - An open source and standard compliant SDI
+ *    http://www.constellation-sdi.org
+ *
+ * Copyright 2014 Geomatys.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.constellation.util;
+
+import org.apache.sis.util.logging.Logging;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A metadata path compiled for the evaluation on a metadata object.
+ *
+ * The path is in the form {@code Standard:Type:attribute1:attribute2[n]:...}, optionally
+ * with a condition : {@code Standard:Type:attribute1#conditionalAttribute=value:attribute2}.
+ * It is parsed once, then evaluated on each metadata with the same semantic as
+ * {@link ReflectionUtilities#getValuesFromPath(String, Object)} and
+ * {@link ReflectionUtilities#getConditionalValuesFromPath(String, String, String, Object)}.
+ *
+ * @author Guilhem Legal (Geomatys)
+ */
+public final class ObjectPath {
+
+    private static final Logger LOGGER = Logging.getLogger("org.constellation.util");
+
+    /**
+     * The path without condition, used to check the metadata type.
+     */
+    private final String path;
+
+    private final String[] attributes;
+    private final int[] ordinals;
+
+    private final String conditionalAttribute;
+
+    private final String conditionalValue;
+
+    /**
+     * Parse the specified path.
+     *
+     * @param fullPathID a path in the form {@code Standard:Type:attribute1:attribute2...}.
+     */
+    public ObjectPath(final String fullPathID) {
+        final String pathID;
+        final int separator = fullPathID.indexOf('#');
+        if (separator != -1) {
+            String value = fullPathID.substring(fullPathID.indexOf('=') + 1);
+            final int nextSeparator = value.indexOf(':');
+            if (nextSeparator == -1) {
+                throw new IllegalArgumentException("A conditionnal path must be in the form ....:attribute#attibuteconditional=value:otherattribute");
+            }
+            pathID                    = fullPathID.substring(0, separator) + value.substring(nextSeparator);
+            this.conditionalAttribute = fullPathID.substring(separator + 1, fullPathID.indexOf('='));
+            this.conditionalValue     = value.substring(0, nextSeparator);
+        } else {
+            pathID                    = fullPathID;
+            this.conditionalAttribute = null;
+            this.conditionalValue     = null;
+        }
+        this.path = pathID;
+
+        // the two first parts are the standard and the type
+        final String[] parts = pathID.split(":");
+        final int nbAttribute = Math.max(parts.length - 2, 0);
+        this.attributes = new String[nbAttribute];
+        this.ordinals   = new int[nbAttribute];
+        for (int i = 0; i < nbAttribute; i++) {
+            String attributeName = parts[i + 2];
+            int ordinal = -1;
+            final int braceIndex = attributeName.indexOf('[');
+            if (braceIndex != -1) {
+                final String tmp = attributeName.substring(braceIndex + 1, attributeName.length() - 1);
+                attributeName    = attributeName.substring(0, braceIndex);
+                try {
+                    ordinal = Integer.parseInt(tmp);
+                } catch (NumberFormatException ex) {
+                    LOGGER.log(Level.WARNING, "Unable to parse the ordinal {0}", tmp);
+                }
+            }
+            attributes[i] = attributeName;
+            ordinals[i]   = ordinal;
+        }
+    }
+
+    /**
+     * @return {@code true} if this path applies to the specified metadata object.
+     */
+    public boolean matchType(final Object metadata) {
+        return ReflectionUtilities.pathMatchObjectType(metadata, path);
+    }
+
+    /**
+     * @return {@code true} if this path select the values with a condition.
+     */
+    public boolean isConditional() {
+        return conditionalAttribute != null;
+    }
+
+    /**
+     * Return the value denoted by this path in the specified metadata.
+     *
+     * @param metadata A metadata object.
+     * @return The value, a collection of values, or {@code null}.
+     */
+    public Object getValues(Object metadata) {
+        if (!matchType(metadata)) {
+            return null;
+        }
+        for (int i = 0; i < attributes.length; i++) {
+            final String attributeName = attributes[i];
+            final int ordinal          = ordinals[i];
+            final boolean last         = (i == attributes.length - 1);
+
+            if (metadata instanceof Collection) {
+                final List<Object> tmp = new ArrayList<>();
+                if (last && conditionalAttribute != null) {
+                    for (Object subMeta : (Collection) metadata) {
+                        if (ReflectionUtilities.matchCondition(subMeta, conditionalAttribute, conditionalValue)) {
+                            tmp.add(ReflectionUtilities.getAttributeValue(subMeta, attributeName, ordinal));
+                        }
+                    }
+                } else {
+                    for (Object subMeta : (Collection) metadata) {
+                        final Object obj = ReflectionUtilities.getAttributeValue(subMeta, attributeName, ordinal);
+                        if (obj instanceof Collection) {
+                            for (Object o : (Collection) obj) {
+                                if (o != null) {tmp.add(o);}
+                            }
+                        } else {
+                            if (obj != null) {tmp.add(obj);}
+                        }
+                    }
+                }
+                if (conditionalAttribute != null && tmp.size() == 1) {
+                    metadata = tmp.get(0);
+                } else {
+                    metadata = tmp;
+                }
+            } else if (last && conditionalAttribute != null) {
+                if (ReflectionUtilities.matchCondition(metadata, conditionalAttribute, conditionalValue)) {
+                    metadata = ReflectionUtilities.getAttributeValue(metadata, attributeName, ordinal);
+                } else {
+                    metadata = null;
+                }
+            } else {
+                metadata = ReflectionUtilities.getAttributeValue(metadata, attributeName, ordinal);
+            }
+        }
+        return metadata;
+    }
+
+    @Override
+    public String toString() {
+        if (conditionalAttribute != null) {
+            return path + '#' + conditionalAttribute + '=' + conditionalValue;
+        }
+        return path;
+    }
+}
@@ -25,6 +25,9 @@ import org.opengis.annotation.UML;
 
 import javax.xml.bind.JAXBElement;
 import javax.xml.bind.annotation.XmlElement;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
@@ -32,9 +35,13 @@ import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -50,9 +57,26 @@ public final class ReflectionUtilities {
     private static final String INCLASS = " in the class ";
 
     /**
-     * A map of getters to avoid to search the same getters many times.
+     * The accessors already resolved for each class, to avoid to search the same getters many times.
+     * The accessors keep strong references to the methods of their class, so this cache does not
+     * help the classes to be unloaded: it is meant for the metadata classes, which are loaded once.
      */
-    private static final Map<String, Method> GETTERS = new HashMap<>();
+    private static final ClassValue<ClassAccessors> ACCESSORS = new ClassValue<ClassAccessors>() {
+        @Override
+        protected ClassAccessors computeValue(final Class<?> type) {
+            return new ClassAccessors(type);
+        }
+    };
+
+    /**
+     * Marker stored in the accessor caches when no method has been found.
+     */
+    private static final Object NO_METHOD = new Object();
+
+    /**
+     * The compiled metadata paths, by path.
+     */
+    private static final ConcurrentMap<String, ObjectPath> COMPILED_PATHS = new ConcurrentHashMap<>();
 
     private ReflectionUtilities() {}
 
@@ -441,7 +465,20 @@ public final class ReflectionUtilities {
      *
      * @return a setter to this attribute or {@code null}.
      */
-    public static Method getGetterFromName(String propertyName, final Class<?> rootClass) {
+    public static Method getGetterFromName(final String propertyName, final Class<?> rootClass) {
+        final ClassAccessors accessors = ACCESSORS.get(rootClass);
+        Object getter = accessors.getters.get(propertyName);
+        if (getter == null) {
+            getter = searchGetter(propertyName, rootClass, accessors);
+            if (getter == null) {
+                getter = NO_METHOD;
+            }
+            accessors.getters.putIfAbsent(propertyName, getter);
+        }
+        return (getter != NO_METHOD) ? (Method) getter : null;
+    }
+
+    private static Method searchGetter(String propertyName, final Class<?> rootClass, final ClassAccessors accessors) {
 
         Method getter = getGetterFromAnnotation(propertyName, rootClass);
 
@@ -462,47 +499,26 @@ public final class ReflectionUtilities {
         final String methodName  = "get" + StringUtilities.firstToUpper(propertyName);
         final String methodName2 = "is" + StringUtilities.firstToUpper(propertyName);
         final String methodName3 = propertyName;
-        int occurenceType = 0;
-
-        while (occurenceType < 3) {
-
-            try {
-                switch (occurenceType) {
-
-                    case 0: {
-                        getter = rootClass.getMethod(methodName);
-                        break;
-                    }
-                    case 1: {
-                        getter = rootClass.getMethod(methodName2);
-                        break;
-                    }
-                    case 2: {
-                        getter = rootClass.getMethod(methodName3);
-                        break;
-                    }
-                    default: break;
 
-                }
-                return getter;
-
-            } catch (NoSuchMethodException e) {
-                occurenceType++;
-            }
+        getter = accessors.publicGetters.get(methodName);
+        if (getter == null) {
+            getter = accessors.publicGetters.get(methodName2);
+        }
+        if (getter == null) {
+            getter = accessors.publicGetters.get(methodName3);
         }
 
         // look for private method
-        if (getter == null) {
-            Class superC = rootClass;
-            while (superC != null) {
-                try { getter = superC.getDeclaredMethod(methodName);} catch (NoSuchMethodException ex) {}
-                if (getter == null) {
-                    superC = superC.getSuperclass();
-                } else {
-                    getter.setAccessible(true);
+        Class superC = rootClass;
+        while (getter == null && superC != null) {
+            for (Method method : superC.getDeclaredMethods()) {
+                if (method.getName().equals(methodName) && method.getParameterTypes().length == 0) {
+                    method.setAccessible(true);
+                    getter = method;
                     break;
                 }
             }
+            superC = superC.getSuperclass();
         }
         return getter;
     }
@@ -518,6 +534,19 @@ public final class ReflectionUtilities {
      * @return a setter to this attribute or {@code null}.
      */
     public static Method getGetterFromAnnotation(final String propertyName, final Class<?> rootClass) {
+        final ClassAccessors accessors = ACCESSORS.get(rootClass);
+        Object getter = accessors.annotatedGetters.get(propertyName);
+        if (getter == null) {
+            getter = searchGetterFromAnnotation(propertyName, rootClass);
+            if (getter == null) {
+                getter = NO_METHOD;
+            }
+            accessors.annotatedGetters.putIfAbsent(propertyName, getter);
+        }
+        return (getter != NO_METHOD) ? (Method) getter : null;
+    }
+
+    private static Method searchGetterFromAnnotation(final String propertyName, final Class<?> rootClass) {
         for (Method method : rootClass.getMethods()) {
             final XmlElement annotation = method.getAnnotation(XmlElement.class);
             if (annotation != null && annotation.name().equals(propertyName)) {
@@ -548,7 +577,21 @@ public final class ReflectionUtilities {
      *
      * @return a setter to this attribute or {@code null}.
      */
-    public static Method getSetterFromName(String propertyName, final Class<?> paramClass, final Class<?> rootClass) {
+    public static Method getSetterFromName(final String propertyName, final Class<?> paramClass, final Class<?> rootClass) {
+        final ClassAccessors accessors = ACCESSORS.get(rootClass);
+        final String key = propertyName + ':' + paramClass.getName();
+        Object setter = accessors.setters.get(key);
+        if (setter == null) {
+            setter = searchSetter(propertyName, paramClass, rootClass);
+            if (setter == null) {
+                setter = NO_METHOD;
+            }
+            accessors.setters.putIfAbsent(key, setter);
+        }
+        return (setter != NO_METHOD) ? (Method) setter : null;
+    }
+
+    private static Method searchSetter(String propertyName, final Class<?> paramClass, final Class<?> rootClass) {
         LOGGER.finer("search for a setter in " + rootClass.getName() + " of type :" + paramClass.getName());
 
         if ("dataSetURI".equals(propertyName)) {
@@ -749,6 +792,39 @@ public final class ReflectionUtilities {
         return result;
     }
 
+    /**
+     * Return the compiled form of the specified path.
+     * The compiled paths are cached, so each distinct path is parsed only once.
+     *
+     * @param pathID A path on the form Standard:Type:attribute1:attribute2, optionally with a condition.
+     * @return the compiled path.
+     */
+    public static ObjectPath compilePath(final String pathID) {
+        ObjectPath compiled = COMPILED_PATHS.get(pathID);
+        if (compiled == null) {
+            compiled = new ObjectPath(pathID);
+            final ObjectPath previous = COMPILED_PATHS.putIfAbsent(pathID, compiled);
+            if (previous != null) {
+                compiled = previous;
+            }
+        }
+        return compiled;
+    }
+
+    /**
+     * Return the compiled form of the specified paths.
+     *
+     * @param pathIDs A list of path on the form Standard:Type:attribute1:attribute2.
+     * @return the compiled paths.
+     */
+    public static List<ObjectPath> compilePaths(final List<String> pathIDs) {
+        final List<ObjectPath> results = new ArrayList<>(pathIDs.size());
+        for (String pathID : pathIDs) {
+            results.add(compilePath(pathID));
+        }
+        return results;
+    }
+
     /**
      * Return true if the path is applicable to the specified metadata type.
      *
@@ -779,7 +855,6 @@ public final class ReflectionUtilities {
      * @return
      */
     public static Object getAttributeValue(Object object, String attributeName) {
-        Object result = null;
         int ordinal   = -1;
         if (attributeName.indexOf('[') != -1){
             final String tmp = attributeName.substring(attributeName.indexOf('[') + 1, attributeName.length() - 1);
@@ -790,25 +865,44 @@ public final class ReflectionUtilities {
                 LOGGER.log(Level.WARNING, "Unable to parse the ordinal {0}", tmp);
             }
         }
+        return getAttributeValue(object, attributeName, ordinal);
+    }
+
+    /**
+     * Call a get method on the specified object named get'AttributeName'() and return the result.
+     *
+     * @param object An object.
+     * @param attributeName The name of the attribute that you want the value, without ordinal.
+     * @param ordinal The index of the value wanted if the result is a collection, or -1 for the whole result.
+     * @return
+     */
+    public static Object getAttributeValue(Object object, String attributeName, final int ordinal) {
+        Object result = null;
         if (object != null) {
             if (object instanceof JAXBElement) {
                object = ((JAXBElement)object).getValue();
             }
-            final String getterId = object.getClass().getName() + ':' + attributeName;
-            Method getter         = GETTERS.get(getterId);
-            if (getter != null) {
-                result = invokeMethod(object, getter);
-            } else {
+            final ClassAccessors accessors = ACCESSORS.get(object.getClass());
+            Object getter = accessors.attributeGetters.get(attributeName);
+            if (getter == null) {
+                final String propertyName;
                 if (attributeName.equalsIgnoreCase("referenceSystemIdentifier")) {
-                    attributeName = "name";
+                    propertyName = "name";
+                } else {
+                    propertyName = attributeName;
                 }
-                getter = getGetterFromName(attributeName, object.getClass());
-                if (getter != null) {
-                    GETTERS.put(object.getClass().getName() + ':' + attributeName, getter);
-                    result = invokeMethod(object, getter);
+                final Method method = getGetterFromName(propertyName, object.getClass());
+                if (method != null) {
+                    getter = new Getter(method);
                 } else {
-                    LOGGER.finer("No getter have been found for attribute " + attributeName + " in the class " + object.getClass().getName());
+                    getter = NO_METHOD;
                 }
+                accessors.attributeGetters.putIfAbsent(attributeName, getter);
+            }
+            if (getter != NO_METHOD) {
+                result = ((Getter) getter).invoke(object);
+            } else if (LOGGER.isLoggable(Level.FINER)) {
+                LOGGER.finer("No getter have been found for attribute " + attributeName + " in the class " + object.getClass().getName());
             }
         }
         if (result instanceof JAXBElement) {
@@ -910,7 +1004,7 @@ public final class ReflectionUtilities {
      * @param conditionalValue
      * @return
      */
-    private static boolean matchCondition(Object metadata, String conditionalAttribute, String conditionalValue) {
+    static boolean matchCondition(Object metadata, String conditionalAttribute, String conditionalValue) {
         final Object conditionalObj = ReflectionUtilities.getAttributeValue(metadata, conditionalAttribute);
         final String attributValue;
         if (conditionalObj instanceof org.opengis.util.CodeList) {
@@ -943,16 +1037,7 @@ public final class ReflectionUtilities {
      * @return
      */
     public static boolean instanceOf(final String fullClassName, Class c) {
-        if (c != null) {
-            Class currentClass = c;
-            do {
-                if (currentClass.getName().equals(fullClassName)) {
-                    return true;
-                }
-                currentClass = currentClass.getSuperclass();
-            } while (currentClass != null);
-        }
-        return false;
+        return c != null && ACCESSORS.get(c).superClassNames.contains(fullClassName);
     }
 
     /**
@@ -978,4 +1063,92 @@ public final class ReflectionUtilities {
         }
         return value;
     }
+
+    /**
+     * The accessors resolved for a class. The negative results are also kept,
+     * so a missing getter is searched only once.
+     */
+    private static final class ClassAccessors {
+
+        /**
+         * The public methods without parameter, by name.
+         */
+        private final Map<String, Method> publicGetters = new HashMap<>();
+
+        /**
+         * The names of the class and its super classes.
+         */
+        private final Set<String> superClassNames = new HashSet<>();
+
+        private final ConcurrentMap<String, Object> getters = new ConcurrentHashMap<>();
+
+        private final ConcurrentMap<String, Object> annotatedGetters = new ConcurrentHashMap<>();
+
+        private final ConcurrentMap<String, Object> attributeGetters = new ConcurrentHashMap<>();
+
+        /**
+         * The setters, by property name and parameter class name.
+         */
+        private final ConcurrentMap<String, Object> setters = new ConcurrentHashMap<>();
+
+        private ClassAccessors(final Class<?> type) {
+            for (Method method : type.getMethods()) {
+                if (method.getParameterTypes().length == 0) {
+                    final Method previous = publicGetters.get(method.getName());
+                    // like Class.getMethod, keep the method with the most specific return type
+                    if (previous == null || previous.getReturnType().isAssignableFrom(method.getReturnType())) {
+                        publicGetters.put(method.getName(), method);
+                    }
+                }
+            }
+            Class<?> currentClass = type;
+            do {
+                superClassNames.add(currentClass.getName());
+                currentClass = currentClass.getSuperclass();
+            } while (currentClass != null);
+        }
+    }
+
+    /**
+     * A getter invoked through a method handle, with the same error handling than {@link #invokeMethod(Object, Method)}.
+     */
+    private static final class Getter {
+
+        private static final MethodType TYPE = MethodType.methodType(Object.class, Object.class);
+
+        private final Method method;
+
+        private final MethodHandle handle;
+
+        private Getter(final Method method) {
+            this.method = method;
+            MethodHandle mh;
+            try {
+                mh = MethodHandles.lookup().unreflect(method).asType(TYPE);
+            } catch (IllegalAccessException ex) {
+                // the method will be invoked by reflection
+                mh = null;
+            }
+            this.handle = mh;
+        }
+
+        private Object invoke(final Object object) {
+            if (handle == null) {
+                return invokeMethod(object, method);
+            }
+            try {
+                return (Object) handle.invokeExact(object);
+            } catch (ClassCastException ex) {
+                LOGGER.log(Level.WARNING, "Unable to invoke the method {0}: the argument does not match with the method.", method);
+            } catch (RuntimeException ex) {
+                LOGGER.log(Level.WARNING, "Unable to invoke the method " + method + ": an Exception was thrown by the invoked method.", ex);
+            } catch (Error ex) {
+                throw ex;
+            } catch (Throwable ex) {
+                // a checked exception thrown by the getter, as an InvocationTargetException by reflection
+                LOGGER.log(Level.WARNING, "Unable to invoke the method " + method + ": an Exception was thrown by the invoked method.", ex);
+            }
+            return null;
+        }
+    }
 }
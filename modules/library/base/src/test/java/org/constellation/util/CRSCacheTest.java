@@ -0,0 +1,49 @@
+/*
+ *    Constellation - An open source and standard compliant SDI
+ *    http://www.constellation-sdi.org
+ *
+ * Copyright 2014 Geomatys.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.constellation.util;
+
+import org.junit.Test;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.operation.MathTransform;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ *
+ * @author Guilhem Legal (Geomatys)
+ */
+public class CRSCacheTest {
+
+    @Test
+    public void decodeTest() throws Exception {
+        final CoordinateReferenceSystem crs = CRSCache.decode("CRS:84");
+        assertNotNull(crs);
+        assertSame(crs, CRSCache.decode("CRS:84"));
+        assertSame(CRSCache.decode("CRS:84", true), CRSCache.decode("CRS:84", true));
+
+        final MathTransform transform = CRSCache.findMathTransform(crs, crs);
+        assertTrue(transform.isIdentity());
+        assertSame(transform, CRSCache.findMathTransform(crs, crs));
+
+        CRSCache.clear();
+        assertNotNull(CRSCache.decode("CRS:84"));
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ *    Constellation - An open source and standard compliant SDI
+ *    http://www.constellation-sdi.org
+ *
+ * Copyright 2014 Geomatys.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.constellation.util;
+
+import org.apache.sis.util.logging.Logging;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.w3c.dom.Node;
+import org.xml.sax.InputSource;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Measure the time to extract the indexed values of a metadata with the paths parsed at each call,
+ * with the compiled paths, and with the compiled paths sharing the nodes of their common prefixes.
+ * The extracted values are checked by {@link NodeUtilitiesTest}.
+ *
+ * @author Guilhem Legal (Geomatys)
+ */
+public class NodeUtilitiesBenchmarkTest {
+
+    private static final Logger LOGGER = Logging.getLogger("org.constellation.util");
+
+    private static final int NB_ITERATION = 20000;
+
+    private static Node metadata;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        final DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+        dbf.setNamespaceAware(true);
+        metadata = dbf.newDocumentBuilder().parse(new InputSource(new StringReader(NodeUtilitiesTest.METADATA))).getDocumentElement();
+    }
+
+    @Test
+    public void extractValuesBenchmark() throws Exception {
+        final List<Object> expected = NodeUtilities.extractValues(metadata, NodeUtilitiesTest.PATHS);
+        final List<NodePath> compiled = NodeUtilities.compilePaths(NodeUtilitiesTest.PATHS);
+        List<Object> result = null;
+
+        // warm up
+        for (int i = 0; i < NB_ITERATION; i++) {
+            NodeUtilities.extractPathValues(metadata, parse(), null);
+            NodeUtilities.extractPathValues(metadata, compiled, new HashMap<String, List<Node>>());
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < NB_ITERATION; i++) {
+            result = NodeUtilities.extractPathValues(metadata, parse(), null);
+        }
+        final long parsed = System.nanoTime() - start;
+        assertEquals(expected, result);
+
+        start = System.nanoTime();
+        for (int i = 0; i < NB_ITERATION; i++) {
+            result = NodeUtilities.extractValues(metadata, NodeUtilitiesTest.PATHS);
+        }
+        final long cached = System.nanoTime() - start;
+        assertEquals(expected, result);
+
+        start = System.nanoTime();
+        for (int i = 0; i < NB_ITERATION; i++) {
+            result = NodeUtilities.extractPathValues(metadata, compiled, new HashMap<String, List<Node>>());
+        }
+        final long shared = System.nanoTime() - start;
+        assertEquals(expected, result);
+
+        LOGGER.log(Level.INFO, "path extraction of {0} metadata: parsed paths {1} ms, compiled paths {2} ms, with shared nodes {3} ms",
+                new Object[]{NB_ITERATION, parsed / 1000000, cached / 1000000, shared / 1000000});
+    }
+
+    /**
+     * Parse the paths without the cache of the compiled paths.
+     */
+    private static List<NodePath> parse() {
+        final List<NodePath> paths = new ArrayList<>(NodeUtilitiesTest.PATHS.size());
+        for (String path : NodeUtilitiesTest.PATHS) {
+            paths.add(new NodePath(path));
+        }
+        return paths;
+    }
+}
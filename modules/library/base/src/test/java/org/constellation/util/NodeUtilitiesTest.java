@@ -0,0 +1,108 @@
+/*
+ *    Constellation - An open source and standard compliant SDI
+ *    http://www.constellation-sdi.org
+ *
+ * Copyright 2014 Geomatys.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.constellation.util;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.w3c.dom.Node;
+import org.xml.sax.InputSource;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ *
+ * @author Guilhem Legal (Geomatys)
+ */
+public class NodeUtilitiesTest {
+
+    static final String METADATA =
+            "<gmd:MD_Metadata xmlns:gmd=\"http://www.isotc211.org/2005/gmd\" xmlns:gco=\"http://www.isotc211.org/2005/gco\">"
+          + " <gmd:identificationInfo><gmd:MD_DataIdentification>"
+          + "  <gmd:citation><gmd:CI_Citation>"
+          + "   <gmd:title><gco:CharacterString>title1</gco:CharacterString></gmd:title>"
+          + "   <gmd:date><gmd:CI_Date>"
+          + "    <gmd:date><gco:DateTime>2009-01-01T00:00:00</gco:DateTime></gmd:date>"
+          + "    <gmd:dateType><gmd:CI_DateTypeCode codeListValue=\"creation\">creation</gmd:CI_DateTypeCode></gmd:dateType>"
+          + "   </gmd:CI_Date></gmd:date>"
+          + "   <gmd:date><gmd:CI_Date>"
+          + "    <gmd:date><gco:DateTime>2010-01-01T00:00:00</gco:DateTime></gmd:date>"
+          + "    <gmd:dateType><gmd:CI_DateTypeCode codeListValue=\"revision\">revision</gmd:CI_DateTypeCode></gmd:dateType>"
+          + "   </gmd:CI_Date></gmd:date>"
+          + "  </gmd:CI_Citation></gmd:citation>"
+          + "  <gmd:extent><gmd:EX_Extent><gmd:geographicElement><gmd:EX_GeographicBoundingBox>"
+          + "   <gmd:westBoundLongitude><gco:Decimal>1.1</gco:Decimal></gmd:westBoundLongitude>"
+          + "   <gmd:eastBoundLongitude><gco:Decimal>1.2</gco:Decimal></gmd:eastBoundLongitude>"
+          + "  </gmd:EX_GeographicBoundingBox></gmd:geographicElement></gmd:EX_Extent></gmd:extent>"
+          + " </gmd:MD_DataIdentification></gmd:identificationInfo>"
+          + "</gmd:MD_Metadata>";
+
+    static final List<String> PATHS = Arrays.asList(
+            "/gmd:MD_Metadata/gmd:identificationInfo/gmd:MD_DataIdentification/gmd:citation/gmd:CI_Citation/gmd:title/gco:CharacterString",
+            "/gmd:MD_Metadata/gmd:identificationInfo/gmd:MD_DataIdentification/gmd:citation/gmd:CI_Citation/gmd:date/gmd:CI_Date#gmd:dateType/gmd:CI_DateTypeCode=revision/gmd:date/gco:DateTime",
+            "/gmd:MD_Metadata/gmd:identificationInfo/gmd:MD_DataIdentification/gmd:citation/gmd:CI_Citation/gmd:date[1]/gmd:CI_Date/gmd:dateType/gmd:CI_DateTypeCode",
+            "/gmd:MD_Metadata/gmd:identificationInfo/gmd:MD_DataIdentification/gmd:extent/gmd:EX_Extent/gmd:geographicElement/gmd:EX_GeographicBoundingBox/gmd:westBoundLongitude/gco:Decimal",
+            "/gmd:MD_Metadata/gmd:identificationInfo/gmd:MD_DataIdentification/gmd:extent/gmd:EX_Extent/gmd:geographicElement/gmd:EX_GeographicBoundingBox/gmd:eastBoundLongitude/gco:Decimal",
+            "/gmi:MI_Metadata/gmd:fileIdentifier/gco:CharacterString");
+
+    private static Node metadata;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        final DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+        dbf.setNamespaceAware(true);
+        metadata = dbf.newDocumentBuilder().parse(new InputSource(new StringReader(METADATA))).getDocumentElement();
+    }
+
+    @Test
+    public void extractValuesTest() throws Exception {
+        assertEquals(Arrays.asList((Object)"title1"), NodeUtilities.extractValues(metadata, PATHS.subList(0, 1)));
+        assertEquals(Arrays.asList((Object)"creation"), NodeUtilities.extractValues(metadata, PATHS.subList(2, 3)));
+        assertEquals(Arrays.asList((Object)1.1, 1.2), NodeUtilities.extractValues(metadata, PATHS.subList(3, 5)));
+        assertEquals(Arrays.asList((Object)"null"), NodeUtilities.extractValues(metadata, PATHS.subList(5, 6)));
+
+        final List<Object> revision = NodeUtilities.extractValues(metadata, PATHS.subList(1, 2));
+        assertEquals(1, revision.size());
+        assertEquals(NodeUtilities.extractValues(metadata, Arrays.asList("/gmd:MD_Metadata/gmd:identificationInfo/gmd:MD_DataIdentification/gmd:citation/gmd:CI_Citation/gmd:date[2]/gmd:CI_Date/gmd:date/gco:DateTime")),
+                     revision);
+    }
+
+    @Test
+    public void compiledPathTest() throws Exception {
+        final NodePath path = NodeUtilities.compilePath(PATHS.get(0));
+        assertSame(path, NodeUtilities.compilePath(PATHS.get(0)));
+
+        // the values are the same when the nodes are shared between the paths
+        final List<NodePath> paths = NodeUtilities.compilePaths(PATHS);
+        final Map<String, List<Node>> visited = new HashMap<>();
+        for (int i = 0; i < PATHS.size(); i++) {
+            assertEquals(NodeUtilities.extractValues(metadata, PATHS.subList(i, i + 1)),
+                         NodeUtilities.extractPathValues(metadata, paths.subList(i, i + 1), visited));
+        }
+        assertEquals(NodeUtilities.extractValues(metadata, PATHS), NodeUtilities.extractPathValues(metadata, paths, visited));
+    }
+}
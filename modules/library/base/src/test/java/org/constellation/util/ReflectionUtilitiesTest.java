@@ -48,6 +48,7 @@ import org.opengis.metadata.identification.DataIdentification;
 import org.opengis.metadata.identification.KeywordType;
 import org.opengis.util.InternationalString;
 
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
@@ -55,6 +56,9 @@ import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 // JUnit dependencies
@@ -420,4 +424,71 @@ public class ReflectionUtilitiesTest {
          assertFalse(ReflectionUtilities.instanceOf("org.geotoolkit.ebrim.xml.v250.RegistryObjectType", NotifyActionType.class));
          
     }
+
+    @Test
+    public void compiledPathTest() {
+        DefaultMetadata metadata = new DefaultMetadata();
+        DefaultDataIdentification identification = new DefaultDataIdentification();
+        DefaultCitation citation = new DefaultCitation();
+        DefaultCitationDate date1 = new DefaultCitationDate(new Date(1245587454), DateType.CREATION);
+        DefaultCitationDate date2 = new DefaultCitationDate(new Date(1253587454), DateType.REVISION);
+        citation.setDates(Arrays.asList(date1, date2));
+        citation.setTitle(new SimpleInternationalString("title1"));
+        identification.setCitation(citation);
+        List<ResponsibleParty> pocs = new ArrayList<ResponsibleParty>();
+        DefaultResponsibleParty poc1 = new DefaultResponsibleParty(Role.ORIGINATOR);
+        poc1.setOrganisationName(new DefaultInternationalString("orgniz1"));
+        pocs.add(poc1);
+        DefaultResponsibleParty poc2 = new DefaultResponsibleParty(Role.PUBLISHER);
+        poc2.setOrganisationName(new DefaultInternationalString("orgniz2"));
+        pocs.add(poc2);
+        identification.setPointOfContacts(pocs);
+        metadata.setIdentificationInfo(Arrays.asList(identification));
+
+        ObjectPath path = ReflectionUtilities.compilePath("ISO 19115:MD_Metadata:identificationInfo:citation:title");
+        assertSame(path, ReflectionUtilities.compilePath("ISO 19115:MD_Metadata:identificationInfo:citation:title"));
+        assertTrue(path.matchType(metadata));
+        assertFalse(path.isConditional());
+        assertEquals(ReflectionUtilities.getValuesFromPath("ISO 19115:MD_Metadata:identificationInfo:citation:title", metadata), path.getValues(metadata));
+
+        path = ReflectionUtilities.compilePath("ISO 19115:MD_Metadata:identificationInfo:citation:date[1]:date");
+        assertEquals(ReflectionUtilities.getValuesFromPath("ISO 19115:MD_Metadata:identificationInfo:citation:date[1]:date", metadata), path.getValues(metadata));
+
+        path = ReflectionUtilities.compilePath("ISO 19115:MD_Metadata:identificationInfo:citation:date#dateType=revision:date");
+        assertTrue(path.isConditional());
+        Object result = path.getValues(metadata);
+        assertTrue(result instanceof Date);
+        assertEquals(1253587454, ((Date)result).getTime());
+
+        path = ReflectionUtilities.compilePath("ISO 19115:MD_Metadata:identificationInfo:pointOfContact#role=publisher:organisationName");
+        assertEquals(ReflectionUtilities.getConditionalValuesFromPath("ISO 19115:MD_Metadata:identificationInfo:pointOfContact:organisationName", "role", "publisher", metadata),
+                     path.getValues(metadata));
+
+        path = ReflectionUtilities.compilePath("ISO 19115:CI_ResponsibleParty:organisationName");
+        assertFalse(path.matchType(metadata));
+        assertNull(path.getValues(metadata));
+    }
+
+    @Test
+    public void getterCacheTest() {
+        final Method getter = ReflectionUtilities.getGetterFromName("title", DefaultCitation.class);
+        assertNotNull(getter);
+        assertEquals("getTitle", getter.getName());
+        assertSame(getter, ReflectionUtilities.getGetterFromName("title", DefaultCitation.class));
+
+        // the negative results are also cached
+        assertNull(ReflectionUtilities.getGetterFromName("unexistingAttribute", DefaultCitation.class));
+        assertNull(ReflectionUtilities.getGetterFromName("unexistingAttribute", DefaultCitation.class));
+
+        final Method setter = ReflectionUtilities.getSetterFromName("title", SimpleInternationalString.class, DefaultCitation.class);
+        assertNotNull(setter);
+        assertSame(setter, ReflectionUtilities.getSetterFromName("title", SimpleInternationalString.class, DefaultCitation.class));
+
+        final DefaultCitation citation = new DefaultCitation();
+        final InternationalString title = new SimpleInternationalString("title1");
+        citation.setTitle(title);
+        assertEquals(title, ReflectionUtilities.getAttributeValue(citation, "title"));
+        assertNull(ReflectionUtilities.getAttributeValue(citation, "unexistingAttribute"));
+        assertNull(ReflectionUtilities.getAttributeValue(null, "title"));
+    }
 }
@@ -30,11 +30,23 @@ import org.apache.lucene.document.FloatField;
 import org.apache.lucene.document.IntField;
 import org.apache.lucene.document.LongField;
 import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.CorruptIndexException;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.LockObtainFailedException;
+import org.apache.lucene.store.SimpleFSDirectory;
+import org.apache.lucene.util.Version;
 import org.apache.sis.util.NullArgumentException;
+import org.constellation.configuration.AppProperty;
+import org.constellation.configuration.Application;
 import org.geotoolkit.lucene.IndexingException;
 import org.geotoolkit.lucene.index.AbstractIndexer;
+import org.geotoolkit.util.collection.CloseableIterator;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -42,6 +54,12 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.StringTokenizer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 
 import static org.constellation.metadata.CSWQueryable.DUBLIN_CORE_QUERYABLE;
@@ -64,6 +82,42 @@ public abstract class AbstractCSWIndexer<A> extends AbstractIndexer<A> {
 
     private final Map<String, List<String>> additionalQueryable;
 
+    /**
+     * The standard queryable sets, without the fields overridden by the additional queryable set.
+     * They are computed once, instead of for each indexed document.
+     */
+    private final Map<String, List<String>> isoQueryable;
+    private final Map<String, List<String>> fcQueryable;
+    private final Map<String, List<String>> dcQueryable;
+
+    /**
+     * The number of records waiting in each stage of the indexation pipeline, by document building thread.
+     */
+    private static final int QUEUE_SIZE_PER_THREAD = 4;
+
+    /**
+     * The name of the file storing the start time of the last complete indexation, in the index directory.
+     */
+    private static final String LAST_INDEXATION_FILE = "last-indexation";
+
+    /**
+     * The key of the indexation progress, the name of the configuration directory
+     * (which is the service identifier for a CSW instance).
+     */
+    private final String progressKey;
+
+    /**
+     * The number of threads building the documents during an indexation.
+     */
+    private int indexationThreads = getDefaultIndexationThreads();
+
+    /**
+     * The document already built by the indexation pipeline for the entry being written.
+     * Only accessed by the thread writing the index.
+     */
+    private A pendingEntry;
+    private Document pendingDocument;
+
     protected static final FieldType ID_TYPE = new FieldType();
     static {
         ID_TYPE.setTokenized(false);
@@ -106,6 +160,10 @@ public abstract class AbstractCSWIndexer<A> extends AbstractIndexer<A> {
         } else {
             this.additionalQueryable = new HashMap<>();
         }
+        this.isoQueryable = removeOverridenField(ISO_QUERYABLE);
+        this.fcQueryable  = removeOverridenField(ISO_FC_QUERYABLE);
+        this.dcQueryable  = removeOverridenField(DUBLIN_CORE_QUERYABLE);
+        this.progressKey  = (configDirectory != null) ? configDirectory.getName() : indexID;
     }
 
     /**
@@ -123,6 +181,10 @@ public abstract class AbstractCSWIndexer<A> extends AbstractIndexer<A> {
         } else {
             this.additionalQueryable = new HashMap<>();
         }
+        this.isoQueryable = removeOverridenField(ISO_QUERYABLE);
+        this.fcQueryable  = removeOverridenField(ISO_FC_QUERYABLE);
+        this.dcQueryable  = removeOverridenField(DUBLIN_CORE_QUERYABLE);
+        this.progressKey  = (configDirectory != null) ? configDirectory.getName() : indexID;
     }
 
     /**
@@ -134,6 +196,24 @@ public abstract class AbstractCSWIndexer<A> extends AbstractIndexer<A> {
     */
     @Override
     protected Document createDocument(final A metadata, final int docId) throws IndexingException {
+        if (pendingDocument != null && pendingEntry == metadata) {
+            // the document has been built by the indexation pipeline, only the document id is missing.
+            final Document doc = pendingDocument;
+            doc.removeField("docid");
+            doc.add(new Field("docid", docId + "", ID_TYPE));
+            return doc;
+        }
+        return buildDocument(metadata, docId);
+    }
+
+    /**
+     * Build the Lucene document of a metadata object. This method can be called by many threads in the same time.
+     *
+     * @param metadata The metadata to index.
+     * @param docId the document identifier.
+     * @return A Lucene document.
+     */
+    private Document buildDocument(final A metadata, final int docId) throws IndexingException {
         // make a new, empty document
         final Document doc = new Document();
         doc.add(new Field("docid", docId + "", ID_TYPE));
@@ -145,7 +225,6 @@ public abstract class AbstractCSWIndexer<A> extends AbstractIndexer<A> {
 
         // For an ISO 19139 object
         if (isISO19139(metadata)) {
-            final Map<String, List<String>> isoQueryable = removeOverridenField(ISO_QUERYABLE);
             indexQueryableSet(doc, metadata, isoQueryable, anyText);
 
             //we add the geometry parts
@@ -160,7 +239,6 @@ public abstract class AbstractCSWIndexer<A> extends AbstractIndexer<A> {
             // TODO
             doc.add(new Field("objectType", "Ebrim", SEARCH_TYPE));
         } else if (isFeatureCatalogue(metadata)) {
-            final Map<String, List<String>> fcQueryable = removeOverridenField(ISO_FC_QUERYABLE);
             indexQueryableSet(doc, metadata, fcQueryable, anyText);
             
             doc.add(new Field("objectType", "FC_FeatureCatalogue", SEARCH_TYPE));
@@ -172,7 +250,6 @@ public abstract class AbstractCSWIndexer<A> extends AbstractIndexer<A> {
         }
 
         // All metadata types must be compatible with dublinCore.
-        final Map<String, List<String>> dcQueryable = removeOverridenField(DUBLIN_CORE_QUERYABLE);
         indexQueryableSet(doc, metadata, dcQueryable, anyText);
 
         //we add the geometry parts if its nor already indexed
@@ -281,8 +358,11 @@ public abstract class AbstractCSWIndexer<A> extends AbstractIndexer<A> {
             fieldType = 'u';
             LOGGER.log(Level.WARNING, "Unexpected Number type:{0}", numValue.getClass().getName());
         }
-        addNumericField(fieldName, fieldType);
-        addNumericField(fieldName + "_sort", fieldType);
+        // the documents can be built by many threads
+        synchronized (this) {
+            addNumericField(fieldName, fieldType);
+            addNumericField(fieldName + "_sort", fieldType);
+        }
         doc.add(numField);
         doc.add(numSortField);
     }
@@ -334,7 +414,9 @@ public abstract class AbstractCSWIndexer<A> extends AbstractIndexer<A> {
         final List<Double> minys = extractPositions(form, queryableSet.get("SouthBoundLatitude"));
         try {
             if (minxs.size() == minys.size() && minys.size() == maxxs.size() && maxxs.size() == maxys.size()) {
-                addBoundingBox(doc, minxs, maxxs, minys, maxys, srid);
+                synchronized (this) {
+                    addBoundingBox(doc, minxs, maxxs, minys, maxys, srid);
+                }
                 return true;
             } else {
                 LOGGER.log(Level.WARNING,NOT_SPATIALLY_INDEXABLE + "{0}\n cause: missing coordinates.", getIdentifier(form));
@@ -371,6 +453,369 @@ public abstract class AbstractCSWIndexer<A> extends AbstractIndexer<A> {
         return coordinate;
     }
 
+    /**
+     * Create a new index with all the records of the datasource.
+     *
+     * The records are read by one thread, the documents are built by {@link #getIndexationThreads()} threads
+     * and written in the index by the calling thread. The stages are connected by bounded queues,
+     * so only a few records are kept in memory. The progress can be followed with {@link IndexationProgress}.
+     *
+     * @throws IndexingException If an error occurs while writing the index.
+     */
+    @Override
+    public void createIndex() throws IndexingException {
+        index(null, System.currentTimeMillis());
+    }
+
+    /**
+     * Index only the records modified since the last indexation.
+     * The records removed from the datasource are not removed from the index by this method.
+     *
+     * @return {@code false} if there is no previous indexation or if the datasource
+     * can not list the modified records. In this case a complete indexation is needed.
+     * @throws IndexingException If an error occurs while writing the index.
+     */
+    public boolean updateIndex() throws IndexingException {
+        final long lastIndexation = getLastIndexationTime();
+        if (lastIndexation == -1) {
+            return false;
+        }
+        // the records modified while listing them will be indexed by the next update
+        final long start = System.currentTimeMillis();
+        final List<String> identifiers = getModifiedIdentifiers(lastIndexation);
+        if (identifiers == null) {
+            return false;
+        }
+        LOGGER.log(logLevel, "{0} records modified since the last indexation", identifiers.size());
+        for (String identifier : identifiers) {
+            removeDocument(identifier);
+        }
+        index(identifiers, start);
+        return true;
+    }
+
+    /**
+     * Run the indexation pipeline.
+     *
+     * @param identifiers The records to index, or {@code null} for all the records.
+     * @param start The time recorded as the last indexation time if the indexation succeed.
+     */
+    private void index(final List<String> identifiers, final long start) throws IndexingException {
+        final boolean incremental = (identifiers != null);
+        final int nbThread        = Math.max(1, indexationThreads);
+        final IndexationProgress progress = IndexationProgress.start(progressKey, -1, incremental);
+        progress.setTotal(incremental ? identifiers.size() : getIndexationSize());
+        LOGGER.log(logLevel, "Creating lucene index with {0} threads please wait...", nbThread);
+
+        final BlockingQueue<PipelineTask<A>> tasks     = new ArrayBlockingQueue<>(nbThread * QUEUE_SIZE_PER_THREAD);
+        final BlockingQueue<PipelineTask<A>> documents = new ArrayBlockingQueue<>(nbThread * QUEUE_SIZE_PER_THREAD);
+        final AtomicBoolean stop                       = new AtomicBoolean(false);
+        final AtomicReference<Exception> readError     = new AtomicReference<>();
+        final ExecutorService executor                 = Executors.newFixedThreadPool(nbThread + 1);
+        IndexationProgress.State state                 = IndexationProgress.State.FAILED;
+        try {
+            final IndexWriterConfig conf = new IndexWriterConfig(Version.LUCENE_46, analyzer);
+            final IndexWriter writer     = new IndexWriter(new SimpleFSDirectory(getFileDirectory()), conf);
+            try {
+                executor.submit(new RecordReader(identifiers, tasks, nbThread, stop, readError));
+                for (int i = 0; i < nbThread; i++) {
+                    executor.submit(new DocumentBuilder(tasks, documents, stop));
+                }
+
+                int running = nbThread;
+                while (running > 0) {
+                    final PipelineTask<A> task = documents.take();
+                    if (task == PipelineTask.END) {
+                        running--;
+                    } else if (progress.isStopRequested() || stop.get()) {
+                        // the remaining records are ignored
+                        stop.set(true);
+                    } else if (task.error != null) {
+                        LOGGER.log(Level.WARNING, "Unable to index the record:" + task.identifier, task.error);
+                        progress.failure();
+                    } else {
+                        pendingEntry    = task.entry;
+                        pendingDocument = task.document;
+                        try {
+                            indexDocument(writer, task.entry);
+                        } finally {
+                            pendingEntry    = null;
+                            pendingDocument = null;
+                        }
+                        progress.success();
+                    }
+                }
+            } finally {
+                writer.close();
+            }
+            if (readError.get() != null) {
+                throw new IndexingException("Error while reading the records to index.", readError.get());
+            }
+            if (stop.get()) {
+                LOGGER.log(Level.INFO, "Index creation stopped after {0} documents", progress.getProcessed());
+                state = IndexationProgress.State.STOPPED;
+            } else {
+                state = IndexationProgress.State.FINISHED;
+                setLastIndexationTime(start);
+            }
+
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IndexingException("Interrupted while indexing documents.", ex);
+        } catch (CorruptIndexException ex) {
+            LOGGER.log(Level.SEVERE,CORRUPTED_SINGLE_MSG + "{0}", ex.getMessage());
+            throw new IndexingException(CORRUPTED_MULTI_MSG, ex);
+        } catch (LockObtainFailedException ex) {
+            LOGGER.log(Level.SEVERE,LOCK_SINGLE_MSG + "{0}", ex.getMessage());
+            throw new IndexingException(LOCK_MULTI_MSG, ex);
+        } catch (IOException ex) {
+            LOGGER.log(Level.SEVERE,IO_SINGLE_MSG + "{0}", ex.getMessage());
+            throw new IndexingException("IOException while indexing documents.", ex);
+        } finally {
+            stop.set(true);
+            executor.shutdownNow();
+            progress.end(state);
+        }
+        LOGGER.log(logLevel, "Index creation process in " + (System.currentTimeMillis() - start) + " ms\n"
+                + " documents indexed: " + (progress.getProcessed() - progress.getFailed()) + ". rejected: " + progress.getFailed() + ".");
+    }
+
+    /**
+     * The first stage of the indexation pipeline, reading the identifiers or the entries to index.
+     */
+    private final class RecordReader implements Runnable {
+
+        private final List<String> identifiers;
+        private final BlockingQueue<PipelineTask<A>> tasks;
+        private final int nbThread;
+        private final AtomicBoolean stop;
+        private final AtomicReference<Exception> error;
+
+        private RecordReader(final List<String> identifiers, final BlockingQueue<PipelineTask<A>> tasks, final int nbThread,
+                final AtomicBoolean stop, final AtomicReference<Exception> error) {
+            this.identifiers = identifiers;
+            this.tasks       = tasks;
+            this.nbThread    = nbThread;
+            this.stop        = stop;
+            this.error       = error;
+        }
+
+        @Override
+        public void run() {
+            boolean completed = false;
+            try {
+                if (identifiers != null) {
+                    for (String identifier : identifiers) {
+                        if (stop.get()) {break;}
+                        tasks.put(new PipelineTask<A>(identifier, null));
+                    }
+                } else if (useEntryIterator()) {
+                    final Iterator<A> entries = getEntryIterator();
+                    try {
+                        while (!stop.get() && entries.hasNext()) {
+                            tasks.put(new PipelineTask<A>(null, entries.next()));
+                        }
+                    } finally {
+                        if (entries instanceof CloseableIterator) {
+                            ((CloseableIterator) entries).close();
+                        }
+                    }
+                } else {
+                    final Iterator<String> it = getIdentifierIterator();
+                    try {
+                        while (!stop.get() && it.hasNext()) {
+                            tasks.put(new PipelineTask<A>(it.next(), null));
+                        }
+                    } finally {
+                        if (it instanceof CloseableIterator) {
+                            ((CloseableIterator) it).close();
+                        }
+                    }
+                }
+                completed = true;
+            } catch (IndexingException | RuntimeException ex) {
+                error.set(ex);
+            } catch (InterruptedException ex) {
+                LOGGER.log(Level.FINER, "indexation reader interrupted");
+                Thread.currentThread().interrupt();
+            } finally {
+                if (!completed) {
+                    stop.set(true);
+                }
+                // even after an Error, the builders must be released
+                endPipeline(tasks, nbThread);
+            }
+        }
+    }
+
+    /**
+     * The second stage of the indexation pipeline, reading the entries when needed and building the documents.
+     */
+    private final class DocumentBuilder implements Runnable {
+
+        private final BlockingQueue<PipelineTask<A>> tasks;
+        private final BlockingQueue<PipelineTask<A>> documents;
+        private final AtomicBoolean stop;
+
+        private DocumentBuilder(final BlockingQueue<PipelineTask<A>> tasks, final BlockingQueue<PipelineTask<A>> documents,
+                final AtomicBoolean stop) {
+            this.tasks     = tasks;
+            this.documents = documents;
+            this.stop      = stop;
+        }
+
+        @Override
+        public void run() {
+            boolean completed = false;
+            try {
+                while (true) {
+                    final PipelineTask<A> task = tasks.take();
+                    if (task == PipelineTask.END) {
+                        completed = true;
+                        return;
+                    }
+                    if (stop.get()) {
+                        continue;
+                    }
+                    try {
+                        if (task.entry == null) {
+                            task.entry = getEntry(task.identifier);
+                        } else {
+                            task.identifier = getIdentifier(task.entry);
+                        }
+                        task.document = buildDocument(task.entry, -1);
+                    } catch (IndexingException | RuntimeException ex) {
+                        task.error = ex;
+                    }
+                    documents.put(task);
+                }
+            } catch (InterruptedException ex) {
+                LOGGER.log(Level.FINER, "indexation worker interrupted");
+                Thread.currentThread().interrupt();
+            } finally {
+                if (!completed) {
+                    stop.set(true);
+                }
+                // the writer waits for the end marker of each builder
+                endPipeline(documents, 1);
+            }
+        }
+    }
+
+    /**
+     * Send the end markers to the next stage of the pipeline.
+     * Nothing is sent if the current thread has been interrupted, as the pipeline is then shut down.
+     */
+    private static <A> void endPipeline(final BlockingQueue<PipelineTask<A>> queue, final int nbMarker) {
+        try {
+            for (int i = 0; i < nbMarker; i++) {
+                queue.put(PipelineTask.<A>end());
+            }
+        } catch (InterruptedException ex) {
+            LOGGER.log(Level.FINER, "indexation pipeline interrupted");
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * A record going through the indexation pipeline.
+     */
+    private static final class PipelineTask<A> {
+
+        /**
+         * Marker sent at the end of the records.
+         */
+        private static final PipelineTask END = new PipelineTask(null, null);
+
+        private String identifier;
+        private A entry;
+        private Document document;
+        private Exception error;
+
+        private PipelineTask(final String identifier, final A entry) {
+            this.identifier = identifier;
+            this.entry      = entry;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <A> PipelineTask<A> end() {
+            return END;
+        }
+    }
+
+    /**
+     * @return The number of threads building the documents during an indexation.
+     */
+    public int getIndexationThreads() {
+        return indexationThreads;
+    }
+
+    /**
+     * @param indexationThreads The number of threads building the documents during an indexation.
+     */
+    public void setIndexationThreads(final int indexationThreads) {
+        this.indexationThreads = indexationThreads;
+    }
+
+    private static int getDefaultIndexationThreads() {
+        final String value = Application.getProperty(AppProperty.CSW_INDEXATION_THREADS);
+        if (value != null) {
+            try {
+                final int nb = Integer.parseInt(value);
+                if (nb > 0) {
+                    return nb;
+                }
+            } catch (NumberFormatException ex) {
+                LOGGER.log(Level.WARNING, "Unable to parse the CSW indexation thread number:{0}", value);
+            }
+        }
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Return the number of records to index, used to estimate the remaining indexation time.
+     *
+     * @return The number of records, or -1 if unknown.
+     */
+    protected int getIndexationSize() {
+        return -1;
+    }
+
+    /**
+     * Return the identifiers of the records modified since the specified date.
+     *
+     * @param since A time in milliseconds.
+     * @return The modified record identifiers, or {@code null} if the datasource does not support this operation.
+     * @throws IndexingException
+     */
+    protected List<String> getModifiedIdentifiers(final long since) throws IndexingException {
+        return null;
+    }
+
+    /**
+     * @return The start time of the last complete indexation, or -1 if unknown.
+     */
+    private long getLastIndexationTime() {
+        final File f = new File(getFileDirectory(), LAST_INDEXATION_FILE);
+        if (f.isFile()) {
+            try {
+                return Long.parseLong(new String(Files.readAllBytes(f.toPath()), StandardCharsets.UTF_8).trim());
+            } catch (IOException | NumberFormatException ex) {
+                LOGGER.log(Level.WARNING, "Unable to read the last indexation time", ex);
+            }
+        }
+        return -1;
+    }
+
+    private void setLastIndexationTime(final long time) {
+        final File f = new File(getFileDirectory(), LAST_INDEXATION_FILE);
+        try {
+            Files.write(f.toPath(), Long.toString(time).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Unable to write the last indexation time", ex);
+        }
+    }
+
     @Override
     protected Iterator<A> getEntryIterator() throws IndexingException {
         throw new UnsupportedOperationException("Not supported by this implementation");
@@ -0,0 +1,236 @@
+/*
+ *    Constellation - An open source and standard compliant SDI
+ *    http://www.constellation-sdi.org
+ *
+ * Copyright 2014 Geomatys.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.constellation.metadata.index;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.queryparser.classic.QueryParser.Operator;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.Filter;
+import org.apache.lucene.search.FilteredQuery;
+import org.apache.lucene.search.NumericRangeQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TotalHitCountCollector;
+import org.apache.lucene.util.Version;
+import org.geotoolkit.lucene.IndexingException;
+import org.geotoolkit.lucene.SearchingException;
+import org.geotoolkit.lucene.filter.SerialChainFilter;
+import org.geotoolkit.lucene.filter.SpatialQuery;
+import org.geotoolkit.lucene.index.LuceneIndexSearcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+
+/**
+ * A Lucene searcher for a CSW index, able to return only a page of the matching records.
+ *
+ * Only the requested page is read from the index, so the cost of a request
+ * depends on its page size instead of the number of matching records.
+ *
+ * @author Guilhem Legal (Geomatys)
+ */
+public class CSWIndexSearcher extends LuceneIndexSearcher {
+
+    private static final Set<String> ID_FIELD = Collections.singleton("id");
+
+    /**
+     * Build a new index searcher with the index located in the specified directory.
+     * The index directory path must be :
+     * <configDir path>/<serviceID>index-<some timestamp number>
+     *
+     * @param configDir A directory containing the lucene index directory.
+     * @param serviceID The identifier of the index/service
+     * @throws IndexingException
+     */
+    public CSWIndexSearcher(final File configDir, final String serviceID) throws IndexingException {
+        super(configDir, serviceID, null, true);
+    }
+
+    /**
+     * Return a page of the record identifiers matching the specified query.
+     *
+     * @param spatialQuery The lucene query string with spatial filters.
+     * @param restriction A filter restricting the visible records (security filter), or {@code null}.
+     * @param startIndex The index of the first record to return, starting at 0.
+     * @param count The maximum number of records to return, 0 to only count the matching records.
+     *
+     * @return A page of the matching identifiers, or {@code null} if the query can not be executed
+     *         by page (OR / NOT spatial queries and sub-queries). {@link #doSearch(SpatialQuery)}
+     *         must be used in this case.
+     * @throws SearchingException
+     */
+    public SearchPage doPagedSearch(final SpatialQuery spatialQuery, final Filter restriction, final int startIndex, final int count) throws SearchingException {
+        final Filter filter = spatialQuery.getSpatialFilter();
+        final int operator  = spatialQuery.getLogicalOperator();
+        if (!spatialQuery.getSubQueries().isEmpty()
+         || !(operator == SerialChainFilter.AND || (operator == SerialChainFilter.OR && filter == null))) {
+            return null;
+        }
+        try {
+            final long start = System.currentTimeMillis();
+            Query query = parseQuery(spatialQuery.getQuery());
+            if (restriction != null) {
+                query = new FilteredQuery(query, restriction);
+            }
+
+            final int maxDoc = searcher.getIndexReader().maxDoc();
+            final SearchPage page;
+            if (count <= 0 || startIndex >= maxDoc) {
+                final TotalHitCountCollector collector = new TotalHitCountCollector();
+                searcher.search(query, filter, collector);
+                page = new SearchPage(collector.getTotalHits(), startIndex, new String[0]);
+            } else {
+                final int nbDocs = Math.max(1, Math.min(maxDoc, startIndex + count));
+                final Sort sort  = spatialQuery.getSort();
+                final TopDocs docs;
+                if (sort != null) {
+                    docs = searcher.search(query, filter, nbDocs, sort);
+                } else {
+                    docs = searcher.search(query, filter, nbDocs);
+                }
+                final ScoreDoc[] scoreDocs = docs.scoreDocs;
+                final int end = Math.min(scoreDocs.length, startIndex + count);
+                final String[] identifiers = new String[Math.max(0, end - startIndex)];
+                for (int i = startIndex; i < end; i++) {
+                    identifiers[i - startIndex] = searcher.doc(scoreDocs[i].doc, ID_FIELD).get("id");
+                }
+                page = new SearchPage(docs.totalHits, startIndex, identifiers);
+            }
+            LOGGER.log(logLevel, "{0} total matching documents, {1} returned ({2}ms)",
+                    new Object[]{page.getTotal(), page.getIdentifiers().length, System.currentTimeMillis() - start});
+            return page;
+
+        } catch (ParseException ex) {
+            throw new SearchingException("Parse Exception while performing lucene request", ex);
+        } catch (IOException ex) {
+            throw new SearchingException("IO Exception while performing lucene request", ex);
+        }
+    }
+
+    private Query parseQuery(final String queryString) throws ParseException {
+        final QueryParser parser = new NumericQueryParser("Title", analyzer, getNumericFields());
+        parser.setDefaultOperator(Operator.AND);
+
+        // we enable the leading wildcard mode if the first character of the query is a '*'
+        if (queryString.indexOf(":*") != -1 || queryString.indexOf(":?") != -1 || queryString.indexOf(":(*") != -1
+         || queryString.indexOf(":(+*") != -1 || queryString.indexOf(":+*") != -1) {
+            parser.setAllowLeadingWildcard(true);
+            BooleanQuery.setMaxClauseCount(Integer.MAX_VALUE);
+        }
+        LOGGER.log(Level.FINER, "before parse:{0}", queryString);
+        return parser.parse(queryString);
+    }
+
+    /**
+     * A query parser building numeric range queries for the numeric fields of the index.
+     */
+    private static final class NumericQueryParser extends QueryParser {
+
+        private final Map<String, Character> numericFields;
+
+        private NumericQueryParser(final String field, final Analyzer analyzer, final Map<String, Character> numericFields) {
+            super(Version.LUCENE_46, field, analyzer);
+            this.numericFields = numericFields;
+        }
+
+        @Override
+        protected Query getRangeQuery(final String field, final String part1, final String part2,
+                final boolean startInclusive, final boolean endInclusive) throws ParseException {
+            final Character type = (numericFields != null) ? numericFields.get(field) : null;
+            if (type != null) {
+                final Double min = toNumber(part1);
+                final Double max = toNumber(part2);
+                switch (type) {
+                    case 'd': return NumericRangeQuery.newDoubleRange(field, min, max, startInclusive, endInclusive);
+                    case 'f': return NumericRangeQuery.newFloatRange(field, min == null ? null : min.floatValue(),
+                                                                             max == null ? null : max.floatValue(), startInclusive, endInclusive);
+                    // the bounds out of the type range (like Integer.MAX_VALUE + 1) are clamped by the narrowing conversion
+                    case 'i': return NumericRangeQuery.newIntRange(field, min == null ? null : (int) min.doubleValue(),
+                                                                           max == null ? null : (int) max.doubleValue(), startInclusive, endInclusive);
+                    case 'l': return NumericRangeQuery.newLongRange(field, min == null ? null : (long) min.doubleValue(),
+                                                                            max == null ? null : (long) max.doubleValue(), startInclusive, endInclusive);
+                    default : break;
+                }
+            }
+            return super.getRangeQuery(field, part1, part2, startInclusive, endInclusive);
+        }
+    }
+
+    /**
+     * Parse a range bound, {@code null} for an open bound.
+     */
+    private static Double toNumber(final String bound) throws ParseException {
+        if (bound == null || "*".equals(bound)) {
+            return null;
+        }
+        try {
+            return Double.valueOf(bound);
+        } catch (NumberFormatException ex) {
+            throw new ParseException("Unable to parse the numeric range bound:" + bound);
+        }
+    }
+
+    /**
+     * A page of the identifiers matching a query.
+     */
+    public static final class SearchPage {
+
+        private final int total;
+
+        private final int startIndex;
+
+        private final String[] identifiers;
+
+        private SearchPage(final int total, final int startIndex, final String[] identifiers) {
+            this.total       = total;
+            this.startIndex  = startIndex;
+            this.identifiers = identifiers;
+        }
+
+        /**
+         * @return The number of records matching the query.
+         */
+        public int getTotal() {
+            return total;
+        }
+
+        /**
+         * @return The index of the first identifier of this page in the matching records, starting at 0.
+         */
+        public int getStartIndex() {
+            return startIndex;
+        }
+
+        /**
+         * @return The identifiers of this page.
+         */
+        public String[] getIdentifiers() {
+            return identifiers;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ *    Constellation - An open source and standard compliant SDI
+ *    http://www.constellation-sdi.org
+ *
+ * Copyright 2014 Geomatys.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.constellation.metadata.index;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The progress of an indexation, readable from another thread.
+ *
+ * The progress of the last indexation of each index is kept in a registry, by index key,
+ * so it can be requested by the administration API while the indexation is running.
+ *
+ * @author Guilhem Legal (Geomatys)
+ */
+public final class IndexationProgress {
+
+    public enum State {
+        RUNNING,
+        FINISHED,
+        STOPPED,
+        FAILED
+    }
+
+    private static final ConcurrentMap<String, IndexationProgress> PROGRESSES = new ConcurrentHashMap<>();
+
+    private final String key;
+
+    private final boolean incremental;
+
+    private final long startTime = System.currentTimeMillis();
+
+    private volatile long endTime = -1;
+
+    private volatile int total;
+
+    private final AtomicInteger processed = new AtomicInteger();
+
+    private final AtomicInteger failed = new AtomicInteger();
+
+    private volatile State state = State.RUNNING;
+
+    private volatile boolean stopRequested;
+
+    private IndexationProgress(final String key, final int total, final boolean incremental) {
+        this.key         = key;
+        this.total       = total;
+        this.incremental = incremental;
+    }
+
+    /**
+     * Register a new indexation for the specified index, replacing the progress of the previous one.
+     *
+     * @param key The index key, the CSW service identifier.
+     * @param total The number of records to index, or -1 if unknown.
+     * @param incremental {@code true} if only the modified records are indexed.
+     *
+     * @return The progress of the new indexation.
+     */
+    public static IndexationProgress start(final String key, final int total, final boolean incremental) {
+        final IndexationProgress progress = new IndexationProgress(key, total, incremental);
+        PROGRESSES.put(key, progress);
+        return progress;
+    }
+
+    /**
+     * @param key The index key, the CSW service identifier.
+     * @return The progress of the current or last indexation of the specified index, or {@code null}.
+     */
+    public static IndexationProgress get(final String key) {
+        return PROGRESSES.get(key);
+    }
+
+    /**
+     * Request the current indexation of the specified index to stop.
+     *
+     * @param key The index key, the CSW service identifier.
+     * @return {@code true} if an indexation was running.
+     */
+    public static boolean stop(final String key) {
+        final IndexationProgress progress = PROGRESSES.get(key);
+        if (progress != null && progress.state == State.RUNNING) {
+            progress.stopRequested = true;
+            return true;
+        }
+        return false;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public boolean isStopRequested() {
+        return stopRequested;
+    }
+
+    /**
+     * @return The number of records to index, or -1 if unknown.
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    void setTotal(final int total) {
+        this.total = total;
+    }
+
+    /**
+     * @return The number of records indexed or rejected.
+     */
+    public int getProcessed() {
+        return processed.get();
+    }
+
+    /**
+     * @return The number of records which could not be indexed.
+     */
+    public int getFailed() {
+        return failed.get();
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * @return The duration of the indexation in milliseconds.
+     */
+    public long getElapsedTime() {
+        final long end = endTime;
+        return (end != -1 ? end : System.currentTimeMillis()) - startTime;
+    }
+
+    /**
+     * @return The estimated remaining time in milliseconds, or -1 if it can not be estimated.
+     */
+    public long getRemainingTime() {
+        if (state != State.RUNNING) {
+            return 0;
+        }
+        final int done = processed.get();
+        final int nb   = total;
+        if (done == 0 || nb <= 0) {
+            return -1;
+        }
+        return Math.max(0, (getElapsedTime() * (nb - done)) / done);
+    }
+
+    void success() {
+        processed.incrementAndGet();
+    }
+
+    void failure() {
+        processed.incrementAndGet();
+        failed.incrementAndGet();
+    }
+
+    void end(final State state) {
+        this.endTime = System.currentTimeMillis();
+        this.state   = state;
+    }
+
+    @Override
+    public String toString() {
+        return "[IndexationProgress] " + key + ' ' + state + ' ' + processed + '/' + total + " (failed:" + failed + ')';
+    }
+}
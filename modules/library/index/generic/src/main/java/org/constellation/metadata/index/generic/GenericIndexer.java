@@ -30,6 +30,7 @@ import org.constellation.metadata.io.MetadataIoException;
 import org.constellation.metadata.io.MetadataReader;
 import org.constellation.metadata.io.MetadataType;
 import org.constellation.metadata.utils.Utils;
+import org.constellation.util.ObjectPath;
 import org.constellation.util.ReflectionUtilities;
 import org.constellation.util.Util;
 import org.constellation.util.XpathUtils;
@@ -50,6 +51,8 @@ import java.util.Map;
 import java.util.MissingResourceException;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -74,9 +77,14 @@ public class GenericIndexer extends AbstractCSWIndexer<Object> {
     private final MetadataReader reader;
 
     /**
-     * Shared Thread Pool for parallel execution
+     * Shared Thread Pool for parallel execution, with one thread by processor.
      */
-    private final ExecutorService pool = Executors.newFixedThreadPool(6);
+    private final ExecutorService pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+
+    /**
+     * The compiled metadata paths of each queryable, by list of xpath.
+     */
+    private final ConcurrentMap<List<String>, List<ObjectPath>> compiledQueryables = new ConcurrentHashMap<>();
 
     /**
      * Creates a new Lucene Index into the specified directory with the specified generic database reader.
@@ -165,6 +173,31 @@ public class GenericIndexer extends AbstractCSWIndexer<Object> {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected int getIndexationSize() {
+        try {
+            return reader.getEntryCount();
+        } catch (MetadataIoException ex) {
+            LOGGER.log(Level.FINER, "Unable to count the records to index", ex);
+            return -1;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected List<String> getModifiedIdentifiers(final long since) throws IndexingException {
+        try {
+            return reader.getModifiedIdentifiers(since);
+        } catch (MetadataIoException ex) {
+            throw new IndexingException("Metadata_IOException while reading the modified identifiers", ex);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -248,8 +281,8 @@ public class GenericIndexer extends AbstractCSWIndexer<Object> {
 
                 @Override
                 public TermValue call() {
-                    final List<String> paths = XpathUtils.xpathToMDPath(queryableSet.get(term));
-                    return new TermValue(term, extractValues(metadata, paths));
+                    final List<ObjectPath> paths = getCompiledPaths(queryableSet.get(term));
+                    return new TermValue(term, extractPathValues(metadata, paths));
                 }
             });
         }
@@ -267,6 +300,18 @@ public class GenericIndexer extends AbstractCSWIndexer<Object> {
         }
     }
 
+    /**
+     * Return the compiled metadata paths corresponding to the specified xpaths.
+     */
+    private List<ObjectPath> getCompiledPaths(final List<String> xpaths) {
+        List<ObjectPath> paths = compiledQueryables.get(xpaths);
+        if (paths == null) {
+            paths = ReflectionUtilities.compilePaths(XpathUtils.xpathToMDPath(xpaths));
+            compiledQueryables.putIfAbsent(xpaths, paths);
+        }
+        return paths;
+    }
+
     /**
      * Format the value part in case of a "date" term.
      * @param values
@@ -334,46 +379,32 @@ public class GenericIndexer extends AbstractCSWIndexer<Object> {
      * @return
      */
     public static List<Object> extractValues(final Object metadata, final List<String> paths) {
+        if (paths == null) {
+            return extractPathValues(metadata, null);
+        }
+        return extractPathValues(metadata, ReflectionUtilities.compilePaths(paths));
+    }
+
+    /**
+     * Extract the values denoted by the specified compiled paths.
+     * if there is no values corresponding to the paths the method return "null" (the string)
+     *
+     * @param metadata A metadata object.
+     * @param paths The compiled metadata paths.
+     * @return
+     */
+    public static List<Object> extractPathValues(final Object metadata, final List<ObjectPath> paths) {
         final List<Object> response  = new ArrayList<>();
 
         if (paths != null) {
-            for (String fullPathID: paths) {
-               if (!ReflectionUtilities.pathMatchObjectType(metadata, fullPathID)) {
-                   continue;
-               }
-                String pathID;
-                String conditionalAttribute = null;
-                String conditionalValue     = null;
-
-                // if the path ID contains a # we have a conditional value (codeList element) next to the searched value.
-                final int separator = fullPathID.indexOf('#');
-                if (separator != -1) {
-                    pathID               = fullPathID.substring(0, separator);
-                    conditionalAttribute = fullPathID.substring(separator + 1, fullPathID.indexOf('='));
-                    conditionalValue     = fullPathID.substring(fullPathID.indexOf('=') + 1);
-                    int nextSeparator    = conditionalValue.indexOf(':');
-                    if (nextSeparator == -1) {
-                        throw new IllegalArgumentException("A conditionnal path must be in the form ....:attribute#attibuteconditional=value:otherattribute");
-                    } else {
-                        pathID = pathID + conditionalValue.substring(nextSeparator);
-                        conditionalValue = conditionalValue.substring(0, nextSeparator);
-                    }
-                    LOGGER.finer("pathID              : " + pathID               + '\n' +
-                                 "conditionalAttribute: " + conditionalAttribute + '\n' +
-                                 "conditionalValue    : " + conditionalValue);
-                } else {
-                    pathID = fullPathID;
+            for (ObjectPath path : paths) {
+                if (!path.matchType(metadata)) {
+                    continue;
                 }
-
-                if (conditionalAttribute == null) {
-                    final Object brutValue   = ReflectionUtilities.getValuesFromPath(pathID, metadata);
-                    final List<Object> value = getStringValue(brutValue);
-                    if (value != null && !value.isEmpty() && !value.equals(Arrays.asList(NULL_VALUE))) {
-                        response.addAll(value);
-                    }
-                } else {
-                    final Object brutValue   = ReflectionUtilities.getConditionalValuesFromPath(pathID, conditionalAttribute, conditionalValue, metadata);
-                    final List<Object> value = getStringValue(brutValue);
+                final List<Object> value = getStringValue(path.getValues(metadata));
+                if (path.isConditional()) {
+                    response.addAll(value);
+                } else if (value != null && !value.isEmpty() && !value.equals(Arrays.asList(NULL_VALUE))) {
                     response.addAll(value);
                 }
             }
@@ -29,12 +29,14 @@ import org.constellation.metadata.io.MetadataIoException;
 import org.constellation.metadata.io.MetadataReader;
 import org.constellation.metadata.io.MetadataType;
 import org.constellation.metadata.utils.Utils;
+import org.constellation.util.NodePath;
 import org.constellation.util.NodeUtilities;
 import org.geotoolkit.lucene.IndexingException;
 import org.w3c.dom.Node;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -144,6 +146,31 @@ public class NodeIndexer extends AbstractCSWIndexer<Node> {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected int getIndexationSize() {
+        try {
+            return reader.getEntryCount();
+        } catch (MetadataIoException ex) {
+            LOGGER.log(Level.FINER, "Unable to count the records to index", ex);
+            return -1;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected List<String> getModifiedIdentifiers(final long since) throws IndexingException {
+        try {
+            return reader.getModifiedIdentifiers(since);
+        } catch (MetadataIoException ex) {
+            throw new IndexingException("Metadata_IOException while reading the modified identifiers", ex);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -224,8 +251,11 @@ public class NodeIndexer extends AbstractCSWIndexer<Node> {
      */
     @Override
     protected void indexQueryableSet(final Document doc, final Node metadata, final  Map<String, List<String>> queryableSet, final StringBuilder anyText) throws IndexingException {
+        // the nodes found for the path prefixes are shared between the terms
+        final Map<String, List<Node>> visited = new HashMap<>();
         for (final String term : queryableSet.keySet()) {
-            final TermValue tm = new TermValue(term, NodeUtilities.extractValues(metadata, queryableSet.get(term)));
+            final List<NodePath> paths = NodeUtilities.compilePaths(queryableSet.get(term));
+            final TermValue tm = new TermValue(term, NodeUtilities.extractPathValues(metadata, paths, visited));
 
             final NodeIndexer.TermValue values = formatStringValue(tm);
             indexFields(values.value, values.term, anyText, doc);
@@ -20,12 +20,17 @@ package org.constellation.metadata.index.generic;
 
 // J2SE dependencies
 
+import org.apache.lucene.index.Term;
 import org.apache.lucene.search.Filter;
+import org.apache.lucene.search.QueryWrapperFilter;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
 import org.apache.sis.geometry.GeneralEnvelope;
 import org.apache.sis.util.logging.Logging;
 import org.constellation.metadata.CSWQueryable;
+import org.constellation.metadata.index.CSWIndexSearcher;
+import org.constellation.metadata.index.CSWIndexSearcher.SearchPage;
 import org.constellation.test.utils.Order;
 import org.constellation.test.utils.TestRunner;
 import org.constellation.util.NodeUtilities;
@@ -35,7 +40,6 @@ import org.geotoolkit.factory.Hints;
 import org.geotoolkit.lucene.filter.LuceneOGCFilter;
 import org.geotoolkit.lucene.filter.SerialChainFilter;
 import org.geotoolkit.lucene.filter.SpatialQuery;
-import org.geotoolkit.lucene.index.LuceneIndexSearcher;
 import org.geotoolkit.referencing.CRS;
 import org.geotoolkit.util.FileUtilities;
 import org.junit.After;
@@ -85,7 +89,7 @@ public class GenericNodeindexTest {
 
     private static final Logger LOGGER = Logging.getLogger("org.constellation.metadata");
 
-    private static LuceneIndexSearcher indexSearcher;
+    private static CSWIndexSearcher indexSearcher;
 
     private static NodeIndexer indexer;
 
@@ -97,7 +101,7 @@ public class GenericNodeindexTest {
         FileUtilities.deleteDirectory(configDirectory);
         List<Node> object         = fillTestData();
         indexer                   = new NodeIndexer(object, null, configDirectory, "", true);
-        indexSearcher             = new LuceneIndexSearcher(configDirectory, "", null, true);
+        indexSearcher             = new CSWIndexSearcher(configDirectory, "");
         //indexer.setLogLevel(Level.FINER);
         //indexSearcher.setLogLevel(Level.FINER);
 
@@ -1073,6 +1077,58 @@ public class GenericNodeindexTest {
         
     }
 
+    /**
+     * Test the search of a page of the results.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    @Order(order = 12)
+    public void pagedSearchTest() throws Exception {
+        Filter nullFilter = null;
+
+        /**
+         * Test 1 all the records by page of 3
+         */
+        SpatialQuery spatialQuery = new SpatialQuery("metafile:doc", nullFilter, SerialChainFilter.AND);
+        final List<String> all    = new ArrayList<>(indexSearcher.doSearch(spatialQuery));
+
+        SearchPage page = indexSearcher.doPagedSearch(spatialQuery, null, 0, 3);
+        assertEquals(all.size(), page.getTotal());
+        assertEquals(all.subList(0, 3), Arrays.asList(page.getIdentifiers()));
+
+        page = indexSearcher.doPagedSearch(spatialQuery, null, 3, 3);
+        assertEquals(all.size(), page.getTotal());
+        assertEquals(all.subList(3, 6), Arrays.asList(page.getIdentifiers()));
+
+        page = indexSearcher.doPagedSearch(spatialQuery, null, all.size() - 1, 3);
+        assertEquals(all.subList(all.size() - 1, all.size()), Arrays.asList(page.getIdentifiers()));
+
+        /**
+         * Test 2 hits only
+         */
+        page = indexSearcher.doPagedSearch(spatialQuery, null, 0, 0);
+        assertEquals(all.size(), page.getTotal());
+        assertEquals(0, page.getIdentifiers().length);
+
+        /**
+         * Test 3 numeric search: CloudCover => 25
+         */
+        spatialQuery = new SpatialQuery("CloudCover:[25 TO 2147483648]", nullFilter, SerialChainFilter.AND);
+        page = indexSearcher.doPagedSearch(spatialQuery, null, 0, 10);
+        assertEquals(2, page.getTotal());
+        assertEquals(indexSearcher.doSearch(spatialQuery), new LinkedHashSet<>(Arrays.asList(page.getIdentifiers())));
+
+        /**
+         * Test 4 with a restriction filter
+         */
+        spatialQuery = new SpatialQuery("metafile:doc", nullFilter, SerialChainFilter.AND);
+        final Filter restriction = new QueryWrapperFilter(new TermQuery(new Term("id", "42292_5p_19900609195600")));
+        page = indexSearcher.doPagedSearch(spatialQuery, restriction, 0, 10);
+        assertEquals(1, page.getTotal());
+        assertEquals(Arrays.asList("42292_5p_19900609195600"), Arrays.asList(page.getIdentifiers()));
+    }
+
     public static List<Node> fillTestData() throws Exception {
         List<Node> result = new ArrayList<>();
 
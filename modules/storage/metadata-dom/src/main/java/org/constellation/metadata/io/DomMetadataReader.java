@@ -89,26 +89,7 @@ public abstract class DomMetadataReader extends AbstractMetadataReader {
             metadataStream.reset();
         }
 
-        switch (rootName) {
-            case "MD_Metadata":
-            case "MI_Metadata":
-                return MetadataType.ISO_19115;
-            case "Record":
-                return MetadataType.DUBLINCORE;
-            case "SensorML":
-                return MetadataType.SENSORML;
-            case "RegistryObject":
-            case "AdhocQuery":
-            case "Association":
-            case "RegistryPackage":
-            case "Registry":
-            case "ExtrinsicObject":
-            case "RegistryEntry":
-                return MetadataType.EBRIM;
-            default:
-                return MetadataType.NATIVE;
-        }
-        // TODO complete other metadata type
+        return getMetadataType(rootName);
     }
     
     protected MetadataType getMetadataType(final Reader metadataReader, final boolean reset) throws IOException, XMLStreamException {
@@ -124,6 +105,20 @@ public abstract class DomMetadataReader extends AbstractMetadataReader {
             metadataReader.reset();
         }
 
+        return getMetadataType(rootName);
+    }
+
+    /**
+     * Return the type of an already parsed metadata, to avoid reading the metadata twice.
+     *
+     * @param metadata The root node of the metadata.
+     * @return The metadata type, {@link MetadataType#NATIVE} if the root element is unknown.
+     */
+    protected MetadataType getMetadataType(final Node metadata) {
+        return getMetadataType(metadata.getLocalName());
+    }
+
+    private static MetadataType getMetadataType(final String rootName) {
         switch (rootName) {
             case "MD_Metadata":
             case "MI_Metadata":
@@ -250,6 +250,7 @@ public class MDWebMetadataReader extends AbstractMetadataReader {
             setIsCacheEnabled(c);
             mdReader.setProperty("cacheStorage", c);
         }
+        setCacheConfiguration(configuration.getParameter("cacheSize"), configuration.getParameter("cacheSoftValues"));
 
         if (configuration.getStoreMapping() != null && !configuration.getStoreMapping().isEmpty()) {
             final boolean m = Boolean.parseBoolean(configuration.getStoreMapping());
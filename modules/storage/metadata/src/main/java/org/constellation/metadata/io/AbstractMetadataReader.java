@@ -19,10 +19,15 @@
 
 package org.constellation.metadata.io;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import org.apache.sis.util.logging.Logging;
 import org.w3c.dom.Node;
 
+import javax.xml.namespace.QName;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -40,6 +45,11 @@ public abstract class AbstractMetadataReader implements MetadataReader {
      * A debugging logger
      */
     protected static final Logger LOGGER = Logging.getLogger("org.constellation.metadata.io");
+
+    /**
+     * The default maximum number of metadata kept in cache.
+     */
+    public static final long DEFAULT_CACHE_SIZE = 1000;
     
     /**
      * A flag indicating if the cache mecanism is enabled or not.
@@ -52,9 +62,20 @@ public abstract class AbstractMetadataReader implements MetadataReader {
     private boolean threadEnabled;
     
     /**
-     * A map containing the metadata already extract from the database.
+     * A cache containing the metadata already extract from the database.
+     * The least recently used metadata are removed when the cache is full.
      */
-    private final Map<String, Object> metadatas = new HashMap<>();
+    private volatile Cache<String, Object> metadatas = buildCache(DEFAULT_CACHE_SIZE, false);
+
+    /**
+     * The maximum number of metadata kept in cache.
+     */
+    private long cacheMaxSize = DEFAULT_CACHE_SIZE;
+
+    /**
+     * A flag indicating if the cached metadata can be removed by the garbage collector.
+     */
+    private boolean cacheSoftValues;
 
     /**
      * The default level for logging non essential informations (ToSee => finer)
@@ -78,6 +99,41 @@ public abstract class AbstractMetadataReader implements MetadataReader {
     @Override
     public abstract Node getMetadata(final String identifier, final MetadataType mode) throws MetadataIoException;
     
+    /**
+     * Return a metadata in the specified element set.
+     * The default implementation returns the full metadata, the readers supporting the element sets override it.
+     *
+     * @param identifier The metadata identifier.
+     * @param mode An output schema mode.
+     * @param type An elementSet: FULL, SUMMARY and BRIEF. (implies elementName == null)
+     * @param elementName A list of QName describing the requested fields. (implies type == null)
+     * @return The metadata node, or {@code null} if the record does not exist.
+     * @throws MetadataIoException
+     */
+    public Node getMetadata(final String identifier, final MetadataType mode, final ElementSetType type, final List<QName> elementName) throws MetadataIoException {
+        return getMetadata(identifier, mode);
+    }
+
+    /**
+     * Return several metadata in the specified element set.
+     * The default implementation reads the records one by one, the readers able to read
+     * several records at once override it.
+     *
+     * @param identifiers The metadata identifiers.
+     * @param mode An output schema mode.
+     * @param type An elementSet: FULL, SUMMARY and BRIEF. (implies elementName == null)
+     * @param elementName A list of QName describing the requested fields. (implies type == null)
+     * @return The metadata nodes, in the order of the identifiers ({@code null} for the missing records).
+     * @throws MetadataIoException
+     */
+    public List<Node> getMetadata(final List<String> identifiers, final MetadataType mode, final ElementSetType type, final List<QName> elementName) throws MetadataIoException {
+        final List<Node> results = new ArrayList<>(identifiers.size());
+        for (String identifier : identifiers) {
+            results.add(getMetadata(identifier, mode, type, elementName));
+        }
+        return results;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -107,7 +163,8 @@ public abstract class AbstractMetadataReader implements MetadataReader {
      */
     @Override
     public void clearCache() {
-        metadatas.clear();
+        LOGGER.log(Level.FINE, "metadata cache statistics:{0}", metadatas.stats());
+        metadatas.invalidateAll();
     }
     
     /**
@@ -115,7 +172,68 @@ public abstract class AbstractMetadataReader implements MetadataReader {
      */
     @Override
     public void removeFromCache(final String identifier) {
-        metadatas.remove(identifier);
+        metadatas.invalidate(identifier);
+    }
+
+    /**
+     * Configure the metadata cache. The metadata already in cache are removed.
+     *
+     * @param maxSize The maximum number of metadata kept in cache.
+     * @param softValues {@code true} to let the garbage collector remove the cached metadata when the memory is low.
+     */
+    public void setCacheConfiguration(final long maxSize, final boolean softValues) {
+        cacheMaxSize    = Math.max(0, maxSize);
+        cacheSoftValues = softValues;
+        metadatas       = buildCache(cacheMaxSize, softValues);
+    }
+
+    /**
+     * Configure the metadata cache from the configuration parameters {@code cacheSize} and {@code cacheSoftValues}.
+     *
+     * @param cacheSize The maximum number of metadata kept in cache, or {@code null} for the default size.
+     * @param softValues {@code "true"} to let the garbage collector remove the cached metadata when the memory is low.
+     */
+    protected void setCacheConfiguration(final String cacheSize, final String softValues) {
+        long size = DEFAULT_CACHE_SIZE;
+        if (cacheSize != null && !cacheSize.isEmpty()) {
+            try {
+                size = Long.parseLong(cacheSize);
+            } catch (NumberFormatException ex) {
+                LOGGER.log(Level.WARNING, "Unable to parse the metadata cache size:{0}", cacheSize);
+            }
+        }
+        setCacheConfiguration(size, Boolean.parseBoolean(softValues));
+    }
+
+    private static Cache<String, Object> buildCache(final long maxSize, final boolean softValues) {
+        final CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats();
+        if (softValues) {
+            builder.softValues();
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return The maximum number of metadata kept in cache.
+     */
+    public long getCacheMaxSize() {
+        return cacheMaxSize;
+    }
+
+    /**
+     * @return {@code true} if the garbage collector can remove the cached metadata when the memory is low.
+     */
+    public boolean isCacheSoftValues() {
+        return cacheSoftValues;
+    }
+
+    /**
+     * @return The hit, miss and eviction counts of the metadata cache.
+     */
+    public CacheStats getCacheStatistics() {
+        return metadatas.stats();
     }
 
     /**
@@ -125,7 +243,9 @@ public abstract class AbstractMetadataReader implements MetadataReader {
      * @param metadata The object to put in cache.
      */
     protected void addInCache(final String identifier, final Object metadata) {
-        metadatas.put(identifier, metadata);
+        if (identifier != null && metadata != null) {
+            metadatas.put(identifier, metadata);
+        }
     }
     
     /**
@@ -134,7 +254,10 @@ public abstract class AbstractMetadataReader implements MetadataReader {
      * @param identifier The metadata identifier.
      */
     protected Object getFromCache(final String identifier) {
-        return metadatas.get(identifier);
+        if (identifier == null) {
+            return null;
+        }
+        return metadatas.getIfPresent(identifier);
     }
     
     /**
@@ -192,4 +315,12 @@ public abstract class AbstractMetadataReader implements MetadataReader {
     public boolean useEntryIterator() {
         return false;
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<String> getModifiedIdentifiers(final long since) throws MetadataIoException {
+        return null;
+    }
 }
@@ -80,6 +80,15 @@ public interface MetadataReader {
     Iterator<? extends Object> getEntryIterator() throws MetadataIoException;
 
     boolean useEntryIterator();
+
+    /**
+     * Return the identifiers of the metadata modified since the specified date.
+     *
+     * @param since A time in milliseconds.
+     * @return The identifiers of the modified metadata, or {@code null} if this reader can not detect the modifications.
+     * @throws MetadataIoException
+     */
+    List<String> getModifiedIdentifiers(final long since) throws MetadataIoException;
     
     /**
      * Destroy all the resource used by this reader.
@@ -105,7 +114,7 @@ public interface MetadataReader {
     boolean isCacheEnabled();
 
     /**
-     * @return true is the cache mecanism is enabled.
+     * @return true if the reader can be used by several threads at the same time.
      */
     boolean isThreadEnabled();
 
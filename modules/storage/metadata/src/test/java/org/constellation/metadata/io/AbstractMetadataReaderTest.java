@@ -0,0 +1,217 @@
+/*
+ *    Constellation - An open source and standard compliant SDI
+ *    http://www.constellation-sdi.org
+ *
+ * Copyright 2014 Geomatys.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.constellation.metadata.io;
+
+import com.google.common.cache.CacheStats;
+import org.junit.Test;
+import org.w3c.dom.Node;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test the metadata cache of {@link AbstractMetadataReader}.
+ *
+ * @author Guilhem Legal (Geomatys)
+ */
+public class AbstractMetadataReaderTest {
+
+    /**
+     * The least recently used metadata are removed when the cache is full.
+     */
+    @Test
+    public void maximumSizeTest() throws Exception {
+        final CountingReader reader = new CountingReader();
+        reader.setCacheConfiguration(2, false);
+        assertEquals(2, reader.getCacheMaxSize());
+
+        final Object first = reader.read("id-1");
+        reader.read("id-2");
+        // id-1 is used again, id-2 is the least recently used
+        assertSame(first, reader.read("id-1"));
+        reader.read("id-3");
+        assertEquals(3, reader.reads);
+
+        assertNotNull(reader.getFromCache("id-1"));
+        assertNull(reader.getFromCache("id-2"));
+        assertNotNull(reader.getFromCache("id-3"));
+        assertEquals(1, reader.getCacheStatistics().evictionCount());
+
+        reader.read("id-2");
+        assertEquals(4, reader.reads);
+    }
+
+    /**
+     * A cache of size 0 keeps nothing, a negative size is handled as 0.
+     */
+    @Test
+    public void emptyCacheTest() throws Exception {
+        final CountingReader reader = new CountingReader();
+        reader.setCacheConfiguration(-1, false);
+        assertEquals(0, reader.getCacheMaxSize());
+        reader.read("id-1");
+        reader.read("id-1");
+        assertEquals(2, reader.reads);
+        assertNull(reader.getFromCache("id-1"));
+    }
+
+    /**
+     * The metadata referenced elsewhere stay in a cache of soft values.
+     */
+    @Test
+    public void softValuesTest() throws Exception {
+        final CountingReader reader = new CountingReader();
+        assertFalse(reader.isCacheSoftValues());
+        reader.setCacheConfiguration(10, true);
+        assertTrue(reader.isCacheSoftValues());
+
+        final Object metadata = reader.read("id-1");
+        assertSame(metadata, reader.read("id-1"));
+        assertEquals(1, reader.reads);
+    }
+
+    /**
+     * The hits and misses are counted, a new configuration starts with an empty cache.
+     */
+    @Test
+    public void statisticsTest() throws Exception {
+        final CountingReader reader = new CountingReader();
+        reader.read("id-1");
+        reader.read("id-1");
+        reader.read("id-1");
+        reader.read("id-2");
+        CacheStats stats = reader.getCacheStatistics();
+        assertEquals(2, stats.hitCount());
+        assertEquals(2, stats.missCount());
+
+        reader.setCacheConfiguration(10, false);
+        stats = reader.getCacheStatistics();
+        assertEquals(0, stats.requestCount());
+        assertNull(reader.getFromCache("id-1"));
+    }
+
+    /**
+     * The removed metadata are read again.
+     */
+    @Test
+    public void invalidationTest() throws Exception {
+        final CountingReader reader = new CountingReader();
+        reader.read("id-1");
+        reader.read("id-2");
+        reader.removeFromCache("id-1");
+        assertNull(reader.getFromCache("id-1"));
+        assertNotNull(reader.getFromCache("id-2"));
+
+        reader.clearCache();
+        assertNull(reader.getFromCache("id-2"));
+    }
+
+    /**
+     * The configuration parameters {@code cacheSize} and {@code cacheSoftValues}.
+     */
+    @Test
+    public void parameterConfigurationTest() throws Exception {
+        final CountingReader reader = new CountingReader();
+        assertEquals(AbstractMetadataReader.DEFAULT_CACHE_SIZE, reader.getCacheMaxSize());
+
+        reader.setCacheConfiguration("50", "true");
+        assertEquals(50, reader.getCacheMaxSize());
+        assertTrue(reader.isCacheSoftValues());
+
+        // missing parameters
+        reader.setCacheConfiguration(null, null);
+        assertEquals(AbstractMetadataReader.DEFAULT_CACHE_SIZE, reader.getCacheMaxSize());
+        assertFalse(reader.isCacheSoftValues());
+
+        // unparseable size
+        reader.setCacheConfiguration("large", "false");
+        assertEquals(AbstractMetadataReader.DEFAULT_CACHE_SIZE, reader.getCacheMaxSize());
+        assertFalse(reader.isCacheSoftValues());
+    }
+
+    /**
+     * A reader creating a new object at each read not found in cache.
+     */
+    private static class CountingReader extends AbstractMetadataReader {
+
+        private int reads;
+
+        CountingReader() {
+            super(true, false);
+        }
+
+        Object read(final String identifier) {
+            Object metadata = getFromCache(identifier);
+            if (metadata == null) {
+                reads++;
+                metadata = new Object();
+                addInCache(identifier, metadata);
+            }
+            return metadata;
+        }
+
+        @Override
+        public Node getMetadata(final String identifier, final MetadataType mode) throws MetadataIoException {
+            return null;
+        }
+
+        @Override
+        public boolean existMetadata(final String identifier) throws MetadataIoException {
+            return false;
+        }
+
+        @Override
+        public int getEntryCount() throws MetadataIoException {
+            return 0;
+        }
+
+        @Override
+        public List<? extends Object> getAllEntries() throws MetadataIoException {
+            return new ArrayList<>();
+        }
+
+        @Override
+        public List<String> getAllIdentifiers() throws MetadataIoException {
+            return new ArrayList<>();
+        }
+
+        @Override
+        public Iterator<String> getIdentifierIterator() throws MetadataIoException {
+            return getAllIdentifiers().iterator();
+        }
+
+        @Override
+        public List<MetadataType> getSupportedDataTypes() {
+            return new ArrayList<>();
+        }
+
+        @Override
+        public void destroy() {
+            clearCache();
+        }
+    }
+}
@@ -42,6 +42,11 @@ import org.geotoolkit.util.FileUtilities;
 public class OM2DatabaseCreator {
     
     private static final Logger LOGGER = Logging.getLogger("org.mdweb.sql");
+
+    /**
+     * The version of the structure created by {@link #createObservationDatabase}.
+     */
+    public static final String CURRENT_VERSION = "1.0.4";
     
     /**
      * Fill a new PostgreSQL database with the O&M model.
@@ -75,7 +80,7 @@ public class OM2DatabaseCreator {
             if (!versionTablePresent(con, schemaPrefix)) {
                 try (Statement stmt = con.createStatement()) {
                     stmt.executeUpdate("CREATE TABLE \"public\".\"version\" (\"number\"   character varying(10) NOT NULL);");
-                    stmt.executeUpdate("INSERT INTO \"public\".\"version\" VALUES ('1.0.3');");
+                    stmt.executeUpdate("INSERT INTO \"public\".\"version\" VALUES ('" + CURRENT_VERSION + "');");
                     stmt.executeUpdate("ALTER TABLE \"version\" ADD CONSTRAINT version_pk PRIMARY KEY (\"number\");");
                 }
             }
@@ -92,6 +97,104 @@ public class OM2DatabaseCreator {
         }
     }
     
+    /**
+     * Upgrade an existing O&M database to the current version of the structure.
+     * Version 1.0.4 adds the indexes used by the observation filters, on the observation
+     * table and on the time column of each measure table.
+     *
+     * The version table is shared by all the schema prefixes of the database, so the
+     * structure of each prefix is checked and upgraded separately.
+     *
+     * @param dataSource the O&M database.
+     * @param isPostgres {@code true} if the database is a PostgreSQL database.
+     * @param schemaPrefix the prefix of the O&M schemas, can be {@code null}.
+     *
+     * @throws SQLException if an error occurs while updating the database.
+     * @throws IOException if the update script can not be read.
+     */
+    public static void updateStructure(final DataSource dataSource, final boolean isPostgres, String schemaPrefix) throws SQLException, IOException {
+        if (schemaPrefix == null) {
+            schemaPrefix = "";
+        }
+        try(final Connection con = dataSource.getConnection()) {
+            final String version = getVersion(con);
+            if (!"1.0.3".equals(version) && !CURRENT_VERSION.equals(version)) {
+                LOGGER.log(Level.FINER, "No update for O&M database version {0}", version);
+                return;
+            }
+            if (!indexPresent(con, schemaPrefix, "observations", "observation_time_begin_idx")) {
+                final ScriptRunner sr = new ScriptRunner(con);
+                try {
+                    if (isPostgres) {
+                        execute("org/constellation/om2/update/update104_pg.sql", sr, schemaPrefix);
+                    } else {
+                        execute("org/constellation/om2/update/update104.sql", sr, schemaPrefix);
+                    }
+                } finally {
+                    sr.close(false);
+                }
+                try (final Statement stmt = con.createStatement();
+                     final ResultSet rs = stmt.executeQuery("SELECT p.\"pid\", d.\"field_name\" "
+                                                          + "FROM \"" + schemaPrefix + "om\".\"procedures\" p, \"" + schemaPrefix + "om\".\"procedure_descriptions\" d "
+                                                          + "WHERE p.\"id\" = d.\"procedure\" AND d.\"order\" = 1 AND d.\"field_type\" = 'Time'")) {
+                    while (rs.next()) {
+                        try (final Statement idxStmt = con.createStatement()) {
+                            createMeasureTimeIndex(idxStmt, schemaPrefix, rs.getInt(1), rs.getString(2));
+                        } catch (SQLException ex) {
+                            // the measure table may not exist yet
+                            LOGGER.log(Level.WARNING, "Unable to index the measure table of procedure " + rs.getInt(1), ex);
+                        }
+                    }
+                }
+                LOGGER.log(Level.INFO, "O&M 2 schema \"{0}om\" updated to version {1}", new Object[]{schemaPrefix, CURRENT_VERSION});
+            }
+            if (!CURRENT_VERSION.equals(version)) {
+                try (final Statement stmt = con.createStatement()) {
+                    stmt.executeUpdate("UPDATE \"public\".\"version\" SET \"number\"='" + CURRENT_VERSION + "'");
+                }
+            }
+        }
+    }
+
+    /**
+     * Return {@code true} if the specified index exists on a table of the O&M schema.
+     */
+    private static boolean indexPresent(final Connection con, final String schemaPrefix, final String table, final String index) throws SQLException {
+        try (final ResultSet rs = con.getMetaData().getIndexInfo(null, schemaPrefix + "om", table, false, true)) {
+            while (rs.next()) {
+                if (index.equalsIgnoreCase(rs.getString("INDEX_NAME"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Create an index on the main time field of a measure table, used by the time filters of the readers.
+     *
+     * @param stmt a statement on the O&M database.
+     * @param schemaPrefix the prefix of the O&M schemas.
+     * @param pid the procedure identifier of the measure table.
+     * @param timeField the name of the time field.
+     *
+     * @throws SQLException if the index can not be created.
+     */
+    public static void createMeasureTimeIndex(final Statement stmt, final String schemaPrefix, final int pid, final String timeField) throws SQLException {
+        final String tableName = "mesure" + pid;
+        stmt.executeUpdate("CREATE INDEX " + tableName + "_time_idx ON \"" + schemaPrefix + "mesures\".\"" + tableName + "\"(\"" + timeField + "\")");
+    }
+
+    private static String getVersion(final Connection con) throws SQLException {
+        try (final Statement stmt = con.createStatement();
+             final ResultSet result = stmt.executeQuery("SELECT \"number\" FROM \"public\".\"version\"")) {
+            if (result.next()) {
+                return result.getString(1);
+            }
+            return null;
+        }
+    }
+
     public static boolean structurePresent(final DataSource source, final String schemaPrefix) {
         if (source != null) {
             try (final Connection con = source.getConnection();
@@ -141,16 +244,18 @@ public class OM2DatabaseCreator {
      *
      * @param path A path in the resource files to a SQL script.
      * @param runner A SQL script runner connected to a database.
+     *
+     * @throws SQLException if a statement of the script fails.
+     * @throws IOException if the script can not be read.
      */
-    private static void execute(final String path, final ScriptRunner runner, final String schemaPrefix) {
+    private static void execute(final String path, final ScriptRunner runner, final String schemaPrefix) throws SQLException, IOException {
+        String sql = FileUtilities.getStringFromStream(Util.getResourceAsStream(path));
+        sql = sql.replace("$SCHEMA", schemaPrefix);
         try {
-            String sql = FileUtilities.getStringFromStream(Util.getResourceAsStream(path));
-            sql = sql.replace("$SCHEMA", schemaPrefix);
             runner.run(sql);
-         } catch (IOException ex) {
-            LOGGER.log(Level.SEVERE, "IO exception while executing SQL script", ex);
         } catch (SQLException ex) {
             LOGGER.severe("SQLException creating statement: " + runner.getCurrentPosition() + " in " + path + " file.\n" + ex.getMessage());
+            throw ex;
         }
     }
 }
@@ -126,3 +126,9 @@ ALTER TABLE "$SCHEMAom"."offering_foi" ADD CONSTRAINT offering_foi_foi_fk FOREIG
 ALTER TABLE "$SCHEMAom"."components" ADD CONSTRAINT component_base_fk FOREIGN KEY ("phenomenon") REFERENCES "$SCHEMAom"."observed_properties"("id");
 
 ALTER TABLE "$SCHEMAom"."components" ADD CONSTRAINT component_child_fk FOREIGN KEY ("component") REFERENCES "$SCHEMAom"."observed_properties"("id");
+
+CREATE INDEX observation_time_begin_idx ON "$SCHEMAom"."observations"("time_begin");
+
+CREATE INDEX observation_time_end_idx ON "$SCHEMAom"."observations"("time_end");
+
+CREATE INDEX procedure_parent_idx ON "$SCHEMAom"."procedures"("parent");
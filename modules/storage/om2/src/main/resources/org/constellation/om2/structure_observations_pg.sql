@@ -125,4 +125,22 @@ ALTER TABLE "$SCHEMAom"."offering_foi" ADD CONSTRAINT offering_foi_foi_fk FOREIG
 
 ALTER TABLE "$SCHEMAom"."components" ADD CONSTRAINT component_base_fk FOREIGN KEY ("phenomenon") REFERENCES "$SCHEMAom"."observed_properties"("id");
 
-ALTER TABLE "$SCHEMAom"."components" ADD CONSTRAINT component_child_fk FOREIGN KEY ("component") REFERENCES "$SCHEMAom"."observed_properties"("id");
\ No newline at end of file
+ALTER TABLE "$SCHEMAom"."components" ADD CONSTRAINT component_child_fk FOREIGN KEY ("component") REFERENCES "$SCHEMAom"."observed_properties"("id");
+
+CREATE INDEX observation_procedure_idx ON "$SCHEMAom"."observations"("procedure");
+
+CREATE INDEX observation_op_idx ON "$SCHEMAom"."observations"("observed_property");
+
+CREATE INDEX observation_foi_idx ON "$SCHEMAom"."observations"("foi");
+
+CREATE INDEX observation_time_begin_idx ON "$SCHEMAom"."observations"("time_begin");
+
+CREATE INDEX observation_time_end_idx ON "$SCHEMAom"."observations"("time_end");
+
+CREATE INDEX offering_procedure_idx ON "$SCHEMAom"."offerings"("procedure");
+
+CREATE INDEX procedure_parent_idx ON "$SCHEMAom"."procedures"("parent");
+
+CREATE INDEX procedure_shape_idx ON "$SCHEMAom"."procedures" USING GIST ("shape");
+
+CREATE INDEX sf_shape_idx ON "$SCHEMAom"."sampling_features" USING GIST ("shape");
@@ -0,0 +1,5 @@
+CREATE INDEX observation_time_begin_idx ON "$SCHEMAom"."observations"("time_begin");
+
+CREATE INDEX observation_time_end_idx ON "$SCHEMAom"."observations"("time_end");
+
+CREATE INDEX procedure_parent_idx ON "$SCHEMAom"."procedures"("parent");
@@ -0,0 +1,17 @@
+CREATE INDEX observation_procedure_idx ON "$SCHEMAom"."observations"("procedure");
+
+CREATE INDEX observation_op_idx ON "$SCHEMAom"."observations"("observed_property");
+
+CREATE INDEX observation_foi_idx ON "$SCHEMAom"."observations"("foi");
+
+CREATE INDEX observation_time_begin_idx ON "$SCHEMAom"."observations"("time_begin");
+
+CREATE INDEX observation_time_end_idx ON "$SCHEMAom"."observations"("time_end");
+
+CREATE INDEX offering_procedure_idx ON "$SCHEMAom"."offerings"("procedure");
+
+CREATE INDEX procedure_parent_idx ON "$SCHEMAom"."procedures"("parent");
+
+CREATE INDEX procedure_shape_idx ON "$SCHEMAom"."procedures" USING GIST ("shape");
+
+CREATE INDEX sf_shape_idx ON "$SCHEMAom"."sampling_features" USING GIST ("shape");
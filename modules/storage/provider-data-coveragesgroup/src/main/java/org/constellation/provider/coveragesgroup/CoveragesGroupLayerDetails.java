@@ -31,24 +31,24 @@ import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
-import javax.xml.bind.Unmarshaller;
 import org.apache.sis.measure.MeasurementRange;
 import org.apache.sis.storage.DataStoreException;
 import org.apache.sis.util.logging.Logging;
-import org.apache.sis.xml.MarshallerPool;
 import org.constellation.ServiceDef.Query;
 import org.constellation.business.IStyleBusiness;
 import org.constellation.provider.AbstractData;
-import org.constellation.provider.coveragesgroup.util.ConvertersJaxbToGeotk;
+import org.constellation.provider.coveragesgroup.util.MapContextIO;
 import org.geotoolkit.coverage.grid.GridCoverage2D;
 import org.geotoolkit.data.query.QueryBuilder;
 import org.geotoolkit.display.PortrayalException;
 import org.geotoolkit.display2d.GO2Utilities;
 import org.geotoolkit.feature.type.PropertyDescriptor;
 import org.geotoolkit.filter.visitor.DefaultFilterVisitor;
+import org.geotoolkit.map.CoverageMapLayer;
+import org.geotoolkit.map.EmptyMapLayer;
 import org.geotoolkit.map.FeatureMapLayer;
+import org.geotoolkit.map.MapBuilder;
 import org.geotoolkit.map.MapContext;
 import org.geotoolkit.map.MapItem;
 import org.geotoolkit.map.MapLayer;
@@ -70,9 +70,6 @@ public class CoveragesGroupLayerDetails extends AbstractData {
 
     private MapContext ctxt;
 
-    private MarshallerPool pool;
-    private Unmarshaller unmarshaller;
-
     public CoveragesGroupLayerDetails(final GenericName name, final File file, final IStyleBusiness styleBusiness) {
         this(name, file, null, null, styleBusiness);
     }
@@ -85,21 +82,24 @@ public class CoveragesGroupLayerDetails extends AbstractData {
 
         // Parsing ctxt : MapBuilder.createContext
         try {
-            ctxt = createMapContextForFile(file, login, password, styleBusiness);
+            ctxt = MapContextIO.readMapContextFile(file, login, password, styleBusiness);
+            if (ctxt == null) {
+                throw new JAXBException("Wrong response for the unmarshalling");
+            }
+            setSelectableAndVisible(ctxt);
         } catch (JAXBException e) {
             LOGGER.log(Level.INFO, "Unable to convert map context file into a valid object", e);
         }
     }
 
-    private MapContext createMapContextForFile(final File file, final String login, final String password, final IStyleBusiness styleBusiness) throws JAXBException {
-        pool = new MarshallerPool(JAXBContext.newInstance(org.constellation.provider.coveragesgroup.xml.MapContext.class, org.apache.sis.internal.jaxb.geometry.ObjectFactory.class), null);
-        unmarshaller = pool.acquireUnmarshaller();
-        final Object result = unmarshaller.unmarshal(file);
-        if (!(result instanceof org.constellation.provider.coveragesgroup.xml.MapContext)) {
-            throw new JAXBException("Wrong response for the unmarshalling");
-        }
-        final org.constellation.provider.coveragesgroup.xml.MapContext mapContext = (org.constellation.provider.coveragesgroup.xml.MapContext)result;
-        return ConvertersJaxbToGeotk.convertsMapContext(mapContext,login, password, styleBusiness);
+    /**
+     * Build a layer from an already converted map context, which can be shared by several layers.
+     * The map context is not modified, {@link #getMapLayer} returns a copy of it. Its items must
+     * already be selectable and visible, see {@link #setSelectableAndVisible(MapItem)}.
+     */
+    public CoveragesGroupLayerDetails(final GenericName name, final MapContext ctxt) {
+        super(name, Collections.EMPTY_LIST);
+        this.ctxt = ctxt;
     }
 
     @Override
@@ -128,6 +128,10 @@ public class CoveragesGroupLayerDetails extends AbstractData {
 
     @Override
     public MapItem getMapLayer(MutableStyle style, Map<String, Object> params) throws PortrayalException {
+        if (ctxt == null) {
+            // the map context file could not be read
+            return null;
+        }
         if (params != null) {
             final Map<String,?> extras = (Map<String, ?>) params.get(KEY_EXTRA_PARAMETERS);
             if (extras != null) {
@@ -145,15 +149,67 @@ public class CoveragesGroupLayerDetails extends AbstractData {
                     }
                 }
                 if (filter != null) {
-                    setFilter(ctxt, filter);
+                    final MapContext filtered = (MapContext) copy(ctxt);
+                    setFilter(filtered, filter);
+                    return filtered;
                 }
             }
         }
+        // the map context can be shared with other layers, the caller may modify the returned one
+        return (MapContext) copy(ctxt);
+    }
 
-        setSelectableAndVisible(ctxt);
+    /**
+     * @return The map context of this layer, which can be shared with other layers, or {@code null}.
+     */
+    MapContext getSharedMapContext() {
         return ctxt;
     }
 
+    /**
+     * Copy a map item and its layers, so they can be modified without altering the original item.
+     * The data and the styles are shared. The layers of an unknown type are not copied.
+     */
+    private static MapItem copy(final MapItem item) {
+        final MapItem copy;
+        if (item instanceof MapLayer) {
+            final MapLayer source = (MapLayer) item;
+            final MapLayer layer;
+            if (item instanceof FeatureMapLayer) {
+                final FeatureMapLayer fml = (FeatureMapLayer) item;
+                final FeatureMapLayer fcopy = MapBuilder.createFeatureLayer(fml.getCollection(), fml.getStyle());
+                fcopy.setQuery(fml.getQuery());
+                fcopy.setSelectionFilter(fml.getSelectionFilter());
+                fcopy.getExtraDimensions().addAll(fml.getExtraDimensions());
+                layer = fcopy;
+            } else if (item instanceof CoverageMapLayer) {
+                final CoverageMapLayer cml = (CoverageMapLayer) item;
+                layer = MapBuilder.createCoverageLayer(cml.getCoverageReference(), cml.getStyle());
+            } else if (item instanceof EmptyMapLayer) {
+                layer = MapBuilder.createEmptyMapLayer();
+            } else {
+                return item;
+            }
+            layer.setOpacity(source.getOpacity());
+            layer.setSelectable(source.isSelectable());
+            layer.setSelectionStyle(source.getSelectionStyle());
+            layer.setElevationModel(source.getElevationModel());
+            copy = layer;
+        } else if (item instanceof MapContext) {
+            copy = MapBuilder.createContext(((MapContext) item).getCoordinateReferenceSystem());
+        } else {
+            copy = MapBuilder.createItem();
+        }
+        copy.setName(item.getName());
+        copy.setDescription(item.getDescription());
+        copy.setVisible(item.isVisible());
+        copy.getUserProperties().putAll(item.getUserProperties());
+        for (MapItem child : item.items()) {
+            copy.items().add(copy(child));
+        }
+        return copy;
+    }
+
 
     /**
      * Set selectable and visible to {@code true} recursively for all map items.
@@ -161,7 +217,7 @@ public class CoveragesGroupLayerDetails extends AbstractData {
      * @param item A {@link MapItem} that could embed others, if it is a {@link MapContext}
      *             for example.
      */
-    private static void setSelectableAndVisible(final MapItem item) {
+    static void setSelectableAndVisible(final MapItem item) {
         if (item instanceof MapLayer) {
             ((MapLayer) item).setSelectable(true);
         }
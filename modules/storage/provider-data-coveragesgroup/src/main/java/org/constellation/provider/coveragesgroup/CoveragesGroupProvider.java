@@ -18,6 +18,8 @@
  */
 package org.constellation.provider.coveragesgroup;
 
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.IOException;
@@ -29,11 +31,13 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import javax.xml.bind.JAXBException;
 import org.apache.sis.storage.DataStore;
 import org.constellation.admin.SpringHelper;
 import org.constellation.api.DataType;
+import org.constellation.business.ILayerBusiness;
 import org.constellation.business.IStyleBusiness;
 import org.constellation.provider.AbstractDataProvider;
 import org.constellation.provider.Data;
@@ -62,13 +66,38 @@ public class CoveragesGroupProvider extends AbstractDataProvider {
     private boolean visited;
     private File path;
 
+    /**
+     * The map contexts converted from the files, for the requests without credentials.
+     * They are shared by the layers and must not be modified.
+     */
+    private final Map<File, CachedMapContext> mapContexts = new ConcurrentHashMap<>();
+
+    /**
+     * Drop the converted map contexts when a style or a layer changes.
+     */
+    private final PropertyChangeListener changeListener = new PropertyChangeListener() {
+        @Override
+        public void propertyChange(final PropertyChangeEvent evt) {
+            mapContexts.clear();
+        }
+    };
+
     @Autowired
     private IStyleBusiness styleBusiness;
+
+    @Autowired(required = false)
+    private ILayerBusiness layerBusiness;
     
     public CoveragesGroupProvider(String providerId, final ProviderFactory service, final ParameterValueGroup param) {
         super(providerId, service,param);
         this.visited = false;
         SpringHelper.injectDependencies(this);
+        if (layerBusiness != null) {
+            layerBusiness.addLayerListener(changeListener);
+        }
+        if (styleBusiness != null) {
+            styleBusiness.addStyleListener(changeListener);
+        }
     }
 
     @Override
@@ -113,11 +142,42 @@ public class CoveragesGroupProvider extends AbstractDataProvider {
         }
         final File mapContextFile = index.get(key);
         if (mapContextFile != null) {
+            if (login == null && password == null) {
+                try {
+                    return new CoveragesGroupLayerDetails(key, getCachedMapContext(mapContextFile));
+                } catch (JAXBException e) {
+                    getLogger().log(Level.INFO, "Unable to convert map context file into a valid object", e);
+                    return new CoveragesGroupLayerDetails(key, (MapContext) null);
+                }
+            }
             return new CoveragesGroupLayerDetails(key, mapContextFile, login, password, styleBusiness);
         }
         return null;
     }
 
+    /**
+     * Return the map context of a file, converting it only if the file has been modified
+     * since the last conversion.
+     *
+     * @param mapContextFile A map context file of this provider.
+     * @return A shared map context, or {@code null} if the file does not contain a map context.
+     * @throws JAXBException if the file can not be read.
+     */
+    private MapContext getCachedMapContext(final File mapContextFile) throws JAXBException {
+        final long lastModified = mapContextFile.lastModified();
+        final CachedMapContext cached = mapContexts.get(mapContextFile);
+        if (cached != null && cached.lastModified == lastModified) {
+            return cached.context;
+        }
+        final MapContext context = MapContextIO.readMapContextFile(mapContextFile, null, null, styleBusiness);
+        if (context != null) {
+            // done once, the shared context is not modified afterward
+            CoveragesGroupLayerDetails.setSelectableAndVisible(context);
+            mapContexts.put(mapContextFile, new CachedMapContext(lastModified, context));
+        }
+        return context;
+    }
+
     /**
      *
      * @param key layer name
@@ -167,6 +227,7 @@ public class CoveragesGroupProvider extends AbstractDataProvider {
             mapContextFile = new File(path, key.tip().toString()+ ".xml");
         }
         MapContextIO.writeMapContext(mapContextFile, mapContext);
+        mapContexts.remove(mapContextFile);
         index.put(key, mapContextFile);
     }
 
@@ -187,6 +248,7 @@ public class CoveragesGroupProvider extends AbstractDataProvider {
             if (index != null) {
                 index.clear();
             }
+            mapContexts.clear();
             visit();
         }
         fireUpdateEvent();
@@ -201,6 +263,13 @@ public class CoveragesGroupProvider extends AbstractDataProvider {
             if (index != null) {
                 index.clear();
             }
+            mapContexts.clear();
+        }
+        if (layerBusiness != null) {
+            layerBusiness.removeLayerListener(changeListener);
+        }
+        if (styleBusiness != null) {
+            styleBusiness.removeStyleListener(changeListener);
         }
     }
 
@@ -244,7 +313,8 @@ public class CoveragesGroupProvider extends AbstractDataProvider {
         index = new HashMap<>();
         for (final File candidate : candidates) {
             try {
-                final MapContext mapContext = MapContextIO.readMapContextFile(candidate, "", "", styleBusiness);
+                // only the name is needed, the map context is converted on the first use
+                final org.constellation.provider.coveragesgroup.xml.MapContext mapContext = MapContextIO.readRawMapContextFile(candidate);
                 if (mapContext != null) {
                     final GenericName name = NamesExt.create(mapContext.getName());
                     index.put(name, candidate);
@@ -262,4 +332,19 @@ public class CoveragesGroupProvider extends AbstractDataProvider {
         return DataType.COVERAGE;
     }
 
+    /**
+     * A converted map context, with the last modification date of its file.
+     */
+    private static final class CachedMapContext {
+
+        private final long lastModified;
+
+        private final MapContext context;
+
+        private CachedMapContext(final long lastModified, final MapContext context) {
+            this.lastModified = lastModified;
+            this.context      = context;
+        }
+    }
+
 }
@@ -43,9 +43,25 @@ import org.geotoolkit.style.MutableStyle;
  */
 public final class MapContextIO {
 
+    /**
+     * The marshaller pool of the map context files, shared because the creation
+     * of a JAXB context is expensive.
+     */
+    private static MarshallerPool pool;
+
     private MapContextIO() {
     }
 
+    /**
+     * Return the shared marshaller pool, creating it on the first call.
+     */
+    private static synchronized MarshallerPool getMarshallerPool() throws JAXBException {
+        if (pool == null) {
+            pool = new MarshallerPool(JAXBContext.newInstance(org.constellation.provider.coveragesgroup.xml.MapContext.class, ObjectFactory.class), null);
+        }
+        return pool;
+    }
+
     /**
      * Write a Geotk {@link MapContext} in an xml file.
      *
@@ -101,7 +117,7 @@ public final class MapContextIO {
     public static void writeMapContext(File destination, org.constellation.provider.coveragesgroup.xml.MapContext mapContext) throws JAXBException, IOException {
         // write finalMapContext
         if (destination != null) {
-            final MarshallerPool pool = new MarshallerPool(JAXBContext.newInstance(org.constellation.provider.coveragesgroup.xml.MapContext.class, ObjectFactory.class), null);
+            final MarshallerPool pool = getMarshallerPool();
             final Marshaller marshaller = pool.acquireMarshaller();
             if (!destination.exists()) {
                 destination.createNewFile();
@@ -174,10 +190,11 @@ public final class MapContextIO {
      */
     public static org.constellation.provider.coveragesgroup.xml.MapContext readRawMapContextFile(final File mapContextFile) throws JAXBException {
         if (mapContextFile != null) {
-            final MarshallerPool pool = new MarshallerPool(JAXBContext.newInstance(org.constellation.provider.coveragesgroup.xml.MapContext.class, ObjectFactory.class), null);
+            final MarshallerPool pool = getMarshallerPool();
             final Unmarshaller unmarshaller = pool.acquireUnmarshaller();
-            Object result = unmarshaller.unmarshal(mapContextFile);
-            if (result != null && result instanceof org.constellation.provider.coveragesgroup.xml.MapContext) {
+            final Object result = unmarshaller.unmarshal(mapContextFile);
+            pool.recycle(unmarshaller);
+            if (result instanceof org.constellation.provider.coveragesgroup.xml.MapContext) {
                 return (org.constellation.provider.coveragesgroup.xml.MapContext) result;
             }
         }
@@ -0,0 +1,231 @@
+/*
+ *    Constellation - An open source and standard compliant SDI
+ *    http://www.constellation-sdi.org
+ *
+ * Copyright 2014 Geomatys.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.constellation.provider.coveragesgroup;
+
+import org.constellation.admin.SpringHelper;
+import org.constellation.business.IStyleBusiness;
+import org.constellation.provider.Data;
+import org.constellation.provider.coveragesgroup.util.MapContextIO;
+import org.constellation.provider.coveragesgroup.xml.MapItem;
+import org.geotoolkit.data.FeatureCollection;
+import org.geotoolkit.data.FeatureStoreUtilities;
+import org.geotoolkit.display2d.GO2Utilities;
+import org.geotoolkit.feature.FeatureTypeBuilder;
+import org.geotoolkit.feature.type.FeatureType;
+import org.geotoolkit.map.FeatureMapLayer;
+import org.geotoolkit.map.MapBuilder;
+import org.geotoolkit.map.MapContext;
+import org.geotoolkit.util.FileUtilities;
+import org.geotoolkit.util.NamesExt;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengis.filter.Filter;
+import org.opengis.parameter.ParameterValueGroup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.constellation.provider.configuration.ProviderParameters.getOrCreate;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test the cache of the map contexts converted by {@link CoveragesGroupProvider}.
+ *
+ * @author Guilhem Legal (Geomatys)
+ */
+public class CoveragesGroupProviderTest {
+
+    private File directory;
+
+    private File contextFile;
+
+    private CoveragesGroupProvider provider;
+
+    /**
+     * The listeners registered on the style business by the provider.
+     */
+    private final List<PropertyChangeListener> styleListeners = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        directory = File.createTempFile("coveragesgroup", "");
+        directory.delete();
+        directory.mkdir();
+        contextFile = new File(directory, "context.xml");
+        MapContextIO.writeMapContext(contextFile, createContext("context"));
+
+        final AnnotationConfigApplicationContext applicationContext = new AnnotationConfigApplicationContext();
+        applicationContext.getBeanFactory().registerSingleton("styleBusiness", createStyleBusiness());
+        applicationContext.refresh();
+        SpringHelper.setApplicationContext(applicationContext);
+
+        final CoveragesGroupProviderService factory = new CoveragesGroupProviderService();
+        final ParameterValueGroup params = factory.getProviderDescriptor().createValue();
+        getOrCreate(CoveragesGroupProviderService.SOURCE_CONFIG_DESCRIPTOR, params)
+                .parameter(CoveragesGroupProvider.KEY_PATH).setValue(directory.toURI().toURL());
+        provider = new CoveragesGroupProvider("coveragesgroup-test", factory, params);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (provider != null) {
+            provider.dispose();
+        }
+        SpringHelper.setApplicationContext(null);
+        FileUtilities.deleteDirectory(directory);
+    }
+
+    /**
+     * The layers of a file share the same map context while the file is not modified.
+     */
+    @Test
+    public void cacheHitTest() throws Exception {
+        final MapContext context = getSharedMapContext("context");
+        assertNotNull(context);
+        assertSame(context, getSharedMapContext("context"));
+
+        // the returned map context is a copy
+        final Data layer = provider.get(NamesExt.create("context"));
+        assertNotSame(context, layer.getMapLayer(null, null));
+    }
+
+    /**
+     * A modified file is converted again.
+     */
+    @Test
+    public void modifiedFileTest() throws Exception {
+        final MapContext context = getSharedMapContext("context");
+        assertTrue(contextFile.setLastModified(contextFile.lastModified() + 2000));
+        assertNotSame(context, getSharedMapContext("context"));
+    }
+
+    /**
+     * A map context written by the provider is converted again.
+     */
+    @Test
+    public void addRawMapContextTest() throws Exception {
+        final MapContext context = getSharedMapContext("context");
+        provider.addRawMapContext(NamesExt.create("context"), createContext("context"));
+        assertNotSame(context, getSharedMapContext("context"));
+    }
+
+    /**
+     * The map contexts are converted again after a style change.
+     */
+    @Test
+    public void styleEventTest() throws Exception {
+        final MapContext context = getSharedMapContext("context");
+        assertEquals(1, styleListeners.size());
+        styleListeners.get(0).propertyChange(new PropertyChangeEvent(this, "style", null, "provider:style"));
+        assertNotSame(context, getSharedMapContext("context"));
+    }
+
+    /**
+     * A file which can not be read gives a layer without map context.
+     */
+    @Test
+    public void unreadableFileTest() throws Exception {
+        provider.getKeys();
+        Files.write(contextFile.toPath(), "not a map context".getBytes("UTF-8"));
+        final Data layer = provider.get(NamesExt.create("context"));
+        assertNotNull(layer);
+        assertNull(layer.getMapLayer(null, null));
+    }
+
+    /**
+     * The filters of a request are applied on a copy of the shared map context.
+     */
+    @Test
+    public void filteredRequestTest() throws Exception {
+        final FeatureTypeBuilder ftb = new FeatureTypeBuilder();
+        ftb.setName("feature");
+        ftb.add(NamesExt.create("name"), String.class, 1, 1, false, null);
+        final FeatureType type = ftb.buildFeatureType();
+        final FeatureCollection collection = FeatureStoreUtilities.collection("feature", type);
+
+        final MapContext shared = MapBuilder.createContext();
+        final FeatureMapLayer sharedLayer = MapBuilder.createFeatureLayer(collection, GO2Utilities.STYLE_FACTORY.style());
+        shared.items().add(sharedLayer);
+        final CoveragesGroupLayerDetails layer = new CoveragesGroupLayerDetails(NamesExt.create("context"), shared);
+
+        final Map<String, Object> extras = new HashMap<>();
+        extras.put("cql_filter", Arrays.asList("name = 'a'"));
+        final Map<String, Object> params = new HashMap<>();
+        params.put(Data.KEY_EXTRA_PARAMETERS, extras);
+
+        final MapContext filtered = (MapContext) layer.getMapLayer(null, params);
+        assertNotSame(shared, filtered);
+        final FeatureMapLayer filteredLayer = (FeatureMapLayer) filtered.items().get(0);
+        assertNotSame(sharedLayer, filteredLayer);
+        assertTrue(filteredLayer.getQuery().getFilter() != Filter.INCLUDE);
+
+        // the shared map context is not modified
+        assertEquals(1, shared.items().size());
+        assertSame(sharedLayer, shared.items().get(0));
+        assertEquals(Filter.INCLUDE, sharedLayer.getQuery().getFilter());
+    }
+
+    private MapContext getSharedMapContext(final String name) {
+        return ((CoveragesGroupLayerDetails) provider.get(NamesExt.create(name))).getSharedMapContext();
+    }
+
+    /**
+     * Create an empty map context configuration.
+     */
+    private static org.constellation.provider.coveragesgroup.xml.MapContext createContext(final String name) {
+        return new org.constellation.provider.coveragesgroup.xml.MapContext(new MapItem(new ArrayList<MapItem>()), name);
+    }
+
+    /**
+     * Create a style business which only records the style listeners.
+     */
+    private IStyleBusiness createStyleBusiness() {
+        return (IStyleBusiness) Proxy.newProxyInstance(IStyleBusiness.class.getClassLoader(), new Class<?>[]{IStyleBusiness.class},
+                new InvocationHandler() {
+            @Override
+            public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                switch (method.getName()) {
+                    case "addStyleListener":    styleListeners.add((PropertyChangeListener) args[0]); return null;
+                    case "removeStyleListener": styleListeners.remove(args[0]); return null;
+                    case "toString":            return "test style business";
+                    case "hashCode":            return System.identityHashCode(proxy);
+                    case "equals":              return proxy == args[0];
+                    default: throw new UnsupportedOperationException(method.getName());
+                }
+            }
+        });
+    }
+}
@@ -36,6 +36,7 @@ import org.opengis.parameter.GeneralParameterValue;
 import org.opengis.parameter.ParameterValueGroup;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.Set;
@@ -58,18 +59,39 @@ public class CoverageStoreProvider extends AbstractDataProvider{
 
     public CoverageStoreProvider(String providerId,ProviderFactory service, ParameterValueGroup param){
         super(providerId,service,param);
-        reload();
+        //in lazy mode, the store will be opened by the first call to getKeys
+        if (!isLazyLoading()) {
+            reload();
+        }
+    }
+
+    /**
+     * Open the store if it has not been opened yet, or has been disposed.
+     */
+    private synchronized void ensureLoaded() {
+        if (names == null) {
+            open();
+        }
     }
 
     @Override
     public DataStore getMainStore() {
+        ensureLoaded();
         return store;
     }
     
     @Override
     public synchronized void reload() {
         dispose();
+        open();
+        fireUpdateEvent();
+    }
 
+    /**
+     * Open the store without notifying the listeners, the lazy loading happens in the read methods
+     * and must not be taken for a configuration change.
+     */
+    private void open() {
         //parameter is a choice of different types
         //extract the first one
         ParameterValueGroup param = getSource();
@@ -100,7 +122,6 @@ public class CoverageStoreProvider extends AbstractDataProvider{
         }
 
         visit();
-        fireUpdateEvent();
     }
 
     @Override
@@ -119,9 +140,7 @@ public class CoverageStoreProvider extends AbstractDataProvider{
 
     @Override
     public Set<GenericName> getKeys() {
-        if(names == null){
-            reload();
-        }
+        ensureLoaded();
         return names;
     }
 
@@ -134,9 +153,7 @@ public class CoverageStoreProvider extends AbstractDataProvider{
     }
 
     public CoverageStore getStore() {
-        if (store == null) {
-            reload();
-        }
+        ensureLoaded();
         return store;
     }
     /**
@@ -170,8 +187,9 @@ public class CoverageStoreProvider extends AbstractDataProvider{
 
     @Override
     public void remove(GenericName key) {
+        ensureLoaded();
         if (store == null) {
-            reload();
+            return;
         }
 
         try {
@@ -184,8 +202,12 @@ public class CoverageStoreProvider extends AbstractDataProvider{
     
     @Override
     public void removeAll() {
+        ensureLoaded();
+        if (store == null) {
+            return;
+        }
         try {
-            for (GenericName name : names) {
+            for (GenericName name : new ArrayList<>(names)) {
                 store.delete(name);
             }
             reload();
@@ -209,9 +231,7 @@ public class CoverageStoreProvider extends AbstractDataProvider{
 
     @Override
     public boolean isSensorAffectable() {
-        if (store == null) {
-            reload();
-        }
+        ensureLoaded();
         if (store instanceof DataFileStore) {
             try {
                 final DataFileStore dfStore = (DataFileStore) store;
@@ -20,6 +20,8 @@
 package org.constellation.provider;
 
 import org.constellation.api.ProviderType;
+import org.constellation.configuration.AppProperty;
+import org.constellation.configuration.Application;
 import org.constellation.provider.configuration.ProviderParameters;
 import org.geotoolkit.gui.swing.tree.Trees;
 import org.geotoolkit.map.ElevationModel;
@@ -54,6 +56,14 @@ public abstract class AbstractDataProvider extends AbstractProvider<GenericName,
         super(id, service,config);
     }
 
+    /**
+     * Return {@code true} if the data store should be opened on its first use
+     * rather than when the provider is created.
+     */
+    protected static boolean isLazyLoading() {
+        return Boolean.parseBoolean(Application.getProperty(AppProperty.PROVIDER_LAZY_LOADING));
+    }
+
     /**
      * {@inheritDoc }
      */
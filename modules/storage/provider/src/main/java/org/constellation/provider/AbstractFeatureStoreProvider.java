@@ -64,10 +64,27 @@ public abstract class AbstractFeatureStoreProvider extends AbstractDataProvider{
     private final Set<GenericName> index = new LinkedHashSet<>();
     private ExtendedFeatureStore store;
 
+    /**
+     * Flag set when the store has been opened, stay {@code false} until first use in lazy loading mode.
+     */
+    private boolean visited = false;
+
     public AbstractFeatureStoreProvider(final String id, final ProviderFactory service,
             final ParameterValueGroup config) throws DataStoreException {
         super(id, service,config);
-        visit();
+        if (!isLazyLoading()) {
+            visit();
+        }
+    }
+
+    /**
+     * Open the store if it has been deferred or disposed. Unlike {@link #reload()}, the listeners
+     * are not notified: the lazy loading happens in the read methods and is not a configuration change.
+     */
+    private synchronized void ensureVisited() {
+        if (!visited) {
+            visit();
+        }
     }
 
     protected abstract FeatureStore createBaseFeatureStore();
@@ -77,6 +94,7 @@ public abstract class AbstractFeatureStoreProvider extends AbstractDataProvider{
      */
     @Override
     public ExtendedFeatureStore getMainStore(){
+        ensureVisited();
         return store;
     }
 
@@ -85,6 +103,7 @@ public abstract class AbstractFeatureStoreProvider extends AbstractDataProvider{
      */
     @Override
     public Set<GenericName> getKeys() {
+        ensureVisited();
         return Collections.unmodifiableSet(index);
     }
 
@@ -101,6 +120,7 @@ public abstract class AbstractFeatureStoreProvider extends AbstractDataProvider{
      */
     @Override
     public Data get(final GenericName key, Date version) {
+        ensureVisited();
         GenericName goodKey;
         if (!index.contains(key)) {
             goodKey = containsOnlyLocalPart(index, key);
@@ -151,10 +171,12 @@ public abstract class AbstractFeatureStoreProvider extends AbstractDataProvider{
             }
         }
         index.clear();
+        visited = false;
     }
 
     @Override
     protected synchronized void visit() {
+        visited = true;
         final ParameterValueGroup source = getSource();
 
         FeatureStore candidate = createBaseFeatureStore();
@@ -215,9 +237,7 @@ public abstract class AbstractFeatureStoreProvider extends AbstractDataProvider{
 
     @Override
     public void remove(GenericName key) {
-        if (store == null) {
-            reload();
-        }
+        ensureVisited();
 
         try {
             store.deleteFeatureType(key);
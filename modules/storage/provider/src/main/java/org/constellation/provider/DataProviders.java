@@ -20,6 +20,8 @@ package org.constellation.provider;
 
 import org.apache.sis.storage.DataStore;
 import org.apache.sis.storage.DataStoreException;
+import org.constellation.configuration.AppProperty;
+import org.constellation.configuration.Application;
 import org.constellation.configuration.ConfigurationException;
 import org.constellation.provider.configuration.Configurator.ProviderInformation;
 import org.geotoolkit.coverage.io.GridCoverageReader;
@@ -36,13 +38,22 @@ import java.beans.PropertyChangeSupport;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.ServiceLoader;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -66,8 +77,41 @@ public final class DataProviders extends Providers implements PropertyChangeList
     protected final Class<GenericName> keyClass = GenericName.class;
     protected final Class<Data> valClass = Data.class;
     
-    //all loaded providers
-    private Collection<DataProvider> PROVIDERS = null;
+    /**
+     * Snapshot of all loaded providers, {@code null} if the providers are not loaded.
+     * The snapshot is never modified, it is replaced as a whole under {@link #writeLock},
+     * so readers never need to synchronize.
+     */
+    private volatile Registry registry = null;
+
+    /**
+     * Lock held by the operations loading or modifying the providers.
+     */
+    private final Object writeLock = new Object();
+
+    /**
+     * Identify the current providers loading. A provider created in parallel for
+     * an outdated loading is disposed instead of being published.
+     * Guarded by {@link #writeLock}.
+     */
+    private Object loadToken = null;
+
+    /**
+     * Providers still being created by a parallel loading, by identifier.
+     */
+    private final ConcurrentMap<String, Future<DataProvider>> pendingProviders = new ConcurrentHashMap<>();
+
+    /**
+     * Identifiers of the providers in configuration order, the providers created in parallel
+     * are published in this order whatever their completion order.
+     * Guarded by {@link #writeLock}.
+     */
+    private List<String> loadOrder = Collections.emptyList();
+
+    /**
+     * Time spent to create each provider, in milliseconds.
+     */
+    private final ConcurrentMap<String, Long> initializationTimes = new ConcurrentHashMap<>();
 
     /**
      * {@inheritDoc}
@@ -114,6 +158,13 @@ public final class DataProviders extends Providers implements PropertyChangeList
             } catch (ConfigurationException ex) {
                 LOGGER.log(Level.SEVERE, ex.getMessage(), ex);
             }
+            //the provider data may have changed, drop the name index
+            synchronized (writeLock) {
+                final Registry current = registry;
+                if (current != null) {
+                    registry = new Registry(current.providers);
+                }
+            }
         }
         //forward events
         fireUpdateEvent();
@@ -163,9 +214,12 @@ public final class DataProviders extends Providers implements PropertyChangeList
         }
 
         //add in the list our provider
-        getProviders();
-        provider.addPropertyListener(this);
-        PROVIDERS.add(provider);
+        synchronized (writeLock) {
+            final List<DataProvider> providers = new ArrayList<>(getProviders());
+            provider.addPropertyListener(this);
+            providers.add(provider);
+            registry = new Registry(providers);
+        }
         //save the configuration
         getConfigurator().addProviderConfiguration(id,params, datasetID, createDatasetIfNull);
         fireUpdateEvent();
@@ -225,8 +279,15 @@ public final class DataProviders extends Providers implements PropertyChangeList
     public DataProvider removeProvider(final DataProvider provider) throws ConfigurationException{
         if(provider==null) return null;
         getConfigurator().removeProviderConfiguration(provider.getId());
-        
-        final boolean b = PROVIDERS.remove(provider);
+
+        final boolean b;
+        synchronized (writeLock) {
+            final List<DataProvider> providers = new ArrayList<>(getProviders());
+            b = providers.remove(provider);
+            if (b) {
+                registry = new Registry(providers);
+            }
+        }
         if(b){
             provider.removePropertyListener(this);
             fireUpdateEvent();
@@ -261,7 +322,7 @@ public final class DataProviders extends Providers implements PropertyChangeList
     public Data get(final GenericName key) {
         final List<Data> candidates = new ArrayList<>();
 
-        for(final Provider<GenericName,Data> provider : getProviders()){
+        for(final Provider<GenericName,Data> provider : getProvidersByName(key)){
             final Data layer = provider.get(key);
             if(layer != null) candidates.add(layer);
         }
@@ -308,48 +369,218 @@ public final class DataProviders extends Providers implements PropertyChangeList
         return values;
     }
 
-    public synchronized Collection<DataProvider> getProviders(){
-        if(PROVIDERS != null){
-            return Collections.unmodifiableCollection(PROVIDERS);
+    public Collection<DataProvider> getProviders(){
+        return getCompleteRegistry().providers;
+    }
+
+    /**
+     * Return the providers snapshot once all the providers are created.
+     */
+    private Registry getCompleteRegistry() {
+        Registry current = getRegistry();
+        if (!pendingProviders.isEmpty()) {
+            awaitLoading();
+            current = getRegistry();
         }
+        return current;
+    }
 
-        final List<ProviderInformation> configs;
+    /**
+     * Return the current providers snapshot, loading the providers if needed.
+     * In parallel mode the snapshot may not contain the providers still being created.
+     */
+    private Registry getRegistry() {
+        Registry current = registry;
+        if (current == null) {
+            boolean loaded = false;
+            synchronized (writeLock) {
+                current = registry;
+                if (current == null) {
+                    current = loadProviders();
+                    loaded = true;
+                }
+            }
+            if (loaded) {
+                fireUpdateEvent();
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Create the providers declared in the configurator and publish them in a new registry.
+     * If several start-up threads are configured, the providers are created in parallel and
+     * each one is published as soon as it is ready, the returned registry may then be partial.
+     * Must be called while holding {@link #writeLock}.
+     *
+     * @return the new registry, never {@code null}.
+     */
+    private Registry loadProviders() {
+        final Object token = new Object();
+        loadToken = token;
+        pendingProviders.clear();
+
+        List<ProviderInformation> configs;
         try {
             configs = getConfigurator().getProviderInformations();
         } catch (ConfigurationException ex) {
             LOGGER.log(Level.SEVERE, ex.getMessage(), ex);
-            return Collections.EMPTY_LIST;
+            configs = Collections.EMPTY_LIST;
         }
-        
-        final List<DataProvider> cache = new ArrayList<>();
-        
-        //rebuild providers
-        for(ProviderInformation entry : configs){
-            final String providerId = entry.id;
-            final ParameterValueGroup params = entry.config;
-            final String impl = entry.impl;
-                
-            for(final ProviderFactory factory : getFactories()){
-                //check if config can be used by this factory
-                if(factory.getName().equals(impl) && factory.canProcess(params)){
-                    try{
-                        final DataProvider prov = (DataProvider)factory.createProvider(providerId, params);
-                        if(prov != null){
-                            prov.addPropertyListener(this);
-                            cache.add(prov);
-                        }
-                    }catch(Exception ex){
-                        //we must not fail here in any case
-                        LOGGER.log(Level.SEVERE, "Factory "+factory.getName()+" failed to create a provider.",ex);
+
+        final List<String> order = new ArrayList<>(configs.size());
+        for (ProviderInformation entry : configs) {
+            order.add(entry.id);
+        }
+        loadOrder = order;
+
+        final int nbThread = getStartupThreads();
+        if (nbThread <= 1 || configs.size() <= 1) {
+            final List<DataProvider> cache = new ArrayList<>();
+            for (ProviderInformation entry : configs) {
+                final DataProvider prov = createProvider(entry);
+                if (prov != null) {
+                    cache.add(prov);
+                }
+            }
+            registry = new Registry(cache);
+        } else {
+            registry = new Registry(Collections.<DataProvider>emptyList());
+            final ExecutorService executor = Executors.newFixedThreadPool(Math.min(nbThread, configs.size()));
+            for (final ProviderInformation entry : configs) {
+                final Future<DataProvider> future = executor.submit(new Callable<DataProvider>() {
+                    @Override
+                    public DataProvider call() {
+                        final DataProvider prov = createProvider(entry);
+                        publish(token, entry.id, prov);
+                        return prov;
+                    }
+                });
+                // the task can not publish before we release the lock, so the future is always registered first.
+                pendingProviders.put(entry.id, future);
+            }
+            executor.shutdown();
+            LOGGER.log(Level.INFO, "Creating {0} providers on {1} threads.", new Object[]{configs.size(), nbThread});
+        }
+        return registry;
+    }
+
+    /**
+     * Create the provider described by the given configuration.
+     *
+     * @return the created provider, or {@code null} if no factory succeed to create it.
+     */
+    private DataProvider createProvider(final ProviderInformation entry) {
+        final String providerId = entry.id;
+        final ParameterValueGroup params = entry.config;
+        final String impl = entry.impl;
+        final long start = System.currentTimeMillis();
+
+        for(final ProviderFactory factory : getFactories()){
+            //check if config can be used by this factory
+            if(factory.getName().equals(impl) && factory.canProcess(params)){
+                try{
+                    final DataProvider prov = (DataProvider)factory.createProvider(providerId, params);
+                    if(prov != null){
+                        prov.addPropertyListener(this);
+                        final long time = System.currentTimeMillis() - start;
+                        initializationTimes.put(providerId, time);
+                        LOGGER.log(Level.INFO, "Provider {0} initialized in {1} ms.", new Object[]{providerId, time});
+                        return prov;
                     }
+                }catch(Exception ex){
+                    //we must not fail here in any case
+                    LOGGER.log(Level.SEVERE, "Factory "+factory.getName()+" failed to create a provider.",ex);
                 }
             }
         }
-        
+        return null;
+    }
 
-        PROVIDERS = cache;
-        fireUpdateEvent();
-        return Collections.unmodifiableCollection(PROVIDERS);
+    /**
+     * Add a provider created in parallel to the current registry, or dispose it
+     * if the providers have been reloaded or disposed in the meantime.
+     */
+    private void publish(final Object token, final String providerId, final DataProvider provider) {
+        boolean published = false;
+        boolean outdated = true;
+        synchronized (writeLock) {
+            if (token == loadToken) {
+                outdated = false;
+                pendingProviders.remove(providerId);
+                if (provider != null) {
+                    final List<DataProvider> providers = new ArrayList<>(registry.providers);
+                    providers.add(provider);
+                    final List<String> order = loadOrder;
+                    Collections.sort(providers, new Comparator<DataProvider>() {
+                        @Override
+                        public int compare(final DataProvider p1, final DataProvider p2) {
+                            return Integer.compare(order.indexOf(p1.getId()), order.indexOf(p2.getId()));
+                        }
+                    });
+                    registry = new Registry(providers);
+                    published = true;
+                }
+            }
+        }
+        if (published) {
+            fireUpdateEvent();
+        } else if (provider != null && outdated) {
+            provider.removePropertyListener(this);
+            provider.dispose();
+        }
+    }
+
+    /**
+     * Return the number of threads used to create the providers.
+     */
+    private static int getStartupThreads() {
+        final String value = Application.getProperty(AppProperty.PROVIDER_STARTUP_THREADS);
+        if (value != null) {
+            try {
+                final int nb = Integer.parseInt(value);
+                if (nb <= 0) {
+                    return Runtime.getRuntime().availableProcessors();
+                }
+                return nb;
+            } catch (NumberFormatException ex) {
+                LOGGER.log(Level.WARNING, "Unable to parse the provider start-up thread number:{0}", value);
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Return the time spent to create each provider, in milliseconds.
+     *
+     * @return a map of creation time by provider identifier.
+     */
+    public Map<String, Long> getInitializationTimes() {
+        return Collections.unmodifiableMap(new HashMap<>(initializationTimes));
+    }
+
+    /**
+     * @return {@code true} if some providers are still being created in background.
+     */
+    public boolean isLoading() {
+        return !pendingProviders.isEmpty();
+    }
+
+    /**
+     * Wait until all the providers being created in background are published,
+     * so the methods working on all the providers see a complete registry.
+     */
+    private void awaitLoading() {
+        for (final Map.Entry<String, Future<DataProvider>> entry : pendingProviders.entrySet()) {
+            try {
+                entry.getValue().get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException ex) {
+                LOGGER.log(Level.WARNING, "Failed to create the provider : " + entry.getKey(), ex);
+            }
+        }
     }
 
     /**
@@ -357,47 +588,80 @@ public final class DataProviders extends Providers implements PropertyChangeList
      * @param id The identifier of the data provider to find.
      * @return Provider found for requestde name, or null if we cannot find it.
      */
-    public synchronized DataProvider getProvider(final String id){
-        for (DataProvider provider : getProviders()) {
-            if (provider.getId().equals(id)) {
-                return provider;
+    public DataProvider getProvider(final String id){
+        DataProvider provider = getRegistry().byId.get(id);
+        if (provider == null) {
+            //the provider may still be loading in background, wait for this one only
+            final Future<DataProvider> future = pendingProviders.get(id);
+            if (future != null) {
+                try {
+                    provider = future.get();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException ex) {
+                    LOGGER.log(Level.WARNING, "Failed to create the provider : " + id, ex);
+                }
             }
         }
-        return null;
+        return provider;
+    }
+
+    /**
+     * Return the providers which may contain a data with the given name,
+     * that is the providers declaring a data with the same local part.
+     */
+    private List<DataProvider> getProvidersByName(final GenericName key) {
+        final List<DataProvider> candidates = getCompleteRegistry().getNameIndex().get(key.tip().toString());
+        if (candidates == null) {
+            return Collections.EMPTY_LIST;
+        }
+        return candidates;
     }
 
     /**
      * {@inheritDoc }
      */
-    public synchronized void reload() {
-        dispose();
-        getProviders(); //will load providers
+    public void reload() {
+        final Registry old;
+        synchronized (writeLock) {
+            old = registry;
+            loadProviders();
+        }
+        //the new providers are already visible, we can release the previous ones
+        dispose(old);
         fireUpdateEvent();
     }
 
     /**
      * {@inheritDoc }
      */
-    public synchronized void dispose() {
-        if(PROVIDERS == null){
+    public void dispose() {
+        final Registry old;
+        synchronized (writeLock) {
+            old = registry;
+            registry = null;
+            loadToken = null;
+            loadOrder = Collections.emptyList();
+            pendingProviders.clear();
+        }
+        dispose(old);
+    }
+
+    private void dispose(final Registry old) {
+        if(old == null){
             //providers are not loaded
             return;
         }
 
-        try{
-            //sproviders were loaded, dispose each of them
-            for(final Provider<GenericName,Data> provider : getProviders()){
-                try{
-                    provider.removePropertyListener(this);
-                    provider.dispose();
-                }catch(Exception ex){
-                    //we must not fail here in any case
-                    LOGGER.log(Level.SEVERE, "Failed to dispose provider : " + provider.toString(),ex);
-                }
+        //sproviders were loaded, dispose each of them
+        for(final Provider<GenericName,Data> provider : old.providers){
+            try{
+                provider.removePropertyListener(this);
+                provider.dispose();
+            }catch(Exception ex){
+                //we must not fail here in any case
+                LOGGER.log(Level.SEVERE, "Failed to dispose provider : " + provider.toString(),ex);
             }
-        }finally{
-            //there should not be an error, but in worse case ensure this is correctly set to null.
-            PROVIDERS = null;
         }
     }
     
@@ -428,7 +692,7 @@ public final class DataProviders extends Providers implements PropertyChangeList
     public Data get(final GenericName key, final Date version) {
         final List<Data> candidates = new ArrayList<>();
 
-        for(final DataProvider provider : getProviders()){
+        for(final DataProvider provider : getProvidersByName(key)){
             final Data layer = provider.get(key, version);
             if(layer != null) {
                 candidates.add(layer);
@@ -501,5 +765,64 @@ public final class DataProviders extends Providers implements PropertyChangeList
     public static DataProviders getInstance(){
         return INSTANCE;
     }
-    
+
+    /**
+     * Immutable snapshot of the loaded providers, indexed by identifier.
+     * The index of the data names is built on first use.
+     */
+    private static final class Registry {
+
+        private final Collection<DataProvider> providers;
+
+        private final Map<String, DataProvider> byId = new HashMap<>();
+
+        /**
+         * Providers by data local name, {@code null} until first use.
+         */
+        private volatile Map<String, List<DataProvider>> byName;
+
+        private Registry(final Collection<DataProvider> providers) {
+            this.providers = Collections.unmodifiableCollection(new ArrayList<>(providers));
+            for (DataProvider provider : providers) {
+                if (!byId.containsKey(provider.getId())) {
+                    byId.put(provider.getId(), provider);
+                }
+            }
+        }
+
+        /**
+         * Several threads may build the index at the same time, but they will build the same one.
+         * Listing the data names opens the stores of the lazy providers, so in lazy mode the first
+         * lookup by data name opens all the stores, only the lookups by provider stay lazy.
+         */
+        private Map<String, List<DataProvider>> getNameIndex() {
+            Map<String, List<DataProvider>> index = byName;
+            if (index == null) {
+                index = new HashMap<>();
+                for (DataProvider provider : providers) {
+                    final Set<GenericName> keys;
+                    try {
+                        keys = provider.getKeys();
+                    } catch (Exception ex) {
+                        //we must not fail here in any case
+                        LOGGER.log(Level.WARNING, "Failed to list the data of provider : " + provider.getId(), ex);
+                        continue;
+                    }
+                    for (GenericName key : keys) {
+                        final String localName = key.tip().toString();
+                        List<DataProvider> candidates = index.get(localName);
+                        if (candidates == null) {
+                            candidates = new ArrayList<>(1);
+                            index.put(localName, candidates);
+                        }
+                        if (!candidates.contains(provider)) {
+                            candidates.add(provider);
+                        }
+                    }
+                }
+                byName = index;
+            }
+            return index;
+        }
+    }
 }
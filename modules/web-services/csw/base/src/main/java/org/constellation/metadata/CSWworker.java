@@ -21,6 +21,7 @@ package org.constellation.metadata;
 // J2SE dependencies
 
 import com.codahale.metrics.annotation.Timed;
+import org.apache.lucene.search.Filter;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.SortField;
 import org.apache.sis.metadata.iso.DefaultMetadata;
@@ -28,6 +29,8 @@ import org.apache.sis.util.logging.MonolineFormatter;
 import org.apache.sis.xml.MarshallerPool;
 import org.apache.sis.xml.Namespaces;
 import org.constellation.ServiceDef;
+import org.constellation.configuration.AppProperty;
+import org.constellation.configuration.Application;
 import org.constellation.configuration.ConfigDirectory;
 import org.constellation.configuration.ConfigurationException;
 import org.constellation.configuration.DataSourceType;
@@ -38,12 +41,17 @@ import org.constellation.filter.SQLQuery;
 import org.constellation.generic.database.Automatic;
 import org.constellation.metadata.factory.AbstractCSWFactory;
 import org.constellation.metadata.harvest.CatalogueHarvester;
+import org.constellation.metadata.index.CSWIndexSearcher;
+import org.constellation.metadata.index.CSWIndexSearcher.SearchPage;
 import org.constellation.metadata.io.CSWMetadataReader;
 import org.constellation.metadata.io.MetadataIoException;
 import org.constellation.metadata.io.MetadataType;
 import org.constellation.metadata.io.MetadataWriter;
+import org.constellation.metadata.security.IndexedMetadataSecurityFilter;
 import org.constellation.metadata.security.MetadataSecurityFilter;
+import org.constellation.metadata.security.NoMetadataSecurityFilter;
 import org.constellation.metadata.utils.CSWUtils;
+import org.constellation.metadata.utils.Utils;
 import org.constellation.security.SecurityManagerHolder;
 import org.constellation.util.Util;
 import org.constellation.ws.AbstractWorker;
@@ -91,7 +99,6 @@ import org.geotoolkit.lucene.IndexingException;
 import org.geotoolkit.lucene.SearchingException;
 import org.geotoolkit.lucene.filter.SpatialQuery;
 import org.geotoolkit.lucene.index.AbstractIndexer;
-import org.geotoolkit.lucene.index.LuceneIndexSearcher;
 import org.geotoolkit.ogc.xml.SortBy;
 import org.geotoolkit.ows.xml.AbstractCapabilitiesCore;
 import org.geotoolkit.ows.xml.AbstractDomain;
@@ -131,6 +138,11 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.FileHandler;
 import java.util.logging.Level;
 
@@ -198,7 +210,7 @@ public class CSWworker extends AbstractWorker implements Refreshable {
     /**
      * A lucene index searcher to make quick search on the metadatas.
      */
-    private LuceneIndexSearcher indexSearcher;
+    private CSWIndexSearcher indexSearcher;
 
     /**
      * A filter parser which create lucene query from OGC filter
@@ -256,6 +268,21 @@ public class CSWworker extends AbstractWorker implements Refreshable {
     private MetadataSecurityFilter securityFilter;
     
     private Automatic configuration;
+
+    /**
+     * The minimal number of records read by a task of the record reader pool.
+     */
+    private static final int MIN_RECORDS_BY_TASK = 4;
+
+    /**
+     * The number of threads of the record reader pool.
+     */
+    private final int readerThreads = getReaderThreads();
+
+    /**
+     * A pool reading the records of a response concurrently.
+     */
+    private final ExecutorService recordReaders = Executors.newFixedThreadPool(readerThreads);
             
     /**
      * Build a new CSW worker with the specified configuration directory
@@ -837,6 +864,9 @@ public class CSWworker extends AbstractWorker implements Refreshable {
         }
 
         final String[] results;
+        final int nbResults;
+        // the position of the first element of results in the matching records
+        final int offset;
         if (outputSchema.equals(EBRIM_30) || outputSchema.equals(EBRIM_25)) {
 
             // build the sql query from the specified filter
@@ -852,6 +882,8 @@ public class CSWworker extends AbstractWorker implements Refreshable {
            try {
             // we try to execute the query
             results = securityFilter.filterResults(userLogin, mdReader.executeEbrimSQLQuery(sqlQuery.getQuery()));
+            nbResults = results.length;
+            offset    = 0;
            } catch (MetadataIoException ex) {
                CodeList execptionCode = ex.getExceptionCode();
                if (execptionCode == null) {
@@ -899,10 +931,19 @@ public class CSWworker extends AbstractWorker implements Refreshable {
                 luceneQuery.setSort(sortFilter);
             }
 
-            // we try to execute the query
-            results = securityFilter.filterResults(userLogin, executeLuceneQuery(luceneQuery));
+            // we try to execute the query, reading only the requested page when possible
+            final int pageSize = resultType.equals(ResultType.RESULTS) ? maxRecord : 0;
+            final SearchPage page = executePagedLuceneQuery(luceneQuery, userLogin, startPos - 1, pageSize);
+            if (page != null) {
+                results   = page.getIdentifiers();
+                nbResults = page.getTotal();
+                offset    = page.getStartIndex();
+            } else {
+                results   = securityFilter.filterResults(userLogin, executeLuceneQuery(luceneQuery));
+                nbResults = results.length;
+                offset    = 0;
+            }
         }
-        final int nbResults = results.length;
 
         //we look for distributed queries
         DistributedResults distributedResults = new DistributedResults();
@@ -965,14 +1006,18 @@ public class CSWworker extends AbstractWorker implements Refreshable {
 
             final List<Object> records                 = new ArrayList<>();
             try {
-                for (int i = startPos -1; i < max; i++) {
-                    final Object obj = mdReader.getMetadata(results[i], mode, cstlSet(set), elementName);
-                    if (obj == null && (max + 1) < nbResults) {
-                        max++;
-
-                    } else if (obj != null) {
-                        records.add(obj);
+                // the missing records are replaced by the next ones when they are available
+                int next    = (startPos - 1) - offset;
+                int missing = max - (startPos - 1);
+                while (missing > 0 && next < results.length) {
+                    final int end = Math.min(results.length, next + missing);
+                    for (Object obj : getMetadata(Arrays.asList(results).subList(next, end), mode, cstlSet(set), elementName)) {
+                        if (obj != null) {
+                            records.add(obj);
+                            missing--;
+                        }
                     }
+                    next = end;
                 }
             } catch (MetadataIoException ex) {
                CodeList execptionCode = ex.getExceptionCode();
@@ -1006,6 +1051,69 @@ public class CSWworker extends AbstractWorker implements Refreshable {
         return response;
     }
 
+    /**
+     * Read the specified records, concurrently by chunks on the record reader pool
+     * if the reader can be used by several threads.
+     *
+     * @param identifiers The record identifiers.
+     * @return The records in the order of the identifiers, {@code null} for the missing records.
+     * @throws MetadataIoException
+     */
+    private List<Object> getMetadata(final List<String> identifiers, final MetadataType mode,
+            final org.constellation.metadata.io.ElementSetType set, final List<QName> elementName) throws MetadataIoException {
+        final int nbTask = Math.min(readerThreads, identifiers.size() / MIN_RECORDS_BY_TASK);
+        if (nbTask <= 1 || !mdReader.isThreadEnabled()) {
+            return new ArrayList<Object>(mdReader.getMetadata(identifiers, mode, set, elementName));
+        }
+        final int chunkSize = (identifiers.size() + nbTask - 1) / nbTask;
+        final List<Future<List<Node>>> tasks = new ArrayList<>(nbTask);
+        for (int i = 0; i < identifiers.size(); i += chunkSize) {
+            final List<String> chunk = identifiers.subList(i, Math.min(identifiers.size(), i + chunkSize));
+            tasks.add(recordReaders.submit(new Callable<List<Node>>() {
+                @Override
+                public List<Node> call() throws MetadataIoException {
+                    return mdReader.getMetadata(chunk, mode, set, elementName);
+                }
+            }));
+        }
+        final List<Object> results = new ArrayList<>(identifiers.size());
+        try {
+            for (Future<List<Node>> task : tasks) {
+                results.addAll(task.get());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new MetadataIoException("Interrupted while reading the records", ex, NO_APPLICABLE_CODE);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof MetadataIoException) {
+                throw (MetadataIoException) ex.getCause();
+            } else if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new MetadataIoException(ex);
+        } finally {
+            for (Future<List<Node>> task : tasks) {
+                task.cancel(true);
+            }
+        }
+        return results;
+    }
+
+    private static int getReaderThreads() {
+        final String value = Application.getProperty(AppProperty.CSW_READER_THREADS);
+        if (value != null) {
+            try {
+                final int nb = Integer.parseInt(value);
+                if (nb > 0) {
+                    return nb;
+                }
+            } catch (NumberFormatException ex) {
+                LOGGER.log(Level.WARNING, "Unable to parse the CSW reader thread number:{0}", value);
+            }
+        }
+        return Runtime.getRuntime().availableProcessors();
+    }
+
     private org.constellation.metadata.io.ElementSetType cstlSet(final ElementSetType set) {
         if (set != null) {
             return org.constellation.metadata.io.ElementSetType.fromValue(set.value());
@@ -1032,6 +1140,41 @@ public class CSWworker extends AbstractWorker implements Refreshable {
         }
     }
 
+    /**
+     * Execute a Lucene spatial query and return only the requested page of the matching identifiers,
+     * the security filter being applied in the index. The security filters which can not be applied
+     * in the index for this user need all the matching identifiers, no page is returned for them.
+     *
+     * @param query
+     * @param userLogin
+     * @param startIndex The index of the first identifier, starting at 0.
+     * @param count The number of identifiers wanted, 0 to only count the matching records.
+     *
+     * @return a page of identifiers or {@code null} if the query can not be executed by page.
+     * @throws CstlServiceException
+     */
+    private SearchPage executePagedLuceneQuery(final SpatialQuery query, final String userLogin, final int startIndex, final int count) throws CstlServiceException {
+        LOGGER.log(Level.FINE, "Lucene query obtained:{0}", query);
+        try {
+            final Filter filter;
+            if (securityFilter instanceof NoMetadataSecurityFilter) {
+                filter = null;
+            } else if (securityFilter instanceof IndexedMetadataSecurityFilter) {
+                filter = ((IndexedMetadataSecurityFilter) securityFilter).getLuceneFilter(userLogin);
+                if (filter == null) {
+                    return null;
+                }
+            } else {
+                return null;
+            }
+            return indexSearcher.doPagedSearch(query, filter, startIndex, count);
+
+        } catch (SearchingException ex) {
+            throw new CstlServiceException("The service has throw an exception while making identifier lucene request", ex,
+                                             NO_APPLICABLE_CODE);
+        }
+    }
+
     /**
      * Execute a Lucene spatial query and return the result as a database identifier.
      *
@@ -1133,6 +1276,7 @@ public class CSWworker extends AbstractWorker implements Refreshable {
                 throw new CstlServiceException("Unexpected outputSchema");
         }
 
+        final List<String> identifiers = new ArrayList<>();
         for (String id : request.getId()) {
 
             final String saved = id;
@@ -1142,10 +1286,15 @@ public class CSWworker extends AbstractWorker implements Refreshable {
                 LOGGER.log(Level.WARNING, "unexisting id:{0}", saved);
                 continue;
             }
+            identifiers.add(id);
+        }
 
-            //we get the metadata object
-            try {
-                final Object o = mdReader.getMetadata(id, mode, cstlSet(set), null);
+        //we get the metadata objects
+        try {
+            final List<Object> objects = getMetadata(identifiers, mode, cstlSet(set), null);
+            for (int i = 0; i < identifiers.size(); i++) {
+                final String id = identifiers.get(i);
+                final Object o  = objects.get(i);
                 if (o != null) {
                     if (!matchExpectedType(o, outputSchema)) {
                         LOGGER.log(Level.WARNING, "The record {0} does not correspound to {1} object.", new Object[]{id, outputSchema});
@@ -1155,13 +1304,13 @@ public class CSWworker extends AbstractWorker implements Refreshable {
                 } else {
                     LOGGER.log(Level.WARNING, "The record {0} has not be read is null.", id);
                 }
-            } catch (MetadataIoException ex) {
-                CodeList exceptionCode = ex.getExceptionCode();
-                if (exceptionCode == null) {
-                    exceptionCode = NO_APPLICABLE_CODE;
-                }
-                throw new CstlServiceException(ex, exceptionCode);
             }
+        } catch (MetadataIoException ex) {
+            CodeList exceptionCode = ex.getExceptionCode();
+            if (exceptionCode == null) {
+                exceptionCode = NO_APPLICABLE_CODE;
+            }
+            throw new CstlServiceException(ex, exceptionCode);
         }
 
         if (records.isEmpty()) {
@@ -1421,6 +1570,8 @@ public class CSWworker extends AbstractWorker implements Refreshable {
 
                     try {
                         mdWriter.storeMetadata(record);
+                        // an existing record may have been replaced
+                        mdReader.removeFromCache(Utils.findIdentifierNode(record));
                         totalInserted++;
 
                     } catch (IllegalArgumentException e) {
@@ -1757,6 +1908,7 @@ public class CSWworker extends AbstractWorker implements Refreshable {
     @Override
     public void destroy() {
         super.destroy();
+        recordReaders.shutdownNow();
         if (mdReader != null) {
             mdReader.destroy();
         }
@@ -1774,6 +1926,13 @@ public class CSWworker extends AbstractWorker implements Refreshable {
         }
     }
 
+    /**
+     * Replace the security filter of the factory, used by the tests.
+     */
+    void setSecurityFilter(final MetadataSecurityFilter securityFilter) {
+        this.securityFilter = securityFilter;
+    }
+
     /**
      * {@inheritDoc }
      */
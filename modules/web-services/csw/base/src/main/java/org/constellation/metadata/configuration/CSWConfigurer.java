@@ -24,10 +24,13 @@ import org.constellation.configuration.BriefNode;
 import org.constellation.configuration.ConfigDirectory;
 import org.constellation.configuration.ConfigurationException;
 import org.constellation.configuration.DataSourceType;
+import org.constellation.configuration.IndexationStatus;
 import org.constellation.configuration.Instance;
 import org.constellation.configuration.StringList;
 import org.constellation.generic.database.Automatic;
 import org.constellation.metadata.factory.AbstractCSWFactory;
+import org.constellation.metadata.index.AbstractCSWIndexer;
+import org.constellation.metadata.index.IndexationProgress;
 import org.constellation.metadata.io.CSWMetadataReader;
 import org.constellation.metadata.io.MetadataIoException;
 import org.constellation.metadata.io.MetadataType;
@@ -116,6 +119,7 @@ public class CSWConfigurer extends OGCConfigurer implements ICSWConfigurer {
             return refused;
         } else if (indexing && forced) {
             AbstractIndexer.stopIndexation(Arrays.asList(id));
+            IndexationProgress.stop(id);
         }
 
         startIndexation(id);
@@ -300,10 +304,66 @@ public class CSWConfigurer extends OGCConfigurer implements ICSWConfigurer {
             return new AcknowlegementType("Success", "There is no indexation to stop");
         } else {
             AbstractIndexer.stopIndexation(Arrays.asList(id));
+            IndexationProgress.stop(id);
             return new AcknowlegementType("Success", "The indexation have been stopped");
         }
     }
 
+    /**
+     * Return the progress of the current or last indexation of the specified service.
+     *
+     * @param id identifier of the CSW service.
+     * @return The indexation status, with the state NONE if there was no indexation since the server start.
+     */
+    public IndexationStatus getIndexationStatus(final String id) {
+        final IndexationProgress progress = IndexationProgress.get(id);
+        if (progress == null) {
+            return new IndexationStatus(id, "NONE");
+        }
+        final IndexationStatus status = new IndexationStatus(id, progress.getState().name());
+        status.setIncremental(progress.isIncremental());
+        status.setTotal(progress.getTotal());
+        status.setProcessed(progress.getProcessed());
+        status.setFailed(progress.getFailed());
+        status.setElapsedTime(progress.getElapsedTime());
+        status.setRemainingTime(progress.getRemainingTime());
+        return status;
+    }
+
+    /**
+     * Index the records modified since the last indexation of the specified service.
+     * As for a complete refresh, the running service only sees the new documents after its restart.
+     *
+     * @param id identifier of the CSW service.
+     * @return an Acknowledgment.
+     * @throws ConfigurationException
+     */
+    public AcknowlegementType updateIndex(final String id) throws ConfigurationException {
+        if (isIndexing(id)) {
+            return new AcknowlegementType("Failure", "An indexation is already started for this service:" + id);
+        }
+        LOGGER.log(Level.INFO, "index update requested id:{0}", id);
+        startIndexation(id);
+        AbstractIndexer indexer = null;
+        try {
+            indexer = getIndexer(id, null);
+            if (!(indexer instanceof AbstractCSWIndexer)) {
+                return new AcknowlegementType("Failure", "The indexer of this service does not support the incremental indexation");
+            }
+            if (((AbstractCSWIndexer) indexer).updateIndex()) {
+                return new AcknowlegementType("Success", "CSW index succefully updated");
+            }
+            return new AcknowlegementType("Failure", "The modified records can not be found, a complete indexation is needed");
+        } catch (IndexingException ex) {
+            throw new ConfigurationException("An exception occurs while updating the index!\ncause:" + ex.getMessage());
+        } finally {
+            if (indexer != null) {
+                indexer.destroy();
+            }
+            endIndexation(id);
+        }
+    }
+
     @Override
     public AcknowlegementType importRecords(final String id, final File f, final String fileName) throws ConfigurationException {
         LOGGER.finer("Importing record");
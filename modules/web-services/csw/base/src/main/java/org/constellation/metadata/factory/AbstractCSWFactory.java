@@ -28,9 +28,9 @@ import org.constellation.metadata.io.MetadataIoException;
 import org.constellation.metadata.io.MetadataReader;
 import org.constellation.metadata.io.MetadataWriter;
 import org.constellation.metadata.security.MetadataSecurityFilter;
+import org.constellation.metadata.index.CSWIndexSearcher;
 import org.geotoolkit.lucene.IndexingException;
 import org.geotoolkit.lucene.index.AbstractIndexer;
-import org.geotoolkit.lucene.index.LuceneIndexSearcher;
 
 import java.io.File;
 import java.util.List;
@@ -102,7 +102,7 @@ public interface AbstractCSWFactory {
      * @return  a Lucene index searcher for the specified dataSource type.
      * @throws IndexingException
      */
-    LuceneIndexSearcher getIndexSearcher(final File configDir, final String serviceID) throws IndexingException;
+    CSWIndexSearcher getIndexSearcher(final File configDir, final String serviceID) throws IndexingException;
 
     /**
      * Return a catalog harvester in the specified implementation type.
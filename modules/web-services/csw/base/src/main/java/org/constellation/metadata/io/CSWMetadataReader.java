@@ -57,6 +57,20 @@ public interface CSWMetadataReader extends MetadataReader {
      */
     Node getMetadata(final String identifier, final MetadataType mode, final ElementSetType type, final List<QName> elementName) throws MetadataIoException;
 
+    /**
+     * Return the metadata objects for the specified identifiers.
+     * The implementations can read all the records in one request to the dataSource.
+     *
+     * @param identifiers The metadata identifiers.
+     * @param mode An output schema mode: EBRIM, ISO_19115, DUBLINCORE and SENSORML supported.
+     * @param type An elementSet: FULL, SUMMARY and BRIEF. (implies elementName == null)
+     * @param elementName A list of QName describing the requested fields. (implies type == null)
+     *
+     * @return The marshallable metadata objects, in the order of the identifiers ({@code null} for the missing records).
+     * @throws MetadataIoException
+     */
+    List<Node> getMetadata(final List<String> identifiers, final MetadataType mode, final ElementSetType type, final List<QName> elementName) throws MetadataIoException;
+
     /**
      * @return the list of QName for additional queryable element.
      */
@@ -0,0 +1,41 @@
+/*
+ *    Constellation - An open source and standard compliant SDI
+ *    http://www.constellation-sdi.org
+ *
+ * Copyright 2014 Geomatys.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.constellation.metadata.security;
+
+import org.apache.lucene.search.Filter;
+
+/**
+ * A security filter which can also be applied in the index, so the worker reads
+ * only the requested page of the visible records.
+ *
+ * @author Guilhem Legal (Geomatys)
+ */
+public interface IndexedMetadataSecurityFilter extends MetadataSecurityFilter {
+
+    /**
+     * Return a Lucene filter selecting the records visible by the specified user,
+     * applied directly in the index when searching records.
+     *
+     * @param login The user login.
+     * @return A Lucene filter, or {@code null} if the visible records can not be selected in the index
+     *         for this user. The results are then filtered by {@link #filterResults(String, String[])}.
+     */
+    Filter getLuceneFilter(final String login);
+}
@@ -84,7 +84,12 @@ public class CSWServicesRest {
         final boolean asynchrone = values.getAsBoolean("ASYNCHRONE");
         final boolean forced     = values.getAsBoolean("FORCED");
         final CSWConfigurer conf = getConfigurer();
-        final AcknowlegementType ack = conf.refreshIndex(id, asynchrone, forced);
+        final AcknowlegementType ack;
+        if (values.getAsBoolean("INCREMENTAL")) {
+            ack = conf.updateIndex(id);
+        } else {
+            ack = conf.refreshIndex(id, asynchrone, forced);
+        }
         if (!asynchrone && ack.getStatus().equals("Success")) {
             serviceBusiness.restart("CSW", id, true);
         }
@@ -111,6 +116,12 @@ public class CSWServicesRest {
         return ok(getConfigurer().stopIndexation(id));
     }
 
+    @GET
+    @Path("{id}/index/status")
+    public Response getIndexationStatus(final @PathParam("id") String id) throws Exception {
+        return ok(getConfigurer().getIndexationStatus(id));
+    }
+
     // TODO change fileName into dataType parameter
     @PUT
     @Path("{id}/records/{fileName}")
@@ -31,6 +31,9 @@ import org.apache.sis.util.logging.Logging;
 import org.apache.sis.xml.MarshallerPool;
 import org.apache.sis.xml.Namespaces;
 import org.apache.sis.xml.XML;
+import org.constellation.metadata.security.IndexedMetadataSecurityFilter;
+import org.constellation.metadata.security.MetadataSecurityFilter;
+import org.constellation.metadata.security.NoMetadataSecurityFilter;
 import org.constellation.util.NodeUtilities;
 import org.constellation.util.Util;
 import org.constellation.ws.CstlServiceException;
@@ -134,6 +137,7 @@ import static org.geotoolkit.ows.xml.OWSExceptionCode.MISSING_PARAMETER_VALUE;
 import static org.geotoolkit.ows.xml.OWSExceptionCode.VERSION_NEGOTIATION_FAILED;
 import static org.geotoolkit.ows.xml.v100.ObjectFactory._BoundingBox_QNAME;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -720,6 +724,79 @@ public class CSWworkerTest implements ApplicationContextAware {
         assertTrue(exLaunched);
     }
 
+    /**
+     * Tests the getRecords method with a security filter hiding a record, which can not be applied in the index.
+     *
+     * @throws java.lang.Exception
+     */
+    public void getRecordsSecurityTest() throws Exception {
+        final String hidden = "42292_5p_19900609195600";
+        final MetadataSecurityFilter restricting = new MetadataSecurityFilter() {
+            @Override
+            public String[] filterResults(final String login, final String[] results) {
+                final List<String> visible = new ArrayList<>();
+                for (String result : results) {
+                    if (!hidden.equals(result)) {
+                        visible.add(result);
+                    }
+                }
+                return visible.toArray(new String[visible.size()]);
+            }
+
+            @Override
+            public boolean allowed(final String login, final String id) {
+                return !hidden.equals(id);
+            }
+        };
+        final IndexedMetadataSecurityFilter noIndexFilter = new IndexedMetadataSecurityFilter() {
+            @Override
+            public String[] filterResults(final String login, final String[] results) {
+                return restricting.filterResults(login, results);
+            }
+
+            @Override
+            public boolean allowed(final String login, final String id) {
+                return restricting.allowed(login, id);
+            }
+
+            @Override
+            public org.apache.lucene.search.Filter getLuceneFilter(final String login) {
+                return null;
+            }
+        };
+        try {
+            for (MetadataSecurityFilter securityFilter : Arrays.asList(restricting, noIndexFilter)) {
+                worker.setSecurityFilter(securityFilter);
+
+                final QueryType query = new QueryType(Arrays.asList(RECORD_QNAME), new ElementSetNameType(ElementSetType.FULL), null,
+                                                      new QueryConstraintType("Title LIKE '90008411%'", "1.0.0"));
+                GetRecordsType request = new GetRecordsType("CSW", "2.0.2", ResultType.HITS, null, MimeType.APPLICATION_XML, "http://www.opengis.net/cat/csw/2.0.2", 1, 5, query, null);
+                GetRecordsResponseType result = (GetRecordsResponseType) worker.getRecords(request);
+                assertEquals(1, result.getSearchResults().getNumberOfRecordsMatched());
+
+                request = new GetRecordsType("CSW", "2.0.2", ResultType.RESULTS, null, MimeType.APPLICATION_XML, "http://www.opengis.net/cat/csw/2.0.2", 1, 5, query, null);
+                result = (GetRecordsResponseType) worker.getRecords(request);
+                assertEquals(1, result.getSearchResults().getNumberOfRecordsMatched());
+                assertEquals(1, result.getSearchResults().getNumberOfRecordsReturned());
+                assertEquals(1, result.getSearchResults().getAny().size());
+
+                Object obj = result.getSearchResults().getAny().get(0);
+                if (obj instanceof JAXBElement) {
+                    obj = ((JAXBElement) obj).getValue();
+                }
+                final String identifier;
+                if (obj instanceof RecordType) {
+                    identifier = ((RecordType) obj).getIdentifier().getContent().get(0);
+                } else {
+                    identifier = NodeUtilities.getValuesFromPath((Node) obj, "/csw:Record/dc:identifier").get(0);
+                }
+                assertFalse(hidden.equals(identifier));
+            }
+        } finally {
+            worker.setSecurityFilter(new NoMetadataSecurityFilter());
+        }
+    }
+
     /**
      * Tests the getRecords method
      *
@@ -19,16 +19,21 @@
 package org.constellation.metadata.io.filesystem;
 
 import org.apache.sis.xml.Namespaces;
+import org.constellation.configuration.AppProperty;
+import org.constellation.configuration.Application;
+import org.constellation.configuration.ConfigDirectory;
 import org.constellation.generic.database.Automatic;
 import org.constellation.metadata.io.CSWMetadataReader;
 import org.constellation.metadata.io.DomMetadataReader;
 import org.constellation.metadata.io.ElementSetType;
 import org.constellation.metadata.io.MetadataIoException;
 import org.constellation.metadata.io.MetadataType;
+import org.constellation.metadata.io.filesystem.RecordCache.ParsedRecord;
 import org.constellation.metadata.io.filesystem.sql.IdentifierIterator;
 import org.constellation.metadata.io.filesystem.sql.MetadataDatasource;
 import org.constellation.metadata.io.filesystem.sql.RecordIterator;
 import org.constellation.metadata.io.filesystem.sql.Session;
+import org.constellation.util.NodePath;
 import org.constellation.util.NodeUtilities;
 import org.geotoolkit.csw.xml.DomainValues;
 import org.geotoolkit.csw.xml.v202.DomainValuesType;
@@ -44,9 +49,9 @@ import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -54,10 +59,21 @@ import java.nio.file.Paths;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 
 import static org.constellation.metadata.CSWConstants.XML_EXT;
@@ -103,6 +119,33 @@ public class FileMetadataReader extends DomMetadataReader implements CSWMetadata
 
     private final String serviceID;
 
+    /**
+     * The default maximum size in megabytes of the record files kept parsed in memory.
+     */
+    private static final long DEFAULT_RECORD_CACHE_SIZE = 32;
+
+    /**
+     * The file containing the start time of the last file system analyze, in the service directory.
+     */
+    private static final String LAST_ANALYZE_FILE = "last-analyze";
+
+    /**
+     * The parsed records, or {@code null} if the cache is disabled.
+     */
+    private final RecordCache recordCache;
+
+    /**
+     * The path of the record files by identifier, to avoid a database request for each record.
+     * The records can be removed by another writer than the one of the service, so a path is
+     * only used if its file still exists, see {@link #getKnownPath(String)}.
+     */
+    private final ConcurrentMap<String, String> recordPaths = new ConcurrentHashMap<>();
+
+    /**
+     * The values returned by the GetDomain requests, by queryable paths.
+     */
+    private final ConcurrentMap<List<String>, DomainValuesEntry> domainValues = new ConcurrentHashMap<>();
+
     /**
      * Build a new CSW File Reader.
      *
@@ -115,7 +158,7 @@ public class FileMetadataReader extends DomMetadataReader implements CSWMetadata
      * If the creation of a MarshallerPool throw a JAXBException.
      */
     public FileMetadataReader(final Automatic configuration, final String serviceID) throws MetadataIoException {
-        super(true, false);
+        super(true, true);
         dataDirectory = configuration.getDataDirectory();
         this.serviceID = serviceID;
         if (dataDirectory == null) {
@@ -137,9 +180,29 @@ public class FileMetadataReader extends DomMetadataReader implements CSWMetadata
             }
             setIsCacheEnabled(c);
         }
+        recordCache = isCacheEnabled() ? createRecordCache() : null;
         analyzeFileSystem();
     }
 
+    /**
+     * Create the parsed record cache with the configured size, {@code null} if the size is 0.
+     */
+    private static RecordCache createRecordCache() {
+        long size = DEFAULT_RECORD_CACHE_SIZE;
+        final String value = Application.getProperty(AppProperty.CSW_RECORD_CACHE_SIZE);
+        if (value != null) {
+            try {
+                size = Long.parseLong(value);
+            } catch (NumberFormatException ex) {
+                LOGGER.log(Level.WARNING, "Unable to parse the CSW record cache size:{0}", value);
+            }
+        }
+        if (size > 0) {
+            return new RecordCache(size * 1024 * 1024);
+        }
+        return null;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -153,29 +216,116 @@ public class FileMetadataReader extends DomMetadataReader implements CSWMetadata
      */
     @Override
     public Node getMetadata(final String identifier, final MetadataType mode, final ElementSetType type, final List<QName> elementName) throws MetadataIoException {
-        final File metadataFile = getFileFromIdentifier(identifier);
-        if (metadataFile != null) {
-            final MetadataType metadataMode;
+        return getMetadata(getFileFromIdentifier(identifier), mode, type, elementName);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The paths of the records which are not already known are read in one query.
+     */
+    @Override
+    public List<Node> getMetadata(final List<String> identifiers, final MetadataType mode, final ElementSetType type, final List<QName> elementName) throws MetadataIoException {
+        final Map<String, String> paths = new HashMap<>();
+        final List<String> unknown      = new ArrayList<>();
+        for (String identifier : identifiers) {
+            final String path = getKnownPath(identifier);
+            if (path != null) {
+                paths.put(identifier, path);
+            } else {
+                unknown.add(identifier);
+            }
+        }
+        if (!unknown.isEmpty()) {
+            Session session = null;
             try {
-                metadataMode = getMetadataType(new FileInputStream(metadataFile), false);
-            } catch (IOException | XMLStreamException ex) {
-                throw new MetadataIoException(ex);
+                session = MetadataDatasource.createSession(serviceID);
+                session.setReadOnly(true);
+                final Map<String, String> unknownPaths = session.getPathsForRecords(unknown);
+                recordPaths.putAll(unknownPaths);
+                paths.putAll(unknownPaths);
+            } catch (SQLException ex) {
+                throw new MetadataIoException("SQL Exception while reading the records paths", ex, NO_APPLICABLE_CODE);
+            } finally {
+                if (session != null) {
+                    session.close();
+                }
             }
-            final Node metadataNode = getNodeFromFile(metadataFile);
+        }
+        final List<Node> results = new ArrayList<>(identifiers.size());
+        for (String identifier : identifiers) {
+            final String path = paths.get(identifier);
+            results.add(getMetadata(path != null ? new File(path) : null, mode, type, elementName));
+        }
+        return results;
+    }
 
-            if (metadataMode ==  MetadataType.ISO_19115 && mode == MetadataType.DUBLINCORE) {
-                return translateISOtoDCNode(metadataNode, type, elementName);
-            } else if (mode == MetadataType.DUBLINCORE && metadataMode == MetadataType.DUBLINCORE) {
-                return  applyElementSetNode(metadataNode, type, elementName);
-            } else {
-               return metadataNode;
+    private Node getMetadata(final File metadataFile, final MetadataType mode, final ElementSetType type, final List<QName> elementName) throws MetadataIoException {
+        // the file of a record removed by another writer can still be referenced by the database
+        if (metadataFile != null && metadataFile.isFile()) {
+            final ParsedRecord record = readRecord(metadataFile, true);
+            synchronized (record) {
+                final MetadataType metadataMode = record.getType();
+                final Node metadataNode         = record.getRoot();
+
+                if (metadataMode ==  MetadataType.ISO_19115 && mode == MetadataType.DUBLINCORE) {
+                    return translateISOtoDCNode(metadataNode, type, elementName);
+                } else if (mode == MetadataType.DUBLINCORE && metadataMode == MetadataType.DUBLINCORE && !ElementSetType.FULL.equals(type)) {
+                    return  applyElementSetNode(metadataNode, type, elementName);
+                } else {
+                   return getNode(record);
+                }
             }
         }
         return null;
     }
 
+    /**
+     * Read a record file in one pass, the type of the record is read on the parsed document.
+     * The record is taken from the cache if its file has not been modified since it was parsed.
+     *
+     * @param metadataFile The record file.
+     * @param useCache {@code false} to not put the record in the cache, when all the records are read.
+     */
+    private ParsedRecord readRecord(final File metadataFile, final boolean useCache) throws MetadataIoException {
+        if (recordCache != null) {
+            final ParsedRecord cached = recordCache.get(metadataFile);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        // the file state is read before the parsing, so a modification during the parsing will be detected
+        final long lastModified = metadataFile.lastModified();
+        final long length       = metadataFile.length();
+        final Node metadataNode = getNodeFromFile(metadataFile);
+        final boolean shared    = useCache && recordCache != null;
+        final ParsedRecord record = new ParsedRecord(metadataNode, getMetadataType(metadataNode), lastModified, length, shared);
+        if (shared) {
+            recordCache.put(metadataFile, record);
+        }
+        return record;
+    }
+
+    /**
+     * Return the root node of a record, copied if the record is shared in the cache.
+     * The caller must hold the lock on the record.
+     */
+    private Node getNode(final ParsedRecord record) throws MetadataIoException {
+        if (record.isShared()) {
+            try {
+                return record.copy(dbf.newDocumentBuilder());
+            } catch (ParserConfigurationException ex) {
+                throw new MetadataIoException(ex);
+            }
+        }
+        return record.getRoot();
+    }
+
     @Override
     public boolean existMetadata(final String identifier) throws MetadataIoException {
+        if (getKnownPath(identifier) != null) {
+            return true;
+        }
         Session session = null;
         try {
             session = MetadataDatasource.createSession(serviceID);
@@ -419,12 +569,89 @@ public class FileMetadataReader extends DomMetadataReader implements CSWMetadata
         return responseList;
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * The values are kept in memory until a record file is added, removed or modified.
+     * The records are read without filling the record cache.
+     */
+    @Override
+    protected List<String> getAllValuesFromPaths(final List<String> paths) throws MetadataIoException {
+        final Collection<String> files = getRecordPaths().values();
+        final long state = getState(files);
+        if (isCacheEnabled()) {
+            final DomainValuesEntry cached = domainValues.get(paths);
+            if (cached != null && cached.state == state) {
+                return new ArrayList<>(cached.values);
+            }
+        }
+
+        final List<NodePath> nodePaths = NodeUtilities.compilePaths(paths);
+        final List<String> result = new ArrayList<>();
+        for (String file : files) {
+            final ParsedRecord record = readRecord(new File(file), false);
+            final List<Object> value;
+            synchronized (record) {
+                value = NodeUtilities.extractPathValues(record.getRoot(), nodePaths, new HashMap<String, List<Node>>());
+            }
+            if (value != null && !value.equals(Arrays.asList("null"))) {
+                for (Object obj : value){
+                    result.add(obj.toString());
+                }
+            }
+        }
+        Collections.sort(result);
+        if (isCacheEnabled()) {
+            domainValues.put(paths, new DomainValuesEntry(state, new ArrayList<>(result)));
+        }
+        return result;
+    }
+
+    /**
+     * Compute a value which change when a record file is added, removed or modified.
+     */
+    private static long getState(final Collection<String> files) {
+        long state = files.size();
+        for (String path : files) {
+            final File f = new File(path);
+            state += 31L * path.hashCode() + f.lastModified() + 17L * f.length();
+        }
+        return state;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clearCache() {
+        super.clearCache();
+        recordPaths.clear();
+        domainValues.clear();
+        if (recordCache != null) {
+            recordCache.clear();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeFromCache(final String identifier) {
+        super.removeFromCache(identifier);
+        final String path = recordPaths.remove(identifier);
+        if (path != null && recordCache != null) {
+            recordCache.remove(path);
+        }
+        domainValues.clear();
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public void destroy() {
         MetadataDatasource.close(serviceID);
+        clearCache();
     }
 
     /**
@@ -441,12 +668,12 @@ public class FileMetadataReader extends DomMetadataReader implements CSWMetadata
     @Override
     public List<Node> getAllEntries() throws MetadataIoException {
         final List<Node> results = new ArrayList<>();
-        final CloseableIterator<String> iterator = getIdentifierIterator();
-        while (iterator.hasNext()) {
-            final File f = getFileFromIdentifier(iterator.next());
-            results.add(getNodeFromFile(f));
+        for (String path : getRecordPaths().values()) {
+            final ParsedRecord record = readRecord(new File(path), false);
+            synchronized (record) {
+                results.add(getNode(record));
+            }
         }
-        iterator.close();
         return results;
     }
 
@@ -496,6 +723,33 @@ public class FileMetadataReader extends DomMetadataReader implements CSWMetadata
         return results;
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * The modified records are detected with the last modification date of their file.
+     */
+    @Override
+    public List<String> getModifiedIdentifiers(final long since) throws MetadataIoException {
+        final List<String> results = new ArrayList<>();
+        Session session = null;
+        try {
+            session = MetadataDatasource.createSession(serviceID);
+            session.setReadOnly(true);
+            for (Map.Entry<String, String> record : session.getRecordPaths().entrySet()) {
+                if (new File(record.getValue()).lastModified() > since) {
+                    results.add(record.getKey());
+                }
+            }
+        } catch (SQLException ex) {
+            throw new MetadataIoException("SQL Exception while listing the modified records", ex, NO_APPLICABLE_CODE);
+        } finally {
+            if (session != null) {
+                session.close();
+            }
+        }
+        return results;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -520,20 +774,77 @@ public class FileMetadataReader extends DomMetadataReader implements CSWMetadata
         return new HashMap<>();
     }
 
+    /**
+     * Synchronize the csw database with the record files of the data directory.
+     *
+     * Only the new files and the files modified since the last analyze are read, in parallel.
+     * The records of the deleted files are removed from the database.
+     *
+     * @throws MetadataIoException If the csw database can not be updated.
+     */
     public final void analyzeFileSystem() throws MetadataIoException {
         if (dataDirectory != null) {
             Session session = null;
             try {
                 session = MetadataDatasource.createSession(serviceID);
-                if (session.needAnalyze()) {
-                    LOGGER.info("Launching file system analyze");
-                    session.setAutoCommit(false);
-                    final long start = System.currentTimeMillis();
-                    final Path dataPath = Paths.get(dataDirectory.getPath());
-                    analyzeFileSystem(dataPath, session);
-                    session.commit();
-                    LOGGER.log(Level.INFO, "fileSystem analyze done in :{0} ms", (System.currentTimeMillis() - start));
+                LOGGER.info("Launching file system analyze");
+                final long start       = System.currentTimeMillis();
+                final long lastAnalyze = getLastAnalyzeTime();
+
+                final Map<String, String> records     = session.getRecordPaths();
+                final Map<String, String> identifiers = new HashMap<>();
+                for (Map.Entry<String, String> record : records.entrySet()) {
+                    identifiers.put(record.getValue(), record.getKey());
+                }
+
+                final List<Path> files = new ArrayList<>();
+                listFiles(Paths.get(dataDirectory.getPath()), files);
+                final Set<String> existing = new HashSet<>();
+                final List<Path> toRead    = new ArrayList<>();
+                for (Path f : files) {
+                    final String path = f.toString();
+                    existing.add(path);
+                    if (lastAnalyze == -1 || !identifiers.containsKey(path) || f.toFile().lastModified() >= lastAnalyze) {
+                        toRead.add(f);
+                    }
+                }
+                final List<String> readIdentifiers = readIdentifiers(toRead);
+
+                session.setAutoCommit(false);
+                int removed = 0;
+                for (Map.Entry<String, String> identifier : identifiers.entrySet()) {
+                    if (!existing.contains(identifier.getKey())) {
+                        session.removeRecord(identifier.getValue());
+                        records.remove(identifier.getValue());
+                        removed++;
+                    }
+                }
+                for (int i = 0; i < toRead.size(); i++) {
+                    final String path       = toRead.get(i).toString();
+                    final String identifier = readIdentifiers.get(i);
+                    final String previous   = identifiers.get(path);
+                    if (previous != null && !previous.equals(identifier) && path.equals(records.get(previous))) {
+                        session.removeRecord(previous);
+                        records.remove(previous);
+                    }
+                    if (identifier == null) {
+                        LOGGER.log(Level.WARNING, "Unable to find the identifier of the record file:{0}", path);
+                    } else if (!records.containsKey(identifier)) {
+                        session.putRecord(identifier, path);
+                        records.put(identifier, path);
+                    } else if (!path.equals(records.get(identifier))) {
+                        session.updateRecord(identifier, path);
+                        records.put(identifier, path);
+                    }
                 }
+                session.commit();
+
+                recordPaths.clear();
+                recordPaths.putAll(records);
+                domainValues.clear();
+                setLastAnalyzeTime(start);
+                LOGGER.log(Level.INFO, "fileSystem analyze done in :{0} ms ({1} files read, {2} records removed)",
+                        new Object[]{System.currentTimeMillis() - start, toRead.size(), removed});
             } catch (SQLException ex) {
                 throw new MetadataIoException("SQL Exception while analyzing the file system", ex, NO_APPLICABLE_CODE);
             } finally {
@@ -543,35 +854,133 @@ public class FileMetadataReader extends DomMetadataReader implements CSWMetadata
             }
         }
     }
-    
-    private void analyzeFileSystem(final Path directory, final Session session) throws SQLException, MetadataIoException {
+
+    private static void listFiles(final Path directory, final List<Path> files) {
         try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
             for (Path f : stream) {
                 final String fileName = f.getFileName().toString();
                 if (fileName.endsWith(XML_EXT)) {
-                    //final Node metadata = getNodeFromStream(Files.newInputStream(f));
-                    final String identifier = getMetadataIdentifier(Files.newInputStream(f));
-                    session.putRecord(identifier, f.toString());
+                    files.add(f);
 
                 } else if (Files.isDirectory(f)) {
-                    analyzeFileSystem(f, session);
+                    listFiles(f, files);
 
                 } else {
                     LOGGER.log(Level.FINER, "File {0} is not a valid", fileName);
                 }
             }
 
-        } catch (IOException | XMLStreamException e) {
+        } catch (IOException e) {
             LOGGER.log(Level.WARNING, "Error while walking through file system", e);
         }
     }
 
+    /**
+     * Read the identifier of the specified record files, with one thread per available processor.
+     *
+     * @return The identifiers in the order of the files, {@code null} for the files which can not be read.
+     */
+    private List<String> readIdentifiers(final List<Path> files) throws MetadataIoException {
+        final List<String> identifiers = new ArrayList<>(files.size());
+        if (files.isEmpty()) {
+            return identifiers;
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try {
+            final List<Future<String>> futures = new ArrayList<>(files.size());
+            for (final Path f : files) {
+                futures.add(executor.submit(new Callable<String>() {
+                    @Override
+                    public String call() throws IOException, XMLStreamException {
+                        return getMetadataIdentifier(Files.newInputStream(f));
+                    }
+                }));
+            }
+            for (int i = 0; i < files.size(); i++) {
+                try {
+                    identifiers.add(futures.get(i).get());
+                } catch (ExecutionException ex) {
+                    LOGGER.log(Level.WARNING, "Error while reading the record file:" + files.get(i), ex.getCause());
+                    identifiers.add(null);
+                }
+            }
+            return identifiers;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new MetadataIoException("Interrupted while analyzing the file system", ex, NO_APPLICABLE_CODE);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return The start time of the last file system analyze, or -1 if unknown.
+     */
+    private long getLastAnalyzeTime() {
+        final File f = new File(ConfigDirectory.getInstanceDirectory("CSW", serviceID), LAST_ANALYZE_FILE);
+        if (f.isFile()) {
+            try {
+                return Long.parseLong(new String(Files.readAllBytes(f.toPath()), StandardCharsets.UTF_8).trim());
+            } catch (IOException | NumberFormatException ex) {
+                LOGGER.log(Level.WARNING, "Unable to read the last file system analyze time", ex);
+            }
+        }
+        return -1;
+    }
+
+    private void setLastAnalyzeTime(final long time) {
+        final File f = new File(ConfigDirectory.getInstanceDirectory("CSW", serviceID), LAST_ANALYZE_FILE);
+        try {
+            Files.write(f.toPath(), Long.toString(time).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Unable to write the last file system analyze time", ex);
+        }
+    }
+
+    /**
+     * @return The path of the file of each record, by record identifier.
+     */
+    private Map<String, String> getRecordPaths() throws MetadataIoException {
+        Session session = null;
+        try {
+            session = MetadataDatasource.createSession(serviceID);
+            session.setReadOnly(true);
+            final Map<String, String> paths = session.getRecordPaths();
+            recordPaths.putAll(paths);
+            return paths;
+        } catch (SQLException ex) {
+            throw new MetadataIoException("SQL Exception while reading the records paths", ex, NO_APPLICABLE_CODE);
+        } finally {
+            if (session != null) {
+                session.close();
+            }
+        }
+    }
+
+    /**
+     * Return the known path of a record, if its file still exists.
+     * The path of a removed file is forgotten, so the record will be looked for in the database.
+     */
+    private String getKnownPath(final String identifier) {
+        final String path = recordPaths.get(identifier);
+        if (path != null && !new File(path).isFile()) {
+            recordPaths.remove(identifier, path);
+            return null;
+        }
+        return path;
+    }
+
     private File getFileFromIdentifier(final String identifier) throws MetadataIoException {
+        final String knownPath = getKnownPath(identifier);
+        if (knownPath != null) {
+            return new File(knownPath);
+        }
         Session session = null;
         try {
             session = MetadataDatasource.createSession(serviceID);
             final String path = session.getPathForRecord(identifier);
             if (path != null) {
+                recordPaths.put(identifier, path);
                 return new File(path);
             }
         } catch (SQLException ex) {
@@ -650,5 +1059,19 @@ public class FileMetadataReader extends DomMetadataReader implements CSWMetadata
         }
         return null;
     }
-}
 
+    /**
+     * The values of a GetDomain request, with the state of the record files they were read from.
+     */
+    private static final class DomainValuesEntry {
+
+        private final long state;
+
+        private final List<String> values;
+
+        private DomainValuesEntry(final long state, final List<String> values) {
+            this.state  = state;
+            this.values = values;
+        }
+    }
+}
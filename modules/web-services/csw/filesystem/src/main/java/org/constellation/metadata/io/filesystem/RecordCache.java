@@ -0,0 +1,166 @@
+/*
+ *    Constellation - An open source and standard compliant SDI
+ *    http://www.constellation-sdi.org
+ *
+ * Copyright 2014 Geomatys.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.constellation.metadata.io.filesystem;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import org.constellation.metadata.io.MetadataType;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+
+import javax.xml.parsers.DocumentBuilder;
+import java.io.File;
+
+/**
+ * Memory cache of the parsed record files of a filesystem CSW service.
+ *
+ * The cache is bounded by the total size of the cached files, not by the memory used by
+ * their DOM trees, which is usually several times larger. A record is dropped from the
+ * cache when the last modification date or the size of its file change.
+ *
+ * @author Guilhem Legal (Geomatys)
+ */
+final class RecordCache {
+
+    private final Cache<String, ParsedRecord> records;
+
+    /**
+     * Build a new record cache.
+     *
+     * @param maxBytes maximum total size of the record files kept in memory, their DOM trees use more heap.
+     */
+    RecordCache(final long maxBytes) {
+        records = CacheBuilder.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher(new Weigher<String, ParsedRecord>() {
+                    @Override
+                    public int weigh(final String path, final ParsedRecord record) {
+                        return (int) Math.min(Integer.MAX_VALUE, record.length);
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * @param file A record file.
+     * @return the parsed record, or {@code null} if the record is not in cache or if its file has been modified.
+     */
+    ParsedRecord get(final File file) {
+        final String path = file.getPath();
+        final ParsedRecord record = records.getIfPresent(path);
+        if (record != null && !record.isUpToDate(file)) {
+            records.invalidate(path);
+            return null;
+        }
+        return record;
+    }
+
+    /**
+     * Add a parsed record in the cache.
+     */
+    void put(final File file, final ParsedRecord record) {
+        records.put(file.getPath(), record);
+    }
+
+    /**
+     * Remove the record of the specified file from the cache.
+     */
+    void remove(final String path) {
+        records.invalidate(path);
+    }
+
+    /**
+     * Remove all the records from the cache.
+     */
+    void clear() {
+        records.invalidateAll();
+    }
+
+    /**
+     * @return the number of records currently in cache.
+     */
+    long size() {
+        return records.size();
+    }
+
+    /**
+     * A record file parsed in a DOM tree, with the state of the file when it was read.
+     *
+     * The DOM implementations are not thread safe, even for reading, so the access to a
+     * shared record must be synchronized on it and the callers must receive a {@linkplain #copy copy}.
+     */
+    static final class ParsedRecord {
+
+        private final Node root;
+
+        private final MetadataType type;
+
+        private final long lastModified;
+
+        private final long length;
+
+        private final boolean shared;
+
+        /**
+         * @param root the root node of the record.
+         * @param type the record type.
+         * @param lastModified the last modification date of the file, read before the parsing.
+         * @param length the file size, read before the parsing.
+         * @param shared {@code true} if the record is put in the cache.
+         */
+        ParsedRecord(final Node root, final MetadataType type, final long lastModified, final long length, final boolean shared) {
+            this.root         = root;
+            this.type         = type;
+            this.lastModified = lastModified;
+            this.length       = length;
+            this.shared       = shared;
+        }
+
+        Node getRoot() {
+            return root;
+        }
+
+        MetadataType getType() {
+            return type;
+        }
+
+        /**
+         * @return {@code true} if this record is in the cache and must not be given to the callers.
+         */
+        boolean isShared() {
+            return shared;
+        }
+
+        boolean isUpToDate(final File file) {
+            return file.lastModified() == lastModified && file.length() == length;
+        }
+
+        /**
+         * Copy the record in a new document, the copy can be modified by the caller.
+         * The caller must hold the lock on this record.
+         */
+        Node copy(final DocumentBuilder docBuilder) {
+            final Document document = docBuilder.newDocument();
+            final Node copy = document.importNode(root, true);
+            document.appendChild(copy);
+            return copy;
+        }
+    }
+}
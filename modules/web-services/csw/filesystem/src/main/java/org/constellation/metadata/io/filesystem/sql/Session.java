@@ -27,7 +27,9 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -154,6 +156,38 @@ public class Session implements Closeable {
         return result;
     }
 
+    /**
+     * @param identifiers Some record identifiers.
+     * @return The path of the file of each existing record, by record identifier.
+     */
+    public Map<String, String> getPathsForRecords(final List<String> identifiers) throws SQLException {
+        final Map<String, String> results = new HashMap<>();
+        if (identifiers.isEmpty()) {
+            return results;
+        }
+        final StringBuilder sql = new StringBuilder("SELECT \"identifier\", \"path\" FROM \"csw\".\"records\" WHERE \"identifier\" IN (");
+        for (int i = 0; i < identifiers.size(); i++) {
+            sql.append(i == 0 ? "?" : ",?");
+        }
+        sql.append(')');
+        try {
+            final PreparedStatement stmt = con.prepareStatement(sql.toString());
+            for (int i = 0; i < identifiers.size(); i++) {
+                stmt.setString(i + 1, identifiers.get(i));
+            }
+            final ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                results.put(rs.getString(1), rs.getString(2));
+            }
+            rs.close();
+            stmt.close();
+
+        } catch (SQLException unexpected) {
+            LOGGER.log(Level.WARNING, "Unexpected error occurred while reading in csw database schema.", unexpected);
+        }
+        return results;
+    }
+
     public boolean existRecord(final String identifier) throws SQLException {
         boolean result  = false;
         try {
@@ -186,6 +220,26 @@ public class Session implements Closeable {
         return results;
     }
 
+    /**
+     * @return The path of the file of each record, by record identifier.
+     */
+    public Map<String, String> getRecordPaths() throws SQLException {
+        final Map<String, String> results  = new HashMap<>();
+        try {
+            final PreparedStatement stmt = con.prepareStatement("SELECT \"identifier\", \"path\" FROM \"csw\".\"records\"");
+            final ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                results.put(rs.getString(1), rs.getString(2));
+            }
+            rs.close();
+            stmt.close();
+
+        } catch (SQLException unexpected) {
+            LOGGER.log(Level.WARNING, "Unexpected error occurred while reading in csw database schema.", unexpected);
+        }
+        return results;
+    }
+
     public ResultSet getRecordIterator() {
         try {
             final PreparedStatement stmt = con.prepareStatement("SELECT \"identifier\" FROM \"csw\".\"records\"");
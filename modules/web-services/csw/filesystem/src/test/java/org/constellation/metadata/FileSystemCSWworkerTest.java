@@ -24,26 +24,48 @@ import org.constellation.business.IServiceBusiness;
 import org.constellation.configuration.ConfigDirectory;
 import org.constellation.admin.SpringHelper;
 import org.constellation.generic.database.Automatic;
+import org.constellation.metadata.io.ElementSetType;
+import org.constellation.metadata.io.MetadataType;
+import org.constellation.metadata.io.filesystem.FileMetadataReader;
+import org.constellation.metadata.utils.Utils;
 import org.constellation.test.utils.Order;
 import org.constellation.test.utils.SpringTestRunner;
 import org.constellation.util.Util;
+import org.constellation.ws.MimeType;
+import org.geotoolkit.csw.xml.TransactionResponse;
+import org.geotoolkit.csw.xml.v202.ElementSetNameType;
+import org.geotoolkit.csw.xml.v202.GetRecordByIdResponseType;
+import org.geotoolkit.csw.xml.v202.GetRecordByIdType;
+import org.geotoolkit.csw.xml.v202.InsertType;
+import org.geotoolkit.csw.xml.v202.TransactionType;
 import org.geotoolkit.ebrim.xml.EBRIMMarshallerPool;
 import org.geotoolkit.xml.AnchoredMarshallerPool;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
 
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 import javax.xml.bind.Unmarshaller;
+import javax.xml.namespace.QName;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.logging.Level;
 import org.apache.sis.util.logging.Logging;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
 /**
  *
  * @author Guilhem Legal (Geomatys)
@@ -256,6 +278,74 @@ public class FileSystemCSWworkerTest extends CSWworkerTest {
 
     }
 
+    /**
+     * A record file removed by another writer than the worker one must not be returned by the reader.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    @Order(order=12)
+    public void removedRecordFileTest() throws Exception {
+        final String identifier = "40510_145_19930221211500";
+        final FileMetadataReader reader = new FileMetadataReader(new Automatic("filesystem", dataDirectory.getPath()), "default");
+        try {
+            assertNotNull(reader.getMetadata(identifier, MetadataType.ISO_19115));
+            assertTrue(reader.existMetadata(identifier));
+
+            final File dataFile = new File(dataDirectory, identifier + ".xml");
+            assertTrue(dataFile.delete());
+            assertNull(reader.getMetadata(identifier, MetadataType.ISO_19115));
+            assertNull(reader.getMetadata(Arrays.asList(identifier), MetadataType.ISO_19115, ElementSetType.FULL, new ArrayList<QName>()).get(0));
+        } finally {
+            reader.destroy();
+            writeDataFile(dataDirectory, "meta5.xml", identifier);
+        }
+    }
+
+    /**
+     * A record replaced by a transaction insert must not be returned from the reader cache.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    @Order(order=13)
+    public void transactionReplaceTest() throws Exception {
+        final String identifier = "42292_5p_19900609195600";
+        final GetRecordByIdType request = new GetRecordByIdType("CSW", "2.0.2", new ElementSetNameType(org.geotoolkit.csw.xml.ElementSetType.FULL),
+                MimeType.APPLICATION_XML, "http://www.isotc211.org/2005/gmd", Arrays.asList(identifier));
+        try {
+            // the record is read and put in cache
+            assertEquals("SeaDataNet geographic co-ordinate reference frames", getFirstTitle(getRecord(request)).getTextContent());
+
+            // the inserted record replaces the file of the existing one
+            final Node record = getOriginalMetadata("org/constellation/xml/metadata/meta1.xml");
+            assertEquals(identifier, Utils.findIdentifierNode(record));
+            getFirstTitle(record).setTextContent("replaced title");
+            final TransactionResponse result = worker.transaction(new TransactionType("CSW", "2.0.2", new InsertType(record)));
+            assertEquals(1, result.getTransactionSummary().getTotalInserted());
+
+            assertEquals("replaced title", getFirstTitle(getRecord(request)).getTextContent());
+        } finally {
+            worker.transaction(new TransactionType("CSW", "2.0.2", new InsertType(getOriginalMetadata("org/constellation/xml/metadata/meta1.xml"))));
+        }
+    }
+
+    private static Node getRecord(final GetRecordByIdType request) throws Exception {
+        final GetRecordByIdResponseType response = (GetRecordByIdResponseType) worker.getRecordById(request);
+        assertEquals(1, response.getAny().size());
+        assertTrue(response.getAny().get(0) instanceof Node);
+        return (Node) response.getAny().get(0);
+    }
+
+    /**
+     * Return the character string of the first gmd:title of a record.
+     */
+    private static Element getFirstTitle(final Node record) {
+        final Document document = (record instanceof Document) ? (Document) record : record.getOwnerDocument();
+        final Element title = (Element) document.getElementsByTagNameNS("http://www.isotc211.org/2005/gmd", "title").item(0);
+        return (Element) title.getElementsByTagNameNS("http://www.isotc211.org/2005/gco", "CharacterString").item(0);
+    }
+
     public static void writeDataFile(File dataDirectory, String resourceName, String identifier) throws IOException {
 
         final File dataFile;
@@ -0,0 +1,76 @@
+/*
+ *    Constellation - An open source and standard compliant SDI
+ *    http://www.constellation-sdi.org
+ *
+ * Copyright 2014 Geomatys.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.constellation.metadata.io.filesystem;
+
+import org.constellation.metadata.io.MetadataType;
+import org.constellation.metadata.io.filesystem.RecordCache.ParsedRecord;
+import org.junit.Test;
+import org.w3c.dom.Node;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ *
+ * @author Guilhem Legal (Geomatys)
+ */
+public class RecordCacheTest {
+
+    @Test
+    public void cacheTest() throws Exception {
+        final File file = File.createTempFile("record", ".xml");
+        file.deleteOnExit();
+        Files.write(file.toPath(), "<csw:Record xmlns:csw=\"http://www.opengis.net/cat/csw/2.0.2\"/>".getBytes(StandardCharsets.UTF_8));
+
+        final DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+        dbf.setNamespaceAware(true);
+        final DocumentBuilder docBuilder = dbf.newDocumentBuilder();
+        final Node root = docBuilder.parse(file).getDocumentElement();
+
+        final RecordCache cache = new RecordCache(1024 * 1024);
+        assertNull(cache.get(file));
+        final ParsedRecord record = new ParsedRecord(root, MetadataType.DUBLINCORE, file.lastModified(), file.length(), true);
+        cache.put(file, record);
+        assertSame(record, cache.get(file));
+        assertEquals(1, cache.size());
+
+        // the copy is in a new document
+        final Node copy = record.copy(docBuilder);
+        assertNotSame(root.getOwnerDocument(), copy.getOwnerDocument());
+        assertEquals("Record", copy.getLocalName());
+        assertSame(copy, copy.getOwnerDocument().getDocumentElement());
+
+        // a modified file is read again
+        file.setLastModified(file.lastModified() - 10000);
+        assertNull(cache.get(file));
+        assertEquals(0, cache.size());
+
+        cache.put(file, new ParsedRecord(root, MetadataType.DUBLINCORE, file.lastModified(), file.length(), true));
+        cache.clear();
+        assertNull(cache.get(file));
+    }
+}
@@ -95,6 +95,18 @@ public abstract class GenericMetadataReader extends GenericReader implements CSW
         return getMetadata(identifier, mode, ElementSetType.FULL, new ArrayList<QName>());
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Node> getMetadata(final List<String> identifiers, final MetadataType mode, final ElementSetType type, final List<QName> elementName) throws MetadataIoException {
+        final List<Node> results = new ArrayList<>(identifiers.size());
+        for (String identifier : identifiers) {
+            results.add(getMetadata(identifier, mode, type, elementName));
+        }
+        return results;
+    }
+
     /**
      * Return a new Metadata object read from the database for the specified identifier.
      *  
@@ -237,6 +249,14 @@ public abstract class GenericMetadataReader extends GenericReader implements CSW
         return new HashMap<>();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<String> getModifiedIdentifiers(final long since) throws MetadataIoException {
+        return null;
+    }
+
     @Override
     public List<MetadataType> getSupportedDataTypes() {
         return Arrays.asList(MetadataType.ISO_19115, MetadataType.DUBLINCORE);
@@ -38,7 +38,6 @@ import org.constellation.metadata.security.MetadataSecurityFilter;
 import org.constellation.metadata.security.NoMetadataSecurityFilter;
 import org.geotoolkit.lucene.IndexingException;
 import org.geotoolkit.lucene.index.AbstractIndexer;
-import org.geotoolkit.lucene.index.LuceneIndexSearcher;
 
 import java.io.File;
 import java.util.Arrays;
@@ -51,6 +50,7 @@ import static org.constellation.generic.database.Automatic.DEFAULT;
 import static org.constellation.generic.database.Automatic.FILESYSTEM;
 import org.constellation.metadata.CSWConstants;
 import org.constellation.metadata.io.internal.InternalMetadataWriter;
+import org.constellation.metadata.index.CSWIndexSearcher;
 import org.constellation.utils.ISOMarshallerPool;
 
 // J2SE dependencies
@@ -106,8 +106,8 @@ public class InternalCSWFactory implements AbstractCSWFactory {
      * {@inheritDoc}
      */
     @Override
-    public LuceneIndexSearcher getIndexSearcher(final File configDirectory, final String serviceID) throws IndexingException {
-        return new LuceneIndexSearcher(configDirectory, serviceID, null, true);
+    public CSWIndexSearcher getIndexSearcher(final File configDirectory, final String serviceID) throws IndexingException {
+        return new CSWIndexSearcher(configDirectory, serviceID);
     }
 
     /**
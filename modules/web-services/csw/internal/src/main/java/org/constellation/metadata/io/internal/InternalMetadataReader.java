@@ -105,7 +105,7 @@ public class InternalMetadataReader extends DomMetadataReader implements CSWMeta
      * If the creation of a MarshallerPool throw a JAXBException.
      */
     public InternalMetadataReader(final Automatic configuration, final String serviceID) throws MetadataIoException {
-        super(true, false);
+        super(true, true);
         this.id = serviceID;
         SpringHelper.injectDependencies(this);
         if (configuration.getEnableThread() != null && !configuration.getEnableThread().isEmpty()) {
@@ -134,7 +134,7 @@ public class InternalMetadataReader extends DomMetadataReader implements CSWMeta
         return getMetadata(identifier, mode, ElementSetType.FULL, new ArrayList<QName>());
     }
 
-     /**
+    /**
      * {@inheritDoc}
      */
     @Override
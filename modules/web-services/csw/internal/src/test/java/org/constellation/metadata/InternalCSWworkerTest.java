@@ -243,6 +243,18 @@ public class InternalCSWworkerTest extends CSWworkerTest {
         super.DescribeRecordTest();
     }
 
+    /**
+     * Tests the getRecords method with a restricting security filter
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    @Override
+    @Order(order=10)
+    public void getRecordsSecurityTest() throws Exception {
+        super.getRecordsSecurityTest();
+    }
+
     public void writeProvider(String resourceName, String identifier) throws Exception {
 
         Unmarshaller u = pool.acquireUnmarshaller();
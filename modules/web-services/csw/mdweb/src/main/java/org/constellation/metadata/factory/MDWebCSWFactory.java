@@ -37,9 +37,9 @@ import org.constellation.metadata.io.mdweb.MDWebCSWMetadataReader;
 import org.constellation.metadata.io.mdweb.MDWebCSWMetadataWriter;
 import org.constellation.metadata.security.MetadataSecurityFilter;
 import org.constellation.metadata.security.NoMetadataSecurityFilter;
+import org.constellation.metadata.index.CSWIndexSearcher;
 import org.geotoolkit.lucene.IndexingException;
 import org.geotoolkit.lucene.index.AbstractIndexer;
-import org.geotoolkit.lucene.index.LuceneIndexSearcher;
 
 import java.io.File;
 import java.util.Arrays;
@@ -102,8 +102,8 @@ public class MDWebCSWFactory implements AbstractCSWFactory {
      * {@inheritDoc}
      */
     @Override
-    public LuceneIndexSearcher getIndexSearcher(final File configDirectory, final String serviceID) throws IndexingException {
-        return new LuceneIndexSearcher(configDirectory, serviceID, null, true);
+    public CSWIndexSearcher getIndexSearcher(final File configDirectory, final String serviceID) throws IndexingException {
+        return new CSWIndexSearcher(configDirectory, serviceID);
     }
 
     /**
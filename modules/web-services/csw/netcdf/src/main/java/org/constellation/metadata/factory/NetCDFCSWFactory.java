@@ -37,7 +37,6 @@ import org.constellation.metadata.security.MetadataSecurityFilter;
 import org.constellation.metadata.security.NoMetadataSecurityFilter;
 import org.geotoolkit.lucene.IndexingException;
 import org.geotoolkit.lucene.index.AbstractIndexer;
-import org.geotoolkit.lucene.index.LuceneIndexSearcher;
 
 import java.io.File;
 import java.util.Arrays;
@@ -49,6 +48,7 @@ import static org.constellation.generic.database.Automatic.BYID;
 import static org.constellation.generic.database.Automatic.DEFAULT;
 import static org.constellation.generic.database.Automatic.FILESYSTEM;
 import org.constellation.metadata.CSWConstants;
+import org.constellation.metadata.index.CSWIndexSearcher;
 import org.constellation.utils.ISOMarshallerPool;
 
 /**
@@ -102,8 +102,8 @@ public class NetCDFCSWFactory implements AbstractCSWFactory {
      * {@inheritDoc}
      */
     @Override
-    public LuceneIndexSearcher getIndexSearcher(final File configDir, final String serviceID) throws IndexingException {
-        return new LuceneIndexSearcher(configDir, serviceID, null, true);
+    public CSWIndexSearcher getIndexSearcher(final File configDir, final String serviceID) throws IndexingException {
+        return new CSWIndexSearcher(configDir, serviceID);
     }
 
     /**
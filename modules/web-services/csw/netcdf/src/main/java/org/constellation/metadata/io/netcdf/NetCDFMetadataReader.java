@@ -179,6 +179,7 @@ public class NetCDFMetadataReader extends AbstractMetadataReader implements CSWM
             }
             setIsCacheEnabled(c);
         }
+        setCacheConfiguration(configuration.getParameter("cacheSize"), configuration.getParameter("cacheSoftValues"));
         final String localeString = configuration.getParameter("locale");
         if (localeString != null) {
             locale = Locale.forLanguageTag(localeString);
@@ -193,7 +194,7 @@ public class NetCDFMetadataReader extends AbstractMetadataReader implements CSWM
         return getMetadata(identifier, mode, ElementSetType.FULL, new ArrayList<QName>());
     }
 
-     /**
+    /**
      * {@inheritDoc}
      */
     @Override
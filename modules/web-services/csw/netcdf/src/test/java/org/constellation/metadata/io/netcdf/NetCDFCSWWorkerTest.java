@@ -27,6 +27,7 @@ import org.constellation.admin.SpringHelper;
 import org.constellation.generic.database.Automatic;
 import org.constellation.metadata.CSWworker;
 import org.constellation.metadata.CSWworkerTest;
+import org.constellation.metadata.io.MetadataType;
 import org.constellation.test.utils.Order;
 import org.constellation.test.utils.SpringTestRunner;
 import org.constellation.util.Util;
@@ -56,6 +57,8 @@ import java.util.logging.Level;
 
 import org.apache.sis.util.logging.Logging;
 import static org.constellation.test.utils.MetadataUtilities.metadataEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -333,6 +336,31 @@ public class NetCDFCSWWorkerTest extends CSWworkerTest {
         //
     }
 
+    /**
+     * Tests the metadata cache configured by the parameters cacheSize and cacheSoftValues.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    @Order(order=4)
+    public void cacheConfigurationTest() throws Exception {
+        final Automatic configuration = new Automatic("netcdf", dataDirectory.getPath());
+        configuration.putParameter("cacheSize", "10");
+        configuration.putParameter("cacheSoftValues", "true");
+        final NetCDFMetadataReader reader = new NetCDFMetadataReader(configuration);
+        try {
+            assertEquals(10, reader.getCacheMaxSize());
+            assertTrue(reader.isCacheSoftValues());
+
+            // the entries read all at once are put in cache
+            assertEquals(1, reader.getAllEntries().size());
+            assertNotNull(reader.getMetadata("2005092200_sst_21-24.en", MetadataType.ISO_19115));
+            assertEquals(1, reader.getCacheStatistics().hitCount());
+        } finally {
+            reader.destroy();
+        }
+    }
+
     public static void writeDataFile(File dataDirectory, String resourceName, String identifier) throws IOException {
 
         final File dataFile;
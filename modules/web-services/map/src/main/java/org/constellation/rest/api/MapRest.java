@@ -39,6 +39,7 @@ import org.constellation.dto.AddLayer;
 import org.constellation.dto.ParameterValues;
 import org.constellation.dto.SimpleValue;
 import org.constellation.security.SecurityManager;
+import org.constellation.util.CRSCache;
 import org.geotoolkit.ows.xml.v110.BoundingBoxType;
 import org.geotoolkit.ows.xml.v110.WGS84BoundingBoxType;
 import org.geotoolkit.referencing.CRS;
@@ -227,7 +228,7 @@ public class MapRest {
                 // decode input CRS code
                 final CoordinateReferenceSystem displayCRS;
                 try {
-                    displayCRS = CRS.decode(crs);
+                    displayCRS = CRSCache.decode(crs);
                 } catch (FactoryException e) {
                     throw new ConstellationException("Invalid CRS : "+crs, e);
                 }
@@ -247,7 +248,7 @@ public class MapRest {
 
                                 final String supportedCRS = matrixSet.getSupportedCRS();
                                 try {
-                                    final CoordinateReferenceSystem tmsCRS = CRS.decode(supportedCRS);
+                                    final CoordinateReferenceSystem tmsCRS = CRSCache.decode(supportedCRS);
                                     if (!CRS.equalsIgnoreMetadata(tmsCRS, displayCRS)) {
                                         continue;
                                     }
@@ -332,7 +333,7 @@ public class MapRest {
             final String bboxCRSCode = bbt.getCrs();
             final CoordinateReferenceSystem bboxCRS;
             try {
-                bboxCRS = CRS.decode(bboxCRSCode);
+                bboxCRS = CRSCache.decode(bboxCRSCode);
             } catch (FactoryException e) {
                 throw new ConstellationException("Invalid bbox CRS code : "+bboxCRSCode, e);
             }
@@ -820,9 +820,19 @@ public final class StyleRest {
     @Path("restart")
     public Response restartStyleProviders() throws Exception {
         org.constellation.provider.StyleProviders.getInstance().reload();
+        styleBusiness.clearStyleCache();
         return ok(new AcknowlegementType("Success", "All style providers have been restarted."));
     }
 
+    /**
+     * @see StyleBusiness#getStyleCacheStatistics()
+     */
+    @GET
+    @Path("all/style/cache")
+    public Response getStyleCacheStatistics() throws Exception {
+        return ok(styleBusiness.getStyleCacheStatistics());
+    }
+
     @POST
     @Path("getChartDataJson")
     public Response getChartDataJson(final ParameterValues params) throws Exception {
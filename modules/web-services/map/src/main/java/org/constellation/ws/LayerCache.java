@@ -0,0 +1,209 @@
+/*
+ *    Constellation - An open source and standard compliant SDI
+ *    http://www.constellation-sdi.org
+ *
+ * Copyright 2014 Geomatys.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.constellation.ws;
+
+import org.constellation.configuration.Layer;
+import org.constellation.ws.LayerWorker.NameInProvider;
+
+import javax.xml.namespace.QName;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory index of the layers resolved for a service instance.
+ *
+ * The layers visible by a user depend on the security filter of the service, so one
+ * index is kept for each login. Each index is built once from the layers returned by
+ * {@link org.constellation.business.ILayerBusiness}, and the whole cache is cleared
+ * when a provider or a layer of the service changes.
+ *
+ * @author Guilhem Legal (Geomatys)
+ */
+public final class LayerCache {
+
+    /**
+     * Key used for the requests without authenticated user.
+     */
+    private static final String ANONYMOUS = "";
+
+    private final ConcurrentMap<String, Index> indexes = new ConcurrentHashMap<>();
+
+    /**
+     * Incremented on each {@link #clear()}, used to reject an index built from outdated layers.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicLong hits   = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Return the current generation of the cache. This value must be read before
+     * loading the layers given to {@link #put(String, List, long)}.
+     *
+     * @return the current generation of the cache.
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * Return the index of the layers visible by the specified user.
+     *
+     * @param login the user login, can be {@code null}.
+     * @return the layer index or {@code null} if it has not been built yet.
+     */
+    public Index get(final String login) {
+        final Index index = indexes.get(login != null ? login : ANONYMOUS);
+        if (index != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return index;
+    }
+
+    /**
+     * Build and store the index of the layers visible by the specified user.
+     * The index is not stored if the cache has been cleared since the specified generation,
+     * but it is still returned so the current request can use it.
+     *
+     * @param login the user login, can be {@code null}.
+     * @param layers the layers visible by the user.
+     * @param loadGeneration the value of {@link #generation()} read before loading the layers.
+     * @return the new layer index.
+     */
+    public Index put(final String login, final List<Layer> layers, final long loadGeneration) {
+        final Index index = new Index(layers);
+        if (generation.get() == loadGeneration) {
+            indexes.put(login != null ? login : ANONYMOUS, index);
+            // a clear may have happen between the check and the put.
+            if (generation.get() != loadGeneration) {
+                indexes.clear();
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Remove all the layer indexes.
+     */
+    public void clear() {
+        generation.incrementAndGet();
+        indexes.clear();
+    }
+
+    /**
+     * @return the number of requests resolved from an existing index.
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of requests that needed to load the layers.
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Immutable index of the layers of a service, by qualified name, local name and alias.
+     */
+    public static final class Index {
+
+        private final List<Layer> layers;
+
+        private final Map<QName, NameInProvider> byName  = new HashMap<>();
+        private final Map<String, NameInProvider> byLocalName = new HashMap<>();
+        private final Map<String, NameInProvider> byAlias = new HashMap<>();
+
+        private final Map<NameInProvider, Layer> configs = new HashMap<>();
+
+        Index(final List<Layer> layers) {
+            this.layers = Collections.unmodifiableList(new ArrayList<>(layers));
+            for (Layer layer : layers) {
+                Date version = null;
+                if (layer.getVersion() != null) {
+                    version = new Date(layer.getVersion());
+                }
+                final NameInProvider nip = new NameInProvider(layer.getName(), layer.getProviderID(), version);
+                configs.put(nip, layer);
+                // keep the first occurence, as the previous sequential search did.
+                if (!byName.containsKey(layer.getName())) {
+                    byName.put(layer.getName(), nip);
+                }
+                if (!byLocalName.containsKey(layer.getName().getLocalPart())) {
+                    byLocalName.put(layer.getName().getLocalPart(), nip);
+                }
+                final String alias = layer.getAlias();
+                if (alias != null && !alias.isEmpty() && !byAlias.containsKey(alias)) {
+                    byAlias.put(alias, nip);
+                }
+            }
+        }
+
+        /**
+         * Search a layer by its qualified name, then by its alias and finally by its local part only.
+         *
+         * @param name the searched layer name.
+         * @return the layer location in the providers, or {@code null} if there is no such layer.
+         */
+        public NameInProvider resolve(final QName name) {
+            if (name == null) {
+                return null;
+            }
+            NameInProvider nip = byName.get(name);
+            if (nip == null) {
+                nip = byAlias.get(name.getLocalPart());
+            }
+            if (nip == null) {
+                nip = byLocalName.get(name.getLocalPart());
+            }
+            return nip;
+        }
+
+        /**
+         * Return the configuration of the layer resolved by {@link #resolve(QName)}.
+         *
+         * @param name the searched layer name.
+         * @return the layer configuration, or {@code null} if there is no such layer.
+         */
+        public Layer getLayer(final QName name) {
+            final NameInProvider nip = resolve(name);
+            if (nip != null) {
+                return configs.get(nip);
+            }
+            return null;
+        }
+
+        /**
+         * @return all the layers, in the order of the service configuration.
+         */
+        public List<Layer> getLayers() {
+            return layers;
+        }
+    }
+}
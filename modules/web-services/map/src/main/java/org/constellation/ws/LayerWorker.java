@@ -67,6 +67,15 @@ public abstract class LayerWorker extends AbstractWorker {
 
     private LayerContext layerContext;
 
+    /**
+     * Index of the resolved layers, cleared on provider or layer changes.
+     */
+    private final LayerCache layerCache = new LayerCache();
+
+    private final PropertyChangeListener providerListener;
+
+    private final PropertyChangeListener layerListener;
+
     protected final List<String> supportedLanguages = new ArrayList<>();
 
     protected final String defaultLanguage;
@@ -132,13 +141,31 @@ public abstract class LayerWorker extends AbstractWorker {
         defaultLanguage = defaultLanguageCandidate;
 
         //listen to changes on the providers to clear the getcapabilities cache
-        DataProviders.getInstance().addPropertyListener(new PropertyChangeListener() {
+        providerListener = new PropertyChangeListener() {
             @Override
             public void propertyChange(PropertyChangeEvent evt) {
+                clearLayerCache();
                 refreshUpdateSequence();
                 clearCapabilitiesCache();
             }
-        });
+        };
+        DataProviders.getInstance().addPropertyListener(providerListener);
+
+        //listen to changes on the layers of this service to clear the layer cache
+        final String serviceKey = specification.name().toLowerCase() + ':' + id;
+        layerListener = new PropertyChangeListener() {
+            @Override
+            public void propertyChange(PropertyChangeEvent evt) {
+                if (evt.getNewValue() == null || serviceKey.equals(evt.getNewValue())) {
+                    clearLayerCache();
+                    refreshUpdateSequence();
+                    clearCapabilitiesCache();
+                }
+            }
+        };
+        if (layerBusiness != null) {
+            layerBusiness.addLayerListener(layerListener);
+        }
     }
     
     @PostConstruct
@@ -146,6 +173,51 @@ public abstract class LayerWorker extends AbstractWorker {
         
     }
 
+    /**
+     * Drop the resolved layers of this service. Called when a provider or a layer of
+     * this service changes, sub-classes holding data derived from the layers should
+     * override this method to clear it as well.
+     */
+    protected void clearLayerCache() {
+        layerCache.clear();
+    }
+
+    /**
+     * Return the index of the layers visible by the specified user, loading it if needed.
+     *
+     * @param login the user login.
+     * @return the layer index, never {@code null}.
+     */
+    private LayerCache.Index getLayerIndex(final String login) {
+        LayerCache.Index index = layerCache.get(login);
+        if (index == null) {
+            final long generation = layerCache.generation();
+            try {
+                final List<Layer> layers = layerBusiness.getLayers(this.specification.name().toLowerCase(), getId(), login);
+                index = layerCache.put(login, layers, generation);
+            } catch (ConfigurationException ex) {
+                LOGGER.log(Level.WARNING, "Error while getting layers", ex);
+                // do not keep the error in cache
+                index = new LayerCache.Index(new ArrayList<Layer>());
+            }
+        }
+        return index;
+    }
+
+    /**
+     * @return the number of layer resolutions served from the layer cache.
+     */
+    public long getLayerCacheHitCount() {
+        return layerCache.getHitCount();
+    }
+
+    /**
+     * @return the number of layer resolutions which needed to load the layers from the database.
+     */
+    public long getLayerCacheMissCount() {
+        return layerCache.getMissCount();
+    }
+
     protected List<Layer> getConfigurationLayers(final String login, final List<GenericName> layerNames) {
         final List<Layer> layerConfigs = new ArrayList<>();
         for (GenericName layerName : layerNames) {
@@ -163,34 +235,23 @@ public abstract class LayerWorker extends AbstractWorker {
         return null;
     }
 
+    /**
+     * Search a layer by its qualified name, then by its alias and finally by its local part only.
+     *
+     * @param layerName the searched layer name.
+     * @param login the user login.
+     * @return the layer configuration, or {@code null} if there is no such layer visible by the user.
+     */
     protected Layer getConfigurationLayer(final QName layerName, final String login) {
-
-        try {
-            return layerBusiness.getLayer(this.specification.name(), getId(), layerName.getLocalPart(), layerName.getNamespaceURI(), login);
-        } catch (ConfigurationException e) {
-            LOGGER.log(Level.FINE, "No layer is exactly named as queried. Search using alias will start now", e);
-        }
-
-        if (layerName != null) {
-            final List<Layer> layers = getConfigurationLayers(login);
-            for (Layer layer : layers) {
-                if (layer.getName().equals(layerName) || (layer.getAlias() != null && layer.getAlias().equals(layerName.getLocalPart()))) {
-                    return layer;
-                }
-            }
-            // we do a second round with missing namespace search
-            for (Layer layer : layers) {
-                if (layer.getName().getLocalPart().equals(layerName.getLocalPart())) {
-                    return layer;
-                }
-            }
+        if (layerName == null) {
+            return null;
         }
-        return null;
+        return getLayerIndex(login).getLayer(layerName);
     }
 
     protected List<QName> getConfigurationLayerNames(final String login) {
         final List<QName> result = new ArrayList<>();
-        final List<Layer> layers = getConfigurationLayers(login);
+        final List<Layer> layers = getLayerIndex(login).getLayers();
         for (Layer layer : layers) {
             result.add(layer.getName());
         }
@@ -204,12 +265,7 @@ public abstract class LayerWorker extends AbstractWorker {
      * layer context.
      */
     public List<Layer> getConfigurationLayers(final String login) {
-        try {
-            return layerBusiness.getLayers(this.specification.name().toLowerCase(), getId(), login);
-        } catch (ConfigurationException ex) {
-            LOGGER.log(Level.WARNING, "Error while getting layers", ex);
-        }
-        return new ArrayList<>();
+        return new ArrayList<>(getLayerIndex(login).getLayers());
     }
 
     
@@ -271,51 +327,8 @@ public abstract class LayerWorker extends AbstractWorker {
         if (name == null) {
             return null;
         }
-
-        final Layer directLayer = getConfigurationLayer(name, login);
-        if (directLayer == null) {
-
-            final List<QName> layerNames = getConfigurationLayerNames(login);
-            if (layerNames == null) {
-                return null;
-            }
-
-            //search with only localpart
-            for (QName layerName : layerNames) {
-                if (layerName.getLocalPart().equals(name.tip().toString())) {
-                    final Layer layerConfig = getConfigurationLayer(layerName, login);
-                    Date version = null;
-                    if (layerConfig.getVersion() != null) {
-                        version = new Date(layerConfig.getVersion());
-                    }
-                    return new NameInProvider(layerName, layerConfig.getProviderID(), version);
-                }
-            }
-
-            //search in alias if any
-            for (QName l : layerNames) {
-                final Layer layer = getConfigurationLayer(l, login);
-                if (layer.getAlias() != null && !layer.getAlias().isEmpty()) {
-                    final String alias = layer.getAlias();
-                    if (alias.equals(name.tip().toString())) {
-                        Date version = null;
-                        if (layer.getVersion() != null) {
-                            version = new Date(layer.getVersion());
-                        }
-                        return new NameInProvider(l, layer.getProviderID(), version);
-                    }
-                }
-            }
-
-            return null;
-        }
-
-        Date version = null;
-        if (directLayer.getVersion() != null) {
-            version = new Date(directLayer.getVersion());
-        }
-
-        return new NameInProvider(directLayer.getName(), directLayer.getProviderID(), version);
+        final QName qname = new QName(NamesExt.getNamespace(name), name.tip().toString());
+        return getLayerIndex(login).resolve(qname);
     }
     
     protected MutableStyle getStyle(final DataReference styleReference) throws CstlServiceException {
@@ -381,6 +394,16 @@ public abstract class LayerWorker extends AbstractWorker {
         return layerContext;
     }
 
+    @Override
+    public void destroy() {
+        super.destroy();
+        DataProviders.getInstance().removePropertyListener(providerListener);
+        if (layerBusiness != null) {
+            layerBusiness.removeLayerListener(layerListener);
+        }
+        layerCache.clear();
+    }
+
     /**
      * Parse a Name from a string.
      * @param layerName
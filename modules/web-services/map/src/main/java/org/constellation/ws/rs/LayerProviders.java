@@ -38,6 +38,7 @@ import org.constellation.provider.Data;
 import org.constellation.provider.DataProvider;
 import org.constellation.provider.DataProviders;
 import org.constellation.provider.FeatureData;
+import org.constellation.util.CRSCache;
 import org.constellation.util.Util;
 import org.constellation.ws.CstlServiceException;
 import org.geotoolkit.coverage.GridSampleDimension;
@@ -365,7 +366,7 @@ public final class LayerProviders {
         try {
             // Envelope.
             final String[] bboxSplit = bbox.split(",");
-            final GeneralEnvelope envelope = new GeneralEnvelope(CRS.decode(crsCode));
+            final GeneralEnvelope envelope = new GeneralEnvelope(CRSCache.decode(crsCode));
             envelope.setRange(0, Double.valueOf(bboxSplit[0]), Double.valueOf(bboxSplit[2]));
             envelope.setRange(1, Double.valueOf(bboxSplit[1]), Double.valueOf(bboxSplit[3]));
 
@@ -556,7 +557,7 @@ public final class LayerProviders {
     private static void fillGeographicDescription(Envelope envelope, final DataDescription description) {
         double[] lower, upper;
         try {
-            envelope = CRS.transform(envelope, CRS.decode("CRS:84"));
+            envelope = CRS.transform(envelope, CRSCache.decode("CRS:84"));
             lower = envelope.getLowerCorner().getCoordinate();
             upper = envelope.getUpperCorner().getCoordinate();
         } catch (Exception ignore) {
@@ -0,0 +1,91 @@
+/*
+ *    Constellation - An open source and standard compliant SDI
+ *    http://www.constellation-sdi.org
+ *
+ * Copyright 2014 Geomatys.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.constellation.ws;
+
+import org.constellation.configuration.Layer;
+import org.constellation.ws.LayerWorker.NameInProvider;
+import org.junit.Test;
+
+import javax.xml.namespace.QName;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ *
+ * @author Guilhem Legal (Geomatys)
+ */
+public class LayerCacheTest {
+
+    private static List<Layer> buildLayers() {
+        final List<Layer> layers = new ArrayList<>();
+        final Layer lakes = new Layer(new QName("http://www.opengis.net/gml", "Lakes"));
+        lakes.setProviderID("shapeSrc");
+        lakes.setAlias("water");
+        layers.add(lakes);
+        final Layer sst = new Layer(new QName("SSTMDE200305"));
+        sst.setProviderID("coverageTestSrc");
+        sst.setVersion(1000L);
+        layers.add(sst);
+        return layers;
+    }
+
+    @Test
+    public void resolveTest() {
+        final LayerCache cache = new LayerCache();
+        final LayerCache.Index index = cache.put(null, buildLayers(), cache.generation());
+
+        final Layer lakes = index.getLayer(new QName("http://www.opengis.net/gml", "Lakes"));
+        assertNotNull(lakes);
+        assertSame(lakes, index.getLayer(new QName("Lakes")));
+        assertSame(lakes, index.getLayer(new QName("water")));
+
+        final NameInProvider nip = index.resolve(new QName("SSTMDE200305"));
+        assertNotNull(nip);
+        assertEquals("coverageTestSrc", nip.providerID);
+        assertEquals(1000L, nip.dataVersion.getTime());
+
+        assertNull(index.resolve(new QName("Unknow")));
+        assertEquals(2, index.getLayers().size());
+    }
+
+    @Test
+    public void hitMissAndClearTest() {
+        final LayerCache cache = new LayerCache();
+        assertNull(cache.get("admin"));
+        cache.put("admin", buildLayers(), cache.generation());
+        assertNotNull(cache.get("admin"));
+        assertNull(cache.get(null));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+
+        cache.clear();
+        assertNull(cache.get("admin"));
+
+        // an index loaded before a clear must not be kept
+        final long generation = cache.generation();
+        cache.clear();
+        assertNotNull(cache.put("admin", buildLayers(), generation));
+        assertNull(cache.get("admin"));
+    }
+}
@@ -73,6 +73,7 @@ import org.constellation.provider.DataProviderFactory;
 import org.constellation.provider.DataProviders;
 import org.constellation.provider.Providers;
 import org.constellation.provider.configuration.ProviderParameters;
+import org.constellation.util.CRSCache;
 import org.constellation.util.ParamUtilities;
 import org.constellation.util.Util;
 import org.constellation.utils.GeotoolkitFileExtensionAvailable;
@@ -1270,7 +1271,7 @@ public class DataRest {
 
         final CoordinateReferenceSystem crsOutput;
         try {
-            crsOutput = CRS.decode(crs,true);
+            crsOutput = CRSCache.decode(crs,true);
         } catch (Exception ex) {
             LOGGER.log(Level.WARNING, "Invalid CRS code : "+crs, ex);
             return Response.status(500).entity("Invalid CRS code : " + crs).build();
@@ -1280,7 +1281,7 @@ public class DataRest {
         final String mapCtxtCrs = mc.getCrs();
         if(mapCtxtCrs != null) {
             try {
-                crsObj = CRS.decode(mapCtxtCrs,true);
+                crsObj = CRSCache.decode(mapCtxtCrs,true);
             } catch (Exception ex) {
                 LOGGER.log(Level.WARNING, "Invalid mapcontext CRS code : "+mapCtxtCrs, ex);
                 return Response.status(500).entity("Invalid mapcontext CRS code : " + mapCtxtCrs).build();
@@ -1493,7 +1494,7 @@ public class DataRest {
         final CoordinateReferenceSystem coordsys;
         if(crs != null) {
             try {
-                coordsys = CRS.decode(crs,true);
+                coordsys = CRSCache.decode(crs,true);
             } catch (FactoryException ex) {
                 LOGGER.log(Level.WARNING, "Invalid CRS code : "+crs, ex);
                 return Response.status(500).entity("Invalid CRS code : " + crs).build();
@@ -1793,7 +1794,7 @@ public class DataRest {
             env = dataEnv;
         }else {
             try{
-                env = Envelopes.transform(dataEnv, CRS.decode(crs));
+                env = Envelopes.transform(dataEnv, CRSCache.decode(crs));
             }catch(Exception ex) {
                 env = dataEnv;
             }
@@ -57,7 +57,9 @@ import org.constellation.provider.coveragestore.CoverageStoreProvider;
 import org.constellation.provider.observationstore.ObservationStoreProvider;
 import org.constellation.sos.configuration.SOSConfigurer;
 import org.constellation.sos.configuration.SensorMLGenerator;
+import org.constellation.sos.io.ResultCursor;
 import org.constellation.sos.ws.SOSUtils;
+import org.constellation.sos.ws.rs.ResultOutput;
 import org.constellation.ws.ServiceConfigurer;
 import org.geotoolkit.gml.xml.v321.AbstractGeometryType;
 import org.geotoolkit.sml.xml.AbstractSensorML;
@@ -169,6 +171,18 @@ public class SOSRest {
     public Response getObservations(final @PathParam("id") String id, final ObservationFilter filter) throws Exception {
         return ok(getConfigurer().getDecimatedObservationsCsv(id, filter.getSensorID(), filter.getObservedProperty(), filter.getStart(), filter.getEnd(), filter.getWidth()));
     }
+
+    /**
+     * Return all the observations matching the filter in CSV, without decimation.
+     * The values are written in the response as they are read from the datasource.
+     */
+    @POST
+    @Path("{id}/observations/csv")
+    @Produces("text/csv")
+    public Response getObservationsCsv(final @PathParam("id") String id, final ObservationFilter filter) throws Exception {
+        final ResultCursor cursor = getConfigurer().openObservationsCsv(id, filter.getSensorID(), filter.getObservedProperty(), filter.getStart(), filter.getEnd());
+        return Response.ok(new ResultOutput(cursor), "text/csv").build();
+    }
     
     @PUT
     @Path("{id}/observations")
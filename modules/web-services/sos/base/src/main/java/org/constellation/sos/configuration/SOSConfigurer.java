@@ -61,6 +61,9 @@ import org.geotoolkit.gml.xml.v321.TimeInstantType;
 import org.geotoolkit.gml.xml.v321.TimePeriodType;
 import org.geotoolkit.observation.ObservationFilterReader;
 import org.constellation.sos.io.ObservationReader;
+import org.constellation.sos.io.ResultCursor;
+import org.constellation.sos.io.StreamingResultReader;
+import org.constellation.sos.io.ValuesCursor;
 import org.constellation.sos.io.ObservationWriter;
 import org.geotoolkit.observation.xml.AbstractObservation;
 import org.geotoolkit.sml.xml.AbstractSensorML;
@@ -424,31 +427,54 @@ public class SOSConfigurer extends OGCConfigurer {
     }
     
     public String getDecimatedObservationsCsv(final String id, final String sensorID, final List<String> observedProperties, final Date start, final Date end, final int width) throws ConfigurationException {
-        final ObservationFilterReader filter = getObservationFilter(id);
         try {
-            filter.initFilterGetResult(sensorID, SOSConstants.OBSERVATION_QNAME);
-            if (observedProperties.isEmpty()) {
-                observedProperties.addAll(getObservedPropertiesForSensorId(id, sensorID));
-            }
-            filter.setObservedProperties(observedProperties);
-            filter.setResponseFormat("text/csv");
-            
-            if (start != null && end != null) {
-                final Period period = new TimePeriodType(new Timestamp(start.getTime()), new Timestamp(end.getTime()));
-                filter.setTimeDuring(period);
-            } else if (start != null) {
-                final Instant time = new TimeInstantType(new Timestamp(start.getTime()));
-                filter.setTimeAfter(time);
-            } else if (end != null) {
-                final Instant time = new TimeInstantType(new Timestamp(end.getTime()));
-                filter.setTimeBefore(time);
-            }
+            final ObservationFilterReader filter = getCsvResultFilter(id, sensorID, observedProperties, start, end);
             return filter.getDecimatedResults(width);
             
         } catch (DataStoreException ex) {
             throw new ConfigurationException(ex);
         }
     }
+
+    /**
+     * Execute the query of all the observations of a sensor in CSV. The values are read
+     * from the datasource as they are written by the returned cursor.
+     *
+     * @return an opened cursor on the CSV values, which must be closed by the caller.
+     */
+    public ResultCursor openObservationsCsv(final String id, final String sensorID, final List<String> observedProperties, final Date start, final Date end) throws ConfigurationException {
+        try {
+            final ObservationFilterReader filter = getCsvResultFilter(id, sensorID, observedProperties, start, end);
+            if (filter instanceof StreamingResultReader) {
+                return ((StreamingResultReader)filter).openResults();
+            }
+            return new ValuesCursor(filter.getResults());
+        } catch (DataStoreException ex) {
+            throw new ConfigurationException(ex);
+        }
+    }
+
+    private ObservationFilterReader getCsvResultFilter(final String id, final String sensorID, final List<String> observedProperties, final Date start, final Date end) throws ConfigurationException, DataStoreException {
+        final ObservationFilterReader filter = getObservationFilter(id);
+        filter.initFilterGetResult(sensorID, SOSConstants.OBSERVATION_QNAME);
+        if (observedProperties.isEmpty()) {
+            observedProperties.addAll(getObservedPropertiesForSensorId(id, sensorID));
+        }
+        filter.setObservedProperties(observedProperties);
+        filter.setResponseFormat("text/csv");
+
+        if (start != null && end != null) {
+            final Period period = new TimePeriodType(new Timestamp(start.getTime()), new Timestamp(end.getTime()));
+            filter.setTimeDuring(period);
+        } else if (start != null) {
+            final Instant time = new TimeInstantType(new Timestamp(start.getTime()));
+            filter.setTimeAfter(time);
+        } else if (end != null) {
+            final Instant time = new TimeInstantType(new Timestamp(end.getTime()));
+            filter.setTimeBefore(time);
+        }
+        return filter;
+    }
     
     public boolean buildDatasource(final String serviceID) throws ConfigurationException {
         final SOSConfiguration config = getServiceConfiguration(serviceID);
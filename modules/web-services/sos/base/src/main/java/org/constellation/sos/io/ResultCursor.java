@@ -0,0 +1,50 @@
+/*
+ *    Constellation - An open source and standard compliant SDI
+ *    http://www.constellation-sdi.org
+ *
+ * Copyright 2014 Geomatys.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.constellation.sos.io;
+
+import java.io.IOException;
+import java.io.Writer;
+import org.apache.sis.storage.DataStoreException;
+
+/**
+ * The results of a GetResult request, ready to be written.
+ * The query is already executed, the rows are read as they are written.
+ *
+ * @author Guilhem Legal (Geomatys)
+ */
+public interface ResultCursor extends AutoCloseable {
+
+    /**
+     * Write the results in the given writer. This method can be called only once.
+     *
+     * @param out the destination of the results.
+     *
+     * @throws DataStoreException if the results can not be read.
+     * @throws IOException if the results can not be written.
+     */
+    void write(Writer out) throws DataStoreException, IOException;
+
+    /**
+     * Release the resources held by this cursor.
+     *
+     * @throws DataStoreException if the resources can not be released.
+     */
+    @Override
+    void close() throws DataStoreException;
+}
@@ -0,0 +1,42 @@
+/*
+ *    Constellation - An open source and standard compliant SDI
+ *    http://www.constellation-sdi.org
+ *
+ * Copyright 2014 Geomatys.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.constellation.sos.io;
+
+import org.apache.sis.storage.DataStoreException;
+import org.geotoolkit.observation.ObservationFilterReader;
+
+/**
+ * An observation filter reader able to write the results of a GetResult request
+ * directly in a stream, as the rows are read, instead of building them in memory.
+ *
+ * @author guilhem
+ */
+public interface StreamingResultReader extends ObservationFilterReader {
+
+    /**
+     * Execute the query of the current filter and return a cursor on its results.
+     * The results are written by the cursor in the same format as {@link #getResults()}.
+     * The caller must close the returned cursor.
+     *
+     * @return a cursor on the results matching the current filter.
+     *
+     * @throws DataStoreException if the query can not be executed.
+     */
+    ResultCursor openResults() throws DataStoreException;
+}
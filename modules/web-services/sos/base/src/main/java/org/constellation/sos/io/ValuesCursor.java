@@ -0,0 +1,53 @@
+/*
+ *    Constellation - An open source and standard compliant SDI
+ *    http://www.constellation-sdi.org
+ *
+ * Copyright 2014 Geomatys.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.constellation.sos.io;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * A cursor on result values already read in memory, used for the observation
+ * filters which can not stream their results.
+ *
+ * @author Guilhem Legal (Geomatys)
+ */
+public final class ValuesCursor implements ResultCursor {
+
+    private final String values;
+
+    /**
+     * @param values the result values.
+     */
+    public ValuesCursor(final String values) {
+        this.values = values;
+    }
+
+    @Override
+    public void write(final Writer out) throws IOException {
+        if (values != null) {
+            out.write(values);
+        }
+        out.flush();
+    }
+
+    @Override
+    public void close() {
+        // nothing to release
+    }
+}
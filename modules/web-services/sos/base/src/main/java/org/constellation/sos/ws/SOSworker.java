@@ -22,6 +22,7 @@ package org.constellation.sos.ws;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.StringWriter;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -108,6 +109,9 @@ import org.geotoolkit.gml.xml.TimeIndeterminateValueType;
 import org.geotoolkit.observation.ObservationFilter;
 import org.geotoolkit.observation.ObservationFilterReader;
 import org.constellation.sos.io.ObservationReader;
+import org.constellation.sos.io.ResultCursor;
+import org.constellation.sos.io.StreamingResultReader;
+import org.constellation.sos.io.ValuesCursor;
 import org.geotoolkit.observation.ObservationResult;
 import org.geotoolkit.observation.ObservationStoreException;
 import org.constellation.sos.io.ObservationWriter;
@@ -1432,6 +1436,42 @@ public class SOSworker extends AbstractWorker {
         LOGGER.log(logLevel, "getResult request processing\n");
         final long start = System.currentTimeMillis();
 
+        final StringWriter values = new StringWriter();
+        try (final ResultCursor cursor = openResult(request)) {
+            cursor.write(values);
+        } catch (DataStoreException ex) {
+            throw new CstlServiceException(ex);
+        } catch (IOException ex) {
+            throw new CstlServiceException("Error while writing the result values", ex, NO_APPLICABLE_CODE);
+        }
+        final GetResultResponse response = buildResultResponse(request, values.toString());
+        LOGGER.log(logLevel, "GetResult processed in {0} ms", (System.currentTimeMillis() - start));
+        return response;
+    }
+
+    /**
+     * Build the response document of a GetResult request.
+     *
+     * @param request the GetResult request.
+     * @param values the result values.
+     */
+    public GetResultResponse buildResultResponse(final GetResult request, final String values) {
+        final String currentVersion         = request.getVersion().toString();
+        final String observationTemplateID  = request.getObservationTemplateId();
+        final String url = getServiceUrl().substring(0, getServiceUrl().length() -1);
+        return buildGetResultResponse(currentVersion, values, url + '/' + observationTemplateID);
+    }
+
+    /**
+     * Verify a GetResult request and execute its query, without reading the values.
+     * When the observation filter supports it, the values are read as they are written
+     * by the returned cursor, so the memory used does not depend on the size of the result.
+     *
+     * @param request the GetResult request.
+     * @return an opened cursor on the result values, which must be closed by the caller.
+     * @throws org.constellation.ws.CstlServiceException if the request is invalid or the query fails.
+     */
+    public ResultCursor openResult(final GetResult request) throws CstlServiceException {
         //we verify the base request attribute
         verifyBaseRequest(request, true, false);
 
@@ -1443,7 +1483,6 @@ public class SOSworker extends AbstractWorker {
         final String observedProperty;
         final TemporalObject time;
         final QName resultModel;
-        final String values;
             
         try {
             // we clone the filter for this request
@@ -1591,8 +1630,11 @@ public class SOSworker extends AbstractWorker {
             treatEventTimeRequest(currentVersion, times, false, localOmFilter);
 
             //we prepare the response document
-            if (localOmFilter instanceof ObservationFilterReader) {
-                values = ((ObservationFilterReader)localOmFilter).getResults();
+            if (localOmFilter instanceof StreamingResultReader) {
+                return ((StreamingResultReader)localOmFilter).openResults();
+
+            } else if (localOmFilter instanceof ObservationFilterReader) {
+                return new ValuesCursor(((ObservationFilterReader)localOmFilter).getResults());
 
             } else {
                 final List<ObservationResult> results = localOmFilter.filterResult();
@@ -1625,16 +1667,12 @@ public class SOSworker extends AbstractWorker {
                         throw new IllegalArgumentException("Unexpected result type:" + r);
                     }
                 }
-                values = datablock.toString();
+                return new ValuesCursor(datablock.toString());
             }
         
         } catch (DataStoreException ex) {
             throw new CstlServiceException(ex);
         }
-        final String url = getServiceUrl().substring(0, getServiceUrl().length() -1);
-        final GetResultResponse response = buildGetResultResponse(currentVersion, values, url + '/' + observationTemplateID);
-        LOGGER.log(logLevel, "GetResult processed in {0} ms", (System.currentTimeMillis() - start));
-        return response;
     }
 
     public AbstractFeature getFeatureOfInterest(final GetFeatureOfInterest request) throws CstlServiceException {
@@ -0,0 +1,140 @@
+/*
+ *    Constellation - An open source and standard compliant SDI
+ *    http://www.constellation-sdi.org
+ *
+ * Copyright 2014 Geomatys.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.constellation.sos.ws.rs;
+
+import org.apache.sis.storage.DataStoreException;
+import org.apache.sis.util.logging.Logging;
+import org.constellation.sos.io.ResultCursor;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.BufferedWriter;
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Write the values of a result cursor in the response stream, as they are read.
+ *
+ * The request must be validated and the cursor opened before building the response, an error
+ * raised while writing the values can no longer be returned as an OWS exception report.
+ * The values can be wrapped in an XML envelope, in which case they are escaped.
+ *
+ * @author Guilhem Legal (Geomatys)
+ */
+public final class ResultOutput implements StreamingOutput {
+
+    private static final Logger LOGGER = Logging.getLogger("org.constellation.sos.ws.rs");
+
+    private final ResultCursor cursor;
+
+    private final String prefix;
+
+    private final String suffix;
+
+    /**
+     * Write the raw values of a cursor.
+     *
+     * @param cursor an opened cursor, closed once written.
+     */
+    public ResultOutput(final ResultCursor cursor) {
+        this(cursor, null, null);
+    }
+
+    /**
+     * Write the values of a cursor between the two parts of an XML envelope.
+     *
+     * @param cursor an opened cursor, closed once written.
+     * @param prefix the XML written before the values, or {@code null} for raw values.
+     * @param suffix the XML written after the values, or {@code null} for raw values.
+     */
+    public ResultOutput(final ResultCursor cursor, final String prefix, final String suffix) {
+        this.cursor = cursor;
+        this.prefix = prefix;
+        this.suffix = suffix;
+    }
+
+    @Override
+    public void write(final OutputStream output) throws IOException, WebApplicationException {
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(output, "UTF-8"));
+        try {
+            if (prefix != null) {
+                writer.write(prefix);
+                cursor.write(new XmlEscapeWriter(writer));
+                writer.write(suffix);
+            } else {
+                cursor.write(writer);
+            }
+        } catch (DataStoreException ex) {
+            throw new WebApplicationException(ex);
+        } finally {
+            try {
+                cursor.close();
+            } catch (DataStoreException ex) {
+                LOGGER.log(Level.WARNING, "Error while closing the result cursor", ex);
+            }
+        }
+        writer.flush();
+    }
+
+    /**
+     * Escape the XML special characters of the values written in an XML envelope.
+     */
+    private static final class XmlEscapeWriter extends FilterWriter {
+
+        private XmlEscapeWriter(final Writer out) {
+            super(out);
+        }
+
+        @Override
+        public void write(final int c) throws IOException {
+            switch (c) {
+                case '&':
+                    out.write("&amp;");
+                    break;
+                case '<':
+                    out.write("&lt;");
+                    break;
+                case '>':
+                    out.write("&gt;");
+                    break;
+                default:
+                    out.write(c);
+            }
+        }
+
+        @Override
+        public void write(final char[] cbuf, final int off, final int len) throws IOException {
+            for (int i = off; i < off + len; i++) {
+                write(cbuf[i]);
+            }
+        }
+
+        @Override
+        public void write(final String str, final int off, final int len) throws IOException {
+            for (int i = off; i < off + len; i++) {
+                write(str.charAt(i));
+            }
+        }
+    }
+}
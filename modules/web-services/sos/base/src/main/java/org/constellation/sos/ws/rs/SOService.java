@@ -20,8 +20,11 @@ package org.constellation.sos.ws.rs;
 
 import org.constellation.ServiceDef;
 import org.constellation.ServiceDef.Specification;
+import org.apache.sis.storage.DataStoreException;
 import org.constellation.sos.configuration.SOSConfigurer;
+import org.constellation.sos.io.ResultCursor;
 import org.constellation.sos.ws.SOSworker;
+import org.constellation.sos.ws.rs.provider.SOSResponseWriter;
 import org.constellation.ws.CstlServiceException;
 import org.constellation.ws.MimeType;
 import org.constellation.ws.ServiceConfigurer;
@@ -61,6 +64,7 @@ import org.opengis.temporal.Period;
 import javax.inject.Singleton;
 import javax.ws.rs.Path;
 import javax.ws.rs.core.Response;
+import javax.xml.bind.JAXBException;
 import javax.xml.namespace.QName;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -93,6 +97,7 @@ import static org.constellation.sos.ws.SOSConstants.SRS_NAME;
 import org.constellation.sos.ws.SOSUtils;
 import static org.geotoolkit.ows.xml.OWSExceptionCode.INVALID_PARAMETER_VALUE;
 import static org.geotoolkit.ows.xml.OWSExceptionCode.MISSING_PARAMETER_VALUE;
+import static org.geotoolkit.ows.xml.OWSExceptionCode.NO_APPLICABLE_CODE;
 import static org.geotoolkit.ows.xml.OWSExceptionCode.OPERATION_NOT_SUPPORTED;
 import static org.geotoolkit.sos.xml.SOSXmlFactory.buildAcceptVersion;
 import static org.geotoolkit.sos.xml.SOSXmlFactory.buildBBOX;
@@ -236,6 +241,13 @@ public class SOService extends OGCWebService<SOSworker> {
              if (request instanceof GetResult) {
                 final GetResult gr = (GetResult)request;
                 final String outputFormat = gr.getResponseFormat();
+                if (outputFormat != null && outputFormat.startsWith("text/csv")) {
+                    // raw values requested, stream them without building the response document
+                    return Response.ok(new ResultOutput(worker.openResult(gr)), outputFormat).build();
+                }
+                if (outputFormat == null || outputFormat.startsWith(MimeType.TEXT_XML) || outputFormat.startsWith(MimeType.APPLICATION_XML)) {
+                    return buildStreamedResult(worker, gr, outputFormat);
+                }
                 return Response.ok(worker.getResult(gr), outputFormat).build();
              }
 
@@ -799,4 +811,33 @@ public class SOService extends OGCWebService<SOSworker> {
             return buildTimeEquals("2.0.0", valueReference, instant);
         }
     }
+
+    /**
+     * Replaced by the result values in the marshalled GetResult response.
+     */
+    private static final String RESULT_PLACEHOLDER = "cstl-streamed-result-values";
+
+    /**
+     * Build a GetResult response document which values are written as they are read.
+     * The request is verified and the query executed before the response is built,
+     * so an invalid request is still returned as an exception report.
+     */
+    private static Response buildStreamedResult(final SOSworker worker, final GetResult request, final String outputFormat) throws CstlServiceException {
+        final ResultCursor cursor = worker.openResult(request);
+        try {
+            final String envelope = SOSResponseWriter.toXml(worker.buildResultResponse(request, RESULT_PLACEHOLDER));
+            final int split = envelope.indexOf(RESULT_PLACEHOLDER);
+            final String prefix = envelope.substring(0, split);
+            final String suffix = envelope.substring(split + RESULT_PLACEHOLDER.length());
+            final String mimeType = (outputFormat != null) ? outputFormat : MimeType.TEXT_XML;
+            return Response.ok(new ResultOutput(cursor, prefix, suffix), mimeType).build();
+        } catch (JAXBException | RuntimeException ex) {
+            try {
+                cursor.close();
+            } catch (DataStoreException e) {
+                LOGGER.log(Level.WARNING, "Error while closing the result cursor", e);
+            }
+            throw new CstlServiceException("Error while building the GetResult response", ex, NO_APPLICABLE_CODE);
+        }
+    }
 }
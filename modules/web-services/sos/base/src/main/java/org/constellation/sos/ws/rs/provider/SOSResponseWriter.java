@@ -35,6 +35,7 @@ import javax.xml.bind.Marshaller;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.StringWriter;
 import java.io.Writer;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Type;
@@ -99,6 +100,33 @@ public class SOSResponseWriter<T extends SOSResponse> implements MessageBodyWrit
     }
    
 
+    private static void setSchemaLocation(final Marshaller m, final SOSResponse response) throws JAXBException {
+        if ("2.0.0".equals(response.getSpecificationVersion())) {
+            m.setProperty(Marshaller.JAXB_SCHEMA_LOCATION, SCHEMA_LOCATION_V200);
+        } else {
+            m.setProperty(Marshaller.JAXB_SCHEMA_LOCATION, SCHEMA_LOCATION_V100);
+        }
+    }
+
+    /**
+     * Marshall a response in XML, as it would be written in a response stream.
+     *
+     * @param response the response to marshall.
+     * @return the XML document.
+     * @throws JAXBException if the response can not be marshalled.
+     */
+    public static String toXml(final SOSResponse response) throws JAXBException {
+        final Marshaller m = SOSMarshallerPool.getInstance().acquireMarshaller();
+        try {
+            setSchemaLocation(m, response);
+            final StringWriter sw = new StringWriter();
+            m.marshal(response, sw);
+            return sw.toString();
+        } finally {
+            SOSMarshallerPool.getInstance().recycle(m);
+        }
+    }
+
     @Override
     public boolean isWriteable(final Class<?> type, final Type type1, final Annotation[] antns, final MediaType mt) {
         return SOSResponse.class.isAssignableFrom(type);
@@ -131,11 +159,7 @@ public class SOSResponseWriter<T extends SOSResponse> implements MessageBodyWrit
                 final XMLStreamWriter xmlStreamWriter = new MappedXMLStreamWriter(con, writer);
                 m.marshal(obj, xmlStreamWriter);
             } else {
-                if ("2.0.0".equals(response.getSpecificationVersion())) {
-                    m.setProperty(Marshaller.JAXB_SCHEMA_LOCATION, SCHEMA_LOCATION_V200);
-                } else {
-                    m.setProperty(Marshaller.JAXB_SCHEMA_LOCATION, SCHEMA_LOCATION_V100);
-                }
+                setSchemaLocation(m, response);
                 m.marshal(obj, out);
             }
             SOSMarshallerPool.getInstance().recycle(m);
@@ -102,6 +102,8 @@ public class OM2SOSFactory implements OMFactory {
                     return true;
                 } else {
                     LOGGER.info("OM2 structure already present");
+                    final boolean isPostgres = "org.postgresql.Driver".equals(configuration.getBdd().getClassName());
+                    OM2DatabaseCreator.updateStructure(source, isPostgres, schemaPrefix);
                 }
                 return true;
             } else {
@@ -22,13 +22,18 @@ package org.constellation.sos.io.om2;
 import com.vividsolutions.jts.geom.Geometry;
 import com.vividsolutions.jts.io.ParseException;
 import com.vividsolutions.jts.io.WKBReader;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Timestamp;
+import java.text.DateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
@@ -38,6 +43,8 @@ import java.util.Map;
 import java.util.logging.Level;
 import org.apache.sis.storage.DataStoreException;
 import org.constellation.generic.database.Automatic;
+import org.constellation.sos.io.ResultCursor;
+import org.constellation.sos.io.StreamingResultReader;
 import static org.constellation.sos.ws.SOSConstants.EVENT_TIME;
 import static org.constellation.sos.ws.SOSConstants.MEASUREMENT_QNAME;
 import static org.constellation.sos.ws.SOSConstants.RESPONSE_MODE;
@@ -45,7 +52,6 @@ import static org.constellation.sos.ws.SOSUtils.getTimeValue;
 import org.geotoolkit.geometry.jts.SRIDGenerator;
 import org.geotoolkit.gml.xml.Envelope;
 import org.geotoolkit.gml.xml.FeatureProperty;
-import org.geotoolkit.observation.ObservationFilterReader;
 import org.geotoolkit.observation.ObservationStoreException;
 import org.geotoolkit.observation.xml.AbstractObservation;
 import org.geotoolkit.observation.xml.OMXmlFactory;
@@ -73,9 +79,22 @@ import org.opengis.util.FactoryException;
  *
  * @author Guilhem Legal (Geomatys)
  */
-public class OM2ObservationFilterReader extends OM2ObservationFilter implements ObservationFilterReader {
+public class OM2ObservationFilterReader extends OM2ObservationFilter implements StreamingResultReader {
+
+    /**
+     * Number of rows fetched at once when streaming the results.
+     */
+    private static final int RESULT_FETCH_SIZE = 1000;
+
+    /**
+     * Number of measures above which the decimation is done by the database.
+     * Below, the measures are reduced in memory, the intervals are the same in both cases.
+     */
+    static final long SQL_DECIMATION_MIN_ROWS = 10000;
 
     private String responseFormat;
+
+    private long sqlDecimationMinRows = SQL_DECIMATION_MIN_ROWS;
     
     public OM2ObservationFilterReader(final OM2ObservationFilter omFilter) {
         super(omFilter);
@@ -353,9 +372,7 @@ public class OM2ObservationFilterReader extends OM2ObservationFilter implements
                                         String value;
                                         if (field.fieldType.equals("Time")) {
                                             Timestamp t = rs2.getTimestamp(i + 3);
-                                            synchronized(format2) {
-                                                value = format2.format(t);
-                                            }
+                                            value = format2.get().format(t);
                                             if (first) {
                                                 firstTime = value;
                                                 first = false;
@@ -397,9 +414,7 @@ public class OM2ObservationFilterReader extends OM2ObservationFilter implements
                                         String value;
                                         if (field.fieldType.equals("Time")) {
                                             Timestamp t = rs2.getTimestamp(i + 3);
-                                            synchronized(format2) {
-                                                value = format2.format(t);
-                                            }
+                                            value = format2.get().format(t);
                                             lastTime = value;
                                         } else {
                                             value = rs2.getString(i + 3);
@@ -473,11 +488,11 @@ public class OM2ObservationFilterReader extends OM2ObservationFilter implements
                     final String uom = fields.get(0).fieldUom;
                     String start = null;
                     if (startTime != null) {
-                        start = format2.format(startTime);
+                        start = format2.get().format(startTime);
                     }
                     String end = null;
                     if (endTime != null) {
-                        end = format2.format(endTime);
+                        end = format2.get().format(endTime);
                     }
                     TemporalGeometricPrimitive time = null;
                     if (start != null || end != null) {
@@ -533,67 +548,228 @@ public class OM2ObservationFilterReader extends OM2ObservationFilter implements
     
     @Override
     public String getResults() throws DataStoreException {
+        final StringWriter writer = new StringWriter();
+        try (final ResultCursor cursor = openResults()) {
+            cursor.write(writer);
+        } catch (IOException ex) {
+            // can not happen with a string writer
+            throw new DataStoreException(ex);
+        }
+        return writer.toString();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The rows are fetched by blocks of {@value #RESULT_FETCH_SIZE} and written one by one,
+     * so the memory used does not depend on the number of results.
+     */
+    @Override
+    public ResultCursor openResults() throws DataStoreException {
+        // add orderby to the query
+        final Field timeField = getTimeField(currentProcedure);
+        if (timeField != null) {
+            sqlRequest.append(sqlMeasureRequest.toString().replace("$time", timeField.fieldName));
+        }
+        sqlRequest.append(" ORDER BY  o.\"id\", m.\"id\"");
+
+        Connection c = null;
+        Boolean autoCommit = null;
+        Statement currentStatement = null;
+        try {
+            c = source.getConnection();
+            // some drivers (postgres) only use a cursor outside of the auto-commit mode
+            autoCommit = c.getAutoCommit();
+            c.setAutoCommit(false);
+            currentStatement = c.createStatement();
+            currentStatement.setFetchSize(RESULT_FETCH_SIZE);
+            final List<Field> fields;
+            if (!currentFields.isEmpty()) {
+                fields = new ArrayList<>();
+                // we add the main field TODO profiles???
+                if (timeField != null) {
+                    fields.add(timeField);
+                }
+                for (String f : currentFields) {
+                    final Field field = getFieldForPhenomenon(currentProcedure, f, c);
+                    if (field != null && !fields.contains(field)) {
+                        fields.add(field);
+                    }
+                }
+            } else {
+                fields = readFields(currentProcedure, c);
+            }
+            LOGGER.info(sqlRequest.toString());
+            final ResultSet rs = currentStatement.executeQuery(sqlRequest.toString());
+            return new OM2ResultCursor(c, autoCommit, currentStatement, rs, fields, "text/csv".equals(responseFormat));
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "SQLException while executing the query: {0}", sqlRequest.toString());
+            close(c, autoCommit, currentStatement);
+            throw new DataStoreException("the service has throw a SQL Exception:" + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Release the resources of a result query, restoring the auto-commit mode of the connection.
+     */
+    private static void close(final Connection c, final Boolean autoCommit, final Statement stmt) {
         try {
-            // add orderby to the query
-            final Field timeField = getTimeField(currentProcedure);
-            if (timeField != null) {
-                sqlRequest.append(sqlMeasureRequest.toString().replace("$time", timeField.fieldName));
+            if (stmt != null) {
+                stmt.close();
             }
-            sqlRequest.append(" ORDER BY  o.\"id\", m.\"id\"");
+        } catch (SQLException ex) {
+            LOGGER.log(Level.WARNING, "Error while closing the result statement", ex);
+        }
+        if (c != null) {
+            try {
+                if (autoCommit != null) {
+                    c.setAutoCommit(autoCommit);
+                }
+            } catch (SQLException ex) {
+                LOGGER.log(Level.WARNING, "Error while restoring the auto-commit mode", ex);
+            } finally {
+                try {
+                    c.close();
+                } catch (SQLException ex) {
+                    LOGGER.log(Level.WARNING, "Error while closing the result connection", ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * The rows of an executed result query, formatted as they are written.
+     */
+    private static final class OM2ResultCursor implements ResultCursor {
+
+        private final Connection c;
+
+        private final boolean autoCommit;
+
+        private final Statement stmt;
+
+        private final ResultSet rs;
 
+        private final List<Field> fields;
+
+        private final boolean csv;
+
+        private OM2ResultCursor(final Connection c, final boolean autoCommit, final Statement stmt, final ResultSet rs,
+                final List<Field> fields, final boolean csv) {
+            this.c          = c;
+            this.autoCommit = autoCommit;
+            this.stmt       = stmt;
+            this.rs         = rs;
+            this.fields     = fields;
+            this.csv        = csv;
+        }
+
+        @Override
+        public void write(final Writer out) throws DataStoreException, IOException {
+            final StringBuilder line = new StringBuilder();
+            final TextBlock encoding;
+            if (csv) {
+                encoding = getCsvTextEncoding("2.0.0");
+                // Add the header
+                for (Field pheno : fields) {
+                    line.append(pheno.fieldDesc).append(',');
+                }
+                line.setCharAt(line.length() - 1, '\n');
+                out.write(line.toString());
+            } else {
+                encoding = getDefaultTextEncoding("2.0.0");
+            }
+            final DateFormat timeFormat = format2.get();
+            try {
+                while (rs.next()) {
+                    line.setLength(0);
+                    for (int i = 0; i < fields.size(); i++) {
+                        Field field = fields.get(i);
+                        String value;
+                        if (field.fieldType.equals("Time")) {
+                            Timestamp t = rs.getTimestamp(field.fieldName);
+                            value = (t != null) ? timeFormat.format(t) : null;
+                        } else {
+                            value = rs.getString(field.fieldName);
+                        }
+                        if (value == null) {
+                            value = "";
+                        }
+                        line.append(value).append(encoding.getTokenSeparator());
+                    }
+                    line.deleteCharAt(line.length() - 1);
+                    line.append(encoding.getBlockSeparator());
+                    out.write(line.toString());
+                }
+            } catch (SQLException ex) {
+                throw new DataStoreException("the service has throw a SQL Exception:" + ex.getMessage(), ex);
+            }
+            out.flush();
+        }
+
+        @Override
+        public void close() {
+            try {
+                rs.close();
+            } catch (SQLException ex) {
+                LOGGER.log(Level.WARNING, "Error while closing the result set", ex);
+            }
+            OM2ObservationFilterReader.close(c, autoCommit, stmt);
+        }
+    }
+
+    @Override
+    public String getDecimatedResults(final int width) throws DataStoreException {
+        try {
+            final String fieldRequest = sqlRequest.toString();
             final StringBuilder values = new StringBuilder();
             try(final Connection c = source.getConnection()) {
-                try(final Statement currentStatement = c.createStatement()) {
-                    LOGGER.info(sqlRequest.toString());
-                    final ResultSet rs = currentStatement.executeQuery(sqlRequest.toString());
-                    final List<Field> fields;
-                    if (!currentFields.isEmpty()) {
-                        fields = new ArrayList<>();
-                        // we add the main field TODO profiles???
-                        if (timeField != null) {
-                            fields.add(timeField);
-                        }
-                        for (String f : currentFields) {
-                            final Field field = getFieldForPhenomenon(currentProcedure, f, c);
-                            if (field != null && !fields.contains(field)) {
-                                fields.add(field);
-                            }
+                final TextBlock encoding;
+                final List<Field> fields;
+                if (!currentFields.isEmpty()) {
+                    fields = new ArrayList<>();
+                    // we add the main field TODO profiles???
+                    final Field timeField = getTimeField(currentProcedure, c);
+                    if (timeField != null) {
+                        fields.add(timeField);
+                    }
+                    for (String f : currentFields) {
+                        final Field field = getFieldForPhenomenon(currentProcedure, f, c);
+                        if (field != null && !fields.contains(field)) {
+                            fields.add(field);
                         }
-                    } else {
-                        fields = readFields(currentProcedure, c);
                     }
-                    final TextBlock encoding;
-                    if ("text/csv".equals(responseFormat)) {
-                        encoding = getCsvTextEncoding("2.0.0");
-                        // Add the header
-                        for (Field pheno : fields) {
+                } else {
+                    fields = readFields(currentProcedure, c);
+                }
+                if ("text/csv".equals(responseFormat)) {
+                    encoding = getCsvTextEncoding("2.0.0");
+                    // Add the header
+                    for (Field pheno : fields) {
+                        // hack for the current graph in cstl you only work when the main field is named "time"
+                        if ("Time".equals(pheno.fieldType)) {
+                            values.append("time").append(',');
+                        } else {
                             values.append(pheno.fieldDesc).append(',');
                         }
-                        values.setCharAt(values.length() - 1, '\n');
-                    } else {
-                        encoding = getDefaultTextEncoding("2.0.0");
                     }
+                    values.setCharAt(values.length() - 1, '\n');
+                } else {
+                    encoding = getDefaultTextEncoding("2.0.0");
+                }
+                final Field mainField = fields.get(0);
+                if (!mainField.fieldType.equals("Time") && !mainField.fieldType.equals("Quantity")) {
+                    throw new DataStoreException("main field other than Time or Quantity are not yet allowed");
+                }
+                final long[] bounds = getMainFieldStepForGetResult(fieldRequest, mainField, c, width);
+                final long start = bounds[0];
+                final long step  = bounds[1];
+                final long count = bounds[2];
 
-                    while (rs.next()) {
-                        for (int i = 0; i < fields.size(); i++) {
-                            Field field = fields.get(i);
-                            String value; ;
-                            if (field.fieldType.equals("Time")) {
-                                Timestamp t = rs.getTimestamp(field.fieldName);
-                                synchronized(format2) {
-                                    value = format2.format(t);
-                                }
-                            } else {
-                                value = rs.getString(field.fieldName);
-                            }
-                            if (value == null) {
-                                value = "";
-                            }
-                            values.append(value).append(encoding.getTokenSeparator());
-                        }
-                        values.deleteCharAt(values.length() - 1);
-                        values.append(encoding.getBlockSeparator());
-                    }
+                if (count > sqlDecimationMinRows && canDecimateInDatabase(mainField, step)) {
+                    decimateInDatabase(fieldRequest, fields, start, step, encoding, c, values);
+                } else if (count > 0) {
+                    decimateInMemory(fieldRequest + " ORDER BY m.\"" + mainField.fieldName + "\", o.\"id\", m.\"id\"", fields, start, step, encoding, c, values);
                 }
             }
             return values.toString();
@@ -602,169 +778,222 @@ public class OM2ObservationFilterReader extends OM2ObservationFilter implements
             throw new DataStoreException("the service has throw a SQL Exception:" + ex.getMessage(), ex);
         }
     }
-    
-    @Override
-    public String getDecimatedResults(final int width) throws DataStoreException {
-        try {
-            // add orderby to the query
-            final String fieldRequest = sqlRequest.toString();
-            sqlRequest.append(" ORDER BY  o.\"id\", m.\"id\"");
-            final StringBuilder values = new StringBuilder();
-            try(final Connection c = source.getConnection()) {
-                try (final Statement currentStatement = c.createStatement()) {
-                    LOGGER.info(sqlRequest.toString());
-                    try (final ResultSet rs = currentStatement.executeQuery(sqlRequest.toString())) {
-                        final TextBlock encoding;
-                        final List<Field> fields;
-                        if (!currentFields.isEmpty()) {
-                            fields = new ArrayList<>();
-                            // we add the main field TODO profiles???
-                            final Field timeField = getTimeField(currentProcedure, c);
-                            if (timeField != null) {
-                                fields.add(timeField);
-                            }
-                            for (String f : currentFields) {
-                                final Field field = getFieldForPhenomenon(currentProcedure, f, c);
-                                if (field != null && !fields.contains(field)) {
-                                    fields.add(field);
-                                }
-                            }
-                        } else {
-                            fields = readFields(currentProcedure, c);
+
+    /**
+     * Change the number of measures above which the decimation is done by the database.
+     * Used by the tests, to compare the decimation done in memory and by the database.
+     */
+    void setSqlDecimationMinRows(final long sqlDecimationMinRows) {
+        this.sqlDecimationMinRows = sqlDecimationMinRows;
+    }
+
+    /**
+     * Return the interval of a main field value: the interval {@code n} goes from {@code start + n * step}
+     * (inclusive) to {@code start + (n + 1) * step} (exclusive). The database computes the same intervals.
+     */
+    private static long getInterval(final double mainValue, final long start, final long step) {
+        return (long) Math.floor((mainValue - start) / step);
+    }
+
+    /**
+     * Reduce the rows sorted on the main field in a single pass, keeping only the minimum and maximum
+     * of each quantity field in the current interval. The rows without main value are ignored.
+     */
+    private void decimateInMemory(final String request, final List<Field> fields, final long start, final long step,
+            final TextBlock encoding, final Connection c, final StringBuilder values) throws SQLException {
+        final int nbField = fields.size();
+        final boolean[] quantity = new boolean[nbField];
+        for (int i = 0; i < nbField; i++) {
+            quantity[i] = fields.get(i).fieldType.equals("Quantity");
+        }
+        final boolean timeMain = fields.get(0).fieldType.equals("Time");
+        final double[] minVal = new double[nbField];
+        final double[] maxVal = new double[nbField];
+        Arrays.fill(minVal, Double.MAX_VALUE);
+        Arrays.fill(maxVal, -Double.MAX_VALUE);
+
+        final boolean autoCommit = c.getAutoCommit();
+        c.setAutoCommit(false);
+        try (final Statement currentStatement = c.createStatement()) {
+            currentStatement.setFetchSize(RESULT_FETCH_SIZE);
+            LOGGER.info(request);
+            try (final ResultSet rs = currentStatement.executeQuery(request)) {
+                boolean first = true;
+                long interval = 0;
+                while (rs.next()) {
+                    final double mainValue;
+                    if (timeMain) {
+                        final Timestamp currentTime = rs.getTimestamp(fields.get(0).fieldName);
+                        if (currentTime == null) {
+                            continue;
                         }
-                        if ("text/csv".equals(responseFormat)) {
-                            encoding = getCsvTextEncoding("2.0.0");
-                            // Add the header
-                            for (Field pheno : fields) {
-                                // hack for the current graph in cstl you only work when the main field is named "time"
-                                if ("Time".equals(pheno.fieldType)) {
-                                    values.append("time").append(',');
-                                } else {
-                                    values.append(pheno.fieldDesc).append(',');
-                                }
-                            }
-                            values.setCharAt(values.length() - 1, '\n');
-                        } else {
-                            encoding = getDefaultTextEncoding("2.0.0");
+                        mainValue = currentTime.getTime();
+                    } else {
+                        mainValue = rs.getDouble(fields.get(0).fieldName);
+                        if (rs.wasNull()) {
+                            continue;
                         }
-                        Map<String, Double> minVal = initMapVal(fields, false);
-                        Map<String, Double> maxVal = initMapVal(fields, true);
-                        final long[] times = getMainFieldStepForGetResult(fieldRequest, fields.get(0), c, width);
-                        final long step = times[1];
-                        long start = times[0];
-
-                        while (rs.next()) {
-
-                            long currentMainValue = -1;
-                            for (int i = 0; i < fields.size(); i++) {
-                                Field field = fields.get(i);
-                                String value = rs.getString(field.fieldName);
-
-                                if (i == 0) {
-                                    if (field.fieldType.equals("Time")) {
-                                        final Timestamp currentTime = Timestamp.valueOf(value);
-                                        currentMainValue = currentTime.getTime();
-                                    } else if (field.fieldType.equals("Quantity")) {
-                                        if (value != null && !value.isEmpty()) {
-                                            final Double d = Double.parseDouble(value);
-                                            currentMainValue = d.longValue();
-                                        }
-                                    }
-                                }
-                                addToMapVal(minVal, maxVal, field.fieldName, value);
+                    }
+                    final long currentInterval = getInterval(mainValue, start, step);
+                    if (first || currentInterval != interval) {
+                        if (!first) {
+                            appendInterval(values, timeMain, start + interval * step, step, minVal, maxVal, encoding);
+                            Arrays.fill(minVal, Double.MAX_VALUE);
+                            Arrays.fill(maxVal, -Double.MAX_VALUE);
+                        }
+                        interval = currentInterval;
+                        first = false;
+                    }
+                    for (int i = 1; i < nbField; i++) {
+                        if (quantity[i]) {
+                            final double current = rs.getDouble(fields.get(i).fieldName);
+                            if (rs.wasNull()) {
+                                continue;
                             }
-
-
-                            if (currentMainValue != -1 && currentMainValue > (start + step)) {
-                                //min
-                                if (fields.get(0).fieldType.equals("Time")) {
-                                    values.append(format.format(new Date(start)));
-                                } else if (fields.get(0).fieldType.equals("Quantity")) {
-                                    values.append(start);
-                                } else {
-                                    throw new DataStoreException("main field other than Time or Quantity are not yet allowed");
-                                }
-                                for (Field field : fields) {
-                                    if (!field.equals(fields.get(0))) {
-                                        values.append(encoding.getTokenSeparator());
-                                        final double minValue = minVal.get(field.fieldName);
-                                        if (minValue != Double.MAX_VALUE) {
-                                            values.append(minValue);
-                                        }
-                                    }
-                                }
-                                values.append(encoding.getBlockSeparator());
-                                //max
-                                if (fields.get(0).fieldType.equals("Time")) {
-                                    long maxTime = start + step;
-                                    values.append(format.format(new Date(maxTime)));
-                                } else if (fields.get(0).fieldType.equals("Quantity")) {
-                                    values.append(start + step);
-                                } else {
-                                    throw new DataStoreException("main field other than Time or Quantity are not yet allowed");
-                                }
-                                for (Field field : fields) {
-                                    if (!field.equals(fields.get(0))) {
-                                        values.append(encoding.getTokenSeparator());
-                                        final double maxValue = maxVal.get(field.fieldName);
-                                        if (maxValue != -Double.MAX_VALUE) {
-                                            values.append(maxValue);
-                                        }
-                                    }
-                                }
-                                values.append(encoding.getBlockSeparator());
-                                start = currentMainValue;
-                                minVal = initMapVal(fields, false);
-                                maxVal = initMapVal(fields, true);
+                            if (current > maxVal[i]) {
+                                maxVal[i] = current;
+                            }
+                            if (current < minVal[i]) {
+                                minVal[i] = current;
                             }
                         }
                     }
                 }
+                if (!first) {
+                    appendInterval(values, timeMain, start + interval * step, step, minVal, maxVal, encoding);
+                }
             }
-            return values.toString();
-        } catch (SQLException ex) {
-            LOGGER.log(Level.SEVERE, "SQLException while executing the query: {0}", sqlRequest.toString());
-            throw new DataStoreException("the service has throw a SQL Exception:" + ex.getMessage(), ex);
+        } finally {
+            c.setAutoCommit(autoCommit);
         }
     }
-    
-    private Map<String, Double> initMapVal(final List<Field> fields, final boolean max) {
-        final Map<String, Double> result = new HashMap<>();
-        final double value;
-        if (max) {
-            value = -Double.MAX_VALUE;
+
+    /**
+     * Let the database group the rows in {@code width} intervals of the main field and compute
+     * the minimum and maximum of each quantity field, so only one row by interval is transfered.
+     * The intervals are the ones of {@link #getInterval(double, long, long)}.
+     */
+    private void decimateInDatabase(final String fieldRequest, final List<Field> fields, final long start, final long step,
+            final TextBlock encoding, final Connection c, final StringBuilder values) throws SQLException {
+        final Field mainField = fields.get(0);
+        final boolean timeMain = mainField.fieldType.equals("Time");
+        final String bucket;
+        if (timeMain) {
+            // the interval is computed from the difference with the first date, in seconds, to stay independant of the time zone.
+            final String first = new Timestamp(start).toString();
+            final double stepSecond = step / 1000.0;
+            if (isPostgres) {
+                bucket = "FLOOR(EXTRACT(EPOCH FROM (\"" + mainField.fieldName + "\" - TIMESTAMP '" + first + "')) / " + stepSecond + ")";
+            } else {
+                bucket = "FLOOR({fn TIMESTAMPDIFF(SQL_TSI_SECOND, TIMESTAMP('" + first + "'), \"" + mainField.fieldName + "\")} / " + stepSecond + ")";
+            }
         } else {
-            value = Double.MAX_VALUE;
+            bucket = "FLOOR((\"" + mainField.fieldName + "\" - " + start + ") / " + (double) step + ")";
         }
-        for (Field field : fields) {
-            result.put(field.fieldName, value);
+        // only the quantity fields are aggregated, the other ones are written empty as in memory.
+        final int nbField = fields.size();
+        final int[] columns = new int[nbField];
+        final StringBuilder select = new StringBuilder("SELECT ").append(bucket).append(" AS \"bucket\"");
+        int column = 2;
+        for (int i = 1; i < nbField; i++) {
+            final Field field = fields.get(i);
+            if (field.fieldType.equals("Quantity")) {
+                select.append(", MIN(\"").append(field.fieldName).append("\"), MAX(\"").append(field.fieldName).append("\")");
+                columns[i] = column;
+                column += 2;
+            }
+        }
+        final String request = fieldRequest.replace("SELECT m.*", select.toString()) + " GROUP BY " + bucket + " ORDER BY 1";
+
+        final double[] minVal = new double[nbField];
+        final double[] maxVal = new double[nbField];
+        try (final Statement stmt = c.createStatement()) {
+            LOGGER.info(request);
+            try (final ResultSet rs = stmt.executeQuery(request)) {
+                while (rs.next()) {
+                    final long b = rs.getLong(1);
+                    if (rs.wasNull()) {
+                        // the rows without main value
+                        continue;
+                    }
+                    for (int i = 1; i < nbField; i++) {
+                        minVal[i] = Double.MAX_VALUE;
+                        maxVal[i] = -Double.MAX_VALUE;
+                        if (columns[i] != 0) {
+                            final double min = rs.getDouble(columns[i]);
+                            if (!rs.wasNull()) {
+                                minVal[i] = min;
+                            }
+                            final double max = rs.getDouble(columns[i] + 1);
+                            if (!rs.wasNull()) {
+                                maxVal[i] = max;
+                            }
+                        }
+                    }
+                    appendInterval(values, timeMain, start + b * step, step, minVal, maxVal, encoding);
+                }
+            }
         }
-        return result;
     }
-    
-    private void addToMapVal(final Map<String, Double> minMap, final Map<String, Double> maxMap, final String field, final String value) {
-        if (value == null || value.isEmpty()) return;
-        
-        final Double minPrevious = minMap.get(field);
-        final Double maxPrevious = maxMap.get(field);
-        try {
-            final Double current = Double.parseDouble(value);
-            if (current > maxPrevious) {
-                maxMap.put(field, current);
+
+    /**
+     * Write an interval as two blocks : the minimums at the start of the interval and the maximums at its end.
+     * The first value of the arrays is the main field and is not written.
+     */
+    private static void appendInterval(final StringBuilder values, final boolean timeMain, final long start, final long step,
+            final double[] minVal, final double[] maxVal, final TextBlock encoding) {
+        //min
+        appendMainValue(values, timeMain, start);
+        for (int i = 1; i < minVal.length; i++) {
+            values.append(encoding.getTokenSeparator());
+            if (minVal[i] != Double.MAX_VALUE) {
+                values.append(minVal[i]);
             }
-            if (current < minPrevious) {
-                minMap.put(field, current);
+        }
+        values.append(encoding.getBlockSeparator());
+        //max
+        appendMainValue(values, timeMain, start + step);
+        for (int i = 1; i < maxVal.length; i++) {
+            values.append(encoding.getTokenSeparator());
+            if (maxVal[i] != -Double.MAX_VALUE) {
+                values.append(maxVal[i]);
             }
-        } catch (NumberFormatException ex) {
-            LOGGER.log(Level.FINER, "unable to parse value:{0}", value);
+        }
+        values.append(encoding.getBlockSeparator());
+    }
+
+    private static void appendMainValue(final StringBuilder values, final boolean timeMain, final long value) {
+        if (timeMain) {
+            values.append(format.get().format(new Date(value)));
+        } else {
+            values.append(value);
         }
     }
+
+    /**
+     * Return {@code true} if the intervals can be computed by the database for this main field.
+     * The time difference is computed in whole seconds by derby, so the intervals which are not
+     * a number of seconds are reduced in memory.
+     */
+    private boolean canDecimateInDatabase(final Field mainField, final long step) {
+        if (step <= 0) {
+            return false;
+        }
+        if (mainField.fieldType.equals("Time")) {
+            return isPostgres || step % 1000 == 0;
+        }
+        return mainField.fieldType.equals("Quantity");
+    }
     
+    /**
+     * Return the start of the first interval, the interval size and the number of measures. The size is rounded up
+     * so the last measure falls in the interval {@code width - 1}, and to the second when the intervals are longer.
+     */
     private long[] getMainFieldStepForGetResult(String request, final Field mainField, final Connection c, final int width) throws SQLException {
-        request = request.replace("SELECT m.*", "SELECT MIN(\"" + mainField.fieldName + "\"), MAX(\"" + mainField.fieldName + "\") ");
+        request = request.replace("SELECT m.*", "SELECT MIN(\"" + mainField.fieldName + "\"), MAX(\"" + mainField.fieldName + "\"), COUNT(*) ");
         try(final Statement stmt = c.createStatement();
             final ResultSet rs = stmt.executeQuery(request)) {
-            final long[] result = {-1L, -1L};
+            final long[] result = {-1L, -1L, 0L};
             if (rs.next()) {
                 if (mainField.fieldType.equals("Time")) {
                     final Timestamp minT = rs.getTimestamp(1);
@@ -772,21 +1001,27 @@ public class OM2ObservationFilterReader extends OM2ObservationFilter implements
                     if (minT != null && maxT != null) {
                         final long min = minT.getTime();
                         final long max = maxT.getTime();
+                        long step = (max - min) / width + 1;
+                        if (step > 1000) {
+                            step = (step + 999) / 1000 * 1000;
+                        }
                         result[0] = min;
-                        result[1] = (max - min) / width;
+                        result[1] = step;
                     }
                 } else if (mainField.fieldType.equals("Quantity")) {
-                    final Double minT = rs.getDouble(1);
-                    final Double maxT = rs.getDouble(2);
-                    if (minT != null && maxT != null) {
-                        final long min = minT.longValue();
-                        final long max = maxT.longValue();
+                    final double minT = rs.getDouble(1);
+                    final boolean minNull = rs.wasNull();
+                    final double maxT = rs.getDouble(2);
+                    if (!minNull && !rs.wasNull()) {
+                        final long min = (long) Math.floor(minT);
+                        final long max = (long) Math.floor(maxT);
                         result[0] = min;
-                        result[1] = (max - min) / width;
+                        result[1] = (max - min) / width + 1;
                     }
                 } else {
                     throw new SQLException("unable to extract bound from a " + mainField.fieldType + " main field.");
                 }
+                result[2] = rs.getLong(3);
             }
             return result;
         }
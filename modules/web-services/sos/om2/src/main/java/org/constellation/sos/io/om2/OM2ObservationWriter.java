@@ -25,6 +25,7 @@ import org.apache.sis.storage.DataStoreException;
 import org.constellation.admin.SpringHelper;
 import org.constellation.generic.database.Automatic;
 import org.constellation.generic.database.BDD;
+import org.constellation.om2.OM2DatabaseCreator;
 import org.constellation.sos.io.om2.OM2BaseReader.Field;
 import org.constellation.sos.ws.GeometrytoJTS;
 import org.geotoolkit.gml.xml.AbstractGeometry;
@@ -68,6 +69,11 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.StringTokenizer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 import org.geotoolkit.geometry.jts.transform.AbstractGeometryTransformer;
 import org.geotoolkit.geometry.jts.transform.GeometryCSTransformer;
@@ -85,9 +91,39 @@ import org.opengis.referencing.operation.TransformException;
  */
 public class OM2ObservationWriter extends OM2BaseReader implements ObservationWriter {
 
+    /**
+     * Number of measures sent to the database in one batch.
+     */
+    private static final int MEASURE_BATCH_SIZE = 1000;
+
     protected final DataSource source;
     
     private boolean allowSensorStructureUpdate = true;
+
+    /**
+     * The next observation identifier not yet reserved by this writer. Another writer on the same
+     * database (an other service or node) may reserve the same identifiers : the primary key of the
+     * observation table rejects the second insertion, which is then retried with a new identifier.
+     */
+    private final AtomicInteger nextObservationId = new AtomicInteger(1);
+
+    /**
+     * Number of times the insertion of an observation is retried when its generated identifier
+     * has been taken by another writer.
+     */
+    private static final int MAX_ID_RETRY = 10;
+
+    /**
+     * The SQL state of a unique or primary key violation, for PostgreSQL and Derby.
+     */
+    private static final String UNIQUE_VIOLATION = "23505";
+
+    /**
+     * One lock by procedure. The observations of different procedures are written concurrently,
+     * the shared tables (phenomenons, procedures, features of interest, offerings) are updated
+     * while holding the writer monitor. The procedure lock is always acquired first.
+     */
+    private final ConcurrentMap<String, Lock> procedureLocks = new ConcurrentHashMap<>();
     
     /**
      * Build a new Observation writer for postgrid dataSource.
@@ -138,14 +174,16 @@ public class OM2ObservationWriter extends OM2BaseReader implements ObservationWr
      * {@inheritDoc}
      */
     @Override
-    public synchronized String writeObservationTemplate(final ObservationTemplate template) throws DataStoreException {
+    public String writeObservationTemplate(final ObservationTemplate template) throws DataStoreException {
         if (template.getObservation() != null) {
             return writeObservation(template.getObservation());
         } else  {
             try(final Connection c = source.getConnection()) {
-                writeProcedure(template.getProcedure(), null, null, null, c);
-                for (PhenomenonProperty phen : template.getFullObservedProperties()) {
-                    writePhenomenon(phen, c, true);
+                synchronized (this) {
+                    writeProcedure(template.getProcedure(), null, null, null, c);
+                    for (PhenomenonProperty phen : template.getFullObservedProperties()) {
+                        writePhenomenon(phen, c, true);
+                    }
                 }
                 return null;
             } catch (SQLException | FactoryException ex) {
@@ -158,9 +196,9 @@ public class OM2ObservationWriter extends OM2BaseReader implements ObservationWr
      * {@inheritDoc}
      */
     @Override
-    public synchronized String writeObservation(final Observation observation) throws DataStoreException {
+    public String writeObservation(final Observation observation) throws DataStoreException {
         try(final Connection c = source.getConnection()) {
-            final int generatedID   = getNewObservationId(c);
+            final int generatedID   = reserveObservationIds(1, c);
             final String oid        = writeObservation(observation, c, generatedID);
             return oid;
         } catch (SQLException ex) {
@@ -172,10 +210,10 @@ public class OM2ObservationWriter extends OM2BaseReader implements ObservationWr
      * {@inheritDoc}
      */
     @Override
-    public synchronized List<String> writeObservations(final List<Observation> observations) throws DataStoreException {
+    public List<String> writeObservations(final List<Observation> observations) throws DataStoreException {
         final List<String> results = new ArrayList<>();
         try(final Connection c = source.getConnection()) {
-            int generatedID = getNewObservationId(c);
+            int generatedID = reserveObservationIds(observations.size(), c);
             for (Observation observation : observations) {
                 final String oid = writeObservation(observation, c, generatedID);
                 results.add(oid);
@@ -188,17 +226,25 @@ public class OM2ObservationWriter extends OM2BaseReader implements ObservationWr
     }
     
     private String writeObservation(final Observation observation, final Connection c, final int generatedID) throws DataStoreException {
+        final org.geotoolkit.observation.xml.Process procedure = (org.geotoolkit.observation.xml.Process)observation.getProcedure();
+        final String procedureID = procedure.getHref();
+        final Lock lock = getProcedureLock(procedureID);
+        lock.lock();
         try(final PreparedStatement stmt = c.prepareStatement("INSERT INTO \"" + schemaPrefix + "om\".\"observations\" VALUES(?,?,?,?,?,?,?)")) {
-            final String observationName;
+            String observationName;
             int oid;
+            boolean generatedName = false;
+            boolean generatedOid  = true;
             if (observation.getName() == null || observation.getName().getCode() == null) {
                 oid = generatedID;
                 observationName = observationIdBase + oid;
+                generatedName = true;
             } else {
                 observationName = observation.getName().getCode();
                 if (observationName.startsWith(observationIdBase)) {
                     try {
                         oid = Integer.parseInt(observationName.substring(observationIdBase.length()));
+                        generatedOid = false;
                     } catch (NumberFormatException ex) {
                         oid = generatedID;
                     }
@@ -207,8 +253,6 @@ public class OM2ObservationWriter extends OM2BaseReader implements ObservationWr
                 }
             }
             
-            stmt.setString(1, observationName);
-            stmt.setInt(2, oid);
             
             final TemporalObject samplingTime = observation.getSamplingTime();
             if (samplingTime instanceof Period) {
@@ -239,38 +283,77 @@ public class OM2ObservationWriter extends OM2BaseReader implements ObservationWr
                 stmt.setNull(4, java.sql.Types.TIMESTAMP);
             }
             final PhenomenonProperty phenomenon = getPropertyObservedProperty((AbstractObservation) observation);
-            final String phenRef = writePhenomenon(phenomenon, c, false);
+            final org.geotoolkit.sampling.xml.SamplingFeature foi = (org.geotoolkit.sampling.xml.SamplingFeature)observation.getFeatureOfInterest();
+            final String phenRef;
+            final int pid;
+            synchronized (this) {
+                phenRef = writePhenomenon(phenomenon, c, false);
+                pid     = writeProcedure(procedureID, null, null, null, c);
+                if (foi != null) {
+                    writeFeatureOfInterest(foi, c);
+                }
+            }
             stmt.setString(5, phenRef);
-            
-            final org.geotoolkit.observation.xml.Process procedure = (org.geotoolkit.observation.xml.Process)observation.getProcedure();
-            final String procedureID = procedure.getHref();
-            final int pid = writeProcedure(procedureID, null, null, null, c);
             stmt.setString(6, procedureID);
-            final org.geotoolkit.sampling.xml.SamplingFeature foi = (org.geotoolkit.sampling.xml.SamplingFeature)observation.getFeatureOfInterest();
             final String foiID;
             if (foi != null) {
                 foiID = foi.getId();
                 stmt.setString(7, foiID);
-                writeFeatureOfInterest(foi, c);
             } else {
                 foiID = null;
                 stmt.setNull(7, java.sql.Types.VARCHAR);
             }
             
-            stmt.executeUpdate();
+            // the connection is in auto-commit mode, a rejected insertion does not abort the next statements.
+            for (int retry = 0;; retry++) {
+                stmt.setString(1, observationName);
+                stmt.setInt(2, oid);
+                try {
+                    stmt.executeUpdate();
+                    break;
+                } catch (SQLException ex) {
+                    if (!generatedOid || retry == MAX_ID_RETRY || !UNIQUE_VIOLATION.equals(ex.getSQLState())) {
+                        throw ex;
+                    }
+                    LOGGER.log(Level.FINE, "Observation id {0} already taken by another writer.", oid);
+                    oid = reserveObservationIds(1, c);
+                    if (generatedName) {
+                        observationName = observationIdBase + oid;
+                    }
+                }
+            }
 
             writeResult(oid, pid, procedureID, observation.getResult(), samplingTime, c);
             emitResultOnBus(procedureID, observation.getResult());
-            String parent = getProcedureParent(procedureID, c);
-            if (parent != null) {        
-                updateOrCreateOffering(parent,samplingTime, phenRef, foiID, c);
+            synchronized (this) {
+                String parent = getProcedureParent(procedureID, c);
+                if (parent != null) {
+                    updateOrCreateOffering(parent,samplingTime, phenRef, foiID, c);
+                }
+                updateOrCreateOffering(procedureID,samplingTime, phenRef, foiID, c);
             }
-            updateOrCreateOffering(procedureID,samplingTime, phenRef, foiID, c);
             
             return observationName;
         } catch (SQLException | FactoryException ex) {
             throw new DataStoreException("Error while inserting observation:" + ex.getMessage(), ex);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Return the lock protecting the measures of the specified procedure.
+     */
+    private Lock getProcedureLock(final String procedureID) {
+        Lock lock = procedureLocks.get(procedureID);
+        if (lock == null) {
+            lock = new ReentrantLock();
+            final Lock previous = procedureLocks.putIfAbsent(procedureID, lock);
+            if (previous != null) {
+                lock = previous;
+            }
         }
+        return lock;
     }
 
     private void emitResultOnBus(String procedureID, Object result) {
@@ -393,7 +476,7 @@ public class OM2ObservationWriter extends OM2BaseReader implements ObservationWr
     }
     
     @Override
-    public void writeProcedure(final String procedureID, final AbstractGeometry position, final String parent, final String type) throws DataStoreException {
+    public synchronized void writeProcedure(final String procedureID, final AbstractGeometry position, final String parent, final String type) throws DataStoreException {
         try(final Connection c = source.getConnection()) {
             writeProcedure(procedureID, position, parent, type, c);
         } catch (SQLException | FactoryException ex) {
@@ -850,8 +933,25 @@ public class OM2ObservationWriter extends OM2BaseReader implements ObservationWr
     }
     
     /**
-     * {@inheritDoc}
+     * Reserve a range of observation identifiers. The range starts after the greatest identifier
+     * of the database and after the identifiers already reserved by this writer, so the concurrent
+     * insertions of this writer never receive the same identifiers. The identifiers reserved at the
+     * same time by another writer are detected at insertion, see {@link #nextObservationId}.
+     *
+     * @param count the number of identifiers to reserve.
+     * @return the first identifier of the range.
      */
+    private int reserveObservationIds(final int count, final Connection c) throws DataStoreException {
+        final int next = getNewObservationId(c);
+        int current;
+        int first;
+        do {
+            current = nextObservationId.get();
+            first   = Math.max(current, next);
+        } while (!nextObservationId.compareAndSet(current, first + count));
+        return first;
+    }
+
     private int getNewObservationId(Connection c) throws DataStoreException {
         try(final Statement stmt       = c.createStatement();
             final ResultSet rs         = stmt.executeQuery("SELECT max(\"id\") FROM \"" + schemaPrefix + "om\".\"observations\"")) {
@@ -871,7 +971,9 @@ public class OM2ObservationWriter extends OM2BaseReader implements ObservationWr
      * {@inheritDoc}
      */
     @Override
-    public synchronized void removeObservationForProcedure(final String procedureID) throws DataStoreException {
+    public void removeObservationForProcedure(final String procedureID) throws DataStoreException {
+        final Lock lock = getProcedureLock(procedureID);
+        lock.lock();
         try(final Connection c = source.getConnection()) {
             final int pid = getPIDFromProcedure(procedureID, c);
             if (pid == -1) {
@@ -901,6 +1003,8 @@ public class OM2ObservationWriter extends OM2BaseReader implements ObservationWr
             }
         } catch (SQLException ex) {
             throw new DataStoreException("Error while removing observation for procedure.", ex);
+        } finally {
+            lock.unlock();
         }
     }
     
@@ -908,80 +1012,86 @@ public class OM2ObservationWriter extends OM2BaseReader implements ObservationWr
      * {@inheritDoc}
      */
     @Override
-    public synchronized void removeProcedure(final String procedureID) throws DataStoreException {
+    public void removeProcedure(final String procedureID) throws DataStoreException {
+        final Lock lock = getProcedureLock(procedureID);
+        lock.lock();
         try {
             removeObservationForProcedure(procedureID);
-            try(final Connection c = source.getConnection()) {
-                final int pid = getPIDFromProcedure(procedureID, c);
+            synchronized (this) {
+                try(final Connection c = source.getConnection()) {
+                    final int pid = getPIDFromProcedure(procedureID, c);
 
-                try (final PreparedStatement stmtObsP = c.prepareStatement("DELETE FROM \"" + schemaPrefix + "om\".\"offering_observed_properties\" "
-                        + "WHERE \"id_offering\" IN(SELECT \"identifier\" FROM \"" + schemaPrefix + "om\".\"offerings\" WHERE \"procedure\"=?)");
-                     final PreparedStatement stmtFoi = c.prepareStatement("DELETE FROM \"" + schemaPrefix + "om\".\"offering_foi\" "
-                             + "WHERE \"id_offering\" IN(SELECT \"identifier\" FROM \"" + schemaPrefix + "om\".\"offerings\" WHERE \"procedure\"=?)");
-                     final PreparedStatement stmtMes = c.prepareStatement("DELETE FROM \"" + schemaPrefix + "om\".\"offerings\" WHERE \"procedure\"=?");
-                     final PreparedStatement stmtObs = c.prepareStatement("DELETE FROM \"" + schemaPrefix + "om\".\"procedures\" WHERE \"id\"=?");
-                     final PreparedStatement stmtProcDesc = c.prepareStatement("DELETE FROM \"" + schemaPrefix + "om\".\"procedure_descriptions\" WHERE \"procedure\"=?")) {
+                    try (final PreparedStatement stmtObsP = c.prepareStatement("DELETE FROM \"" + schemaPrefix + "om\".\"offering_observed_properties\" "
+                            + "WHERE \"id_offering\" IN(SELECT \"identifier\" FROM \"" + schemaPrefix + "om\".\"offerings\" WHERE \"procedure\"=?)");
+                         final PreparedStatement stmtFoi = c.prepareStatement("DELETE FROM \"" + schemaPrefix + "om\".\"offering_foi\" "
+                                 + "WHERE \"id_offering\" IN(SELECT \"identifier\" FROM \"" + schemaPrefix + "om\".\"offerings\" WHERE \"procedure\"=?)");
+                         final PreparedStatement stmtMes = c.prepareStatement("DELETE FROM \"" + schemaPrefix + "om\".\"offerings\" WHERE \"procedure\"=?");
+                         final PreparedStatement stmtObs = c.prepareStatement("DELETE FROM \"" + schemaPrefix + "om\".\"procedures\" WHERE \"id\"=?");
+                         final PreparedStatement stmtProcDesc = c.prepareStatement("DELETE FROM \"" + schemaPrefix + "om\".\"procedure_descriptions\" WHERE \"procedure\"=?")) {
 
-                    stmtObsP.setString(1, procedureID);
-                    stmtObsP.executeUpdate();
+                        stmtObsP.setString(1, procedureID);
+                        stmtObsP.executeUpdate();
 
-                    stmtFoi.setString(1, procedureID);
-                    stmtFoi.executeUpdate();
+                        stmtFoi.setString(1, procedureID);
+                        stmtFoi.executeUpdate();
 
-                    stmtMes.setString(1, procedureID);
-                    stmtMes.executeUpdate();
+                        stmtMes.setString(1, procedureID);
+                        stmtMes.executeUpdate();
 
-                    stmtProcDesc.setString(1, procedureID);
-                    stmtProcDesc.executeUpdate();
+                        stmtProcDesc.setString(1, procedureID);
+                        stmtProcDesc.executeUpdate();
 
-                    stmtObs.setString(1, procedureID);
-                    stmtObs.executeUpdate();
-                }
+                        stmtObs.setString(1, procedureID);
+                        stmtObs.executeUpdate();
+                    }
 
-                // remove measure table
-                if (pid == -1) {
-                    LOGGER.log(Level.FINE, "Unable to find a procedure:{0}", procedureID);
-                    return;
-                }
+                    // remove measure table
+                    if (pid == -1) {
+                        LOGGER.log(Level.FINE, "Unable to find a procedure:{0}", procedureID);
+                        return;
+                    }
 
-                try (final Statement stmtDrop = c.createStatement()) {
-                    stmtDrop.executeUpdate("DROP TABLE \"mesures\".\"mesure" + pid + "\"");
-                }  catch (SQLException ex) {
-                    // it happen that the table does not exist
-                    LOGGER.log(Level.WARNING, "Unable to remove measure table.{0}", ex.getMessage());
-                }
+                    try (final Statement stmtDrop = c.createStatement()) {
+                        stmtDrop.executeUpdate("DROP TABLE \"mesures\".\"mesure" + pid + "\"");
+                    }  catch (SQLException ex) {
+                        // it happen that the table does not exist
+                        LOGGER.log(Level.WARNING, "Unable to remove measure table.{0}", ex.getMessage());
+                    }
 
-                //look for unused observed properties (execute the statement 2 times for remaining components)
-                try (final Statement stmtOP = c.createStatement()) {
-                    for (int i = 0; i < 2; i++) {
-                        try (final ResultSet rs = stmtOP.executeQuery(" SELECT \"id\" FROM \"" + schemaPrefix + "om\".\"observed_properties\""
-                                + " WHERE  \"id\" NOT IN (SELECT DISTINCT \"observed_property\" FROM \"" + schemaPrefix + "om\".\"observations\") "
-                                + " AND    \"id\" NOT IN (SELECT DISTINCT \"phenomenon\"        FROM \"" + schemaPrefix + "om\".\"offering_observed_properties\")"
-                                + " AND    \"id\" NOT IN (SELECT DISTINCT \"component\"         FROM \"" + schemaPrefix + "om\".\"components\")")) {
-                            while (rs.next()) {
-                                final String key = encodeQuote(rs.getString(1));
-                                stmtOP.addBatch("DELETE FROM \"" + schemaPrefix + "om\".\"components\" WHERE \"phenomenon\"='" + key + "';");
-                                stmtOP.addBatch("DELETE FROM \"" + schemaPrefix + "om\".\"observed_properties\" WHERE \"id\"='" + key + "';");
+                    //look for unused observed properties (execute the statement 2 times for remaining components)
+                    try (final Statement stmtOP = c.createStatement()) {
+                        for (int i = 0; i < 2; i++) {
+                            try (final ResultSet rs = stmtOP.executeQuery(" SELECT \"id\" FROM \"" + schemaPrefix + "om\".\"observed_properties\""
+                                    + " WHERE  \"id\" NOT IN (SELECT DISTINCT \"observed_property\" FROM \"" + schemaPrefix + "om\".\"observations\") "
+                                    + " AND    \"id\" NOT IN (SELECT DISTINCT \"phenomenon\"        FROM \"" + schemaPrefix + "om\".\"offering_observed_properties\")"
+                                    + " AND    \"id\" NOT IN (SELECT DISTINCT \"component\"         FROM \"" + schemaPrefix + "om\".\"components\")")) {
+                                while (rs.next()) {
+                                    final String key = encodeQuote(rs.getString(1));
+                                    stmtOP.addBatch("DELETE FROM \"" + schemaPrefix + "om\".\"components\" WHERE \"phenomenon\"='" + key + "';");
+                                    stmtOP.addBatch("DELETE FROM \"" + schemaPrefix + "om\".\"observed_properties\" WHERE \"id\"='" + key + "';");
+                                }
                             }
+                            stmtOP.executeBatch();
                         }
-                        stmtOP.executeBatch();
-                    }
 
-                    //look for unused foi
-                    try(final Statement stmtFOI = c.createStatement();
-                    final ResultSet rs2 = stmtFOI.executeQuery(" SELECT \"id\" FROM \"" + schemaPrefix + "om\".\"sampling_features\""
-                            + " WHERE  \"id\" NOT IN (SELECT DISTINCT \"foi\" FROM \"" + schemaPrefix + "om\".\"observations\") " +
-                            " AND    \"id\" NOT IN (SELECT DISTINCT \"foi\" FROM \"" + schemaPrefix + "om\".\"offering_foi\")")) {
+                        //look for unused foi
+                        try(final Statement stmtFOI = c.createStatement();
+                        final ResultSet rs2 = stmtFOI.executeQuery(" SELECT \"id\" FROM \"" + schemaPrefix + "om\".\"sampling_features\""
+                                + " WHERE  \"id\" NOT IN (SELECT DISTINCT \"foi\" FROM \"" + schemaPrefix + "om\".\"observations\") " +
+                                " AND    \"id\" NOT IN (SELECT DISTINCT \"foi\" FROM \"" + schemaPrefix + "om\".\"offering_foi\")")) {
 
-                        while (rs2.next()) {
-                            stmtFOI.addBatch("DELETE FROM \"" + schemaPrefix + "om\".\"sampling_features\" WHERE \"id\"='" + encodeQuote(rs2.getString(1)) + "';");
+                            while (rs2.next()) {
+                                stmtFOI.addBatch("DELETE FROM \"" + schemaPrefix + "om\".\"sampling_features\" WHERE \"id\"='" + encodeQuote(rs2.getString(1)) + "';");
+                            }
+                            stmtFOI.executeBatch();
                         }
-                        stmtFOI.executeBatch();
                     }
                 }
             }
         } catch (SQLException ex) {
             throw new DataStoreException("Error while removing procedure.", ex);
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -999,16 +1109,27 @@ public class OM2ObservationWriter extends OM2BaseReader implements ObservationWr
      * {@inheritDoc}
      */
     @Override
-    public synchronized void removeObservation(final String observationID) throws DataStoreException {
+    public void removeObservation(final String observationID) throws DataStoreException {
         try(final Connection c              = source.getConnection()) {
-            final int pid                   = getPIDFromObservation(observationID, c);
-            try(final PreparedStatement stmtMes = c.prepareStatement("DELETE FROM \"" + schemaPrefix + "mesures\".\"mesure" + pid + "\" WHERE id_observation IN (SELECT \"id\" FROM \"" + schemaPrefix + "om\".\"observations\" WHERE identifier=?)");
-            final PreparedStatement stmtObs = c.prepareStatement("DELETE FROM \"" + schemaPrefix + "om\".\"observations\" WHERE identifier=?")) {
-                stmtMes.setString(1, observationID);
-                stmtMes.executeUpdate();
+            final String procedureID        = getProcedureFromObservation(observationID, c);
+            if (procedureID == null) {
+                LOGGER.log(Level.FINE, "Unable to find an observation:{0}", observationID);
+                return;
+            }
+            final Lock lock = getProcedureLock(procedureID);
+            lock.lock();
+            try {
+                final int pid               = getPIDFromObservation(observationID, c);
+                try(final PreparedStatement stmtMes = c.prepareStatement("DELETE FROM \"" + schemaPrefix + "mesures\".\"mesure" + pid + "\" WHERE id_observation IN (SELECT \"id\" FROM \"" + schemaPrefix + "om\".\"observations\" WHERE identifier=?)");
+                final PreparedStatement stmtObs = c.prepareStatement("DELETE FROM \"" + schemaPrefix + "om\".\"observations\" WHERE identifier=?")) {
+                    stmtMes.setString(1, observationID);
+                    stmtMes.executeUpdate();
 
-                stmtObs.setString(1, observationID);
-                stmtObs.executeUpdate();
+                    stmtObs.setString(1, observationID);
+                    stmtObs.executeUpdate();
+                }
+            } finally {
+                lock.unlock();
             }
         } catch (SQLException ex) {
             throw new DataStoreException("Error while inserting observation.", ex);
@@ -1051,6 +1172,9 @@ public class OM2ObservationWriter extends OM2BaseReader implements ObservationWr
                 stmt.executeUpdate(sb.toString());
                 stmt.executeUpdate("ALTER TABLE \"" + schemaPrefix + "mesures\".\"" + tableName + "\" ADD CONSTRAINT " + tableName + "_pk PRIMARY KEY (\"id_observation\", \"id\")");
                 stmt.executeUpdate("ALTER TABLE \"" + schemaPrefix + "mesures\".\"" + tableName + "\" ADD CONSTRAINT " + tableName + "_obs_fk FOREIGN KEY (\"id_observation\") REFERENCES \"" + schemaPrefix + "om\".\"observations\"(\"id\")");
+                if (!fields.isEmpty() && "Time".equals(fields.get(0).fieldType)) {
+                    OM2DatabaseCreator.createMeasureTimeIndex(stmt, schemaPrefix, pid, fields.get(0).fieldName);
+                }
             }
 
             //fill procedure_descriptions table
@@ -1130,93 +1254,110 @@ public class OM2ObservationWriter extends OM2BaseReader implements ObservationWr
         return fields;
     }
     
+    /**
+     * Insert the measures of a data block with a prepared statement, sent by batches of
+     * {@link #MEASURE_BATCH_SIZE} rows. The transaction of the connection is left to the caller.
+     */
     private void fillMesureTable(final Connection c, final int oid, final int pid, final List<Field> fields, final String values, final TextBlock encoding ) throws SQLException {
         final String tableName = "mesure" + pid;
+        final StringBuilder sql = new StringBuilder("INSERT INTO \"" + schemaPrefix + "mesures\".\"" + tableName + "\" (\"id_observation\", \"id\", ");
+        for (Field field : fields) {
+            sql.append('"').append(field.fieldName).append("\",");
+        }
+        sql.setCharAt(sql.length() - 1, ')');
+        sql.append(" VALUES (?,?");
+        for (int i = 0; i < fields.size(); i++) {
+            sql.append(",?");
+        }
+        sql.append(')');
+
+        final String tokenSeparator     = encoding.getTokenSeparator();
         final StringTokenizer tokenizer = new StringTokenizer(values, encoding.getBlockSeparator());
-        int n = 1;
-        int sqlCpt = 0;
-        try(final Statement stmtSQL = c.createStatement()) {
-            StringBuilder sql = new StringBuilder("INSERT INTO \"" + schemaPrefix + "mesures\".\"" + tableName + "\" (\"id_observation\", \"id\", ");
-            for (Field field : fields) {
-                sql.append('"').append(field.fieldName).append("\",");
-            }
-            sql.setCharAt(sql.length() - 1, ' ');
-            sql.append(") VALUES ");
+        final int nbField = fields.size();
+        try(final PreparedStatement stmt = c.prepareStatement(sql.toString())) {
+            int n = 1;
+            int batchCpt = 0;
             while (tokenizer.hasMoreTokens()) {
-                String block = tokenizer.nextToken();
-                block = block.trim();
+                final String block = tokenizer.nextToken().trim();
                 if (block.isEmpty()) {
                     continue;
                 }
-
-                sql.append('(').append(oid).append(',').append(n).append(',');
-                for (int i = 0; i < fields.size(); i++) {
-                    final Field field = fields.get(i);
-                    String value;
-                    if (i == fields.size() - 1) {
-                        value = block;
+                stmt.setInt(1, oid);
+                stmt.setInt(2, n);
+                int start = 0;
+                for (int i = 0; i < nbField; i++) {
+                    final String value;
+                    if (i == nbField - 1) {
+                        value = block.substring(start);
                     } else {
-                        int separator = block.indexOf(encoding.getTokenSeparator());
+                        final int separator = block.indexOf(tokenSeparator, start);
                         if (separator != -1) {
-                            value = block.substring(0, separator);
-                            block = block.substring(separator + 1);
+                            value = block.substring(start, separator);
+                            start = separator + tokenSeparator.length();
                         } else {
-                            throw new SQLException("Bad encoding for datablock, unable to find the token separator:" + encoding.getTokenSeparator() + "in the block.");
+                            throw new SQLException("Bad encoding for datablock, unable to find the token separator:" + tokenSeparator + "in the block.");
                         }
                     }
+                    setMeasureValue(stmt, i + 3, fields.get(i), value);
+                }
+                stmt.addBatch();
+                n++;
+                batchCpt++;
+                if (batchCpt == MEASURE_BATCH_SIZE) {
+                    stmt.executeBatch();
+                    batchCpt = 0;
+                }
+            }
+            if (batchCpt > 0) {
+                stmt.executeBatch();
+            }
+        }
+    }
 
-                    //format time
-                    if (field.fieldType.equals("Time") && value != null && !value.isEmpty()) {
-                        try {
-                            value = value.trim();
-                            final long millis = new ISODateParser().parseToMillis(value);
-                            value = "'" + new Timestamp(millis).toString() + "'";
-                        } catch (IllegalArgumentException ex) {
-                            throw new SQLException("Bad format of timestamp for:" + value);
-                        }
-                    } else if (field.fieldType.equals("Text")) {
-                        value = "'" + value + "'";
+    /**
+     * Set a measure value in the insert statement, according to the type of its field.
+     */
+    private void setMeasureValue(final PreparedStatement stmt, final int index, final Field field, String value) throws SQLException {
+        if (value != null && !field.fieldType.equals("Text")) {
+            value = value.trim();
+        }
+        switch (field.fieldType) {
+            case "Time":
+                if (value == null || value.isEmpty()) {
+                    stmt.setNull(index, java.sql.Types.TIMESTAMP);
+                } else {
+                    try {
+                        stmt.setTimestamp(index, new Timestamp(new ISODateParser().parseToMillis(value)));
+                    } catch (IllegalArgumentException ex) {
+                        throw new SQLException("Bad format of timestamp for:" + value);
                     }
-
-                    if (value != null && !value.isEmpty()) {
-                        sql.append(value).append(",");
-                    } else {
-                        sql.append("NULL,");
+                }
+                break;
+            case "Quantity":
+                if (value == null || value.isEmpty()) {
+                    stmt.setNull(index, java.sql.Types.DOUBLE);
+                } else {
+                    try {
+                        stmt.setDouble(index, Double.parseDouble(value));
+                    } catch (NumberFormatException ex) {
+                        throw new SQLException("Bad format of quantity for:" + value);
                     }
                 }
-                sql.setCharAt(sql.length() - 1, ' ');
-                sql.append("),\n");
-                n++;
-                sqlCpt++;
-                if (sqlCpt > 99) {
-                    sql.setCharAt(sql.length() - 2, ' ');
+                break;
+            case "Boolean":
+                if (value == null || value.isEmpty()) {
+                    stmt.setNull(index, isPostgres ? java.sql.Types.BOOLEAN : java.sql.Types.INTEGER);
+                } else {
+                    final boolean b = Boolean.parseBoolean(value) || "1".equals(value);
                     if (isPostgres) {
-                        sql.setCharAt(sql.length() - 1, ';');
+                        stmt.setBoolean(index, b);
                     } else {
-                        sql.setCharAt(sql.length() - 1, ' ');
-                    }
-
-                    stmtSQL.addBatch(sql.toString());
-                    sqlCpt = 0;
-                    sql = new StringBuilder("INSERT INTO \"" + schemaPrefix + "mesures\".\"" + tableName + "\" (\"id_observation\", \"id\", ");
-                    for (Field field : fields) {
-                        sql.append('"').append(field.fieldName).append("\",");
+                        stmt.setInt(index, b ? 1 : 0);
                     }
-                    sql.setCharAt(sql.length() - 1, ' ');
-                    sql.append(") VALUES ");
                 }
-            }
-            if (sqlCpt > 0) {
-                sql.setCharAt(sql.length() - 2, ' ');
-                if (isPostgres) {
-                    sql.setCharAt(sql.length() - 1, ';');
-                } else {
-                    sql.setCharAt(sql.length() - 1, ' ');
-                }
-                stmtSQL.addBatch(sql.toString());
-            }
-            stmtSQL.executeBatch();
-
+                break;
+            default:
+                stmt.setString(index, value);
         }
     }
 
@@ -0,0 +1,274 @@
+/*
+ *    Constellation - An open source and standard compliant SDI
+ *    http://www.constellation-sdi.org
+ *
+ * Copyright 2014 Geomatys.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.constellation.sos.io.om2;
+
+import org.apache.sis.util.logging.Logging;
+import org.apache.sis.xml.MarshallerPool;
+import org.constellation.generic.database.Automatic;
+import org.constellation.generic.database.BDD;
+import org.constellation.om2.OM2DatabaseCreator;
+import org.constellation.sos.factory.OMFactory;
+import org.constellation.util.Util;
+import org.geotoolkit.gml.xml.v321.TimePeriodType;
+import org.geotoolkit.gml.xml.v321.TimePositionType;
+import org.geotoolkit.internal.sql.DefaultDataSource;
+import org.geotoolkit.observation.xml.v200.OMObservationType;
+import org.geotoolkit.sos.xml.SOSMarshallerPool;
+import org.geotoolkit.swe.xml.v200.DataArrayPropertyType;
+import org.geotoolkit.swe.xml.v200.DataArrayType;
+import org.geotoolkit.util.FileUtilities;
+import org.geotoolkit.util.sql.DerbySqlScriptRunner;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.Unmarshaller;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Measure the insertion rate of the O&M2 observation writer and the latency of the
+ * GetResult requests on an embedded Derby database. The observations written are
+ * equivalent to the ones built by an InsertObservation or an InsertResult request.
+ *
+ * The same measures are done on a PostgreSQL database when the {@code om2.benchmark.url}
+ * system property is set, with the {@code om2.benchmark.user} and {@code om2.benchmark.password}
+ * properties. The structure is created in new schemas of this database, which must have
+ * PostGIS installed, and removed at the end.
+ *
+ * @author Guilhem Legal (Geomatys)
+ */
+public class OM2BenchmarkTest {
+
+    private static final Logger LOGGER = Logging.getLogger("org.constellation.sos.io.om2");
+
+    private static final int NB_OBSERVATION = 10;
+
+    private static final int NB_MEASURE = 2000;
+
+    private static final int NB_QUERY = 10;
+
+    private static final String URL = "jdbc:derby:memory:OM2BenchTest;create=true";
+
+    private static BDD bdd;
+
+    private static DataSource ds;
+
+    private static boolean isPostgres;
+
+    private static String schemaPrefix;
+
+    private static OM2ObservationWriter writer;
+
+    private static Map<String, Object> properties;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        final String pgUrl = System.getProperty("om2.benchmark.url");
+        isPostgres = pgUrl != null;
+        if (isPostgres) {
+            bdd = new BDD(BDD.POSTGRES_DRIVER_CLASS, pgUrl, System.getProperty("om2.benchmark.user"), System.getProperty("om2.benchmark.password"));
+            ds = bdd.getDataSource();
+            schemaPrefix = "bench" + System.currentTimeMillis() + '_';
+            OM2DatabaseCreator.createObservationDatabase(ds, true, null, schemaPrefix);
+        } else {
+            bdd = new BDD("org.apache.derby.jdbc.EmbeddedDriver", URL, "", "");
+            ds = new DefaultDataSource(URL);
+            schemaPrefix = "";
+            try (final Connection con = ds.getConnection()) {
+                final DerbySqlScriptRunner sr = new DerbySqlScriptRunner(con);
+                sr.setEncoding("UTF-8");
+                String sql = FileUtilities.getStringFromStream(Util.getResourceAsStream("org/constellation/om2/structure_observations.sql"));
+                sql = sql.replace("$SCHEMA", "");
+                sr.run(sql);
+                sr.run(Util.getResourceAsStream("org/constellation/sql/sos-data-om2.sql"));
+            }
+        }
+        LOGGER.log(Level.INFO, "O&M2 benchmark on {0}", bdd.getConnectURL());
+        properties = new HashMap<>();
+        properties.put(OMFactory.OBSERVATION_ID_BASE, "urn:ogc:object:observation:GEOM:");
+        properties.put(OMFactory.PHENOMENON_ID_BASE, "urn:ogc:def:phenomenon:GEOM:");
+        properties.put(OMFactory.SENSOR_ID_BASE, "urn:ogc:object:sensor:GEOM:");
+        writer = new OM2ObservationWriter(ds, isPostgres, schemaPrefix, properties);
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+        if (ds instanceof DefaultDataSource) {
+            ((DefaultDataSource) ds).shutdown();
+        } else if (ds != null) {
+            try (final Connection c = ds.getConnection();
+                 final Statement stmt = c.createStatement()) {
+                stmt.executeUpdate("DROP SCHEMA \"" + schemaPrefix + "mesures\" CASCADE");
+                stmt.executeUpdate("DROP SCHEMA \"" + schemaPrefix + "om\" CASCADE");
+            }
+        }
+    }
+
+    /**
+     * Write several large observations for the same procedure, one at a time.
+     */
+    @Test
+    public void sequentialInsertTest() throws Exception {
+        final String procedure = "urn:ogc:object:sensor:GEOM:bench-1";
+        final long start = System.currentTimeMillis();
+        for (int i = 0; i < NB_OBSERVATION; i++) {
+            writer.writeObservation(buildObservation(procedure, i));
+        }
+        final long time = System.currentTimeMillis() - start;
+        final int nbRow = NB_OBSERVATION * NB_MEASURE;
+        LOGGER.log(Level.INFO, "sequential insertion of {0} measures in {1} ms: {2} rows/s", new Object[]{nbRow, time, rate(nbRow, time)});
+
+        assertEquals(nbRow, countMeasures(procedure));
+    }
+
+    /**
+     * Write the observations of several procedures concurrently.
+     */
+    @Test
+    public void concurrentInsertTest() throws Exception {
+        final int nbThread = 4;
+        final ExecutorService executor = Executors.newFixedThreadPool(nbThread);
+        final List<Future<?>> futures = new ArrayList<>();
+        final long start = System.currentTimeMillis();
+        for (int t = 0; t < nbThread; t++) {
+            final String procedure = "urn:ogc:object:sensor:GEOM:bench-concurrent-" + t;
+            futures.add(executor.submit(new Callable<Object>() {
+                @Override
+                public Object call() throws Exception {
+                    for (int i = 0; i < NB_OBSERVATION; i++) {
+                        writer.writeObservation(buildObservation(procedure, i));
+                    }
+                    return null;
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        final long time = System.currentTimeMillis() - start;
+        final int nbRow = nbThread * NB_OBSERVATION * NB_MEASURE;
+        LOGGER.log(Level.INFO, "concurrent insertion of {0} measures in {1} ms: {2} rows/s", new Object[]{nbRow, time, rate(nbRow, time)});
+
+        for (int t = 0; t < nbThread; t++) {
+            assertEquals(NB_OBSERVATION * NB_MEASURE, countMeasures("urn:ogc:object:sensor:GEOM:bench-concurrent-" + t));
+        }
+    }
+
+    /**
+     * Measure the latency of a GetResult request on a period of one day, as the measure table grows.
+     */
+    @Test
+    public void getResultLatencyTest() throws Exception {
+        final String procedure = "urn:ogc:object:sensor:GEOM:bench-latency";
+        final SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.S");
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        final TimePeriodType period = new TimePeriodType(new TimePositionType(format.format(1230768000000L)),
+                                                         new TimePositionType(format.format(1230768000000L + 86400000L)));
+        final Automatic configuration = new Automatic();
+        configuration.setBdd(bdd);
+
+        int nbObservation = 0;
+        for (int target : new int[]{1, 10, 50}) {
+            for (; nbObservation < target; nbObservation++) {
+                writer.writeObservation(buildObservation(procedure, nbObservation));
+            }
+            String result = null;
+            final long start = System.nanoTime();
+            for (int i = 0; i < NB_QUERY; i++) {
+                final OM2ObservationFilterReader filter = new OM2ObservationFilterReader(configuration, schemaPrefix, properties);
+                filter.initFilterGetResult(procedure, null);
+                filter.setTimeDuring(period);
+                result = filter.getResults();
+            }
+            final long time = (System.nanoTime() - start) / (NB_QUERY * 1000000L);
+            LOGGER.log(Level.INFO, "GetResult on {0} measures: {1} ms", new Object[]{nbObservation * NB_MEASURE, time});
+
+            assertNotNull(result);
+            assertFalse(result.isEmpty());
+        }
+    }
+
+    private static OMObservationType buildObservation(final String procedure, final int index) throws Exception {
+        final MarshallerPool pool = SOSMarshallerPool.getInstance();
+        final Unmarshaller unmarshaller = pool.acquireUnmarshaller();
+        final JAXBElement obj = (JAXBElement) unmarshaller.unmarshal(Util.getResourceAsStream("org/constellation/sos/v200/observationTemplate-3.xml"));
+        pool.recycle(unmarshaller);
+
+        final OMObservationType observation = (OMObservationType) obj.getValue();
+        observation.setName(null);
+        observation.setProcedure(procedure);
+
+        final SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.S");
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        final long base = 1230768000000L + index * NB_MEASURE * 60000L;
+        final StringBuilder values = new StringBuilder();
+        for (int i = 0; i < NB_MEASURE; i++) {
+            values.append(format.format(base + i * 60000L)).append(',').append(i % 100 / 10.0).append("@@");
+        }
+        observation.setPhenomenonTime(new TimePeriodType(new TimePositionType(format.format(base)),
+                                                         new TimePositionType(format.format(base + (NB_MEASURE - 1) * 60000L))));
+        final DataArrayType array = ((DataArrayPropertyType) observation.getResult()).getDataArray();
+        array.setElementCount(NB_MEASURE);
+        array.setValues(values.toString());
+        return observation;
+    }
+
+    private static int countMeasures(final String procedure) throws Exception {
+        try (final Connection c = ds.getConnection();
+             final PreparedStatement stmt = c.prepareStatement("SELECT \"pid\" FROM \"" + schemaPrefix + "om\".\"procedures\" WHERE \"id\"=?")) {
+            stmt.setString(1, procedure);
+            final int pid;
+            try (final ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                pid = rs.getInt(1);
+            }
+            try (final PreparedStatement count = c.prepareStatement("SELECT COUNT(*) FROM \"" + schemaPrefix + "mesures\".\"mesure" + pid + "\"");
+                 final ResultSet rs = count.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    private static long rate(final int nbRow, final long time) {
+        return nbRow * 1000L / Math.max(time, 1);
+    }
+}
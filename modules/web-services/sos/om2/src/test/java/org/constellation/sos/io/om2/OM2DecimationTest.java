@@ -0,0 +1,183 @@
+/*
+ *    Constellation - An open source and standard compliant SDI
+ *    http://www.constellation-sdi.org
+ *
+ * Copyright 2014 Geomatys.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.constellation.sos.io.om2;
+
+import org.apache.sis.xml.MarshallerPool;
+import org.constellation.generic.database.Automatic;
+import org.constellation.generic.database.BDD;
+import org.constellation.sos.factory.OMFactory;
+import org.constellation.util.Util;
+import org.geotoolkit.gml.xml.v321.TimePeriodType;
+import org.geotoolkit.gml.xml.v321.TimePositionType;
+import org.geotoolkit.internal.sql.DefaultDataSource;
+import org.geotoolkit.observation.xml.v200.OMObservationType;
+import org.geotoolkit.sos.xml.SOSMarshallerPool;
+import org.geotoolkit.swe.xml.v200.DataArrayPropertyType;
+import org.geotoolkit.swe.xml.v200.DataArrayType;
+import org.geotoolkit.util.FileUtilities;
+import org.geotoolkit.util.sql.DerbySqlScriptRunner;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.Unmarshaller;
+import java.sql.Connection;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test the decimation of the GetResult values, done in memory for the small series
+ * and by the database for the large ones.
+ *
+ * @author Guilhem Legal (Geomatys)
+ */
+public class OM2DecimationTest {
+
+    private static final String URL = "jdbc:derby:memory:OM2DecimationTest;create=true";
+
+    private static final long BASE = 1230768000000L;
+
+    private static final long MINUTE = 60000L;
+
+    private static DefaultDataSource ds;
+
+    private static Map<String, Object> properties;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        ds = new DefaultDataSource(URL);
+        try (final Connection con = ds.getConnection()) {
+            final DerbySqlScriptRunner sr = new DerbySqlScriptRunner(con);
+            sr.setEncoding("UTF-8");
+            String sql = FileUtilities.getStringFromStream(Util.getResourceAsStream("org/constellation/om2/structure_observations.sql"));
+            sql = sql.replace("$SCHEMA", "");
+            sr.run(sql);
+            sr.run(Util.getResourceAsStream("org/constellation/sql/sos-data-om2.sql"));
+        }
+        properties = new HashMap<>();
+        properties.put(OMFactory.OBSERVATION_ID_BASE, "urn:ogc:object:observation:GEOM:");
+        properties.put(OMFactory.PHENOMENON_ID_BASE, "urn:ogc:def:phenomenon:GEOM:");
+        properties.put(OMFactory.SENSOR_ID_BASE, "urn:ogc:object:sensor:GEOM:");
+        final OM2ObservationWriter writer = new OM2ObservationWriter(ds, false, "", properties);
+        writer.writeObservation(buildObservation("urn:ogc:object:sensor:GEOM:decimation-small", 500));
+        writer.writeObservation(buildObservation("urn:ogc:object:sensor:GEOM:decimation-large", 12000));
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+        if (ds != null) {
+            ds.shutdown();
+        }
+    }
+
+    /**
+     * Below the threshold, the measures are reduced in memory in {@code width} intervals.
+     */
+    @Test
+    public void decimateInMemoryTest() throws Exception {
+        final String[] blocks = decimate("urn:ogc:object:sensor:GEOM:decimation-small", 10, OM2ObservationFilterReader.SQL_DECIMATION_MIN_ROWS);
+        final SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss");
+        // 499 minutes in 10 intervals, rounded up to the second
+        final long step = 2995000L;
+        assertEquals(20, blocks.length);
+        assertEquals(format.format(new Date(BASE)) + ",0.0", blocks[0]);
+        assertEquals(format.format(new Date(BASE + step)) + ",4.9", blocks[1]);
+        assertEquals(format.format(new Date(BASE + step)) + ",5.0", blocks[2]);
+        assertEquals(format.format(new Date(BASE + 2 * step)) + ",9.9", blocks[3]);
+        assertEquals(format.format(new Date(BASE + 10 * step)) + ",9.9", blocks[19]);
+    }
+
+    /**
+     * Above the threshold, the database groups the measures in the same {@code width} intervals.
+     */
+    @Test
+    public void decimateInDatabaseTest() throws Exception {
+        final String[] blocks = decimate("urn:ogc:object:sensor:GEOM:decimation-large", 10, OM2ObservationFilterReader.SQL_DECIMATION_MIN_ROWS);
+        final SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss");
+        // 11999 minutes in 10 intervals, rounded up to the second
+        final long step = 71995000L;
+        assertEquals(20, blocks.length);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(format.format(new Date(BASE + i * step)) + ",0.0", blocks[2 * i]);
+            assertEquals(format.format(new Date(BASE + (i + 1) * step)) + ",9.9", blocks[2 * i + 1]);
+        }
+    }
+
+    /**
+     * The decimation done in memory and by the database return the same blocks, on both sides of the threshold.
+     */
+    @Test
+    public void sameIntervalsTest() throws Exception {
+        for (String procedure : new String[]{"urn:ogc:object:sensor:GEOM:decimation-small", "urn:ogc:object:sensor:GEOM:decimation-large"}) {
+            for (int width : new int[]{1, 7, 10, 300}) {
+                final String[] inMemory   = decimate(procedure, width, Long.MAX_VALUE);
+                final String[] inDatabase = decimate(procedure, width, 0);
+                assertArrayEquals(procedure + " width " + width, inMemory, inDatabase);
+                assertTrue(inMemory.length <= 2 * width);
+            }
+        }
+    }
+
+    /**
+     * Return the decimated blocks of the procedure, without the CSV header.
+     */
+    private static String[] decimate(final String procedure, final int width, final long sqlDecimationMinRows) throws Exception {
+        final Automatic configuration = new Automatic();
+        configuration.setBdd(new BDD("org.apache.derby.jdbc.EmbeddedDriver", URL, "", ""));
+        final OM2ObservationFilterReader filter = new OM2ObservationFilterReader(configuration, "", properties);
+        filter.initFilterGetResult(procedure, null);
+        filter.setResponseFormat("text/csv");
+        filter.setSqlDecimationMinRows(sqlDecimationMinRows);
+        final String result = filter.getDecimatedResults(width);
+        return result.substring(result.indexOf('\n') + 1).split("\n");
+    }
+
+    /**
+     * Build an observation of one measure by minute, cycling from 0.0 to 9.9.
+     */
+    private static OMObservationType buildObservation(final String procedure, final int nbMeasure) throws Exception {
+        final MarshallerPool pool = SOSMarshallerPool.getInstance();
+        final Unmarshaller unmarshaller = pool.acquireUnmarshaller();
+        final JAXBElement obj = (JAXBElement) unmarshaller.unmarshal(Util.getResourceAsStream("org/constellation/sos/v200/observationTemplate-3.xml"));
+        pool.recycle(unmarshaller);
+
+        final OMObservationType observation = (OMObservationType) obj.getValue();
+        observation.setName(null);
+        observation.setProcedure(procedure);
+
+        final SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.S");
+        final StringBuilder values = new StringBuilder();
+        for (int i = 0; i < nbMeasure; i++) {
+            values.append(format.format(new Date(BASE + i * MINUTE))).append(',').append(i % 100 / 10.0).append("@@");
+        }
+        observation.setPhenomenonTime(new TimePeriodType(new TimePositionType(format.format(new Date(BASE))),
+                                                         new TimePositionType(format.format(new Date(BASE + (nbMeasure - 1) * MINUTE)))));
+        final DataArrayType array = ((DataArrayPropertyType) observation.getResult()).getDataArray();
+        array.setElementCount(nbMeasure);
+        array.setValues(values.toString());
+        return observation;
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ *    Constellation - An open source and standard compliant SDI
+ *    http://www.constellation-sdi.org
+ *
+ * Copyright 2014 Geomatys.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.constellation.sos.io.om2;
+
+import org.apache.sis.xml.MarshallerPool;
+import org.constellation.sos.factory.OMFactory;
+import org.constellation.util.Util;
+import org.geotoolkit.gml.xml.v321.TimePeriodType;
+import org.geotoolkit.gml.xml.v321.TimePositionType;
+import org.geotoolkit.internal.sql.DefaultDataSource;
+import org.geotoolkit.observation.xml.v200.OMObservationType;
+import org.geotoolkit.sos.xml.SOSMarshallerPool;
+import org.geotoolkit.swe.xml.v200.DataArrayPropertyType;
+import org.geotoolkit.swe.xml.v200.DataArrayType;
+import org.geotoolkit.util.FileUtilities;
+import org.geotoolkit.util.sql.DerbySqlScriptRunner;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.Unmarshaller;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test the identifiers of the observations written concurrently by several writers on the same database,
+ * as done by several services or nodes.
+ *
+ * @author Guilhem Legal (Geomatys)
+ */
+public class OM2ObservationWriterTest {
+
+    private static final String URL = "jdbc:derby:memory:OM2ObservationWriterTest;create=true";
+
+    private static final String PROCEDURE = "urn:ogc:object:sensor:GEOM:writer-concurrent";
+
+    private static DefaultDataSource ds;
+
+    private static Map<String, Object> properties;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        ds = new DefaultDataSource(URL);
+        try (final Connection con = ds.getConnection()) {
+            final DerbySqlScriptRunner sr = new DerbySqlScriptRunner(con);
+            sr.setEncoding("UTF-8");
+            String sql = FileUtilities.getStringFromStream(Util.getResourceAsStream("org/constellation/om2/structure_observations.sql"));
+            sql = sql.replace("$SCHEMA", "");
+            sr.run(sql);
+            sr.run(Util.getResourceAsStream("org/constellation/sql/sos-data-om2.sql"));
+        }
+        properties = new HashMap<>();
+        properties.put(OMFactory.OBSERVATION_ID_BASE, "urn:ogc:object:observation:GEOM:");
+        properties.put(OMFactory.PHENOMENON_ID_BASE, "urn:ogc:def:phenomenon:GEOM:");
+        properties.put(OMFactory.SENSOR_ID_BASE, "urn:ogc:object:sensor:GEOM:");
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+        if (ds != null) {
+            ds.shutdown();
+        }
+    }
+
+    /**
+     * Two writers reserving their identifiers separately write all their observations, with distinct identifiers.
+     */
+    @Test
+    public void concurrentWritersTest() throws Exception {
+        final int nbWriter = 2;
+        final int nbThread = 3;
+        final int nbObservation = 20;
+        final ExecutorService executor = Executors.newFixedThreadPool(nbWriter * nbThread);
+        final List<Future<List<String>>> futures = new ArrayList<>();
+        for (int w = 0; w < nbWriter; w++) {
+            // one procedure by writer, only the observation table is shared
+            final OM2ObservationWriter writer = new OM2ObservationWriter(ds, false, "", properties);
+            final String procedure = PROCEDURE + '-' + w;
+            for (int t = 0; t < nbThread; t++) {
+                futures.add(executor.submit(new Callable<List<String>>() {
+                    @Override
+                    public List<String> call() throws Exception {
+                        final List<String> names = new ArrayList<>();
+                        for (int i = 0; i < nbObservation; i++) {
+                            names.add(writer.writeObservation(buildObservation(procedure)));
+                        }
+                        return names;
+                    }
+                }));
+            }
+        }
+        final Set<String> names = new HashSet<>();
+        for (Future<List<String>> future : futures) {
+            names.addAll(future.get());
+        }
+        executor.shutdown();
+
+        final int expected = nbWriter * nbThread * nbObservation;
+        assertEquals(expected, names.size());
+        try (final Connection c = ds.getConnection();
+             final PreparedStatement stmt = c.prepareStatement("SELECT COUNT(DISTINCT \"id\"), COUNT(DISTINCT \"identifier\") "
+                                                             + "FROM \"om\".\"observations\" WHERE \"procedure\" LIKE ?")) {
+            stmt.setString(1, PROCEDURE + "-%");
+            try (final ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                assertEquals(expected, rs.getInt(1));
+                assertEquals(expected, rs.getInt(2));
+            }
+        }
+    }
+
+    /**
+     * Build an unnamed observation of a few measures.
+     */
+    private static OMObservationType buildObservation(final String procedure) throws Exception {
+        final MarshallerPool pool = SOSMarshallerPool.getInstance();
+        final Unmarshaller unmarshaller = pool.acquireUnmarshaller();
+        final JAXBElement obj = (JAXBElement) unmarshaller.unmarshal(Util.getResourceAsStream("org/constellation/sos/v200/observationTemplate-3.xml"));
+        pool.recycle(unmarshaller);
+
+        final OMObservationType observation = (OMObservationType) obj.getValue();
+        observation.setName(null);
+        observation.setProcedure(procedure);
+
+        final long base = 1230768000000L;
+        final SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.S");
+        final StringBuilder values = new StringBuilder();
+        for (int i = 0; i < 10; i++) {
+            values.append(format.format(new Date(base + i * 60000L))).append(',').append(i / 10.0).append("@@");
+        }
+        observation.setPhenomenonTime(new TimePeriodType(new TimePositionType(format.format(new Date(base))),
+                                                         new TimePositionType(format.format(new Date(base + 9 * 60000L)))));
+        final DataArrayType array = ((DataArrayPropertyType) observation.getResult()).getDataArray();
+        array.setElementCount(10);
+        array.setValues(values.toString());
+        return observation;
+    }
+}
@@ -201,14 +201,39 @@ import org.opengis.util.GenericName;
  */
 public final class DefaultWCSWorker extends LayerWorker implements WCSWorker {
 
+    /**
+     * The default width and height in pixels of the tiles read in parallel for the large GeoTIFF responses.
+     */
+    private static final int DEFAULT_TILE_SIZE = 512;
+
+    /**
+     * Read the GeoTIFF coverages by tiles.
+     */
+    private final TiledCoverageReader tiledReader;
 
     public DefaultWCSWorker(final String id) {
         super(id, ServiceDef.Specification.WCS);
+        tiledReader = new TiledCoverageReader((int) getLongProperty("tileSize", DEFAULT_TILE_SIZE), getLongProperty("maxResponseSize", 0));
         if (isStarted) {
             LOGGER.log(Level.INFO, "WCS worker {0} running", id);
         }
     }
 
+    /**
+     * Read a numeric property of the service, the tile size in pixels or the maximum response size in bytes.
+     */
+    private long getLongProperty(final String key, final long defaultValue) {
+        final String value = getProperty(key);
+        if (value != null) {
+            try {
+                return Long.parseLong(value.trim());
+            } catch (NumberFormatException ex) {
+                LOGGER.log(Level.WARNING, "Unable to parse the property {0}:{1}", new Object[]{key, value});
+            }
+        }
+        return defaultValue;
+    }
+
     /**
      * {@inheritDoc }
      */
@@ -928,9 +953,10 @@ public final class DefaultWCSWorker extends LayerWorker implements WCSWorker {
 
         } else if( format.equalsIgnoreCase(GEOTIFF) ){
             try {
-                final SpatialMetadata metadata = layerRef.getSpatialMetadata();
-                final GridCoverage2D coverage  = layerRef.getCoverage(refEnvel, size, elevation, date);
-                return new SimpleEntry(coverage, metadata);
+                final GeotiffResponse response = new GeotiffResponse();
+                response.metadata = layerRef.getSpatialMetadata();
+                response.coverage = tiledReader.read(layerRef, refEnvel, size, elevation, date);
+                return response;
             } catch (IOException | DataStoreException ex) {
                 throw new CstlServiceException(ex, NO_APPLICABLE_CODE);
             }
@@ -1108,7 +1134,7 @@ public final class DefaultWCSWorker extends LayerWorker implements WCSWorker {
         } else if (format.equalsIgnoreCase(MimeType.IMAGE_TIFF) ){
             try {
                 final GeotiffResponse response = new GeotiffResponse();
-                response.coverage = layerRef.getCoverage(refEnvel, size, null, date);
+                response.coverage = tiledReader.read(layerRef, refEnvel, size, null, date);
                 response.metadata = metadata;
                 if (request.getExtension() instanceof ExtensionType) {
                     final ExtensionType ext = (ExtensionType) request.getExtension();
@@ -1117,6 +1143,7 @@ public final class DefaultWCSWorker extends LayerWorker implements WCSWorker {
                         if (geoExt.getCompression() != null) {
                             if (geoExt.getCompression() == CompressionType.LZW ||
                                 geoExt.getCompression() == CompressionType.PACK_BITS ||
+                                geoExt.getCompression() == CompressionType.DEFLATE ||
                                 geoExt.getCompression() == CompressionType.NONE) {
                                 response.compression = geoExt.getCompression().value();
                             } else {
@@ -0,0 +1,615 @@
+/*
+ *    Constellation - An open source and standard compliant SDI
+ *    http://www.constellation-sdi.org
+ *
+ * Copyright 2014 Geomatys.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.constellation.coverage.ws;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.sis.storage.DataStoreException;
+import org.constellation.coverage.ws.rs.GeotiffStreamWriter;
+import org.constellation.provider.CoverageData;
+import org.constellation.ws.CstlServiceException;
+import org.geotoolkit.coverage.GridSampleDimension;
+import org.geotoolkit.coverage.grid.GridCoverage2D;
+import org.geotoolkit.coverage.grid.GridCoverageFactory;
+import org.geotoolkit.display.shape.JTSEnvelope2D;
+import org.geotoolkit.referencing.CRS;
+import org.opengis.coverage.SampleDimensionType;
+import org.opengis.geometry.Envelope;
+import org.opengis.metadata.spatial.PixelOrientation;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.cs.AxisDirection;
+import org.opengis.referencing.operation.MathTransform;
+
+import java.awt.Dimension;
+import java.awt.Image;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.NoninvertibleTransformException;
+import java.awt.image.ColorModel;
+import java.awt.image.ImagingOpException;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.constellation.ws.ExceptionCode.INVALID_PARAMETER_VALUE;
+
+/**
+ * Read the large coverages of the GetCoverage requests by tiles.
+ *
+ * The requested grid is split in square tiles, each one read by its own call to
+ * {@link CoverageData#getCoverage}. The returned coverage is backed by an image whose tiles are only read
+ * when they are requested by the encoder, in parallel on a shared bounded pool, and only the tiles of the
+ * rows the encoder is working on are kept in memory. Combined with a streaming encoder, the whole raster
+ * is never in memory.
+ *
+ * The layers may return a coverage at their own resolution rather than at the requested size, so each tile
+ * is resampled on the requested grid, the pixels outside of the layer holding the no-data values. If the requested
+ * CRS axes are not (east, north), or if the first tile is not in the requested CRS or not on an affine grid,
+ * the coverage is read in one call.
+ *
+ * @author Guilhem Legal (Geomatys)
+ */
+final class TiledCoverageReader {
+
+    /**
+     * The pool reading the tiles, shared by all the WCS services.
+     */
+    private static final ExecutorService POOL = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+            new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+                @Override
+                public Thread newThread(final Runnable r) {
+                    final Thread thread = new Thread(r, "wcs-tile-reader-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    /**
+     * The tolerance, in pixels, to consider that a tile read is on the requested grid.
+     */
+    private static final double EPS = 1E-6;
+
+    /**
+     * The width and height of the tiles in pixels, 0 to read the coverages in one call.
+     */
+    private final int tileSize;
+
+    /**
+     * The maximum size of the responses in bytes, 0 for no limit.
+     */
+    private final long maxResponseSize;
+
+    /**
+     * @param tileSize The width and height of the tiles in pixels, 0 to read the coverages in one call.
+     * @param maxResponseSize The maximum size of the responses in bytes, 0 for no limit.
+     */
+    TiledCoverageReader(final int tileSize, final long maxResponseSize) {
+        this.tileSize        = tileSize;
+        this.maxResponseSize = maxResponseSize;
+    }
+
+    /**
+     * Read a coverage, by tiles if the requested grid is larger than a tile.
+     *
+     * @param layer The coverage layer.
+     * @param envelope The requested envelope.
+     * @param size The size of the requested grid.
+     * @param elevation The requested elevation, can be {@code null}.
+     * @param date The requested date, can be {@code null}.
+     *
+     * @return The coverage, with an image read on demand if it has several tiles.
+     * @throws CstlServiceException if the response exceeds the maximum size.
+     */
+    GridCoverage2D read(final CoverageData layer, final Envelope envelope, final Dimension size, final Double elevation,
+            final Date date) throws CstlServiceException, IOException, DataStoreException {
+        // the size of the pixels is known before reading when the layer describes its bands
+        final long pixelSize = (maxResponseSize > 0) ? getPixelSize(layer.getSampleDimensions()) : 0;
+        if (pixelSize > 0) {
+            checkResponseSize(size, pixelSize);
+        }
+        if (tileSize <= 0 || (size.width <= tileSize && size.height <= tileSize) || envelope.getDimension() != 2
+                || !isEastNorth(envelope.getCoordinateReferenceSystem())) {
+            final GridCoverage2D coverage = layer.getCoverage(envelope, size, elevation, date);
+            if (maxResponseSize > 0 && pixelSize == 0) {
+                checkResponseSize(size, getPixelSize(coverage.getRenderedImage().getSampleModel()));
+            }
+            return coverage;
+        }
+        final GridCoverage2D first = readTile(layer, envelope, size, elevation, date, 0, 0);
+        if (maxResponseSize > 0 && pixelSize == 0) {
+            checkResponseSize(size, getPixelSize(first.getRenderedImage().getSampleModel()));
+        }
+        final AffineTransform gridToCRS = getGridToCRS(first, envelope.getCoordinateReferenceSystem());
+        if (gridToCRS == null) {
+            // the tiles can not be resampled on the requested grid
+            return layer.getCoverage(envelope, size, elevation, date);
+        }
+        final TileImage image = new TileImage(layer, envelope, size, elevation, date, first, gridToCRS);
+        return new GridCoverageFactory().create(layer.getName().tip().toString(), image, envelope, image.bands, null, null);
+    }
+
+    /**
+     * @throws CstlServiceException if the response exceeds the maximum size.
+     */
+    private void checkResponseSize(final Dimension size, final long pixelSize) throws CstlServiceException {
+        final long responseSize = (long) size.width * size.height * pixelSize / 8;
+        if (responseSize > maxResponseSize) {
+            throw new CstlServiceException("The requested coverage (" + responseSize + " bytes) exceeds the maximum size of the responses ("
+                    + maxResponseSize + " bytes), request a smaller grid.", INVALID_PARAMETER_VALUE, "width");
+        }
+    }
+
+    /**
+     * @return The size of a pixel in bits, 0 if the type of a band is unknown.
+     */
+    private static long getPixelSize(final List<GridSampleDimension> dimensions) {
+        if (dimensions == null || dimensions.isEmpty()) {
+            return 0;
+        }
+        long pixelSize = 0;
+        for (GridSampleDimension dimension : dimensions) {
+            final SampleDimensionType type = dimension.getSampleDimensionType();
+            if (type == null) {
+                return 0;
+            }
+            pixelSize += getSampleSize(type);
+        }
+        return pixelSize;
+    }
+
+    private static int getSampleSize(final SampleDimensionType type) {
+        if (SampleDimensionType.UNSIGNED_1BIT.equals(type)) {
+            return 1;
+        } else if (SampleDimensionType.UNSIGNED_2BITS.equals(type)) {
+            return 2;
+        } else if (SampleDimensionType.UNSIGNED_4BITS.equals(type)) {
+            return 4;
+        } else if (SampleDimensionType.UNSIGNED_8BITS.equals(type) || SampleDimensionType.SIGNED_8BITS.equals(type)) {
+            return 8;
+        } else if (SampleDimensionType.UNSIGNED_16BITS.equals(type) || SampleDimensionType.SIGNED_16BITS.equals(type)) {
+            return 16;
+        } else if (SampleDimensionType.REAL_64BITS.equals(type)) {
+            return 64;
+        }
+        return 32;
+    }
+
+    /**
+     * @return The size of a pixel in bits.
+     */
+    private static long getPixelSize(final SampleModel sm) {
+        long pixelSize = 0;
+        for (int bits : sm.getSampleSize()) {
+            pixelSize += bits;
+        }
+        return pixelSize;
+    }
+
+    /**
+     * The tiles are computed with the image columns going eastward along the first axis,
+     * and the image rows going southward along the second axis.
+     */
+    static boolean isEastNorth(final CoordinateReferenceSystem crs) {
+        if (crs == null || crs.getCoordinateSystem().getDimension() < 2) {
+            return false;
+        }
+        return AxisDirection.EAST.equals(crs.getCoordinateSystem().getAxis(0).getDirection())
+            && AxisDirection.NORTH.equals(crs.getCoordinateSystem().getAxis(1).getDirection());
+    }
+
+    /**
+     * Read the coverage of a tile, which may not be on the requested grid.
+     */
+    private GridCoverage2D readTile(final CoverageData layer, final Envelope envelope, final Dimension size,
+            final Double elevation, final Date date, final int tx, final int ty) throws IOException, DataStoreException {
+        final int x0 = tx * tileSize;
+        final int y0 = ty * tileSize;
+        final int x1 = Math.min(size.width,  x0 + tileSize);
+        final int y1 = Math.min(size.height, y0 + tileSize);
+        final double resX = envelope.getSpan(0) / size.width;
+        final double resY = envelope.getSpan(1) / size.height;
+        final double maxY = envelope.getMaximum(1);
+        final JTSEnvelope2D tileEnvelope = new JTSEnvelope2D(
+                envelope.getMinimum(0) + x0 * resX, envelope.getMinimum(0) + x1 * resX,
+                maxY - y1 * resY, maxY - y0 * resY, envelope.getCoordinateReferenceSystem());
+        return layer.getCoverage(tileEnvelope, new Dimension(x1 - x0, y1 - y0), elevation, date);
+    }
+
+    /**
+     * @return The affine transform from the grid of the coverage to the requested CRS,
+     *         or {@code null} if the coverage is not in this CRS or not on an affine grid.
+     */
+    private static AffineTransform getGridToCRS(final GridCoverage2D coverage, final CoordinateReferenceSystem crs) {
+        if (!CRS.equalsIgnoreMetadata(coverage.getCoordinateReferenceSystem2D(), crs)) {
+            return null;
+        }
+        final MathTransform gridToCRS = coverage.getGridGeometry().getGridToCRS2D(PixelOrientation.UPPER_LEFT);
+        return (gridToCRS instanceof AffineTransform) ? (AffineTransform) gridToCRS : null;
+    }
+
+    /**
+     * @return {@code true} if the transform is a translation of an integer number of pixels.
+     */
+    private static boolean isIntegerTranslation(final AffineTransform tr) {
+        return Math.abs(tr.getScaleX() - 1) < EPS && Math.abs(tr.getScaleY() - 1) < EPS
+            && Math.abs(tr.getShearX()) < EPS && Math.abs(tr.getShearY()) < EPS
+            && Math.abs(tr.getTranslateX() - Math.rint(tr.getTranslateX())) < EPS
+            && Math.abs(tr.getTranslateY() - Math.rint(tr.getTranslateY())) < EPS;
+    }
+
+    /**
+     * An image whose tiles are read on demand.
+     */
+    private final class TileImage implements RenderedImage {
+
+        private final CoverageData layer;
+
+        private final Envelope envelope;
+
+        private final Double elevation;
+
+        private final Date date;
+
+        private final int width;
+
+        private final int height;
+
+        private final int tilesAcross;
+
+        private final int tilesDown;
+
+        private final SampleModel sampleModel;
+
+        private final ColorModel colorModel;
+
+        private final GridSampleDimension[] bands;
+
+        /**
+         * The value of the pixels of a tile not covered by the image read, by band.
+         * This is the first no-data value of the band, or 0 if it has none.
+         */
+        private final double[] fillValues;
+
+        /**
+         * The transform from the requested grid to the requested CRS.
+         */
+        private final AffineTransform gridToCRS;
+
+        /**
+         * The tiles read or being read, limited to the rows of tiles used by the encoder.
+         */
+        private final Cache<Point, Future<Raster>> tiles;
+
+        /**
+         * Build the image from its first tile, which gives the sample model of the image.
+         */
+        private TileImage(final CoverageData layer, final Envelope envelope, final Dimension size, final Double elevation,
+                final Date date, final GridCoverage2D first, final AffineTransform firstToCRS) throws IOException {
+            this.layer       = layer;
+            this.envelope    = envelope;
+            this.elevation   = elevation;
+            this.date        = date;
+            this.width       = size.width;
+            this.height      = size.height;
+            this.tilesAcross = (width  + tileSize - 1) / tileSize;
+            this.tilesDown   = (height + tileSize - 1) / tileSize;
+            this.gridToCRS   = new AffineTransform(envelope.getSpan(0) / width, 0, 0, -envelope.getSpan(1) / height,
+                                                   envelope.getMinimum(0), envelope.getMaximum(1));
+
+            final RenderedImage firstImage = first.getRenderedImage();
+            this.sampleModel = firstImage.getSampleModel().createCompatibleSampleModel(tileSize, tileSize);
+            this.colorModel  = firstImage.getColorModel();
+            this.bands       = first.getSampleDimensions();
+            this.fillValues  = new double[sampleModel.getNumBands()];
+            for (int b = 0; b < fillValues.length && bands != null && b < bands.length; b++) {
+                final double[] noData = bands[b].getNoDataValues();
+                if (noData != null && noData.length > 0) {
+                    fillValues[b] = noData[0];
+                }
+            }
+
+            /*
+             * The encoder computes several strips at a time, the tiles of all the rows
+             * they cover must stay in memory, otherwise they would be read again.
+             */
+            final int pixelSize = (int) ((getPixelSize(sampleModel) + 7) / 8);
+            final int windowRows = GeotiffStreamWriter.getWindowRows(width, pixelSize);
+            final int rows = Math.min(tilesDown, Math.max(2, (windowRows + tileSize - 1) / tileSize) + 1);
+            this.tiles = CacheBuilder.newBuilder().maximumSize((long) tilesAcross * rows).build();
+            tiles.put(new Point(0, 0), new Done(toTile(firstImage, firstToCRS, 0, 0)));
+        }
+
+        /**
+         * Copy the image read for a tile in the tile, resampling it with a nearest neighbour interpolation
+         * when it is not on the requested grid, like when the layer ignores the requested size.
+         * The pixels not covered by the image, outside of the layer, hold the no-data values.
+         */
+        private WritableRaster toTile(final RenderedImage image, final AffineTransform imageToCRS, final int tx, final int ty)
+                throws IOException {
+            final WritableRaster tile = Raster.createWritableRaster(sampleModel, new Point(tx * tileSize, ty * tileSize));
+            for (int b = 0; b < fillValues.length; b++) {
+                if (fillValues[b] != 0) {
+                    final double[] samples = new double[tileSize * tileSize];
+                    Arrays.fill(samples, fillValues[b]);
+                    tile.setSamples(tile.getMinX(), tile.getMinY(), tileSize, tileSize, b, samples);
+                }
+            }
+            // from the requested grid to the grid of the image
+            final AffineTransform tr;
+            try {
+                tr = imageToCRS.createInverse();
+            } catch (NoninvertibleTransformException ex) {
+                throw new IOException("The grid of the tile is not invertible.", ex);
+            }
+            tr.concatenate(gridToCRS);
+            final Raster source = image.getData();
+            if (isIntegerTranslation(tr)) {
+                tile.setRect((int) -Math.rint(tr.getTranslateX()), (int) -Math.rint(tr.getTranslateY()), source);
+                return tile;
+            }
+            final Rectangle bounds = source.getBounds();
+            final int maxX = Math.min(width,  tile.getMinX() + tileSize);
+            final int maxY = Math.min(height, tile.getMinY() + tileSize);
+            final double[] point = new double[2];
+            double[] pixel = null;
+            for (int y = tile.getMinY(); y < maxY; y++) {
+                for (int x = tile.getMinX(); x < maxX; x++) {
+                    point[0] = x + 0.5;
+                    point[1] = y + 0.5;
+                    tr.transform(point, 0, point, 0, 1);
+                    final int sx = (int) Math.floor(point[0]);
+                    final int sy = (int) Math.floor(point[1]);
+                    if (bounds.contains(sx, sy)) {
+                        pixel = source.getPixel(sx, sy, pixel);
+                        tile.setPixel(x, y, pixel);
+                    }
+                }
+            }
+            return tile;
+        }
+
+        /**
+         * Return the tile, submitting its reading if it is not in memory.
+         */
+        private Future<Raster> getTileFuture(final int tx, final int ty) {
+            try {
+                return tiles.get(new Point(tx, ty), new Callable<Future<Raster>>() {
+                    @Override
+                    public Future<Raster> call() {
+                        return POOL.submit(new Callable<Raster>() {
+                            @Override
+                            public Raster call() throws IOException, DataStoreException {
+                                final GridCoverage2D coverage = readTile(layer, envelope, new Dimension(width, height), elevation, date, tx, ty);
+                                final AffineTransform imageToCRS = getGridToCRS(coverage, envelope.getCoordinateReferenceSystem());
+                                if (imageToCRS == null) {
+                                    throw new IOException("The tile " + tx + "," + ty + " is not in the requested CRS.");
+                                }
+                                return toTile(coverage.getRenderedImage(), imageToCRS, tx, ty);
+                            }
+                        });
+                    }
+                });
+            } catch (ExecutionException ex) {
+                throw failure(ex.getCause());
+            }
+        }
+
+        private Raster waitTile(final Future<Raster> tile) {
+            try {
+                return tile.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw failure(ex);
+            } catch (ExecutionException ex) {
+                throw failure(ex.getCause());
+            }
+        }
+
+        private ImagingOpException failure(final Throwable cause) {
+            final ImagingOpException ex = new ImagingOpException("Unable to read a tile of the coverage " + layer.getName());
+            ex.initCause(cause);
+            return ex;
+        }
+
+        @Override
+        public Raster getTile(final int tileX, final int tileY) {
+            return waitTile(getTileFuture(tileX, tileY));
+        }
+
+        @Override
+        public Raster getData() {
+            return getData(getBounds());
+        }
+
+        @Override
+        public Raster getData(final Rectangle rect) {
+            return copyData(Raster.createWritableRaster(sampleModel.createCompatibleSampleModel(rect.width, rect.height),
+                    new Point(rect.x, rect.y)));
+        }
+
+        @Override
+        public WritableRaster copyData(WritableRaster raster) {
+            if (raster == null) {
+                raster = Raster.createWritableRaster(sampleModel.createCompatibleSampleModel(width, height), null);
+            }
+            final Rectangle rect = raster.getBounds().intersection(getBounds());
+            if (rect.isEmpty()) {
+                return raster;
+            }
+            // submit all the tiles before waiting for them, so they are read in parallel
+            final int minTx = rect.x / tileSize;
+            final int minTy = rect.y / tileSize;
+            final int maxTx = (rect.x + rect.width  - 1) / tileSize;
+            final int maxTy = (rect.y + rect.height - 1) / tileSize;
+            final List<Future<Raster>> futures = new ArrayList<>();
+            for (int ty = minTy; ty <= maxTy; ty++) {
+                for (int tx = minTx; tx <= maxTx; tx++) {
+                    futures.add(getTileFuture(tx, ty));
+                }
+            }
+            for (Future<Raster> future : futures) {
+                raster.setRect(waitTile(future));
+            }
+            return raster;
+        }
+
+        private Rectangle getBounds() {
+            return new Rectangle(0, 0, width, height);
+        }
+
+        @Override
+        public Vector<RenderedImage> getSources() {
+            return null;
+        }
+
+        @Override
+        public Object getProperty(final String name) {
+            return Image.UndefinedProperty;
+        }
+
+        @Override
+        public String[] getPropertyNames() {
+            return null;
+        }
+
+        @Override
+        public ColorModel getColorModel() {
+            return colorModel;
+        }
+
+        @Override
+        public SampleModel getSampleModel() {
+            return sampleModel;
+        }
+
+        @Override
+        public int getWidth() {
+            return width;
+        }
+
+        @Override
+        public int getHeight() {
+            return height;
+        }
+
+        @Override
+        public int getMinX() {
+            return 0;
+        }
+
+        @Override
+        public int getMinY() {
+            return 0;
+        }
+
+        @Override
+        public int getNumXTiles() {
+            return tilesAcross;
+        }
+
+        @Override
+        public int getNumYTiles() {
+            return tilesDown;
+        }
+
+        @Override
+        public int getMinTileX() {
+            return 0;
+        }
+
+        @Override
+        public int getMinTileY() {
+            return 0;
+        }
+
+        @Override
+        public int getTileWidth() {
+            return tileSize;
+        }
+
+        @Override
+        public int getTileHeight() {
+            return tileSize;
+        }
+
+        @Override
+        public int getTileGridXOffset() {
+            return 0;
+        }
+
+        @Override
+        public int getTileGridYOffset() {
+            return 0;
+        }
+    }
+
+    /**
+     * An already read tile.
+     */
+    private static final class Done implements Future<Raster> {
+
+        private final Raster value;
+
+        private Done(final Raster value) {
+            this.value = value;
+        }
+
+        @Override
+        public boolean cancel(final boolean mayInterruptIfRunning) {
+            return false;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+
+        @Override
+        public boolean isDone() {
+            return true;
+        }
+
+        @Override
+        public Raster get() {
+            return value;
+        }
+
+        @Override
+        public Raster get(final long timeout, final TimeUnit unit) {
+            return value;
+        }
+    }
+}
@@ -0,0 +1,916 @@
+/*
+ *    Constellation - An open source and standard compliant SDI
+ *    http://www.constellation-sdi.org
+ *
+ * Copyright 2014 Geomatys.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.constellation.coverage.ws.rs;
+
+import org.apache.sis.util.logging.Logging;
+import org.constellation.configuration.AppProperty;
+import org.constellation.configuration.Application;
+import org.geotoolkit.coverage.GridSampleDimension;
+import org.geotoolkit.coverage.grid.GridCoverage2D;
+import org.geotoolkit.referencing.CRS;
+import org.geotoolkit.referencing.IdentifiedObjects;
+import org.geotoolkit.referencing.crs.DefaultGeographicCRS;
+import org.opengis.metadata.spatial.PixelOrientation;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.crs.GeographicCRS;
+import org.opengis.referencing.crs.ProjectedCRS;
+import org.opengis.referencing.cs.AxisDirection;
+import org.opengis.referencing.operation.MathTransform;
+import org.opengis.util.FactoryException;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import java.awt.Rectangle;
+import java.awt.color.ColorSpace;
+import java.awt.geom.AffineTransform;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+
+/**
+ * Write a coverage as a GeoTIFF (or a BigTIFF when it exceeds 4 GB) directly in an output stream,
+ * without temporary file.
+ *
+ * The image is cut in strips, or in tiles when requested, which are computed in parallel and written
+ * in order, only a few of them being in memory at the same time. Without compression the TIFF directory
+ * only depends on the size of the image, so it is written before the first strip is computed. With the
+ * deflate compression the size of each compressed tile must be known before writing the directory:
+ * the tiles are compressed in parallel and kept until the whole image is compressed, in memory up to
+ * {@link AppProperty#WCS_DEFLATE_MEMORY_SIZE} megabytes (64 by default), in a temporary file beyond.
+ *
+ * Only the 2D coverages with an affine grid to CRS and an EPSG code, with the same sample type for all
+ * bands, are supported, without compression or with the deflate one. The spatial metadata must not hold
+ * anything else than the georeferencing and the no-data value, which are written from the coverage.
+ * {@link #create} returns {@code null} for the others, which are written by the geotk GeoTIFF writer.
+ *
+ * @author Guilhem Legal (Geomatys)
+ */
+public final class GeotiffStreamWriter {
+
+    private static final Logger LOGGER = Logging.getLogger("org.constellation.coverage.ws.rs");
+
+    /**
+     * The name of the deflate compression in the GeoTIFF extension of WCS.
+     */
+    public static final String DEFLATE = "Deflate";
+
+    /**
+     * The approximated size of a strip in bytes, when the tiling is not requested.
+     */
+    private static final int STRIP_SIZE = 64 * 1024;
+
+    /**
+     * The maximum size of a classic TIFF file.
+     */
+    private static final long CLASSIC_LIMIT = 0xFFFFFFFFL;
+
+    private static final int NB_THREADS = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The default maximum size in megabytes of the compressed tiles kept in memory by a request.
+     */
+    private static final long DEFAULT_MEMORY_SIZE = 64;
+
+    /**
+     * The maximum size in bytes of the compressed tiles kept in memory by a request,
+     * the following ones are written in a temporary file.
+     */
+    private static final long MAX_MEMORY = getMemorySize() * 1024 * 1024;
+
+    /**
+     * The pool computing and compressing the tiles, shared by all the requests.
+     * Each writer submits at most {@link #WINDOW} tiles at a time.
+     */
+    private static final ExecutorService POOL = Executors.newFixedThreadPool(NB_THREADS, new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+        @Override
+        public Thread newThread(final Runnable r) {
+            final Thread thread = new Thread(r, "wcs-geotiff-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    /**
+     * The maximum number of tiles of a writer computed or waiting to be written.
+     */
+    private static final int WINDOW = 2 * NB_THREADS;
+
+    // TIFF field types.
+    private static final short TYPE_ASCII  = 2;
+    private static final short TYPE_SHORT  = 3;
+    private static final short TYPE_LONG   = 4;
+    private static final short TYPE_DOUBLE = 12;
+    private static final short TYPE_LONG8  = 16;
+
+    // TIFF and GeoTIFF tags.
+    private static final int IMAGE_WIDTH       = 256;
+    private static final int IMAGE_LENGTH      = 257;
+    private static final int BITS_PER_SAMPLE   = 258;
+    private static final int COMPRESSION       = 259;
+    private static final int PHOTOMETRIC       = 262;
+    private static final int STRIP_OFFSETS     = 273;
+    private static final int SAMPLES_PER_PIXEL = 277;
+    private static final int ROWS_PER_STRIP    = 278;
+    private static final int STRIP_BYTE_COUNTS = 279;
+    private static final int PLANAR_CONFIG     = 284;
+    private static final int COLOR_MAP         = 320;
+    private static final int TILE_WIDTH        = 322;
+    private static final int TILE_LENGTH       = 323;
+    private static final int TILE_OFFSETS      = 324;
+    private static final int TILE_BYTE_COUNTS  = 325;
+    private static final int EXTRA_SAMPLES     = 338;
+    private static final int SAMPLE_FORMAT     = 339;
+    private static final int MODEL_PIXEL_SCALE = 33550;
+    private static final int MODEL_TIEPOINT    = 33922;
+    private static final int MODEL_TRANSFORM   = 34264;
+    private static final int GEO_KEY_DIRECTORY = 34735;
+    private static final int GDAL_NODATA       = 42113;
+
+    // GeoTIFF keys.
+    private static final int GT_MODEL_TYPE   = 1024;
+    private static final int GT_RASTER_TYPE  = 1025;
+    private static final int GEOGRAPHIC_TYPE = 2048;
+    private static final int PROJECTED_TYPE  = 3072;
+    private static final int MODEL_PROJECTED  = 1;
+    private static final int MODEL_GEOGRAPHIC = 2;
+    private static final int RASTER_PIXEL_IS_AREA = 1;
+
+    /**
+     * The spatial metadata elements describing the grid geometry and the CRS, written from the coverage.
+     */
+    private static final Set<String> GEOREFERENCING = new HashSet<>(Arrays.asList(
+            "SpatialRepresentation", "RectifiedGridDomain", "CoordinateReferenceSystem"));
+
+    private final RenderedImage image;
+
+    private final int width;
+
+    private final int height;
+
+    private final int bands;
+
+    private final int dataType;
+
+    private final int bytesPerSample;
+
+    private final boolean tiled;
+
+    private final int tileWidth;
+
+    private final int tileHeight;
+
+    private final int tilesAcross;
+
+    private final int nbTiles;
+
+    private final boolean deflate;
+
+    /**
+     * The TIFF fields, except the offsets and byte counts of the tiles.
+     */
+    private final List<Entry> entries = new ArrayList<>();
+
+    private GeotiffStreamWriter(final RenderedImage image, final int dataType, final boolean deflate,
+            final boolean tiling, final int tileWidth, final int tileHeight, final AffineTransform gridToCRS,
+            final int modelType, final int epsgCode, final Double noData) {
+        this.image          = image;
+        this.width          = image.getWidth();
+        this.height         = image.getHeight();
+        this.bands          = image.getSampleModel().getNumBands();
+        this.dataType       = dataType;
+        this.bytesPerSample = DataBuffer.getDataTypeSize(dataType) / 8;
+        this.deflate        = deflate;
+        this.tiled          = tiling && tileWidth > 0 && tileHeight > 0;
+        if (tiled) {
+            this.tileWidth  = tileWidth;
+            this.tileHeight = tileHeight;
+        } else {
+            this.tileWidth  = width;
+            this.tileHeight = Math.min(height, stripRows(width, bands * bytesPerSample));
+        }
+        this.tilesAcross = (width + this.tileWidth - 1) / this.tileWidth;
+        this.nbTiles     = tilesAcross * ((height + this.tileHeight - 1) / this.tileHeight);
+
+        final int[] bitsPerSample = new int[bands];
+        final int[] sampleFormat  = new int[bands];
+        final int format;
+        switch (dataType) {
+            case DataBuffer.TYPE_FLOAT:
+            case DataBuffer.TYPE_DOUBLE: format = 3; break;
+            case DataBuffer.TYPE_SHORT:
+            case DataBuffer.TYPE_INT:    format = 2; break;
+            default:                     format = 1;
+        }
+        for (int i = 0; i < bands; i++) {
+            bitsPerSample[i] = bytesPerSample * 8;
+            sampleFormat[i]  = format;
+        }
+        entries.add(Entry.longs(IMAGE_WIDTH, width));
+        entries.add(Entry.longs(IMAGE_LENGTH, height));
+        entries.add(Entry.shorts(BITS_PER_SAMPLE, bitsPerSample));
+        entries.add(Entry.shorts(COMPRESSION, deflate ? 8 : 1));
+        entries.add(Entry.shorts(SAMPLES_PER_PIXEL, bands));
+        entries.add(Entry.shorts(PLANAR_CONFIG, 1));
+        entries.add(Entry.shorts(SAMPLE_FORMAT, sampleFormat));
+        if (tiled) {
+            entries.add(Entry.longs(TILE_WIDTH, this.tileWidth));
+            entries.add(Entry.longs(TILE_LENGTH, this.tileHeight));
+        } else {
+            entries.add(Entry.longs(ROWS_PER_STRIP, this.tileHeight));
+        }
+
+        // color interpretation
+        final ColorModel cm = image.getColorModel();
+        final int photometric;
+        final int nbColors;
+        if (cm instanceof IndexColorModel && bands == 1 && bytesPerSample <= 2 && format == 1) {
+            photometric = 3;
+            nbColors    = 1;
+            final IndexColorModel icm = (IndexColorModel) cm;
+            final int mapSize = 1 << (bytesPerSample * 8);
+            final int[] colorMap = new int[3 * mapSize];
+            for (int i = 0; i < Math.min(mapSize, icm.getMapSize()); i++) {
+                colorMap[i]               = icm.getRed(i)   * 257;
+                colorMap[i + mapSize]     = icm.getGreen(i) * 257;
+                colorMap[i + 2 * mapSize] = icm.getBlue(i)  * 257;
+            }
+            entries.add(Entry.shorts(COLOR_MAP, colorMap));
+        } else if (cm != null && !(cm instanceof IndexColorModel) && bands >= 3
+                && cm.getColorSpace().getType() == ColorSpace.TYPE_RGB) {
+            photometric = 2;
+            nbColors    = 3;
+        } else {
+            photometric = 1;
+            nbColors    = 1;
+        }
+        entries.add(Entry.shorts(PHOTOMETRIC, photometric));
+        if (bands > nbColors) {
+            final int[] extra = new int[bands - nbColors];
+            if (photometric == 2 && cm.hasAlpha()) {
+                extra[0] = cm.isAlphaPremultiplied() ? 1 : 2;
+            }
+            entries.add(Entry.shorts(EXTRA_SAMPLES, extra));
+        }
+
+        // georeferencing, the pixel scale can only describe the images with the rows going southward
+        if (gridToCRS.getShearX() == 0 && gridToCRS.getShearY() == 0 && gridToCRS.getScaleX() > 0 && gridToCRS.getScaleY() < 0) {
+            entries.add(Entry.doubles(MODEL_PIXEL_SCALE, gridToCRS.getScaleX(), -gridToCRS.getScaleY(), 0));
+            entries.add(Entry.doubles(MODEL_TIEPOINT, 0, 0, 0, gridToCRS.getTranslateX(), gridToCRS.getTranslateY(), 0));
+        } else {
+            entries.add(Entry.doubles(MODEL_TRANSFORM,
+                    gridToCRS.getScaleX(), gridToCRS.getShearX(), 0, gridToCRS.getTranslateX(),
+                    gridToCRS.getShearY(), gridToCRS.getScaleY(), 0, gridToCRS.getTranslateY(),
+                    0, 0, 0, 0,
+                    0, 0, 0, 1));
+        }
+        entries.add(Entry.shorts(GEO_KEY_DIRECTORY,
+                1, 1, 0, 3,
+                GT_MODEL_TYPE,  0, 1, modelType,
+                GT_RASTER_TYPE, 0, 1, RASTER_PIXEL_IS_AREA,
+                modelType == MODEL_PROJECTED ? PROJECTED_TYPE : GEOGRAPHIC_TYPE, 0, 1, epsgCode));
+        if (noData != null) {
+            entries.add(Entry.ascii(GDAL_NODATA, Double.toString(noData)));
+        }
+    }
+
+    /**
+     * Create a writer for a coverage.
+     *
+     * @param coverage A 2D coverage.
+     * @param metadata The spatial metadata to write with the coverage, can be {@code null}.
+     * @param compression The requested compression, {@code null} or "NONE" for no compression.
+     * @param tiling {@code true} for a tiled image, {@code false} for strips.
+     * @param tileWidth The width of the tiles if the tiling is requested.
+     * @param tileHeight The height of the tiles if the tiling is requested.
+     *
+     * @return The writer, or {@code null} if the coverage, the metadata or the compression is not supported.
+     */
+    public static GeotiffStreamWriter create(final GridCoverage2D coverage, final IIOMetadata metadata, final String compression,
+            final boolean tiling, final int tileWidth, final int tileHeight) {
+        final boolean deflate;
+        if (compression == null || "NONE".equalsIgnoreCase(compression)) {
+            deflate = false;
+        } else if (DEFLATE.equalsIgnoreCase(compression)) {
+            deflate = true;
+        } else {
+            return null;
+        }
+
+        final Double noData = getNoData(coverage);
+        if (!isWritten(metadata, noData)) {
+            return null;
+        }
+
+        final RenderedImage image = coverage.getRenderedImage();
+        final SampleModel sm = image.getSampleModel();
+        final int dataType = sm.getDataType();
+        switch (dataType) {
+            case DataBuffer.TYPE_BYTE:
+            case DataBuffer.TYPE_USHORT:
+            case DataBuffer.TYPE_SHORT:
+            case DataBuffer.TYPE_INT:
+            case DataBuffer.TYPE_FLOAT:
+            case DataBuffer.TYPE_DOUBLE: break;
+            default: return null;
+        }
+        for (int size : sm.getSampleSize()) {
+            // packed samples
+            if (size != DataBuffer.getDataTypeSize(dataType)) {
+                return null;
+            }
+        }
+
+        final CoordinateReferenceSystem crs = coverage.getCoordinateReferenceSystem2D();
+        final int modelType;
+        if (crs instanceof ProjectedCRS) {
+            modelType = MODEL_PROJECTED;
+        } else if (crs instanceof GeographicCRS) {
+            modelType = MODEL_GEOGRAPHIC;
+        } else {
+            return null;
+        }
+        Integer epsgCode;
+        try {
+            epsgCode = IdentifiedObjects.lookupEpsgCode(crs, true);
+        } catch (FactoryException ex) {
+            LOGGER.log(Level.FINE, "No EPSG code for the coverage CRS", ex);
+            epsgCode = null;
+        }
+        if (epsgCode == null && CRS.equalsIgnoreMetadata(crs, DefaultGeographicCRS.WGS84)) {
+            // the GeoTIFF model space is always longitude first
+            epsgCode = 4326;
+        }
+        if (epsgCode == null || epsgCode > 0xFFFF) {
+            return null;
+        }
+
+        final MathTransform gridToCRS = coverage.getGridGeometry().getGridToCRS2D(PixelOrientation.UPPER_LEFT);
+        if (!(gridToCRS instanceof AffineTransform)) {
+            return null;
+        }
+        AffineTransform tr = new AffineTransform((AffineTransform) gridToCRS);
+        tr.translate(image.getMinX(), image.getMinY());
+        final AxisDirection direction = crs.getCoordinateSystem().getAxis(0).getDirection();
+        if (AxisDirection.NORTH.equals(direction) || AxisDirection.SOUTH.equals(direction)) {
+            // the GeoTIFF model space is always (easting, northing)
+            tr = new AffineTransform(tr.getShearY(), tr.getScaleX(), tr.getScaleY(), tr.getShearX(),
+                                     tr.getTranslateY(), tr.getTranslateX());
+        }
+        return new GeotiffStreamWriter(image, dataType, deflate, tiling, tileWidth, tileHeight, tr, modelType, epsgCode, noData);
+    }
+
+    /**
+     * Return the maximum number of rows of an image computed at the same time by a writer, when the image
+     * is written in strips. An image computing its tiles on demand should keep these rows in memory.
+     *
+     * @param width The width of the image.
+     * @param pixelSize The size of a pixel in bytes.
+     * @return The number of rows of {@link #WINDOW} strips.
+     */
+    public static int getWindowRows(final int width, final int pixelSize) {
+        return WINDOW * stripRows(width, pixelSize);
+    }
+
+    private static int stripRows(final int width, final int pixelSize) {
+        return Math.max(1, STRIP_SIZE / Math.max(1, width * pixelSize));
+    }
+
+    /**
+     * @return The first no-data value of the first band, or {@code null} if there is none.
+     */
+    private static Double getNoData(final GridCoverage2D coverage) {
+        final GridSampleDimension dimension = coverage.getSampleDimension(0);
+        if (dimension != null) {
+            try {
+                final double[] noData = dimension.getNoDataValues();
+                if (noData != null && noData.length > 0) {
+                    return noData[0];
+                }
+            } catch (IllegalStateException ex) {
+                LOGGER.log(Level.FINE, "No-data values not written", ex);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Return {@code true} if the metadata holds nothing else than the georeferencing and the no-data value,
+     * which are written from the coverage.
+     */
+    private static boolean isWritten(final IIOMetadata metadata, final Double noData) {
+        if (metadata == null) {
+            return true;
+        }
+        final String format = metadata.getNativeMetadataFormatName();
+        if (format == null) {
+            return false;
+        }
+        final Node root = metadata.getAsTree(format);
+        for (Node child = root.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (!GEOREFERENCING.contains(child.getNodeName()) && !isNoDataOnly(child, noData)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Return {@code true} if the node and its children only hold the given value as fill sample values.
+     */
+    private static boolean isNoDataOnly(final Node node, final Double noData) {
+        if (node instanceof IIOMetadataNode && ((IIOMetadataNode) node).getUserObject() != null) {
+            return false;
+        }
+        final NamedNodeMap attributes = node.getAttributes();
+        if (attributes != null) {
+            for (int i = 0; i < attributes.getLength(); i++) {
+                final Node attribute = attributes.item(i);
+                if (noData == null || !"fillSampleValues".equals(attribute.getNodeName())) {
+                    return false;
+                }
+                for (String value : attribute.getNodeValue().trim().split("\\s+")) {
+                    try {
+                        if (Double.compare(Double.parseDouble(value), noData) != 0) {
+                            return false;
+                        }
+                    } catch (NumberFormatException ex) {
+                        return false;
+                    }
+                }
+            }
+        }
+        for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (!isNoDataOnly(child, noData)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Write the image in a stream. The stream is not closed.
+     *
+     * @param out The output stream.
+     * @throws IOException if the image can not be computed or the stream can not be written.
+     */
+    public void write(final OutputStream out) throws IOException {
+        write(out, false);
+    }
+
+    /**
+     * Write the image in a stream. The stream is not closed.
+     *
+     * @param out The output stream.
+     * @param bigTiff {@code true} to write a BigTIFF even if the image fits in a classic TIFF.
+     * @throws IOException if the image can not be computed or the stream can not be written.
+     */
+    void write(final OutputStream out, final boolean bigTiff) throws IOException {
+        write(out, bigTiff, MAX_MEMORY);
+    }
+
+    /**
+     * Write the image in a stream. The stream is not closed.
+     *
+     * @param out The output stream.
+     * @param bigTiff {@code true} to write a BigTIFF even if the image fits in a classic TIFF.
+     * @param maxMemory The maximum size in bytes of the compressed tiles kept in memory.
+     * @throws IOException if the image can not be computed or the stream can not be written.
+     */
+    void write(final OutputStream out, final boolean bigTiff, final long maxMemory) throws IOException {
+        final long[] byteCounts = new long[nbTiles];
+        if (deflate) {
+            try (TileBuffer tiles = new TileBuffer(maxMemory)) {
+                encode(tiles, byteCounts);
+                out.write(buildDirectory(byteCounts, bigTiff));
+                tiles.writeTo(out);
+            }
+        } else {
+            for (int i = 0; i < nbTiles; i++) {
+                byteCounts[i] = rawSize(i);
+            }
+            out.write(buildDirectory(byteCounts, bigTiff));
+            encode(out, null);
+        }
+    }
+
+    /**
+     * Read the maximum size in megabytes of the compressed tiles kept in memory by a request.
+     */
+    private static long getMemorySize() {
+        final String value = Application.getProperty(AppProperty.WCS_DEFLATE_MEMORY_SIZE);
+        if (value != null) {
+            try {
+                return Math.max(0, Long.parseLong(value.trim()));
+            } catch (NumberFormatException ex) {
+                LOGGER.log(Level.WARNING, "Unable to parse the property {0}:{1}", new Object[]{AppProperty.WCS_DEFLATE_MEMORY_SIZE.getKey(), value});
+            }
+        }
+        return DEFAULT_MEMORY_SIZE;
+    }
+
+    /**
+     * @return The number of rows of a tile, the last strip is not padded.
+     */
+    private int rows(final int index) {
+        if (tiled) {
+            return tileHeight;
+        }
+        return Math.min(tileHeight, height - (index / tilesAcross) * tileHeight);
+    }
+
+    private long rawSize(final int index) {
+        return (long) tileWidth * rows(index) * bands * bytesPerSample;
+    }
+
+    /**
+     * Compute the tiles in parallel, at most {@link #WINDOW} at a time, writing them in order
+     * in the output stream, and their size in the given array if there is one.
+     */
+    private void encode(final OutputStream out, final long[] byteCounts) throws IOException {
+        final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+        int next = 0;
+        try {
+            for (int i = 0; i < nbTiles; i++) {
+                while (next < nbTiles && next - i < WINDOW) {
+                    final int index = next++;
+                    pending.add(POOL.submit(new Callable<byte[]>() {
+                        @Override
+                        public byte[] call() throws IOException {
+                            return encodeTile(index);
+                        }
+                    }));
+                }
+                final byte[] tile = pending.poll().get();
+                out.write(tile);
+                if (byteCounts != null) {
+                    byteCounts[i] = tile.length;
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while encoding the coverage.");
+        } catch (ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Error while encoding the coverage.", cause);
+        } finally {
+            // the client may have closed the connection
+            for (Future<byte[]> future : pending) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Compute a tile and write its samples, padded to the tile size except for the strips.
+     */
+    private byte[] encodeTile(final int index) throws IOException {
+        final int x = (index % tilesAcross) * tileWidth;
+        final int y = (index / tilesAcross) * tileHeight;
+        final int w = Math.min(tileWidth,  width  - x);
+        final int h = Math.min(tileHeight, height - y);
+        final byte[] buffer = new byte[(int) rawSize(index)];
+        final ByteBuffer bb = ByteBuffer.wrap(buffer);
+        final Raster raster = image.getData(new Rectangle(image.getMinX() + x, image.getMinY() + y, w, h));
+        int[] ints = null;
+        float[] floats = null;
+        double[] doubles = null;
+        for (int j = 0; j < h; j++) {
+            bb.position(j * tileWidth * bands * bytesPerSample);
+            final int row = raster.getMinY() + j;
+            switch (dataType) {
+                case DataBuffer.TYPE_FLOAT:
+                    floats = raster.getPixels(raster.getMinX(), row, w, 1, floats);
+                    for (float v : floats) {
+                        bb.putFloat(v);
+                    }
+                    break;
+                case DataBuffer.TYPE_DOUBLE:
+                    doubles = raster.getPixels(raster.getMinX(), row, w, 1, doubles);
+                    for (double v : doubles) {
+                        bb.putDouble(v);
+                    }
+                    break;
+                default:
+                    ints = raster.getPixels(raster.getMinX(), row, w, 1, ints);
+                    for (int v : ints) {
+                        switch (bytesPerSample) {
+                            case 1:  bb.put((byte) v);       break;
+                            case 2:  bb.putShort((short) v); break;
+                            default: bb.putInt(v);
+                        }
+                    }
+            }
+        }
+        return deflate ? compress(buffer) : buffer;
+    }
+
+    private static byte[] compress(final byte[] data) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length / 4 + 64);
+        final Deflater deflater = new Deflater();
+        try {
+            try (DeflaterOutputStream stream = new DeflaterOutputStream(bytes, deflater)) {
+                stream.write(data);
+            }
+        } finally {
+            deflater.end();
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Build the header and the directory of the file, which are followed by the tiles.
+     * A BigTIFF directory is built if it is requested or if the file exceeds the size of a classic TIFF.
+     */
+    byte[] buildDirectory(final long[] byteCounts, final boolean bigTiff) throws IOException {
+        long total = 0;
+        for (long count : byteCounts) {
+            total += count;
+        }
+        final byte[] directory = bigTiff ? null : buildDirectory(byteCounts, total, false);
+        return (directory != null) ? directory : buildDirectory(byteCounts, total, true);
+    }
+
+    private byte[] buildDirectory(final long[] byteCounts, final long total, final boolean big) throws IOException {
+        final int headerSize = big ? 16 : 8;
+        final int entrySize  = big ? 20 : 12;
+        final int inline     = big ? 8 : 4;
+        final int offsetSize = big ? 8 : 4;
+        final int nbEntries  = entries.size() + 2;
+
+        // the size of the directory does not depend on the offset values
+        long extraSize = 0;
+        for (Entry entry : entries) {
+            if (entry.data.length > inline) {
+                extraSize += entry.data.length + (entry.data.length & 1);
+            }
+        }
+        final long offsetsSize = (long) nbTiles * offsetSize;
+        if (offsetsSize > inline) {
+            extraSize += 2 * offsetsSize;
+        }
+        final long dataStart = headerSize + (big ? 8 : 2) + (long) nbEntries * entrySize + (big ? 8 : 4) + extraSize;
+        if (!big && dataStart + total > CLASSIC_LIMIT) {
+            return null;
+        }
+        if (dataStart > Integer.MAX_VALUE) {
+            throw new IOException("Too many tiles in the coverage.");
+        }
+
+        final long[] offsets = new long[nbTiles];
+        long position = dataStart;
+        for (int i = 0; i < nbTiles; i++) {
+            offsets[i] = position;
+            position += byteCounts[i];
+        }
+        final List<Entry> all = new ArrayList<>(entries);
+        all.add(Entry.offsets(tiled ? TILE_OFFSETS : STRIP_OFFSETS, offsets, big));
+        all.add(Entry.offsets(tiled ? TILE_BYTE_COUNTS : STRIP_BYTE_COUNTS, byteCounts, big));
+        Collections.sort(all);
+
+        final ByteBuffer buffer = ByteBuffer.allocate((int) dataStart);
+        buffer.put((byte) 'M').put((byte) 'M');
+        if (big) {
+            buffer.putShort((short) 43).putShort((short) 8).putShort((short) 0).putLong(headerSize);
+        } else {
+            buffer.putShort((short) 42).putInt(headerSize);
+        }
+        if (big) {
+            buffer.putLong(nbEntries);
+        } else {
+            buffer.putShort((short) nbEntries);
+        }
+        long extraPosition = headerSize + (big ? 8 : 2) + (long) nbEntries * entrySize + (big ? 8 : 4);
+        for (Entry entry : all) {
+            buffer.putShort((short) entry.tag).putShort(entry.type);
+            if (big) {
+                buffer.putLong(entry.count);
+            } else {
+                buffer.putInt(entry.count);
+            }
+            if (entry.data.length <= inline) {
+                buffer.put(entry.data);
+                for (int i = entry.data.length; i < inline; i++) {
+                    buffer.put((byte) 0);
+                }
+            } else {
+                if (big) {
+                    buffer.putLong(extraPosition);
+                } else {
+                    buffer.putInt((int) extraPosition);
+                }
+                extraPosition += entry.data.length + (entry.data.length & 1);
+            }
+        }
+        if (big) {
+            buffer.putLong(0);
+        } else {
+            buffer.putInt(0);
+        }
+        for (Entry entry : all) {
+            if (entry.data.length > inline) {
+                buffer.put(entry.data);
+                if ((entry.data.length & 1) != 0) {
+                    buffer.put((byte) 0);
+                }
+            }
+        }
+        return buffer.array();
+    }
+
+    /**
+     * The compressed tiles waiting for the directory, kept in memory up to a maximum size,
+     * then written with the following ones in a temporary file deleted on close.
+     */
+    private static final class TileBuffer extends OutputStream {
+
+        private final long maxMemory;
+
+        private final List<byte[]> tiles = new ArrayList<>();
+
+        private long size;
+
+        private File file;
+
+        private OutputStream fileStream;
+
+        private TileBuffer(final long maxMemory) {
+            this.maxMemory = maxMemory;
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            write(new byte[]{(byte) b});
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            if (fileStream == null && size + len > maxMemory) {
+                file = File.createTempFile("wcs-geotiff", ".tmp");
+                fileStream = new BufferedOutputStream(new FileOutputStream(file));
+                for (byte[] tile : tiles) {
+                    fileStream.write(tile);
+                }
+                tiles.clear();
+            }
+            if (fileStream != null) {
+                fileStream.write(b, off, len);
+            } else if (off == 0 && len == b.length) {
+                // the encoded tiles are not modified after being written
+                tiles.add(b);
+            } else {
+                tiles.add(Arrays.copyOfRange(b, off, off + len));
+            }
+            size += len;
+        }
+
+        /**
+         * Write the tiles in the given stream.
+         */
+        private void writeTo(final OutputStream out) throws IOException {
+            if (fileStream != null) {
+                fileStream.close();
+                Files.copy(file.toPath(), out);
+            } else {
+                for (byte[] tile : tiles) {
+                    out.write(tile);
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            tiles.clear();
+            if (fileStream != null) {
+                try {
+                    fileStream.close();
+                } finally {
+                    if (!file.delete()) {
+                        file.deleteOnExit();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * A TIFF field, with its values encoded in big endian.
+     */
+    private static final class Entry implements Comparable<Entry> {
+
+        private final int tag;
+
+        private final short type;
+
+        private final int count;
+
+        private final byte[] data;
+
+        private Entry(final int tag, final short type, final int count, final byte[] data) {
+            this.tag   = tag;
+            this.type  = type;
+            this.count = count;
+            this.data  = data;
+        }
+
+        private static Entry shorts(final int tag, final int... values) {
+            final ByteBuffer buffer = ByteBuffer.allocate(values.length * 2);
+            for (int value : values) {
+                buffer.putShort((short) value);
+            }
+            return new Entry(tag, TYPE_SHORT, values.length, buffer.array());
+        }
+
+        private static Entry longs(final int tag, final int... values) {
+            final ByteBuffer buffer = ByteBuffer.allocate(values.length * 4);
+            for (int value : values) {
+                buffer.putInt(value);
+            }
+            return new Entry(tag, TYPE_LONG, values.length, buffer.array());
+        }
+
+        private static Entry offsets(final int tag, final long[] values, final boolean big) {
+            final ByteBuffer buffer = ByteBuffer.allocate(values.length * (big ? 8 : 4));
+            for (long value : values) {
+                if (big) {
+                    buffer.putLong(value);
+                } else {
+                    buffer.putInt((int) value);
+                }
+            }
+            return new Entry(tag, big ? TYPE_LONG8 : TYPE_LONG, values.length, buffer.array());
+        }
+
+        private static Entry doubles(final int tag, final double... values) {
+            final ByteBuffer buffer = ByteBuffer.allocate(values.length * 8);
+            for (double value : values) {
+                buffer.putDouble(value);
+            }
+            return new Entry(tag, TYPE_DOUBLE, values.length, buffer.array());
+        }
+
+        private static Entry ascii(final int tag, final String value) {
+            final byte[] chars = (value + '\0').getBytes(StandardCharsets.US_ASCII);
+            return new Entry(tag, TYPE_ASCII, chars.length, chars);
+        }
+
+        @Override
+        public int compareTo(final Entry other) {
+            return Integer.compare(tag, other.tag);
+        }
+    }
+}
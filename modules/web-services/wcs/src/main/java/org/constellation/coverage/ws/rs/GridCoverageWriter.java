@@ -19,8 +19,10 @@
 
 package org.constellation.coverage.ws.rs;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import org.apache.sis.util.logging.Logging;
 import org.geotoolkit.coverage.grid.GridCoverage2D;
 import org.geotoolkit.image.io.metadata.SpatialMetadata;
@@ -50,7 +52,7 @@ import org.opengis.referencing.crs.CompoundCRS;
  * @author guilhem
  */
 @Provider
-@Produces("image/tiff")
+@Produces({"image/tiff", "image/geotiff"})
 public class GridCoverageWriter<T extends GeotiffResponse> implements MessageBodyWriter<T> {
 
     private static final Logger LOGGER = Logging.getLogger("org.constellation.coverage.ws.rs");
@@ -65,42 +67,67 @@ public class GridCoverageWriter<T extends GeotiffResponse> implements MessageBod
         return -1;
     }
 
+    /**
+     * Write the coverage directly in the response when it and its metadata are supported by {@link GeotiffStreamWriter},
+     * through a temporary file written by the geotk GeoTIFF writer otherwise.
+     */
     @Override
     public void writeTo(final T entry, final Class<?> type, final Type type1, final Annotation[] antns, final MediaType mt, final MultivaluedMap<String, Object> mm, final OutputStream out) throws IOException, WebApplicationException {
-        final File f = writeInFile(entry);
-        byte[] buf = new byte[8192];
-        FileInputStream is = new FileInputStream(f);
-        int c = 0;
-        while ((c = is.read(buf, 0, buf.length)) > 0) {
-            out.write(buf, 0, c);
+        final GridCoverage2D coverage = to2D(entry.coverage);
+        final GeotiffStreamWriter writer = GeotiffStreamWriter.create(coverage, entry.metadata, entry.compression, entry.tiling, entry.tileWidth, entry.tileHeight);
+        if (writer != null) {
+            writer.write(out);
             out.flush();
+            return;
+        }
+        final File f = writeInFile(entry, coverage);
+        try (FileInputStream is = new FileInputStream(f)) {
+            byte[] buf = new byte[8192];
+            int c = 0;
+            while ((c = is.read(buf, 0, buf.length)) > 0) {
+                out.write(buf, 0, c);
+            }
+            out.flush();
+        } finally {
+            f.delete();
         }
-        out.close();
-        is.close();
-
     }
 
     public static File writeInFile(final GeotiffResponse entry) throws IOException {
-        final GridCoverage2D coverage    = entry.coverage;
-        final SpatialMetadata metadata   = entry.metadata;
+        final GridCoverage2D outCoverage = to2D(entry.coverage);
+        final GeotiffStreamWriter writer = GeotiffStreamWriter.create(outCoverage, entry.metadata, entry.compression, entry.tiling, entry.tileWidth, entry.tileHeight);
+        if (writer != null) {
+            final File f = File.createTempFile(outCoverage.getName().toString(), ".tiff");
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(f))) {
+                writer.write(out);
+            }
+            return f;
+        }
+        return writeInFile(entry, outCoverage);
+    }
 
-        // we don"t support 3D crs writing
-        final GridCoverage2D outCoverage;
+    /**
+     * we don"t support 3D crs writing
+     */
+    private static GridCoverage2D to2D(final GridCoverage2D coverage) throws IOException {
         if (coverage.getCoordinateReferenceSystem() instanceof CompoundCRS) {
             try {
-                outCoverage = new ResampleProcess(coverage, coverage.getCoordinateReferenceSystem2D(), null).executeNow();
+                return new ResampleProcess(coverage, coverage.getCoordinateReferenceSystem2D(), null).executeNow();
             } catch (ProcessException ex) {
                 throw new IOException("Erro while reprojecting coverage to 2D projection", ex);
             }
-        } else {
-            outCoverage = coverage;
         }
+        return coverage;
+    }
+
+    static File writeInFile(final GeotiffResponse entry, final GridCoverage2D outCoverage) throws IOException {
+        final SpatialMetadata metadata   = entry.metadata;
 
         final IIOImage iioimage    = new IIOImage(outCoverage.getRenderedImage(), null, metadata);
         final ImageWriter iowriter = ImageIO.getImageWritersByFormatName("geotiff").next();
 
         // TIFF writer do no support writing in output stream currently, we have to write in a file before
-        final File f = File.createTempFile(coverage.getName().toString(), ".tiff");
+        final File f = File.createTempFile(outCoverage.getName().toString(), ".tiff");
         iowriter.setOutput(f);
         TiffImageWriteParam param = new TiffImageWriteParam(iowriter);
         if (entry.compression != null && !entry.compression.equals("NONE")) {
@@ -115,4 +142,4 @@ public class GridCoverageWriter<T extends GeotiffResponse> implements MessageBod
         iowriter.dispose();
         return f;
     }
-}
\ No newline at end of file
+}
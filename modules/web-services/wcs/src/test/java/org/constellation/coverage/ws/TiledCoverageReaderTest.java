@@ -0,0 +1,341 @@
+/*
+ *    Constellation - An open source and standard compliant SDI
+ *    http://www.constellation-sdi.org
+ *
+ * Copyright 2014 Geomatys.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.constellation.coverage.ws;
+
+import org.apache.sis.geometry.GeneralEnvelope;
+import org.apache.sis.referencing.operation.matrix.Matrix3;
+import org.apache.sis.referencing.operation.transform.MathTransforms;
+import org.constellation.provider.CoverageData;
+import org.constellation.ws.CstlServiceException;
+import org.geotoolkit.coverage.Category;
+import org.geotoolkit.coverage.GridSampleDimension;
+import org.geotoolkit.coverage.grid.GridCoverage2D;
+import org.geotoolkit.coverage.grid.GridCoverageFactory;
+import org.geotoolkit.coverage.grid.GridEnvelope2D;
+import org.geotoolkit.coverage.grid.GridGeometry2D;
+import org.geotoolkit.referencing.CRS;
+import org.geotoolkit.util.NamesExt;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opengis.geometry.Envelope;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.cs.AxisDirection;
+import org.opengis.referencing.cs.CoordinateSystem;
+import org.opengis.referencing.cs.CoordinateSystemAxis;
+import org.opengis.referencing.datum.PixelInCell;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Compare the coverages read by tiles by {@link TiledCoverageReader} with the ones read in one call,
+ * from a layer which ignores the requested size, like {@link org.constellation.provider.DefaultCoverageData}.
+ *
+ * @author Guilhem Legal (Geomatys)
+ */
+public class TiledCoverageReaderTest {
+
+    private static final int WIDTH = 1000;
+
+    private static final int HEIGHT = 800;
+
+    /**
+     * The size of the pixels of the layer, in metres.
+     */
+    private static final double RESOLUTION = 10;
+
+    /**
+     * The no-data value of the gray layer.
+     */
+    private static final int NO_DATA = 255;
+
+    private static CoordinateReferenceSystem crs;
+
+    private static BufferedImage source;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        crs = CRS.decode("EPSG:3857");
+        source = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_3BYTE_BGR);
+        final WritableRaster raster = source.getRaster();
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                raster.setSample(x, y, 0, x % 256);
+                raster.setSample(x, y, 1, y % 256);
+                raster.setSample(x, y, 2, (x / 256) * 16 + y / 256);
+            }
+        }
+    }
+
+    /**
+     * At the resolution of the layer, the tiles are copied on the requested grid.
+     */
+    @Test
+    public void nativeResolutionTest() throws Exception {
+        final Envelope envelope = envelope(0, 0, WIDTH * RESOLUTION, HEIGHT * RESOLUTION);
+        final Dimension size = new Dimension(WIDTH, HEIGHT);
+        final Raster tiled  = new TiledCoverageReader(256, 0).read(createLayer(null), envelope, size, null, null).getRenderedImage().getData();
+        final Raster direct = new TiledCoverageReader(0, 0).read(createLayer(null), envelope, size, null, null).getRenderedImage().getData();
+        assertEquals(WIDTH,  tiled.getWidth());
+        assertEquals(HEIGHT, tiled.getHeight());
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                for (int b = 0; b < 3; b++) {
+                    assertEquals(direct.getSample(x, y, b), tiled.getSample(x, y, b));
+                }
+            }
+        }
+    }
+
+    /**
+     * Below the resolution of the layer, each tile read at the resolution of the layer is resampled on the
+     * requested grid, where the coverage read in one call stays at the resolution of the layer.
+     */
+    @Test
+    public void lowerResolutionTest() throws Exception {
+        final double minX = 1500, minY = 500;
+        final Envelope envelope = envelope(minX, minY, WIDTH * RESOLUTION, HEIGHT * RESOLUTION);
+        final Dimension size = new Dimension(510, 600);
+        final GridCoverage2D coverage = new TiledCoverageReader(256, 0).read(createLayer(null), envelope, size, null, null);
+        final GridCoverage2D direct   = new TiledCoverageReader(0, 0).read(createLayer(null), envelope, size, null, null);
+        final Raster tiled    = coverage.getRenderedImage().getData();
+        final Raster expected = direct.getRenderedImage().getData();
+        assertEquals(size.width,  tiled.getWidth());
+        assertEquals(size.height, tiled.getHeight());
+
+        final double resX = envelope.getSpan(0) / size.width;
+        final double resY = envelope.getSpan(1) / size.height;
+        final double maxY = envelope.getMaximum(1);
+        // the coverage read in one call starts on the pixel of the layer containing the requested corner
+        final int directX = (int) Math.floor(minX / RESOLUTION);
+        final int directY = (int) Math.floor((HEIGHT * RESOLUTION - maxY) / RESOLUTION);
+        for (int y = 0; y < size.height; y++) {
+            for (int x = 0; x < size.width; x++) {
+                final double cx = minX + (x + 0.5) * resX;
+                final double cy = maxY - (y + 0.5) * resY;
+                final int sx = (int) Math.floor(cx / RESOLUTION) - directX;
+                final int sy = (int) Math.floor((HEIGHT * RESOLUTION - cy) / RESOLUTION) - directY;
+                for (int b = 0; b < 3; b++) {
+                    assertEquals("pixel " + x + "," + y, expected.getSample(sx, sy, b), tiled.getSample(x, y, b));
+                }
+            }
+        }
+    }
+
+    /**
+     * A response too large is refused before reading the layer.
+     */
+    @Test
+    public void maxResponseSizeTest() throws Exception {
+        final AtomicInteger reads = new AtomicInteger();
+        final Envelope envelope = envelope(0, 0, WIDTH * RESOLUTION, HEIGHT * RESOLUTION);
+        for (int tileSize : new int[]{0, 256}) {
+            try {
+                new TiledCoverageReader(tileSize, 1000000).read(createLayer(reads), envelope, new Dimension(WIDTH, HEIGHT), null, null);
+                fail("The response exceeds the maximum size.");
+            } catch (CstlServiceException ex) {
+                // expected
+            }
+        }
+        assertEquals(0, reads.get());
+        // 256 x 256 RGB pixels are below the limit
+        new TiledCoverageReader(256, 1000000).read(createLayer(reads), envelope, new Dimension(256, 256), null, null);
+        assertEquals(1, reads.get());
+    }
+
+    /**
+     * The pixels of the tiles outside of the layer hold the no-data value of the band,
+     * when the tiles are copied or resampled.
+     */
+    @Test
+    public void noDataTest() throws Exception {
+        final BufferedImage gray = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_BYTE_GRAY);
+        final WritableRaster raster = gray.getRaster();
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                raster.setSample(x, y, 0, (x + y) % 200);
+            }
+        }
+        final GridSampleDimension[] bands = {
+            new GridSampleDimension("band", new Category[]{new Category("nodata", new Color(0, 0, 0, 0), NO_DATA)}, null)
+        };
+
+        // at the resolution of the layer, 100 pixels on the west of the layer
+        final Raster copied = new TiledCoverageReader(256, 0).read(createLayer(null, gray, bands),
+                envelope(-100 * RESOLUTION, 0, (WIDTH - 100) * RESOLUTION, HEIGHT * RESOLUTION),
+                new Dimension(WIDTH, HEIGHT), null, null).getRenderedImage().getData();
+        for (int y = 0; y < HEIGHT; y += 7) {
+            for (int x = 0; x < WIDTH; x += 3) {
+                final int expected = (x < 100) ? NO_DATA : raster.getSample(x - 100, y, 0);
+                assertEquals("pixel " + x + "," + y, expected, copied.getSample(x, y, 0));
+            }
+        }
+
+        // below the resolution of the layer
+        final double minX = -2000;
+        final Envelope envelope = envelope(minX, 0, WIDTH * RESOLUTION, HEIGHT * RESOLUTION);
+        final Dimension size = new Dimension(510, 600);
+        final Raster resampled = new TiledCoverageReader(256, 0).read(createLayer(null, gray, bands), envelope, size, null, null)
+                .getRenderedImage().getData();
+        final double resX = envelope.getSpan(0) / size.width;
+        final double resY = envelope.getSpan(1) / size.height;
+        for (int y = 0; y < size.height; y += 7) {
+            for (int x = 0; x < size.width; x += 3) {
+                final double cx = minX + (x + 0.5) * resX;
+                final double cy = HEIGHT * RESOLUTION - (y + 0.5) * resY;
+                final int expected = (cx < 0) ? NO_DATA
+                        : raster.getSample((int) Math.floor(cx / RESOLUTION), (int) Math.floor((HEIGHT * RESOLUTION - cy) / RESOLUTION), 0);
+                assertEquals("pixel " + x + "," + y, expected, resampled.getSample(x, y, 0));
+            }
+        }
+    }
+
+    /**
+     * Only the CRS with the axes (east, north) are read by tiles.
+     */
+    @Test
+    public void axisDirectionTest() throws Exception {
+        assertTrue(TiledCoverageReader.isEastNorth(crs));
+        assertFalse(TiledCoverageReader.isEastNorth(CRS.decode("EPSG:4326")));
+        assertFalse(TiledCoverageReader.isEastNorth(createCRS(AxisDirection.WEST, AxisDirection.NORTH)));
+        assertFalse(TiledCoverageReader.isEastNorth(createCRS(AxisDirection.EAST, AxisDirection.SOUTH)));
+        assertFalse(TiledCoverageReader.isEastNorth(null));
+    }
+
+    /**
+     * Create a 2D CRS which only knows the direction of its axes.
+     */
+    private static CoordinateReferenceSystem createCRS(final AxisDirection... directions) {
+        final CoordinateSystem cs = (CoordinateSystem) Proxy.newProxyInstance(CoordinateSystem.class.getClassLoader(),
+                new Class<?>[]{CoordinateSystem.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                switch (method.getName()) {
+                    case "getDimension": return directions.length;
+                    case "getAxis": {
+                        final AxisDirection direction = directions[(Integer) args[0]];
+                        return Proxy.newProxyInstance(CoordinateSystemAxis.class.getClassLoader(), new Class<?>[]{CoordinateSystemAxis.class},
+                                new InvocationHandler() {
+                            @Override
+                            public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                                if ("getDirection".equals(method.getName())) {
+                                    return direction;
+                                }
+                                throw new UnsupportedOperationException(method.getName());
+                            }
+                        });
+                    }
+                    default: throw new UnsupportedOperationException(method.getName());
+                }
+            }
+        });
+        return (CoordinateReferenceSystem) Proxy.newProxyInstance(CoordinateReferenceSystem.class.getClassLoader(),
+                new Class<?>[]{CoordinateReferenceSystem.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                if ("getCoordinateSystem".equals(method.getName())) {
+                    return cs;
+                }
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    private static Envelope envelope(final double minX, final double minY, final double maxX, final double maxY) {
+        final GeneralEnvelope envelope = new GeneralEnvelope(crs);
+        envelope.setRange(0, minX, maxX);
+        envelope.setRange(1, minY, maxY);
+        return envelope;
+    }
+
+    /**
+     * Create a coverage of the source image, whose upper left corner is the pixel (x, y).
+     */
+    private static GridCoverage2D createCoverage(final int x, final int y, final int width, final int height) {
+        return createCoverage(source, null, x, y, width, height);
+    }
+
+    /**
+     * Create a coverage of an image of the layer size, whose upper left corner is the pixel (x, y).
+     */
+    private static GridCoverage2D createCoverage(final BufferedImage image, final GridSampleDimension[] bands,
+            final int x, final int y, final int width, final int height) {
+        final Matrix3 gridToCRS = new Matrix3(RESOLUTION, 0, x * RESOLUTION,
+                                              0, -RESOLUTION, (HEIGHT - y) * RESOLUTION,
+                                              0, 0, 1);
+        final GridGeometry2D grid = new GridGeometry2D(new GridEnvelope2D(0, 0, width, height), PixelInCell.CELL_CORNER,
+                MathTransforms.linear(gridToCRS), crs, null);
+        return new GridCoverageFactory().create("test", image.getSubimage(x, y, width, height), grid, bands, null, null);
+    }
+
+    /**
+     * Create a layer returning the pixels of the source image covering the requested envelope, whatever the requested size.
+     *
+     * @param reads The counter of the coverages read, can be {@code null}.
+     */
+    private static CoverageData createLayer(final AtomicInteger reads) {
+        return createLayer(reads, source, null);
+    }
+
+    /**
+     * Create a layer returning the pixels of an image of the layer size covering the requested envelope.
+     *
+     * @param reads The counter of the coverages read, can be {@code null}.
+     * @param image The image of the layer.
+     * @param bands The sample dimensions of the layer, can be {@code null}.
+     */
+    private static CoverageData createLayer(final AtomicInteger reads, final BufferedImage image, final GridSampleDimension[] bands) {
+        return (CoverageData) Proxy.newProxyInstance(CoverageData.class.getClassLoader(), new Class<?>[]{CoverageData.class},
+                new InvocationHandler() {
+            @Override
+            public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                switch (method.getName()) {
+                    case "getName": return NamesExt.create("test");
+                    case "getSampleDimensions": return Arrays.asList(createCoverage(image, bands, 0, 0, 1, 1).getSampleDimensions());
+                    case "getCoverage": {
+                        if (reads != null) {
+                            reads.incrementAndGet();
+                        }
+                        final Envelope envelope = (Envelope) args[0];
+                        final int x0 = Math.max(0,      (int) Math.floor(envelope.getMinimum(0) / RESOLUTION));
+                        final int x1 = Math.min(WIDTH,  (int) Math.ceil (envelope.getMaximum(0) / RESOLUTION));
+                        final int y0 = Math.max(0,      (int) Math.floor(HEIGHT - envelope.getMaximum(1) / RESOLUTION));
+                        final int y1 = Math.min(HEIGHT, (int) Math.ceil (HEIGHT - envelope.getMinimum(1) / RESOLUTION));
+                        return createCoverage(image, bands, x0, y0, x1 - x0, y1 - y0);
+                    }
+                    case "toString": return "test layer";
+                    default: throw new UnsupportedOperationException(method.getName());
+                }
+            }
+        });
+    }
+}
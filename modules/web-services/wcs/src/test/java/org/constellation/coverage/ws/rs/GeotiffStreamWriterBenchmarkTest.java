@@ -0,0 +1,124 @@
+/*
+ *    Constellation - An open source and standard compliant SDI
+ *    http://www.constellation-sdi.org
+ *
+ * Copyright 2014 Geomatys.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.constellation.coverage.ws.rs;
+
+import org.apache.sis.util.logging.Logging;
+import org.geotoolkit.coverage.grid.GridCoverage2D;
+import org.geotoolkit.coverage.grid.GridCoverageBuilder;
+import org.geotoolkit.geometry.GeneralEnvelope;
+import org.geotoolkit.referencing.CRS;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Measure the time to write a GeoTIFF in a stream by {@link GeotiffStreamWriter}, and in a temporary
+ * file by the geotk writer. The content of the stream is checked by {@link GeotiffStreamWriterTest}.
+ *
+ * @author Guilhem Legal (Geomatys)
+ */
+public class GeotiffStreamWriterBenchmarkTest {
+
+    private static final Logger LOGGER = Logging.getLogger("org.constellation.coverage.ws.rs");
+
+    private static final int SIZE = 2048;
+
+    private static final int NB_ITERATION = 3;
+
+    private static GridCoverage2D coverage;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        final BufferedImage image = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_3BYTE_BGR);
+        final WritableRaster raster = image.getRaster();
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                raster.setSample(x, y, 0, x % 256);
+                raster.setSample(x, y, 1, y % 256);
+                raster.setSample(x, y, 2, (x + y) % 256);
+            }
+        }
+        final GeneralEnvelope envelope = new GeneralEnvelope(CRS.decode("EPSG:3857"));
+        envelope.setRange(0, 0, 100000);
+        envelope.setRange(1, 0, 100000);
+        final GridCoverageBuilder builder = new GridCoverageBuilder();
+        builder.setName("bench");
+        builder.setRenderedImage(image);
+        builder.setEnvelope(envelope);
+        coverage = builder.getGridCoverage2D();
+    }
+
+    /**
+     * Measure the time to send the coverage through a temporary file, as done before,
+     * and directly in the stream.
+     */
+    @Test
+    public void benchmarkTest() throws Exception {
+        final GeotiffResponse entry = new GeotiffResponse();
+        entry.coverage = coverage;
+
+        long fileTime = 0;
+        long streamTime = 0;
+        long deflateTime = 0;
+        for (int i = 0; i < NB_ITERATION; i++) {
+            long start = System.currentTimeMillis();
+            final File f = GridCoverageWriter.writeInFile(entry, coverage);
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (InputStream in = new FileInputStream(f)) {
+                final byte[] buffer = new byte[8192];
+                int c;
+                while ((c = in.read(buffer)) > 0) {
+                    out.write(buffer, 0, c);
+                }
+            } finally {
+                f.delete();
+            }
+            fileTime += System.currentTimeMillis() - start;
+
+            start = System.currentTimeMillis();
+            stream(null, false);
+            streamTime += System.currentTimeMillis() - start;
+
+            start = System.currentTimeMillis();
+            stream(GeotiffStreamWriter.DEFLATE, true);
+            deflateTime += System.currentTimeMillis() - start;
+        }
+        LOGGER.log(Level.INFO, "GeoTIFF {0}x{0}: file {1} ms, stream {2} ms, stream deflate {3} ms",
+                new Object[]{SIZE, fileTime / NB_ITERATION, streamTime / NB_ITERATION, deflateTime / NB_ITERATION});
+    }
+
+    private static byte[] stream(final String compression, final boolean tiling) throws IOException {
+        final GeotiffStreamWriter writer = GeotiffStreamWriter.create(coverage, null, compression, tiling, 256, 256);
+        assertNotNull(writer);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.write(out);
+        return out.toByteArray();
+    }
+}
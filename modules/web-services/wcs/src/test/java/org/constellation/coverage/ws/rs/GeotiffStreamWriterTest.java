@@ -0,0 +1,471 @@
+/*
+ *    Constellation - An open source and standard compliant SDI
+ *    http://www.constellation-sdi.org
+ *
+ * Copyright 2014 Geomatys.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.constellation.coverage.ws.rs;
+
+import org.apache.sis.referencing.operation.matrix.Matrix3;
+import org.apache.sis.referencing.operation.transform.MathTransforms;
+import org.geotoolkit.coverage.grid.GridCoverage2D;
+import org.geotoolkit.coverage.grid.GridCoverageFactory;
+import org.geotoolkit.coverage.grid.GridEnvelope2D;
+import org.geotoolkit.coverage.grid.GridGeometry2D;
+import org.geotoolkit.referencing.CRS;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.cs.AxisDirection;
+import org.opengis.referencing.datum.PixelInCell;
+import org.w3c.dom.Node;
+
+import javax.imageio.ImageIO;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import java.awt.Transparency;
+import java.awt.color.ColorSpace;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BandedSampleModel;
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.WritableRaster;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test the GeoTIFF written in a stream by {@link GeotiffStreamWriter}.
+ *
+ * @author Guilhem Legal (Geomatys)
+ */
+public class GeotiffStreamWriterTest {
+
+    private static final int WIDTH = 300;
+
+    private static final int HEIGHT = 200;
+
+    // TIFF field types.
+    private static final int TYPE_LONG  = 4;
+    private static final int TYPE_LONG8 = 16;
+
+    // TIFF and GeoTIFF tags.
+    private static final int IMAGE_WIDTH       = 256;
+    private static final int BITS_PER_SAMPLE   = 258;
+    private static final int PHOTOMETRIC       = 262;
+    private static final int STRIP_OFFSETS     = 273;
+    private static final int SAMPLES_PER_PIXEL = 277;
+    private static final int ROWS_PER_STRIP    = 278;
+    private static final int COLOR_MAP         = 320;
+    private static final int TILE_OFFSETS      = 324;
+    private static final int SAMPLE_FORMAT     = 339;
+    private static final int MODEL_PIXEL_SCALE = 33550;
+    private static final int MODEL_TIEPOINT    = 33922;
+    private static final int MODEL_TRANSFORM   = 34264;
+    private static final int GEO_KEY_DIRECTORY = 34735;
+
+    /**
+     * A RGB coverage in EPSG:3857, with a pixel size of 10 m and the rows going southward.
+     */
+    private static GridCoverage2D coverage;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        final BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_3BYTE_BGR);
+        final WritableRaster raster = image.getRaster();
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                raster.setSample(x, y, 0, x % 256);
+                raster.setSample(x, y, 1, y % 256);
+                raster.setSample(x, y, 2, (x + y) % 256);
+            }
+        }
+        coverage = create(image, CRS.decode("EPSG:3857"), new AffineTransform(10, 0, 0, -10, 1000, 5000));
+    }
+
+    @Test
+    public void stripTest() throws Exception {
+        checkImage(stream(coverage, null, false), false);
+    }
+
+    @Test
+    public void tiledDeflateTest() throws Exception {
+        checkImage(stream(coverage, GeotiffStreamWriter.DEFLATE, true), true);
+    }
+
+    /**
+     * The compressed tiles beyond the memory limit are written in a temporary file, deleted once the image is sent,
+     * giving the same image as the tiles kept in memory.
+     */
+    @Test
+    public void deflateTemporaryFileTest() throws Exception {
+        final File tmpDir = new File(System.getProperty("java.io.tmpdir"));
+        final FilenameFilter filter = new FilenameFilter() {
+            @Override
+            public boolean accept(final File dir, final String name) {
+                return name.startsWith("wcs-geotiff") && name.endsWith(".tmp");
+            }
+        };
+        final int nbTmpFiles = tmpDir.list(filter).length;
+        final byte[] inMemory = stream(coverage, GeotiffStreamWriter.DEFLATE, true, Long.MAX_VALUE);
+        // all the tiles in the file, and only the last ones
+        assertArrayEquals(inMemory, stream(coverage, GeotiffStreamWriter.DEFLATE, true, 0));
+        assertArrayEquals(inMemory, stream(coverage, GeotiffStreamWriter.DEFLATE, true, inMemory.length / 2));
+        checkImage(inMemory, true);
+        assertEquals(nbTmpFiles, tmpDir.list(filter).length);
+    }
+
+    /**
+     * A north-up image is described by its pixel scale and the position of its upper left corner.
+     */
+    @Test
+    public void georeferencingTest() throws Exception {
+        final Map<Integer, Field> fields = readDirectory(stream(coverage, null, false));
+        assertArrayEquals(new double[]{10, 10, 0}, fields.get(MODEL_PIXEL_SCALE).values, 0);
+        assertArrayEquals(new double[]{0, 0, 0, 1000, 5000, 0}, fields.get(MODEL_TIEPOINT).values, 0);
+        assertNull(fields.get(MODEL_TRANSFORM));
+        // projected model, pixel is area, EPSG:3857
+        assertArrayEquals(new double[]{1, 1, 0, 3, 1024, 0, 1, 1, 1025, 0, 1, 1, 3072, 0, 1, 3857},
+                fields.get(GEO_KEY_DIRECTORY).values, 0);
+    }
+
+    /**
+     * An image with the rows going northward can not be described by a pixel scale.
+     */
+    @Test
+    public void positiveScaleYTest() throws Exception {
+        final GridCoverage2D flipped = create(coverage.getRenderedImage(), CRS.decode("EPSG:3857"),
+                new AffineTransform(10, 0, 0, 10, 1000, 3000));
+        final Map<Integer, Field> fields = readDirectory(stream(flipped, null, false));
+        assertNull(fields.get(MODEL_PIXEL_SCALE));
+        assertNull(fields.get(MODEL_TIEPOINT));
+        assertArrayEquals(new double[]{10, 0, 0, 1000,
+                                       0, 10, 0, 3000,
+                                       0,  0, 0,    0,
+                                       0,  0, 0,    1}, fields.get(MODEL_TRANSFORM).values, 0);
+    }
+
+    /**
+     * The GeoTIFF model space is always (longitude, latitude), whatever the axis order of the CRS.
+     */
+    @Test
+    public void latitudeFirstTest() throws Exception {
+        final CoordinateReferenceSystem crs = CRS.decode("EPSG:4326");
+        assertEquals(AxisDirection.NORTH, crs.getCoordinateSystem().getAxis(0).getDirection());
+        final BufferedImage image = new BufferedImage(40, 20, BufferedImage.TYPE_BYTE_GRAY);
+        // latitude = 50 - 0.5 * row, longitude = 10 + 0.25 * column
+        final GridCoverage2D latFirst = create(image, crs, new AffineTransform(0, 0.25, -0.5, 0, 50, 10));
+        final Map<Integer, Field> fields = readDirectory(stream(latFirst, null, false));
+        assertArrayEquals(new double[]{0.25, 0.5, 0}, fields.get(MODEL_PIXEL_SCALE).values, 0);
+        assertArrayEquals(new double[]{0, 0, 0, 10, 50, 0}, fields.get(MODEL_TIEPOINT).values, 0);
+        // geographic model, pixel is area, EPSG:4326
+        assertArrayEquals(new double[]{1, 1, 0, 3, 1024, 0, 1, 2, 1025, 0, 1, 1, 2048, 0, 1, 4326},
+                fields.get(GEO_KEY_DIRECTORY).values, 0);
+    }
+
+    /**
+     * A BigTIFF has 64 bits offsets, and the same samples as a classic TIFF.
+     */
+    @Test
+    public void bigTiffTest() throws Exception {
+        final GeotiffStreamWriter writer = GeotiffStreamWriter.create(coverage, null, null, false, 0, 0);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.write(out, true);
+        final byte[] tiff = out.toByteArray();
+        final ByteBuffer buffer = ByteBuffer.wrap(tiff);
+        assertEquals(43, buffer.getShort(2));
+        assertEquals(8,  buffer.getShort(4));
+
+        final Map<Integer, Field> fields = readDirectory(tiff);
+        assertEquals(TYPE_LONG8, fields.get(STRIP_OFFSETS).type);
+        assertArrayEquals(new double[]{10, 10, 0}, fields.get(MODEL_PIXEL_SCALE).values, 0);
+        final Raster expected = coverage.getRenderedImage().getData();
+        for (int i = 0; i < HEIGHT; i += 37) {
+            for (int b = 0; b < 3; b++) {
+                assertEquals(expected.getSample(i, i, b), sample(tiff, fields, i, i, b), 0);
+            }
+        }
+    }
+
+    /**
+     * The writer switches to BigTIFF when the tiles exceed the size of a classic TIFF.
+     */
+    @Test
+    public void bigTiffLimitTest() throws Exception {
+        final GridCoverage2D gray = create(new BufferedImage(64, 64, BufferedImage.TYPE_BYTE_GRAY), CRS.decode("EPSG:3857"),
+                new AffineTransform(10, 0, 0, -10, 1000, 5000));
+        final GeotiffStreamWriter writer = GeotiffStreamWriter.create(gray, null, null, true, 16, 16);
+        final long[] byteCounts = new long[16];
+
+        Arrays.fill(byteCounts, 256);
+        byte[] directory = writer.buildDirectory(byteCounts, false);
+        assertEquals(42, ByteBuffer.wrap(directory).getShort(2));
+        assertEquals(TYPE_LONG, readDirectory(directory).get(TILE_OFFSETS).type);
+
+        Arrays.fill(byteCounts, 0x10000000L);
+        directory = writer.buildDirectory(byteCounts, false);
+        assertEquals(43, ByteBuffer.wrap(directory).getShort(2));
+        final Field offsets = readDirectory(directory).get(TILE_OFFSETS);
+        assertEquals(TYPE_LONG8, offsets.type);
+        assertEquals(15 * 0x10000000L, offsets.values[15] - offsets.values[0], 0);
+    }
+
+    /**
+     * An indexed image is written with its color map.
+     */
+    @Test
+    public void paletteTest() throws Exception {
+        final byte[] r = {0, (byte) 255, 0, 0};
+        final byte[] g = {0, 0, (byte) 255, 0};
+        final byte[] b = {0, 0, 0, (byte) 255};
+        final BufferedImage image = new BufferedImage(64, 32, BufferedImage.TYPE_BYTE_INDEXED, new IndexColorModel(8, 4, r, g, b));
+        final WritableRaster raster = image.getRaster();
+        for (int y = 0; y < 32; y++) {
+            for (int x = 0; x < 64; x++) {
+                raster.setSample(x, y, 0, (x + y) % 4);
+            }
+        }
+        final GridCoverage2D indexed = create(image, CRS.decode("EPSG:3857"), new AffineTransform(10, 0, 0, -10, 1000, 5000));
+        final byte[] tiff = stream(indexed, null, false);
+        final Map<Integer, Field> fields = readDirectory(tiff);
+        assertEquals(3, fields.get(PHOTOMETRIC).values[0], 0);
+        assertEquals(1, fields.get(SAMPLES_PER_PIXEL).values[0], 0);
+        final double[] colorMap = fields.get(COLOR_MAP).values;
+        assertEquals(3 * 256, colorMap.length);
+        for (int i = 0; i < 4; i++) {
+            assertEquals((r[i] & 0xFF) * 257, colorMap[i], 0);
+            assertEquals((g[i] & 0xFF) * 257, colorMap[256 + i], 0);
+            assertEquals((b[i] & 0xFF) * 257, colorMap[512 + i], 0);
+        }
+        for (int x = 0; x < 64; x += 5) {
+            assertEquals((x + 7) % 4, sample(tiff, fields, x, 7, 0), 0);
+        }
+    }
+
+    /**
+     * The floating point samples are written as IEEE floats.
+     */
+    @Test
+    public void floatTest() throws Exception {
+        final int width  = 40;
+        final int height = 30;
+        final WritableRaster raster = Raster.createWritableRaster(new BandedSampleModel(DataBuffer.TYPE_FLOAT, width, height, 1), null);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                raster.setSample(x, y, 0, x * 0.5f - y);
+            }
+        }
+        final ComponentColorModel cm = new ComponentColorModel(ColorSpace.getInstance(ColorSpace.CS_GRAY), false, false,
+                Transparency.OPAQUE, DataBuffer.TYPE_FLOAT);
+        final GridCoverage2D floats = create(new BufferedImage(cm, raster, false, null), CRS.decode("EPSG:3857"),
+                new AffineTransform(10, 0, 0, -10, 1000, 5000));
+        final byte[] tiff = stream(floats, null, false);
+        final Map<Integer, Field> fields = readDirectory(tiff);
+        assertEquals(3,  fields.get(SAMPLE_FORMAT).values[0], 0);
+        assertEquals(32, fields.get(BITS_PER_SAMPLE).values[0], 0);
+        assertEquals(1,  fields.get(PHOTOMETRIC).values[0], 0);
+        for (int y = 0; y < height; y += 7) {
+            for (int x = 0; x < width; x += 3) {
+                assertEquals(x * 0.5f - y, sample(tiff, fields, x, y, 0), 0);
+            }
+        }
+    }
+
+    /**
+     * The coverage is written by the geotk writer if its metadata holds more than the georeferencing.
+     */
+    @Test
+    public void metadataTest() throws Exception {
+        final IIOMetadataNode root = new IIOMetadataNode("test");
+        final IIOMetadataNode domain = new IIOMetadataNode("RectifiedGridDomain");
+        domain.setAttribute("origin", "1000 5000");
+        root.appendChild(domain);
+        assertNotNull(GeotiffStreamWriter.create(coverage, metadata(root), null, false, 0, 0));
+
+        final IIOMetadataNode description = new IIOMetadataNode("ImageDescription");
+        final IIOMetadataNode dimension   = new IIOMetadataNode("Dimension");
+        dimension.setAttribute("descriptor", "red");
+        description.appendChild(dimension);
+        root.appendChild(description);
+        assertNull(GeotiffStreamWriter.create(coverage, metadata(root), null, false, 0, 0));
+
+        // the coverage has no no-data value
+        dimension.removeAttribute("descriptor");
+        dimension.setAttribute("fillSampleValues", "0");
+        assertNull(GeotiffStreamWriter.create(coverage, metadata(root), null, false, 0, 0));
+    }
+
+    private static GridCoverage2D create(final RenderedImage image, final CoordinateReferenceSystem crs, final AffineTransform gridToCRS) {
+        final Matrix3 matrix = new Matrix3(gridToCRS.getScaleX(), gridToCRS.getShearX(), gridToCRS.getTranslateX(),
+                                           gridToCRS.getShearY(), gridToCRS.getScaleY(), gridToCRS.getTranslateY(),
+                                           0, 0, 1);
+        final GridGeometry2D grid = new GridGeometry2D(new GridEnvelope2D(0, 0, image.getWidth(), image.getHeight()),
+                PixelInCell.CELL_CORNER, MathTransforms.linear(matrix), crs, null);
+        return new GridCoverageFactory().create("test", image, grid, null, null, null);
+    }
+
+    private static IIOMetadata metadata(final IIOMetadataNode root) {
+        return new IIOMetadata(false, root.getNodeName(), null, null, null) {
+            @Override
+            public boolean isReadOnly() {
+                return true;
+            }
+
+            @Override
+            public Node getAsTree(final String formatName) {
+                return root;
+            }
+
+            @Override
+            public void mergeTree(final String formatName, final Node node) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void reset() {
+            }
+        };
+    }
+
+    private static byte[] stream(final GridCoverage2D coverage, final String compression, final boolean tiling) throws IOException {
+        final GeotiffStreamWriter writer = GeotiffStreamWriter.create(coverage, null, compression, tiling, 64, 64);
+        assertNotNull(writer);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.write(out);
+        return out.toByteArray();
+    }
+
+    private static byte[] stream(final GridCoverage2D coverage, final String compression, final boolean tiling,
+            final long maxMemory) throws IOException {
+        final GeotiffStreamWriter writer = GeotiffStreamWriter.create(coverage, null, compression, tiling, 64, 64);
+        assertNotNull(writer);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.write(out, false, maxMemory);
+        return out.toByteArray();
+    }
+
+    private static void checkImage(final byte[] tiff, final boolean tiled) throws IOException {
+        final RenderedImage result = ImageIO.read(new ByteArrayInputStream(tiff));
+        assertNotNull(result);
+        assertEquals(WIDTH, result.getWidth());
+        assertEquals(HEIGHT, result.getHeight());
+        final Raster expected = coverage.getRenderedImage().getData();
+        final Raster actual   = result.getData();
+        for (int i = 0; i < HEIGHT; i += 13) {
+            for (int b = 0; b < 3; b++) {
+                assertEquals("tiled:" + tiled, expected.getSample(i, HEIGHT - 1 - i, b), actual.getSample(i, HEIGHT - 1 - i, b));
+            }
+        }
+    }
+
+    /**
+     * Read the fields of the first directory of a big endian TIFF or BigTIFF.
+     */
+    private static Map<Integer, Field> readDirectory(final byte[] tiff) {
+        final ByteBuffer buffer = ByteBuffer.wrap(tiff);
+        assertEquals('M', buffer.get(0));
+        assertEquals('M', buffer.get(1));
+        final boolean big   = buffer.getShort(2) == 43;
+        final int inline    = big ? 8 : 4;
+        final int directory = (int) (big ? buffer.getLong(8) : buffer.getInt(4));
+        final int nbFields  = (int) (big ? buffer.getLong(directory) : buffer.getShort(directory));
+        int position = directory + (big ? 8 : 2);
+
+        final Map<Integer, Field> fields = new HashMap<>();
+        for (int i = 0; i < nbFields; i++, position += big ? 20 : 12) {
+            final int tag   = buffer.getShort(position) & 0xFFFF;
+            final int type  = buffer.getShort(position + 2);
+            final int count = (int) (big ? buffer.getLong(position + 4) : buffer.getInt(position + 4));
+            final int size;
+            switch (type) {
+                case 2:  size = 1; break;
+                case 3:  size = 2; break;
+                case 4:  size = 4; break;
+                default: size = 8;
+            }
+            final int valuePosition = position + 4 + inline;
+            final int start;
+            if (count * size <= inline) {
+                start = valuePosition;
+            } else {
+                start = (int) (big ? buffer.getLong(valuePosition) : buffer.getInt(valuePosition) & 0xFFFFFFFFL);
+            }
+            final double[] values = new double[count];
+            for (int j = 0; j < count; j++) {
+                final int p = start + j * size;
+                switch (type) {
+                    case 2:  values[j] = buffer.get(p); break;
+                    case 3:  values[j] = buffer.getShort(p) & 0xFFFF; break;
+                    case 4:  values[j] = buffer.getInt(p) & 0xFFFFFFFFL; break;
+                    case 12: values[j] = buffer.getDouble(p); break;
+                    default: values[j] = buffer.getLong(p);
+                }
+            }
+            assertFalse("duplicated tag " + tag, fields.containsKey(tag));
+            fields.put(tag, new Field(type, values));
+        }
+        assertTrue(fields.containsKey(IMAGE_WIDTH));
+        return fields;
+    }
+
+    /**
+     * Read a sample of an uncompressed image cut in strips.
+     */
+    private static double sample(final byte[] tiff, final Map<Integer, Field> fields, final int x, final int y, final int band) {
+        final int width  = (int) fields.get(IMAGE_WIDTH).values[0];
+        final int bands  = (int) fields.get(SAMPLES_PER_PIXEL).values[0];
+        final int bytes  = (int) fields.get(BITS_PER_SAMPLE).values[0] / 8;
+        final int rows   = (int) fields.get(ROWS_PER_STRIP).values[0];
+        final int offset = (int) fields.get(STRIP_OFFSETS).values[y / rows];
+        final int position = offset + (((y % rows) * width + x) * bands + band) * bytes;
+        final ByteBuffer buffer = ByteBuffer.wrap(tiff);
+        final boolean floating = fields.get(SAMPLE_FORMAT).values[0] == 3;
+        switch (bytes) {
+            case 1:  return buffer.get(position) & 0xFF;
+            case 2:  return buffer.getShort(position) & 0xFFFF;
+            case 4:  return floating ? buffer.getFloat(position) : buffer.getInt(position);
+            default: return buffer.getDouble(position);
+        }
+    }
+
+    private static final class Field {
+
+        private final int type;
+
+        private final double[] values;
+
+        private Field(final int type, final double[] values) {
+            this.type   = type;
+            this.values = values;
+        }
+    }
+}
@@ -32,6 +32,7 @@ import org.opengis.util.FactoryException;
 
 import java.util.logging.Level;
 import org.apache.sis.util.logging.Logging;
+import org.constellation.util.CRSCache;
 
 /**
  *
@@ -68,7 +69,7 @@ public class CrsAdjustFilterVisitor extends DuplicatingFilterVisitor{
                 if(geoCrs == null){
                     JTS.setCRS(geo, replacementCrs);
                 }else if(CRS.equalsIgnoreMetadata(geoCrs, baseCrs)){
-                    geo = JTS.transform(geo, CRS.findMathTransform(baseCrs, replacementCrs));
+                    geo = JTS.transform(geo, CRSCache.findMathTransform(baseCrs, replacementCrs));
                     JTS.setCRS(geo, replacementCrs);
                 }
                 obj = geo;
@@ -19,6 +19,8 @@
 
 package org.constellation.wfs.ws;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.vividsolutions.jts.geom.Coordinate;
 import com.vividsolutions.jts.geom.Geometry;
 import com.vividsolutions.jts.geom.GeometryFactory;
@@ -36,6 +38,7 @@ import org.constellation.dto.Details;
 import org.constellation.provider.Data;
 import org.constellation.provider.FeatureData;
 import org.constellation.security.SecurityManagerHolder;
+import org.constellation.util.CRSCache;
 import org.constellation.util.QNameComparator;
 import org.constellation.util.QnameLocalComparator;
 import org.constellation.wfs.ws.rs.FeatureCollectionWrapper;
@@ -44,6 +47,7 @@ import org.constellation.ws.CstlServiceException;
 import org.constellation.ws.LayerWorker;
 import org.constellation.ws.UnauthorizedException;
 import org.geotoolkit.data.FeatureCollection;
+import org.geotoolkit.data.FeatureIterator;
 import org.geotoolkit.data.FeatureStore;
 import org.geotoolkit.data.FeatureStoreUtilities;
 import org.geotoolkit.data.memory.GenericReprojectFeatureIterator;
@@ -165,6 +169,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import org.apache.sis.xml.Namespaces;
 import org.constellation.wfs.ws.WFSConstants.GetXSD;
@@ -227,8 +232,26 @@ public class DefaultWFSWorker extends LayerWorker implements WFSWorker {
 
     private final boolean isTransactionnal;
 
+    /**
+     * Count the features matching the GetFeature queries (numberMatched).
+     */
+    private final MatchedCounter matchedCounter;
+
+    /**
+     * The time in milliseconds during which the writer waits for the numberMatched before writing it as unknown.
+     */
+    private final long matchedTimeout;
+
+    /**
+     * The CRS exposed for each feature type, by type name. The providers can build a new feature type
+     * on each call, so the entries are dropped on the layer and provider events, by {@link #clearLayerCache()}.
+     */
+    private final Cache<GenericName, ExposedCRS> exposedCRS = CacheBuilder.newBuilder().build();
+
     public DefaultWFSWorker(final String id) {
         super(id, ServiceDef.Specification.WFS);
+        matchedCounter = new MatchedCounter(MatchedCounter.Strategy.fromValue(getProperty("numberMatched")), getDurationProperty("numberMatchedTTL", 10));
+        matchedTimeout = getDurationProperty("numberMatchedTimeout", 5);
         if (isStarted) {
             LOGGER.log(Level.INFO, "WFS worker {0} running", id);
         }
@@ -251,6 +274,49 @@ public class DefaultWFSWorker extends LayerWorker implements WFSWorker {
        loadStoredQueries();
     }
 
+    /**
+     * Read a duration in seconds from the service properties.
+     * Used for the time during which a numberMatched count is reused (numberMatchedTTL, 10 seconds by default)
+     * and the time during which the writer waits for it (numberMatchedTimeout, 5 seconds by default).
+     *
+     * @return The duration in milliseconds.
+     */
+    private long getDurationProperty(final String key, final long defaultSeconds) {
+        final String value = getProperty(key);
+        if (value != null) {
+            try {
+                return Long.parseLong(value.trim()) * 1000;
+            } catch (NumberFormatException ex) {
+                LOGGER.log(Level.WARNING, "Unable to parse the property {0}:{1}", new Object[]{key, value});
+            }
+        }
+        return defaultSeconds * 1000;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void clearLayerCache() {
+        super.clearLayerCache();
+        // may be called by a listener before the end of the construction
+        if (matchedCounter != null) {
+            matchedCounter.clear();
+        }
+        if (exposedCRS != null) {
+            exposedCRS.invalidateAll();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void destroy() {
+        super.destroy();
+        matchedCounter.destroy();
+    }
+
     private void loadStoredQueries() {
         try {
             final Object obj = serviceBusiness.getExtraConfiguration("WFS", getId(), "StoredQueries.xml", getMarshallerPool());
@@ -384,7 +450,7 @@ public class DefaultWFSWorker extends LayerWorker implements WFSWorker {
                 final org.geotoolkit.wfs.xml.FeatureType ftt;
                 try {
 
-                    final String defaultCRS = getCRSCode(type);
+                    final String defaultCRS = getExposedCRSCode(type);
                     final String title;
                     if (configLayer.getTitle() != null) {
                         title = configLayer.getTitle();
@@ -481,6 +547,32 @@ public class DefaultWFSWorker extends LayerWorker implements WFSWorker {
         return defaultCRS;
     }
 
+    /**
+     * Return the CRS exposed for a feature type, decoding its code only the first time.
+     */
+    private ExposedCRS getExposedCRS(final FeatureType type) throws FactoryException {
+        ExposedCRS exposed = exposedCRS.getIfPresent(type.getName());
+        if (exposed == null) {
+            final String code = getCRSCode(type);
+            final CoordinateReferenceSystem crs = CRSCache.decode(code);
+            exposed = new ExposedCRS(code, crs, !CRS.equalsIgnoreMetadata(crs, type.getCoordinateReferenceSystem()));
+            exposedCRS.put(type.getName(), exposed);
+        }
+        return exposed;
+    }
+
+    /**
+     * Return the code of the CRS exposed for a feature type, without decoding it.
+     * A code which can not be decoded is still listed in the capabilities, as before.
+     */
+    private String getExposedCRSCode(final FeatureType type) throws FactoryException {
+        final ExposedCRS exposed = exposedCRS.getIfPresent(type.getName());
+        if (exposed != null) {
+            return exposed.code;
+        }
+        return getCRSCode(type);
+    }
+
 
     /**
      * {@inheritDoc }
@@ -878,12 +970,16 @@ public class DefaultWFSWorker extends LayerWorker implements WFSWorker {
         // we verify the base attribute
         verifyBaseRequest(request, false, false);
 
-        long nbMatched                             = 0;
         final String userLogin                     = getUserLogin();
         final String currentVersion                = request.getVersion().toString();
         final int maxFeatures                      = request.getCount();
         final Integer startIndex                   = request.getStartIndex();
         final List<FeatureCollection> collections  = new ArrayList<>();
+        final List<Future<Long>> matchedCounts     = new ArrayList<>();
+        final boolean hits                         = request.getResultType() == ResultTypeType.HITS;
+        // WFS 1.1.0 numberOfFeatures is the number of features in the response, WFS 2.0 numberMatched the number of matching features
+        final boolean countReturned                = !"2.0.0".equals(currentVersion);
+        long nbReturned                            = 0;
         final Map<String, String> schemaLocations  = new HashMap<>();
         final Map<String, String> namespaceMapping = request.getPrefixMapping();
         if ((request.getQuery() == null || request.getQuery().isEmpty()) && (request.getStoredQuery() == null || request.getStoredQuery().isEmpty())) {
@@ -961,6 +1057,19 @@ public class DefaultWFSWorker extends LayerWorker implements WFSWorker {
                 // we verify that all the properties contained in the filter are known by the feature type.
                 verifyFilterProperty(ft, cleanFilter, aliases);
 
+                // the matching features are counted in background, without paging
+                Future<Long> matched = null;
+                if (!countReturned) {
+                    final QueryBuilder countBuilder = new QueryBuilder();
+                    countBuilder.setTypeName(ft.getName());
+                    countBuilder.setFilter(cleanFilter);
+                    matched = matchedCounter.count(layer.getStore(), countBuilder.buildQuery(), hits);
+                    matchedCounts.add(matched);
+                    if (hits) {
+                        continue;
+                    }
+                }
+
                 if (maxFeatures != 0){
                     queryBuilder.setMaxFeatures(maxFeatures);
                 }
@@ -968,26 +1077,31 @@ public class DefaultWFSWorker extends LayerWorker implements WFSWorker {
                 final Session session = layer.getStore().createSession(false);
                 final org.geotoolkit.data.query.Query qb = queryBuilder.buildQuery();
                 FeatureCollection collection = session.getFeatureCollection(qb);
-                int colSize = 0;
-
-                // look for matching count
                 queryBuilder.setMaxFeatures(null);
+
+                // look for a matching feature in the requested page
+                final boolean empty;
                 try {
-                    colSize = collection.size();
-                    nbMatched = nbMatched +  colSize;
+                    if (countReturned) {
+                        final int colSize = collection.size();
+                        nbReturned = nbReturned + colSize;
+                        empty = colSize == 0;
+                    } else {
+                        empty = (matched != null && matched.isDone() && Long.valueOf(0).equals(MatchedCounter.getValue(matched)))
+                             || isEmpty(collection);
+                    }
                 } catch (FeatureStoreRuntimeException ex) {
                     throw new CstlServiceException(ex);
                 }
 
-                if (colSize>0) {
+                if (!empty) {
                     if(queryCRS == null){
                         try {
                             //ensure axes are in the declared order, since we use urn epsg, we must comply
                             //to proper epsg axis order
-                            final String defaultCRS = getCRSCode(ft);
-                            final CoordinateReferenceSystem rcrs = CRS.decode(defaultCRS);
-                            if(!CRS.equalsIgnoreMetadata(rcrs, ft.getCoordinateReferenceSystem())){
-                                collection = GenericReprojectFeatureIterator.wrap(collection, CRS.decode(defaultCRS));
+                            final ExposedCRS exposed = getExposedCRS(ft);
+                            if (exposed.reprojected) {
+                                collection = GenericReprojectFeatureIterator.wrap(collection, exposed.crs);
                             }
                         } catch (FactoryException ex) {
                             LOGGER.log(Level.WARNING, ex.getMessage(), ex);
@@ -1031,25 +1145,47 @@ public class DefaultWFSWorker extends LayerWorker implements WFSWorker {
         } else {
             featureCollection = FeatureStoreUtilities.collection("collection-1", null);
         }
-        if (request.getResultType() == ResultTypeType.HITS) {
+        if (hits) {
             final XMLGregorianCalendar calendar;
             try {
                 calendar = org.apache.sis.internal.jaxb.XmlUtilities.toXML(null, new Date());
             } catch (DatatypeConfigurationException e) {
                 throw new CstlServiceException("Unable to create XMLGregorianCalendar from Date.");
             }
-            return buildFeatureCollection(currentVersion, "collection-1", featureCollection.size(), calendar);
+            long nbMatched = nbReturned;
+            for (Future<Long> matched : matchedCounts) {
+                final Long value = MatchedCounter.getValue(matched);
+                if (value == null) {
+                    throw new CstlServiceException("Unable to count the matching features.");
+                }
+                nbMatched = nbMatched + value;
+            }
+            return buildFeatureCollection(currentVersion, "collection-1", (int) Math.min(Integer.MAX_VALUE, nbMatched), calendar);
         }
         LOGGER.log(logLevel, "GetFeature treated in {0}ms", (System.currentTimeMillis() - start));
 
-        if(queries.size()==1 && queries.containsKey("urn:ogc:def:query:OGC-WFS::GetFeatureById")){
-            return new FeatureCollectionWrapper(featureCollection, schemaLocations, gmlVersion, currentVersion, (int)nbMatched,true);
-        }else{
-            return new FeatureCollectionWrapper(featureCollection, schemaLocations, gmlVersion, currentVersion, (int)nbMatched,false);
+        final boolean singleFeature = queries.size()==1 && queries.containsKey("urn:ogc:def:query:OGC-WFS::GetFeatureById");
+        if (countReturned) {
+            return new FeatureCollectionWrapper(featureCollection, schemaLocations, gmlVersion, currentVersion, (int) nbReturned, singleFeature);
         }
+        // the numberMatched is read by the writer, the counts can still be running
+        final Future<Integer> nbMatched = MatchedCounter.sum(matchedCounts);
+        return new FeatureCollectionWrapper(featureCollection, schemaLocations, gmlVersion, currentVersion, nbMatched, matchedTimeout, singleFeature);
         
     }
 
+    /**
+     * Look for a feature in a collection, without counting all its features.
+     */
+    private static boolean isEmpty(final FeatureCollection collection) {
+        final FeatureIterator ite = collection.iterator();
+        try {
+            return !ite.hasNext();
+        } finally {
+            ite.close();
+        }
+    }
+
     @Override
     public Object getPropertyValue(final GetPropertyValue request) throws CstlServiceException {
         LOGGER.log(logLevel, "GetPropertyValue request processing\n");
@@ -1430,13 +1566,12 @@ public class DefaultWFSWorker extends LayerWorker implements WFSWorker {
                             value = updateProperty.getValue();
                             if (value instanceof AbstractGeometryType) {
                                 try {
-                                    final String defaultCRS = getCRSCode(ft);
-                                    final CoordinateReferenceSystem exposedCrs = CRS.decode(defaultCRS);
+                                    final CoordinateReferenceSystem exposedCrs = getExposedCRS(ft).crs;
                                     final CoordinateReferenceSystem trueCrs = ((GeometryType)propertyType).getCoordinateReferenceSystem();
 
                                     value = GeometrytoJTS.toJTS((AbstractGeometryType) value);
                                     if(trueCrs != null && !CRS.equalsIgnoreMetadata(exposedCrs, trueCrs)){
-                                        value = JTS.transform((Geometry)value, CRS.findMathTransform(exposedCrs, trueCrs));
+                                        value = JTS.transform((Geometry)value, CRSCache.findMathTransform(exposedCrs, trueCrs));
                                     }
 
                                 } catch (TransformException | FactoryException ex) {
@@ -1600,6 +1735,8 @@ public class DefaultWFSWorker extends LayerWorker implements WFSWorker {
             }
 
         }
+        // the counts of the modified feature types are no longer valid
+        matchedCounter.clear();
 
         final TransactionResponse response = buildTransactionResponse(currentVersion,
                                                                       totalInserted,
@@ -1698,7 +1835,7 @@ public class DefaultWFSWorker extends LayerWorker implements WFSWorker {
         final CoordinateReferenceSystem crs;
         if (srsName != null) {
             try {
-                crs = CRS.decode(srsName, false);
+                crs = CRSCache.decode(srsName, false);
                 //todo use other properties to filter properly
             } catch (NoSuchAuthorityCodeException ex) {
                 throw new CstlServiceException(ex, INVALID_PARAMETER_VALUE);
@@ -1770,8 +1907,8 @@ public class DefaultWFSWorker extends LayerWorker implements WFSWorker {
      */
     private Filter processFilter(final FeatureType ft, Filter filter, final Map<String, QName> aliases){
         try {
-            final String defaultCRS = getCRSCode(ft);
-            final CoordinateReferenceSystem exposedCrs = CRS.decode(defaultCRS);
+            final ExposedCRS exposed = getExposedCRS(ft);
+            final CoordinateReferenceSystem exposedCrs = exposed.crs;
             final CoordinateReferenceSystem trueCrs = ft.getCoordinateReferenceSystem();
 
             filter = (Filter) filter.accept(new AliasFilterVisitor(aliases), null);
@@ -1780,7 +1917,7 @@ public class DefaultWFSWorker extends LayerWorker implements WFSWorker {
             filter = (Filter) filter.accept(new GMLNamespaceVisitor(), null);
             filter = (Filter) filter.accept(new BooleanVisitor(ft), null);
 
-            if (exposedCrs!=null && trueCrs!=null && !CRS.equalsIgnoreMetadata(trueCrs, exposedCrs)) {
+            if (exposedCrs!=null && trueCrs!=null && exposed.reprojected) {
                 filter = (Filter) filter.accept(FillCrsVisitor.VISITOR, exposedCrs);
                 filter = (Filter) filter.accept(new CrsAdjustFilterVisitor(exposedCrs, trueCrs), null);
             }
@@ -1798,7 +1935,7 @@ public class DefaultWFSWorker extends LayerWorker implements WFSWorker {
     private static Object toBBox(final FeatureStore source, final GenericName groupName, final String version) throws CstlServiceException{
         try {
             Envelope env = source.getEnvelope(QueryBuilder.all(groupName));
-            final CoordinateReferenceSystem epsg4326 = CRS.decode("urn:ogc:def:crs:OGC:2:84");
+            final CoordinateReferenceSystem epsg4326 = CRSCache.decode("urn:ogc:def:crs:OGC:2:84");
             if (env != null) {
                 if (!CRS.equalsIgnoreMetadata(env.getCoordinateReferenceSystem(), epsg4326)) {
                     env = CRS.transform(env, epsg4326);
@@ -1965,8 +2102,7 @@ public class DefaultWFSWorker extends LayerWorker implements WFSWorker {
             try {
                 //fix feature type to define the exposed crs : true EPSG axis order
                 final FeatureType baseType = getFeatureTypeFromLayer((FeatureData)layer);
-                final String crsCode = getCRSCode(baseType);
-                final CoordinateReferenceSystem exposedCrs = CRS.decode(crsCode);
+                final CoordinateReferenceSystem exposedCrs = getExposedCRS(baseType).crs;
                 final FeatureType exposedType = FeatureTypeUtilities.transform(baseType, exposedCrs);
                 types.add(exposedType);
             } catch (Exception ex) {
@@ -2065,4 +2201,25 @@ public class DefaultWFSWorker extends LayerWorker implements WFSWorker {
         }
         return results;
     }
+
+    /**
+     * The CRS exposed for a feature type, with the true EPSG axis order.
+     */
+    private static final class ExposedCRS {
+
+        private final String code;
+
+        private final CoordinateReferenceSystem crs;
+
+        /**
+         * {@code true} if the features must be reprojected in the exposed CRS.
+         */
+        private final boolean reprojected;
+
+        private ExposedCRS(final String code, final CoordinateReferenceSystem crs, final boolean reprojected) {
+            this.code        = code;
+            this.crs         = crs;
+            this.reprojected = reprojected;
+        }
+    }
 }
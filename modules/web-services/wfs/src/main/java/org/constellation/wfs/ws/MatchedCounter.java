@@ -0,0 +1,426 @@
+/*
+ *    Constellation - An open source and standard compliant SDI
+ *    http://www.constellation-sdi.org
+ *
+ * Copyright 2014 Geomatys.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.constellation.wfs.ws;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.sis.util.logging.Logging;
+import org.geotoolkit.data.FeatureCollection;
+import org.geotoolkit.data.FeatureStore;
+import org.geotoolkit.data.query.Query;
+import org.opengis.filter.Filter;
+import org.opengis.util.GenericName;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Compute the number of features matching the queries of the GetFeature requests.
+ *
+ * The counts are computed in background, so they run while the features are read,
+ * and are kept for a short time by feature type and filter.
+ *
+ * @author Guilhem Legal (Geomatys)
+ */
+final class MatchedCounter {
+
+    private static final Logger LOGGER = Logging.getLogger("org.constellation.wfs.ws");
+
+    /**
+     * The maximum number of counts kept in memory.
+     */
+    private static final int MAX_COUNTS = 1000;
+
+    /**
+     * The maximum number of counts waiting for a thread of the pool.
+     */
+    static final int MAX_PENDING = 100;
+
+    /**
+     * The number of threads of the pool.
+     */
+    static final int NB_THREADS = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The pool running the counts, shared by all the WFS workers. When too many counts are pending,
+     * the new ones are refused and their number is unknown.
+     */
+    private static final ExecutorService POOL;
+    static {
+        final ThreadPoolExecutor pool = new ThreadPoolExecutor(NB_THREADS, NB_THREADS, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(MAX_PENDING), new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+            @Override
+            public Thread newThread(final Runnable r) {
+                final Thread thread = new Thread(r, "wfs-matched-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        pool.allowCoreThreadTimeOut(true);
+        POOL = pool;
+    }
+
+    /**
+     * The way the numberMatched of a response is computed.
+     */
+    enum Strategy {
+        /**
+         * Count all the matching features.
+         */
+        EXACT,
+        /**
+         * Return the last count of the same query even if it is older than the time to live,
+         * the count is refreshed in background. The number is unknown if the query has never been counted.
+         */
+        ESTIMATED,
+        /**
+         * Do not count the matching features, the number is unknown (allowed by WFS 2.0).
+         */
+        UNKNOWN;
+
+        static Strategy fromValue(final String value) {
+            if (value != null) {
+                for (Strategy strategy : values()) {
+                    if (strategy.name().equalsIgnoreCase(value.trim())) {
+                        return strategy;
+                    }
+                }
+                LOGGER.log(Level.WARNING, "Unknown numberMatched strategy:{0}, using exact.", value);
+            }
+            return EXACT;
+        }
+    }
+
+    private final Strategy strategy;
+
+    /**
+     * The time in milliseconds during which a count is reused.
+     */
+    private final long timeToLive;
+
+    private final Cache<Key, Count> counts = CacheBuilder.newBuilder().maximumSize(MAX_COUNTS).build();
+
+    /**
+     * @param strategy The way the numberMatched are computed.
+     * @param timeToLive The time in milliseconds during which a count is reused.
+     */
+    MatchedCounter(final Strategy strategy, final long timeToLive) {
+        this.strategy   = strategy;
+        this.timeToLive = timeToLive;
+    }
+
+    Strategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * Start the count of the features matching a query.
+     *
+     * @param store The feature store of the feature type, the count is made in its own session.
+     * @param query A query without start index and maximum number of features.
+     * @param exact {@code true} if the exact count is required whatever the strategy, for the hits requests.
+     *
+     * @return The future count, or {@code null} if the count is unknown.
+     */
+    Future<Long> count(final FeatureStore store, final Query query, final boolean exact) {
+        final Strategy current = exact ? Strategy.EXACT : strategy;
+        if (current == Strategy.UNKNOWN) {
+            return null;
+        }
+        final Key key     = new Key(query.getTypeName(), query.getFilter());
+        final Count count = counts.getIfPresent(key);
+        final long now    = System.currentTimeMillis();
+        if (count != null && count.isFailed()) {
+            // a failed count is not reused, its previous value is still the estimate
+            counts.invalidate(key);
+        } else if (count != null && now - count.time < timeToLive) {
+            return current == Strategy.EXACT ? count.value : count.getKnownValue();
+        }
+
+        final Callable<Long> task = new Callable<Long>() {
+            @Override
+            public Long call() {
+                final FeatureCollection collection = store.createSession(false).getFeatureCollection(query);
+                return (long) collection.size();
+            }
+        };
+        final Future<Long> value;
+        try {
+            value = POOL.submit(task);
+        } catch (RejectedExecutionException ex) {
+            LOGGER.log(Level.FINE, "Too many pending counts, the number of matching features of {0} is not counted.", key.typeName);
+            if (exact) {
+                // the hits requests only return the count
+                try {
+                    return new Done(task.call());
+                } catch (Exception e) {
+                    LOGGER.log(Level.WARNING, "Error while counting the matching features", e);
+                    return null;
+                }
+            }
+            return count != null ? count.getKnownValue() : null;
+        }
+        final Count newCount = new Count(value, now, count != null ? count.getLastValue() : null);
+        counts.put(key, newCount);
+        return current == Strategy.EXACT ? value : newCount.getKnownValue();
+    }
+
+    /**
+     * Remove all the counts, after a transaction or a modification of the layers.
+     */
+    void clear() {
+        counts.invalidateAll();
+    }
+
+    /**
+     * Remove all the counts. The running ones are not interrupted, the pool being shared.
+     */
+    void destroy() {
+        counts.invalidateAll();
+    }
+
+    /**
+     * Sum the counts of the feature types of a request.
+     *
+     * @param values The count of each feature type, a {@code null} element for an unknown count.
+     * @return The total, or {@code null} if a count is unknown.
+     */
+    static Future<Integer> sum(final List<Future<Long>> values) {
+        for (Future<Long> value : values) {
+            if (value == null) {
+                return null;
+            }
+        }
+        return new Sum(values);
+    }
+
+    /**
+     * Read the value of a count, waiting for its end.
+     *
+     * @return The count, or {@code null} if the count failed.
+     */
+    static Long getValue(final Future<Long> value) {
+        try {
+            return value.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ex) {
+            LOGGER.log(Level.WARNING, "Error while counting the matching features", ex.getCause());
+        }
+        return null;
+    }
+
+    /**
+     * The key of a count: the feature type and the filter, compared by value.
+     */
+    private static final class Key {
+
+        private final GenericName typeName;
+
+        private final Filter filter;
+
+        private Key(final GenericName typeName, final Filter filter) {
+            this.typeName = typeName;
+            this.filter   = filter;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (obj instanceof Key) {
+                final Key that = (Key) obj;
+                return Objects.equals(typeName, that.typeName) && Objects.equals(filter, that.filter);
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(typeName, filter);
+        }
+    }
+
+    /**
+     * A count started at a given time, with the value of the previous count of the same query.
+     */
+    private static final class Count {
+
+        private final Future<Long> value;
+
+        private final long time;
+
+        private final Long previous;
+
+        private Count(final Future<Long> value, final long time, final Long previous) {
+            this.value    = value;
+            this.time     = time;
+            this.previous = previous;
+        }
+
+        /**
+         * @return {@code true} if this count is finished without value.
+         */
+        private boolean isFailed() {
+            if (!value.isDone()) {
+                return false;
+            }
+            if (value.isCancelled()) {
+                return true;
+            }
+            try {
+                value.get();
+                return false;
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return false;
+            } catch (ExecutionException ex) {
+                return true;
+            }
+        }
+
+        /**
+         * @return The value of this count if it is finished, the previous value otherwise. Can be {@code null}.
+         */
+        private Long getLastValue() {
+            if (value.isDone()) {
+                final Long v = getValue(value);
+                return v != null ? v : previous;
+            }
+            return previous;
+        }
+
+        /**
+         * @return The last known value, without waiting, or {@code null} if unknown.
+         */
+        private Future<Long> getKnownValue() {
+            final Long v = getLastValue();
+            return v != null ? new Done(v) : null;
+        }
+    }
+
+    /**
+     * An already known count.
+     */
+    private static final class Done implements Future<Long> {
+
+        private final Long value;
+
+        private Done(final Long value) {
+            this.value = value;
+        }
+
+        @Override
+        public boolean cancel(final boolean mayInterruptIfRunning) {
+            return false;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+
+        @Override
+        public boolean isDone() {
+            return true;
+        }
+
+        @Override
+        public Long get() {
+            return value;
+        }
+
+        @Override
+        public Long get(final long timeout, final TimeUnit unit) {
+            return value;
+        }
+    }
+
+    /**
+     * The sum of the counts of several feature types, computed when it is requested.
+     */
+    private static final class Sum implements Future<Integer> {
+
+        private final List<Future<Long>> values;
+
+        private Sum(final List<Future<Long>> values) {
+            this.values = values;
+        }
+
+        @Override
+        public boolean cancel(final boolean mayInterruptIfRunning) {
+            boolean cancelled = false;
+            for (Future<Long> value : values) {
+                cancelled |= value.cancel(mayInterruptIfRunning);
+            }
+            return cancelled;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            for (Future<Long> value : values) {
+                if (value.isCancelled()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public boolean isDone() {
+            for (Future<Long> value : values) {
+                if (!value.isDone()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public Integer get() throws InterruptedException, ExecutionException {
+            long total = 0;
+            for (Future<Long> value : values) {
+                total += value.get();
+            }
+            return (int) Math.min(Integer.MAX_VALUE, total);
+        }
+
+        @Override
+        public Integer get(final long timeout, final TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            final long end = System.nanoTime() + unit.toNanos(timeout);
+            long total = 0;
+            for (Future<Long> value : values) {
+                total += value.get(Math.max(0, end - System.nanoTime()), TimeUnit.NANOSECONDS);
+            }
+            return (int) Math.min(Integer.MAX_VALUE, total);
+        }
+    }
+}
@@ -18,18 +18,38 @@
  */
 package org.constellation.wfs.ws.rs;
 
+import org.apache.sis.util.logging.Logging;
 import org.geotoolkit.data.FeatureCollection;
 
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
 /**
  *
  * @author Guilhem Legal (Geomatys)
  */
 public class FeatureCollectionWrapper {
 
+    private static final Logger LOGGER = Logging.getLogger("org.constellation.wfs.ws.rs");
+
     private final FeatureCollection featureCollection;
 
-    private final int nbMatched;
+    private final Integer nbMatched;
+
+    /**
+     * The number of matching features computed while the features are read, or {@code null}.
+     */
+    private final Future<Integer> futureNbMatched;
+
+    /**
+     * The time in milliseconds during which the writer waits for {@link #futureNbMatched}.
+     */
+    private final long nbMatchedTimeout;
     
     private final Map<String, String> schemaLocations;
 
@@ -46,6 +66,24 @@ public class FeatureCollectionWrapper {
         this.wfsVersion = wfsVersion;
         this.schemaLocations = schemaLocations;
         this.nbMatched = nbMatched;
+        this.futureNbMatched = null;
+        this.nbMatchedTimeout = 0;
+        this.writeSingleFeature = writeSingleFeature;
+    }
+
+    /**
+     * @param nbMatched The number of matching features, which may be still computing, or {@code null} if unknown.
+     * @param nbMatchedTimeout The time in milliseconds to wait for the end of the count, after which the number is unknown.
+     */
+    public FeatureCollectionWrapper(final FeatureCollection featureCollection, final Map<String, String> schemaLocations, final String gmlVersion,
+            final String wfsVersion, final Future<Integer> nbMatched, final long nbMatchedTimeout, boolean writeSingleFeature) {
+        this.featureCollection = featureCollection;
+        this.gmlVersion = gmlVersion;
+        this.wfsVersion = wfsVersion;
+        this.schemaLocations = schemaLocations;
+        this.nbMatched = null;
+        this.futureNbMatched = nbMatched;
+        this.nbMatchedTimeout = nbMatchedTimeout;
         this.writeSingleFeature = writeSingleFeature;
     }
 
@@ -78,9 +116,24 @@ public class FeatureCollectionWrapper {
     }
 
     /**
-     * @return the nbMatched
+     * Return the number of matching features, waiting for the end of the count if needed.
+     * A count which is not finished after the timeout is unknown, it goes on for the next requests.
+     *
+     * @return the nbMatched, or {@code null} if unknown.
      */
-    public int getNbMatched() {
+    public Integer getNbMatched() {
+        if (futureNbMatched != null) {
+            try {
+                return futureNbMatched.get(nbMatchedTimeout, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException ex) {
+                LOGGER.log(Level.WARNING, "Error while counting the matching features", ex.getCause());
+            } catch (TimeoutException ex) {
+                LOGGER.log(Level.FINE, "The count of the matching features is not finished after {0} ms.", nbMatchedTimeout);
+            }
+            return null;
+        }
         return nbMatched;
     }
 
@@ -18,6 +18,7 @@
  */
 package org.constellation.wfs;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.StringWriter;
 import java.net.URL;
@@ -57,6 +58,7 @@ import org.constellation.util.Util;
 import org.constellation.wfs.ws.DefaultWFSWorker;
 import org.constellation.wfs.ws.WFSWorker;
 import org.constellation.wfs.ws.rs.FeatureCollectionWrapper;
+import org.constellation.wfs.ws.rs.FeatureCollectionWriter;
 import org.constellation.wfs.ws.rs.ValueCollectionWrapper;
 import org.constellation.ws.CstlServiceException;
 import org.constellation.ws.embedded.AbstractGrizzlyServer;
@@ -146,6 +148,7 @@ import org.geotoolkit.xsd.xml.v2001.XSDMarshallerPool;
 import org.junit.After;
 import org.junit.AfterClass;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import org.junit.Before;
@@ -2344,6 +2347,79 @@ public class WFS2WorkerTest implements ApplicationContextAware {
 
     }
 
+    /**
+     * The numberMatched of the GetFeature responses of the services using the exact, estimated and unknown strategies.
+     */
+    @Test
+    @Order(order=22)
+    public void numberMatchedStrategyTest() throws Exception {
+        final List<QueryType> queries = new ArrayList<>();
+        queries.add(new QueryType(null, Arrays.asList(new QName("http://www.opengis.net/gml/3.2", "NamedPlaces")), null));
+        final GetFeatureType results = new GetFeatureType("WFS", "2.0.0", null, null, Integer.MAX_VALUE, queries, ResultTypeType.RESULTS, "text/xml; subtype=gml/3.2.1");
+        final GetFeatureType hits    = new GetFeatureType("WFS", "2.0.0", null, null, Integer.MAX_VALUE, queries, ResultTypeType.HITS, "text/xml; subtype=gml/3.2.1");
+
+        WFSWorker matchedWorker = createMatchedWorker("exact");
+        try {
+            final FeatureCollectionWrapper wrapper = (FeatureCollectionWrapper) matchedWorker.getFeature(results);
+            assertEquals(Integer.valueOf(2), wrapper.getNbMatched());
+            assertTrue(write(wrapper).contains("numberMatched=\"2\""));
+        } finally {
+            destroyMatchedWorker(matchedWorker, "exact");
+        }
+
+        // the first estimate is unknown, the next ones reuse the last count
+        matchedWorker = createMatchedWorker("estimated");
+        try {
+            FeatureCollectionWrapper wrapper = (FeatureCollectionWrapper) matchedWorker.getFeature(results);
+            assertNull(wrapper.getNbMatched());
+            // the hits requests wait for the count
+            assertEquals(2, ((FeatureCollectionType) matchedWorker.getFeature(hits)).getNumberReturned());
+            wrapper = (FeatureCollectionWrapper) matchedWorker.getFeature(results);
+            assertEquals(Integer.valueOf(2), wrapper.getNbMatched());
+        } finally {
+            destroyMatchedWorker(matchedWorker, "estimated");
+        }
+
+        // the features are not counted, except for the hits requests
+        matchedWorker = createMatchedWorker("unknown");
+        try {
+            final FeatureCollectionWrapper wrapper = (FeatureCollectionWrapper) matchedWorker.getFeature(results);
+            assertNull(wrapper.getNbMatched());
+            assertTrue(write(wrapper).contains("numberMatched=\"unknown\""));
+            assertEquals(2, ((FeatureCollectionType) matchedWorker.getFeature(hits)).getNumberReturned());
+        } finally {
+            destroyMatchedWorker(matchedWorker, "unknown");
+        }
+    }
+
+    private WFSWorker createMatchedWorker(final String strategy) throws Exception {
+        final LayerContext config = new LayerContext();
+        config.getCustomParameters().put("shiroAccessible", "false");
+        config.getCustomParameters().put("transactionSecurized", "false");
+        config.getCustomParameters().put("numberMatched", strategy);
+        serviceBusiness.create("wfs", "matched-" + strategy, config, null);
+        layerBusiness.add("NamedPlaces", "http://www.opengis.net/gml/3.2", "shapeSrc", null, "matched-" + strategy, "wfs", null);
+
+        final WFSWorker matchedWorker = new DefaultWFSWorker("matched-" + strategy);
+        matchedWorker.setServiceUrl("http://geomatys.com/constellation/WS/");
+        matchedWorker.setShiroAccessible(false);
+        return matchedWorker;
+    }
+
+    private void destroyMatchedWorker(final WFSWorker matchedWorker, final String strategy) throws Exception {
+        matchedWorker.destroy();
+        serviceBusiness.delete("wfs", "matched-" + strategy);
+    }
+
+    /**
+     * Write a GetFeature response as the REST service does.
+     */
+    private static String write(final FeatureCollectionWrapper wrapper) throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new FeatureCollectionWriter<>().writeTo(wrapper, FeatureCollectionWrapper.class, null, null, null, null, out);
+        return out.toString("UTF-8");
+    }
+
     public static void domCompare(final Object actual, final Object expected) throws Exception {
 
         final CstlDOMComparator comparator = new CstlDOMComparator(expected, actual);
@@ -0,0 +1,289 @@
+/*
+ *    Constellation - An open source and standard compliant SDI
+ *    http://www.constellation-sdi.org
+ *
+ * Copyright 2014 Geomatys.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.constellation.wfs.ws;
+
+import org.constellation.wfs.ws.rs.FeatureCollectionWrapper;
+import org.geotoolkit.data.FeatureCollection;
+import org.geotoolkit.data.FeatureStore;
+import org.geotoolkit.data.query.Query;
+import org.geotoolkit.data.query.QueryBuilder;
+import org.geotoolkit.data.session.Session;
+import org.geotoolkit.util.NamesExt;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.lang.reflect.Proxy.newProxyInstance;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test the counts of the features matching the GetFeature queries.
+ *
+ * @author Guilhem Legal (Geomatys)
+ */
+public class MatchedCounterTest {
+
+    /**
+     * The exact counts are reused during their time to live.
+     */
+    @Test
+    public void exactTest() throws Exception {
+        final AtomicInteger size  = new AtomicInteger(3);
+        final AtomicInteger calls = new AtomicInteger();
+        final FeatureStore store  = createStore(size, calls, null);
+        final MatchedCounter counter = new MatchedCounter(MatchedCounter.Strategy.EXACT, 60000);
+
+        assertEquals(Long.valueOf(3), counter.count(store, query("test"), false).get());
+        size.set(5);
+        assertEquals(Long.valueOf(3), counter.count(store, query("test"), false).get());
+        assertEquals(1, calls.get());
+
+        // another filter is counted separately
+        assertEquals(Long.valueOf(5), counter.count(store, query("other"), false).get());
+
+        // the counts are dropped after a transaction
+        counter.clear();
+        assertEquals(Long.valueOf(5), counter.count(store, query("test"), false).get());
+        assertEquals(3, calls.get());
+    }
+
+    /**
+     * The counts older than the time to live are made again.
+     */
+    @Test
+    public void timeToLiveTest() throws Exception {
+        final AtomicInteger size  = new AtomicInteger(3);
+        final AtomicInteger calls = new AtomicInteger();
+        final FeatureStore store  = createStore(size, calls, null);
+
+        MatchedCounter counter = new MatchedCounter(MatchedCounter.Strategy.EXACT, 0);
+        assertEquals(Long.valueOf(3), counter.count(store, query("test"), false).get());
+        size.set(5);
+        assertEquals(Long.valueOf(5), counter.count(store, query("test"), false).get());
+        assertEquals(2, calls.get());
+
+        // the estimate is the last count, refreshed in background
+        counter = new MatchedCounter(MatchedCounter.Strategy.ESTIMATED, 0);
+        assertEquals(Long.valueOf(5), counter.count(store, query("test"), true).get());
+        size.set(7);
+        final long end = System.currentTimeMillis() + 5000;
+        Future<Long> estimate;
+        do {
+            Thread.sleep(10);
+            estimate = counter.count(store, query("test"), false);
+        } while (!Long.valueOf(7).equals(estimate.get()) && System.currentTimeMillis() < end);
+        assertEquals(Long.valueOf(7), estimate.get());
+    }
+
+    /**
+     * The estimate is unknown until a first count of the query is finished.
+     */
+    @Test
+    public void estimatedTest() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger calls    = new AtomicInteger();
+        final FeatureStore store     = createStore(new AtomicInteger(3), calls, release);
+        final MatchedCounter counter = new MatchedCounter(MatchedCounter.Strategy.ESTIMATED, 60000);
+
+        try {
+            assertNull(counter.count(store, query("test"), false));
+        } finally {
+            release.countDown();
+        }
+        // the hits requests wait for the running count
+        assertEquals(Long.valueOf(3), counter.count(store, query("test"), true).get());
+        assertEquals(Long.valueOf(3), counter.count(store, query("test"), false).get());
+        assertEquals(1, calls.get());
+    }
+
+    /**
+     * The unknown strategy only counts for the hits requests.
+     */
+    @Test
+    public void unknownTest() throws Exception {
+        final AtomicInteger size  = new AtomicInteger(3);
+        final AtomicInteger calls = new AtomicInteger();
+        final FeatureStore store  = createStore(size, calls, null);
+        final MatchedCounter counter = new MatchedCounter(MatchedCounter.Strategy.UNKNOWN, 60000);
+
+        assertNull(counter.count(store, query("test"), false));
+        assertEquals(0, calls.get());
+        assertEquals(Long.valueOf(3), counter.count(store, query("test"), true).get());
+        assertEquals(1, calls.get());
+
+        final List<Future<Long>> values = new ArrayList<>();
+        values.add(counter.count(store, query("test"), false));
+        assertNull(MatchedCounter.sum(values));
+    }
+
+    /**
+     * A failed count is not reused during its time to live.
+     */
+    @Test
+    public void failedCountTest() throws Exception {
+        final AtomicInteger size  = new AtomicInteger(-1);
+        final AtomicInteger calls = new AtomicInteger();
+        final FeatureStore store  = createStore(size, calls, null);
+        final MatchedCounter counter = new MatchedCounter(MatchedCounter.Strategy.EXACT, 60000);
+
+        final Future<Long> failed = counter.count(store, query("test"), false);
+        try {
+            failed.get();
+            fail("The count must fail.");
+        } catch (ExecutionException ex) {
+            // expected
+        }
+        assertNull(MatchedCounter.getValue(failed));
+
+        size.set(3);
+        assertEquals(Long.valueOf(3), counter.count(store, query("test"), false).get());
+        assertEquals(Long.valueOf(3), counter.count(store, query("test"), false).get());
+        assertEquals(2, calls.get());
+    }
+
+    /**
+     * When all the threads are busy and the queue is full, the counts are unknown,
+     * except for the hits requests which count in the calling thread.
+     */
+    @Test
+    public void saturatedPoolTest() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger started  = new AtomicInteger();
+        final FeatureStore blocking  = createStore(new AtomicInteger(1), started, release);
+        final MatchedCounter counter = new MatchedCounter(MatchedCounter.Strategy.EXACT, 60000);
+
+        final List<Future<Long>> running = new ArrayList<>();
+        try {
+            // occupy all the threads, then fill the queue
+            for (int i = 0; i < MatchedCounter.NB_THREADS; i++) {
+                running.add(counter.count(blocking, query("running-" + i), false));
+                final long end = System.currentTimeMillis() + 5000;
+                while (started.get() <= i && System.currentTimeMillis() < end) {
+                    Thread.sleep(5);
+                }
+            }
+            assertEquals(MatchedCounter.NB_THREADS, started.get());
+            for (int i = 0; i < MatchedCounter.MAX_PENDING; i++) {
+                running.add(counter.count(blocking, query("pending-" + i), false));
+            }
+
+            final AtomicInteger calls = new AtomicInteger();
+            final FeatureStore store  = createStore(new AtomicInteger(3), calls, null);
+            assertNull(counter.count(store, query("test"), false));
+            assertEquals(0, calls.get());
+            final Future<Long> hits = counter.count(store, query("test"), true);
+            assertNotNull(hits);
+            assertTrue(hits.isDone());
+            assertEquals(Long.valueOf(3), hits.get());
+        } finally {
+            release.countDown();
+        }
+        for (Future<Long> value : running) {
+            assertEquals(Long.valueOf(1), value.get(10, TimeUnit.SECONDS));
+        }
+    }
+
+    /**
+     * The writer waits for the count at most the numberMatchedTimeout, then the number is unknown.
+     */
+    @Test
+    public void timeoutTest() throws Exception {
+        final FutureTask<Integer> never = new FutureTask<>(new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                return 3;
+            }
+        });
+        final long start = System.currentTimeMillis();
+        assertNull(new FeatureCollectionWrapper(null, null, "3.2.1", "2.0.0", never, 200, false).getNbMatched());
+        assertTrue(System.currentTimeMillis() - start >= 200);
+
+        never.run();
+        assertEquals(Integer.valueOf(3), new FeatureCollectionWrapper(null, null, "3.2.1", "2.0.0", never, 200, false).getNbMatched());
+        // no count at all
+        assertNull(new FeatureCollectionWrapper(null, null, "3.2.1", "2.0.0", null, 200, false).getNbMatched());
+    }
+
+    private static Query query(final String typeName) {
+        final QueryBuilder builder = new QueryBuilder();
+        builder.setTypeName(NamesExt.create(typeName));
+        return builder.buildQuery();
+    }
+
+    /**
+     * Create a feature store whose collections have the given size.
+     *
+     * @param size The size of the collections, a negative size makes the count fail.
+     * @param calls The counter of the calls to the size of the collections.
+     * @param release If non null, the count waits for this latch.
+     */
+    private static FeatureStore createStore(final AtomicInteger size, final AtomicInteger calls, final CountDownLatch release) {
+        final FeatureCollection collection = (FeatureCollection) newProxyInstance(FeatureCollection.class.getClassLoader(),
+                new Class<?>[]{FeatureCollection.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+                if ("size".equals(method.getName())) {
+                    calls.incrementAndGet();
+                    if (release != null) {
+                        release.await();
+                    }
+                    if (size.get() < 0) {
+                        throw new IllegalStateException("Unable to count the features.");
+                    }
+                    return size.get();
+                }
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+        final Session session = (Session) newProxyInstance(Session.class.getClassLoader(),
+                new Class<?>[]{Session.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                if ("getFeatureCollection".equals(method.getName())) {
+                    return collection;
+                }
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+        return (FeatureStore) newProxyInstance(FeatureStore.class.getClassLoader(),
+                new Class<?>[]{FeatureStore.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                if ("createSession".equals(method.getName())) {
+                    return session;
+                }
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+}
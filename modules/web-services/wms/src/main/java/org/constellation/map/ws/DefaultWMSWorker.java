@@ -50,6 +50,7 @@ import org.constellation.portrayal.internal.CstlPortrayalService;
 import org.constellation.portrayal.internal.PortrayalResponse;
 import org.constellation.provider.CoverageData;
 import org.constellation.provider.Data;
+import org.constellation.util.CRSCache;
 import org.constellation.util.DataReference;
 import org.constellation.ws.CstlServiceException;
 import org.constellation.ws.LayerWorker;
@@ -142,6 +143,8 @@ import java.util.Set;
 import java.util.SortedSet;
 import java.util.TimeZone;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Level;
 import org.apache.sis.measure.NumberRange;
 
@@ -234,6 +237,34 @@ public class DefaultWMSWorker extends LayerWorker implements WMSWorker {
     private final List<String> GFI_MIME_TYPES = new ArrayList<>();
 
     private WMSPortrayal mapPortrayal;
+
+    /**
+     * Rendering hints built once from the portrayal configuration, never modified.
+     * A GetMap request copies them in its own scene definition.
+     */
+    private final Hints baseHints;
+
+    /**
+     * Same as {@link #baseHints} with anti-aliasing disabled, used for the GIF output.
+     */
+    private final Hints gifHints;
+
+    /**
+     * Filter and extra dimensions parsed from the layer configuration, by feature type name.
+     */
+    private final ConcurrentMap<GenericName, LayerConstraints> layerConstraints = new ConcurrentHashMap<>();
+
+    /**
+     * Time after which the default time and elevation of a data are computed again, in seconds.
+     * New slices can be added to a data without any provider or layer event.
+     */
+    private static final long DATA_DEFAULTS_EXPIRATION = 60;
+
+    /**
+     * Default time and elevation of the requested data, by provider identifier and data name.
+     */
+    private final ConcurrentMap<String, DataDefaults> dataDefaults = new ConcurrentHashMap<>();
+
     public DefaultWMSWorker(final String id) {
         super(id, ServiceDef.Specification.WMS);
 
@@ -256,6 +287,17 @@ public class DefaultWMSWorker extends LayerWorker implements WMSWorker {
             LOGGER.log(Level.WARNING, null, ex);
         }
 
+        baseHints = mapPortrayal.getHints();
+        if (baseHints != null) {
+            /*
+             * HACK we set anti-aliasing to false for gif
+             */
+            gifHints = mapPortrayal.getHints();
+            gifHints.put(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+        } else {
+            gifHints = null;
+        }
+
         if (isStarted) {
             LOGGER.log(Level.INFO, "WMS worker {0} running", id);
         }
@@ -627,7 +669,7 @@ public class DefaultWMSWorker extends LayerWorker implements WMSWorker {
 
                 if(nativeCrs!=null){
                     try {
-                        layerNativeEnv = CRS.transform(layerNativeEnv, CRS.decode(nativeCrs, true));
+                        layerNativeEnv = CRS.transform(layerNativeEnv, CRSCache.decode(nativeCrs, true));
                         nativeBBox = createBoundingBox(queryVersion,
                             nativeCrs,
                             layerNativeEnv.getMinimum(0),
@@ -1065,7 +1107,7 @@ public class DefaultWMSWorker extends LayerWorker implements WMSWorker {
         }
 
         // 2. VIEW
-        final Envelope refEnv = buildRequestedViewEnvelope(getFI, layerRefs);
+        final Envelope refEnv = buildRequestedViewEnvelope(getFI, layerRefs, layerConfig);
         final double azimuth = getFI.getAzimuth();
         final ViewDef vdef   = new ViewDef(refEnv,azimuth);
         try {
@@ -1304,14 +1346,8 @@ public class DefaultWMSWorker extends LayerWorker implements WMSWorker {
         params.put(KEY_EXTRA_PARAMETERS, getMap.getParameters());
         final SceneDef sdef = new SceneDef();
         sdef.extensions().add(mapPortrayal.getExtension());
-        final Hints hints = mapPortrayal.getHints();
+        final Hints hints = "image/gif".equals(getMap.getFormat()) ? gifHints : baseHints;
         if (hints != null) {
-            /*
-             * HACK we set anti-aliasing to false for gif
-             */
-            if ("image/gif".equals(getMap.getFormat())) {
-                hints.put(RenderingHints.KEY_ANTIALIASING,RenderingHints.VALUE_ANTIALIAS_OFF);
-            }
             sdef.getHints().putAll(hints);
         }
 
@@ -1326,7 +1362,7 @@ public class DefaultWMSWorker extends LayerWorker implements WMSWorker {
         }
 
         // 2. VIEW
-        final Envelope refEnv = buildRequestedViewEnvelope(getMap, layerRefs);
+        final Envelope refEnv = buildRequestedViewEnvelope(getMap, layerRefs, layerConfig);
         final double azimuth = getMap.getAzimuth();
         final ViewDef vdef = new ViewDef(refEnv,azimuth);
 
@@ -1377,6 +1413,20 @@ public class DefaultWMSWorker extends LayerWorker implements WMSWorker {
      * @throws CstlServiceException
      */
     public Envelope buildRequestedViewEnvelope(GetMap request, List<Data> layers) throws CstlServiceException {
+        return buildRequestedViewEnvelope(request, layers, null);
+    }
+
+    /**
+     * Build request view envelope from request parameters and requested layers.
+     *
+     * @param request GetMap based request (GetMap and GetFeatureInfo)
+     * @param layers all layers requested
+     * @param layerConfigs the configuration of each requested layer, used to cache their default
+     *        time and elevation. Can be {@code null}, in which case the defaults are not cached.
+     * @return view Envelope 2D, 3D or 4D depending of dimensions of layers and request.
+     * @throws CstlServiceException
+     */
+    private Envelope buildRequestedViewEnvelope(GetMap request, List<Data> layers, List<Layer> layerConfigs) throws CstlServiceException {
         final Envelope refEnv;
         try {
             //check envelope has positive span only if not a GetFeatureInfo request.
@@ -1403,17 +1453,10 @@ public class DefaultWMSWorker extends LayerWorker implements WMSWorker {
                     in CSTL-1245.
                  */
                 final SortedSet<Date> defaultTimes = new TreeSet<>();
-                for (Data layer : layers) {
-                    try {
-                        ArrayList<Date> layerTimes = new ArrayList<>(layer.getAvailableTimes());
-                        if (layerTimes != null && !layerTimes.isEmpty()) {
-
-                            //get the last and previous date
-                            defaultTimes.add(layerTimes.get(StrictMath.max(0, layerTimes.size()-2)));
-                        }
-                    } catch (DataStoreException e) {
-                        // no time found for layer, continue to next one
-                        LOGGER.log(Level.FINE, "Enable to extract layer available times for " + layer.getName(), e);
+                for (int i = 0; i < layers.size(); i++) {
+                    final Date defaultTime = getDataDefaults(layers.get(i), getProviderID(layerConfigs, layers, i)).time;
+                    if (defaultTime != null) {
+                        defaultTimes.add(defaultTime);
                     }
                 }
 
@@ -1433,15 +1476,10 @@ public class DefaultWMSWorker extends LayerWorker implements WMSWorker {
                 //No time specified on request, find all defaultElevations (first)
                 //of all layers and use defaults elevations to create request range.
                 final SortedSet<Double> defaultElevations = new TreeSet<>();
-                for (Data layer : layers) {
-                    try {
-                        SortedSet<Number> layerElevations = layer.getAvailableElevations();
-                        if (layerElevations != null && !layerElevations.isEmpty()) {
-                            defaultElevations.add(layerElevations.first().doubleValue());
-                        }
-                    } catch (DataStoreException e) {
-                        // no time found for layer, continue to next one
-                        LOGGER.log(Level.FINE, "Enable to extract layer available times for " + layer.getName(), e);
+                for (int i = 0; i < layers.size(); i++) {
+                    final Double defaultElevation = getDataDefaults(layers.get(i), getProviderID(layerConfigs, layers, i)).elevation;
+                    if (defaultElevation != null) {
+                        defaultElevations.add(defaultElevation);
                     }
                 }
 
@@ -1461,6 +1499,60 @@ public class DefaultWMSWorker extends LayerWorker implements WMSWorker {
         return refEnv;
     }
 
+    /**
+     * Return the provider identifier of the i-th requested layer, or {@code null} if unknown.
+     */
+    private static String getProviderID(final List<Layer> layerConfigs, final List<Data> layers, final int i) {
+        if (layerConfigs != null && layerConfigs.size() == layers.size()) {
+            final Layer config = layerConfigs.get(i);
+            if (config != null) {
+                return config.getProviderID();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Return the default time and elevation of a data, computing them at the first call.
+     *
+     * @param layer the data.
+     * @param providerID the identifier of the data provider, the defaults are not cached if {@code null}.
+     */
+    private DataDefaults getDataDefaults(final Data layer, final String providerID) {
+        final GenericName name = layer.getName();
+        final String key = (name != null && providerID != null) ? providerID + ':' + name : null;
+        DataDefaults defaults = (key != null) ? dataDefaults.get(key) : null;
+        if (defaults == null || defaults.isExpired()) {
+            Date time = null;
+            try {
+                final SortedSet<Date> layerTimes = layer.getAvailableTimes();
+                if (layerTimes != null && !layerTimes.isEmpty()) {
+                    //get the last and previous date
+                    final List<Date> dates = new ArrayList<>(layerTimes);
+                    time = dates.get(StrictMath.max(0, dates.size()-2));
+                }
+            } catch (DataStoreException e) {
+                // no time found for layer
+                LOGGER.log(Level.FINE, "Enable to extract layer available times for " + name, e);
+            }
+            Double elevation = null;
+            try {
+                final SortedSet<Number> layerElevations = layer.getAvailableElevations();
+                if (layerElevations != null && !layerElevations.isEmpty()) {
+                    elevation = layerElevations.first().doubleValue();
+                }
+            } catch (DataStoreException e) {
+                // no elevation found for layer
+                LOGGER.log(Level.FINE, "Enable to extract layer available elevations for " + name, e);
+            }
+            defaults = new DataDefaults(time, elevation);
+            if (key != null) {
+                dataDefaults.put(key, defaults);
+            }
+        }
+        return defaults;
+    }
+
     private PortrayalResponse handleExceptions(GetMap getMap, boolean errorInImage, boolean errorBlank,
                                                Exception ex, OWSExceptionCode expCode, String locator) throws CstlServiceException {
         if (errorInImage) {
@@ -1594,17 +1686,61 @@ public class DefaultWMSWorker extends LayerWorker implements WMSWorker {
 
         if(item instanceof FeatureMapLayer){
             final FeatureMapLayer fml = (FeatureMapLayer)item;
-            final Layer layerContext = getConfigurationLayer(fml.getCollection().getFeatureType().getName(), userLogin);
+            final GenericName typeName = fml.getCollection().getFeatureType().getName();
+            LayerConstraints constraints = layerConstraints.get(typeName);
+            if (constraints == null) {
+                constraints = new LayerConstraints(getConfigurationLayer(typeName, userLogin));
+                layerConstraints.put(typeName, constraints);
+            }
+            if (constraints.filter != null) {
+                fml.setQuery(QueryBuilder.filtered(typeName, constraints.filter));
+            }
+            fml.getExtraDimensions().addAll(constraints.dimensions);
+        }
+
+        for(MapItem layer : item.items()){
+            applyLayerFiltersAndDims(layer, userLogin);
+        }
+
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void clearLayerCache() {
+        super.clearLayerCache();
+        // may be called by a listener before the end of the construction
+        if (layerConstraints != null) {
+            layerConstraints.clear();
+        }
+        if (dataDefaults != null) {
+            dataDefaults.clear();
+        }
+    }
+
+    /**
+     * Filter and extra dimensions of a feature layer, parsed once from its configuration.
+     * The parsed objects are immutable and shared by all the requests.
+     */
+    private static final class LayerConstraints {
+
+        private final Filter filter;
+
+        private final List<FeatureMapLayer.DimensionDef> dimensions = new ArrayList<>();
+
+        private LayerConstraints(final Layer layerContext) {
+            Filter filterGt = null;
             if (layerContext.getFilter() != null) {
                 final StyleXmlIO xmlUtil = new StyleXmlIO();
-                Filter filterGt = Filter.INCLUDE;
+                filterGt = Filter.INCLUDE;
                 try {
                     filterGt = xmlUtil.getTransformer110().visitFilter(layerContext.getFilter());
                 } catch (FactoryException e) {
                     LOGGER.log(Level.INFO, e.getLocalizedMessage(), e);
                 }
-                fml.setQuery(QueryBuilder.filtered(fml.getCollection().getFeatureType().getName(), filterGt));
             }
+            this.filter = filterGt;
 
             for(DimensionDefinition ddef : layerContext.getDimensions()){
 
@@ -1625,20 +1761,38 @@ public class DefaultWMSWorker extends LayerWorker implements WMSWorker {
                         crs = new DefaultEngineeringCRS(Collections.singletonMap("name", crsname), customDatum, customCs);
                     }
 
-                    final FeatureMapLayer.DimensionDef fdef = new FeatureMapLayer.DimensionDef(crs, lower, upper);
-                    fml.getExtraDimensions().add(fdef);
+                    dimensions.add(new FeatureMapLayer.DimensionDef(crs, lower, upper));
 
                 } catch (CQLException ex) {
                     Logging.getLogger("org.constellation.map.ws").log(Level.WARNING, null, ex);
                 }
             }
-
         }
+    }
 
-        for(MapItem layer : item.items()){
-            applyLayerFiltersAndDims(layer, userLogin);
+    /**
+     * Default time and elevation of a data, {@code null} when the data has no such dimension.
+     */
+    private static final class DataDefaults {
+
+        private final Date time;
+
+        private final Double elevation;
+
+        /**
+         * Computation date, in milliseconds.
+         */
+        private final long created;
+
+        private DataDefaults(final Date time, final Double elevation) {
+            this.time      = time;
+            this.elevation = elevation;
+            this.created   = System.currentTimeMillis();
         }
 
+        private boolean isExpired() {
+            return System.currentTimeMillis() - created > DATA_DEFAULTS_EXPIRATION * 1000;
+        }
     }
 
     /**
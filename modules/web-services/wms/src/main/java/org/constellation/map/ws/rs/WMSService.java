@@ -27,6 +27,7 @@ import org.constellation.map.ws.QueryContext;
 import org.constellation.map.ws.WMSConstant;
 import org.constellation.map.ws.WMSWorker;
 import org.constellation.portrayal.internal.PortrayalResponse;
+import org.constellation.util.CRSCache;
 import org.constellation.util.Util;
 import org.constellation.ws.CstlServiceException;
 import org.constellation.ws.MimeType;
@@ -39,7 +40,6 @@ import org.geotoolkit.display2d.service.DefaultPortrayalService;
 import org.geotoolkit.ogc.xml.exception.ServiceExceptionReport;
 import org.geotoolkit.ogc.xml.exception.ServiceExceptionType;
 import org.geotoolkit.ows.xml.RequestBase;
-import org.geotoolkit.referencing.CRS;
 import org.geotoolkit.sld.MutableStyledLayerDescriptor;
 import org.geotoolkit.sld.xml.GetLegendGraphic;
 import org.geotoolkit.sld.xml.Specification.StyledLayerDescriptor;
@@ -589,7 +589,7 @@ public class WMSService extends GridWebService<WMSWorker> {
                  */
                 forceLongitudeFirst = true;
             }
-            crs = CRS.decode(strCRS, forceLongitudeFirst);
+            crs = CRSCache.decode(strCRS, forceLongitudeFirst);
         } catch (FactoryException ex) {
             if (isV111orUnder(version)) {
                 throw new CstlServiceException(ex, org.constellation.ws.ExceptionCode.INVALID_SRS);
@@ -18,12 +18,16 @@
  */
 package org.constellation.wmts.ws;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.apache.sis.geometry.GeneralEnvelope;
 import org.apache.sis.referencing.CommonCRS;
 import org.apache.sis.referencing.IdentifiedObjects;
 import org.apache.sis.xml.MarshallerPool;
 import org.constellation.Cstl;
 import org.constellation.ServiceDef;
+import org.constellation.configuration.AppProperty;
+import org.constellation.configuration.Application;
 import org.constellation.configuration.ConfigurationException;
 import org.constellation.configuration.Layer;
 import org.constellation.dto.Details;
@@ -31,6 +35,7 @@ import org.constellation.map.featureinfo.FeatureInfoFormat;
 import org.constellation.map.featureinfo.FeatureInfoUtilities;
 import org.constellation.portrayal.PortrayalUtil;
 import org.constellation.provider.Data;
+import org.constellation.util.CRSCache;
 import org.constellation.util.DataReference;
 import org.constellation.util.Util;
 import org.constellation.ws.CstlServiceException;
@@ -107,6 +112,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.TimeZone;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.logging.Level;
 
@@ -166,16 +172,68 @@ public class DefaultWMTSWorker extends LayerWorker implements WMTSWorker {
     private final HashMap<String, HashSet<String>> tmsIdBinding = new HashMap<>();
     private final ReentrantReadWriteLock tmsBindingLock = new ReentrantReadWriteLock();
 
+    /**
+     * Time after which a resolved mosaic is looked up again in its pyramid, in seconds.
+     * The index is also cleared on each provider or layer change.
+     */
+    private static final long MOSAIC_INDEX_EXPIRATION = 60;
+
+    /**
+     * The mosaics already resolved by a GetTile request, by layer, matrix set and matrix.
+     */
+    private final Cache<String, MosaicEntry> mosaicIndex = CacheBuilder.newBuilder()
+            .expireAfterWrite(MOSAIC_INDEX_EXPIRATION, TimeUnit.SECONDS)
+            .build();
+
+    /**
+     * Cache of the encoded tiles, {@code null} if disabled.
+     */
+    private final TileCache tileCache;
+
     /**
      * Instanciates the working class for a SOAP client, that do request on a SOAP PEP service.
      */
     public DefaultWMTSWorker(final String id) {
         super(id, ServiceDef.Specification.WMTS);
+        tileCache = createTileCache();
         if (isStarted) {
             LOGGER.log(Level.INFO, "WMTS worker {0} running", id);
         }
     }
 
+    /**
+     * Create the encoded tile cache if a size is configured.
+     */
+    private static TileCache createTileCache() {
+        final String value = Application.getProperty(AppProperty.WMTS_TILE_CACHE_SIZE);
+        if (value != null) {
+            try {
+                final long size = Long.parseLong(value);
+                if (size > 0) {
+                    return new TileCache(size * 1024 * 1024);
+                }
+            } catch (NumberFormatException ex) {
+                LOGGER.log(Level.WARNING, "Unable to parse the WMTS tile cache size:{0}", value);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void clearLayerCache() {
+        super.clearLayerCache();
+        // may be called by a listener before the end of the construction
+        if (mosaicIndex != null) {
+            mosaicIndex.invalidateAll();
+        }
+        if (tileCache != null) {
+            tileCache.clear();
+        }
+    }
+
     @Override
     protected MarshallerPool getMarshallerPool() {
         return WMTSMarshallerPool.getInstance();
@@ -429,7 +487,7 @@ public class DefaultWMTSWorker extends LayerWorker implements WMTSWorker {
                                     double value = upperLeft.getOrdinate(entry.getKey());
                                     if (!CRS.equalsApproximatively(JAVA_TIME, entry.getValue())) {
                                         final double[] tmpArray = new double[]{value};
-                                        toJavaTime = CRS.findMathTransform(entry.getValue(), JAVA_TIME);
+                                        toJavaTime = CRSCache.findMathTransform(entry.getValue(), JAVA_TIME);
                                         toJavaTime.transform(tmpArray, 0, tmpArray, 0, 1);
                                         value = tmpArray[0];
                                     }
@@ -749,27 +807,38 @@ public class DefaultWMTSWorker extends LayerWorker implements WMTSWorker {
                         INVALID_PARAMETER_VALUE, "layerName");
             }
 
-            final PyramidSet set = ((PyramidalCoverageReference) origin).getPyramidSet();
-            Pyramid pyramid = null;
-            for (Pyramid pr : set.getPyramids()) {
-                if (validPyramidNames.contains(pr.getId())) {
-                    pyramid = pr;
-                    break;
+            final String mosaicKey = layerName + "|" + matrixSetName + "|" + level;
+            MosaicEntry entry = mosaicIndex.getIfPresent(mosaicKey);
+            if (entry == null) {
+                final PyramidSet set = ((PyramidalCoverageReference) origin).getPyramidSet();
+                Pyramid pyramid = null;
+                for (Pyramid pr : set.getPyramids()) {
+                    if (validPyramidNames.contains(pr.getId())) {
+                        pyramid = pr;
+                        break;
+                    }
+                }
+                if (pyramid == null) {
+                    throw new CstlServiceException("Operation request contains an invalid parameter value,"
+                            + " undefined matrixSet: " + matrixSetName + " for layer: " + layerName,
+                            INVALID_PARAMETER_VALUE, "tilematrixset");
                 }
-            }
-            if (pyramid == null) {
-                throw new CstlServiceException("Operation request contains an invalid parameter value,"
-                        + " undefined matrixSet: " + matrixSetName + " for layer: " + layerName,
-                        INVALID_PARAMETER_VALUE, "tilematrixset");
-            }
 
-            GridMosaic mosaic = null;
-            for (GridMosaic gm : pyramid.getMosaics()) {
-                if (gm.getId().equals(level)) {
-                    mosaic = gm;
-                    break;
+                GridMosaic gridMosaic = null;
+                for (GridMosaic gm : pyramid.getMosaics()) {
+                    if (gm.getId().equals(level)) {
+                        gridMosaic = gm;
+                        break;
+                    }
+                }
+                entry = new MosaicEntry(pyramid, gridMosaic);
+                // only the found mosaics are kept, a mosaic may be added later to the pyramid.
+                if (gridMosaic != null) {
+                    mosaicIndex.put(mosaicKey, entry);
                 }
             }
+            final Pyramid pyramid = entry.pyramid;
+            GridMosaic mosaic = entry.mosaic;
 
             // 4. If we found a base mosaic and user specified additional dimensions, we try to switch on the right slice.
             final List<DimensionNameValue> dimensions = request.getDimensionNameValue();
@@ -796,12 +865,38 @@ public class DefaultWMTSWorker extends LayerWorker implements WMTSWorker {
                         TILE_OUT_OF_RANGE, "tilerow");
             }
 
+            final String format = request.getFormat();
             if (mosaic.isMissing(columnIndex, rowIndex)) {
+                if (format != null) {
+                    try {
+                        return TileCache.getBlankTile(mosaic.getTileSize(), format, new Point(columnIndex, rowIndex));
+                    } catch (IOException ex) {
+                        LOGGER.log(Level.FINE, "Unable to encode a blank tile in " + format, ex);
+                    }
+                }
                 return emptyTile(mosaic, columnIndex, rowIndex);
-            } else {
-                return mosaic.getTile(columnIndex, rowIndex, null);
             }
 
+            final TileReference source = mosaic.getTile(columnIndex, rowIndex, null);
+            if (tileCache == null || format == null || source == null || !tileCache.accept(source)) {
+                return source;
+            }
+            final StringBuilder tileKey = new StringBuilder(mosaicKey);
+            tileKey.append('|').append(mosaic.getId()).append('|').append(columnIndex).append('|').append(rowIndex).append('|').append(format);
+            if (dimensions != null) {
+                for (DimensionNameValue dimension : dimensions) {
+                    tileKey.append('|').append(dimension.getName()).append('=').append(dimension.getValue());
+                }
+            }
+            final String key = tileKey.toString();
+            // the cached tile is dropped if the tile file has been rewritten since its encoding.
+            EncodedTile tile = tileCache.get(key, TileCache.getLastModified(source));
+            if (tile == null) {
+                tile = TileCache.encode(source, format);
+                tileCache.put(key, tile);
+            }
+            return tile;
+
         } catch(CstlServiceException ex) {
             throw ex;
         } catch(Exception ex) {
@@ -847,6 +942,19 @@ public class DefaultWMTSWorker extends LayerWorker implements WMTSWorker {
         };
     }
 
+    /**
+     * A mosaic resolved from a tile matrix set and a tile matrix name, with its pyramid.
+     */
+    private static final class MosaicEntry {
+        private final Pyramid pyramid;
+        private final GridMosaic mosaic;
+
+        private MosaicEntry(final Pyramid pyramid, final GridMosaic mosaic) {
+            this.pyramid = pyramid;
+            this.mosaic  = mosaic;
+        }
+    }
+
     /**
      * Change range values of input envelope for all dimensions specified in given dimension list.
      * @param envelope The envelope containing base values for dimensions to change. Not modified, a copy is performed.
@@ -880,7 +988,7 @@ public class DefaultWMTSWorker extends LayerWorker implements WMTSWorker {
                             result.setRange(entry.getKey(), timestamp - 1, timestamp + 1);
                         } else {
                             final double[] time = new double[1];
-                            CRS.findMathTransform(JAVA_TIME, currentCRS, true).transform(time, 0, time, 0, 1);
+                            CRSCache.findMathTransform(JAVA_TIME, currentCRS, true).transform(time, 0, time, 0, 1);
                             result.setRange(entry.getKey(), time[0], time[0]);
                         }
                         break;
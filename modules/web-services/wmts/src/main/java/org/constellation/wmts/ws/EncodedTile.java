@@ -0,0 +1,177 @@
+/*
+ *    Constellation - An open source and standard compliant SDI
+ *    http://www.constellation-sdi.org
+ *
+ * Copyright 2014 Geomatys.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.constellation.wmts.ws;
+
+import org.geotoolkit.storage.coverage.TileReference;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.spi.ImageReaderSpi;
+import java.awt.Point;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.zip.CRC32;
+
+/**
+ * A tile already encoded in the requested output format.
+ *
+ * The encoded bytes can be sent as is to the client. An entity tag computed
+ * from the content and the modification date of the tile source allow the clients
+ * to revalidate the tile with a conditional request.
+ *
+ * @author Guilhem Legal (Geomatys)
+ */
+public final class EncodedTile implements TileReference {
+
+    private final byte[] data;
+
+    private final String mimeType;
+
+    private final Point position;
+
+    private final String etag;
+
+    private final long lastModified;
+
+    /**
+     * Build a new encoded tile.
+     *
+     * @param data the encoded tile, must not be modified after this call.
+     * @param mimeType the mime type of the encoded tile.
+     * @param position the position of the tile in the mosaic, can be {@code null}.
+     */
+    public EncodedTile(final byte[] data, final String mimeType, final Point position) {
+        this(data, mimeType, position, 0);
+    }
+
+    /**
+     * Build a new encoded tile.
+     *
+     * @param data the encoded tile, must not be modified after this call.
+     * @param mimeType the mime type of the encoded tile.
+     * @param position the position of the tile in the mosaic, can be {@code null}.
+     * @param lastModified the modification date of the tile source, or 0 if unknown,
+     *        in which case the current date is used.
+     */
+    public EncodedTile(final byte[] data, final String mimeType, final Point position, final long lastModified) {
+        this.data         = data;
+        this.mimeType     = mimeType;
+        this.position     = position;
+        this.lastModified = TileCache.toHttpDate(lastModified > 0 ? lastModified : System.currentTimeMillis());
+
+        final CRC32 crc = new CRC32();
+        crc.update(data);
+        this.etag = Long.toHexString(crc.getValue()) + '-' + Integer.toHexString(data.length);
+    }
+
+    /**
+     * Return a copy of this tile positioned at another place in the mosaic.
+     * The encoded bytes are shared.
+     */
+    EncodedTile moveTo(final Point position) {
+        return new EncodedTile(this, position);
+    }
+
+    private EncodedTile(final EncodedTile source, final Point position) {
+        this.data         = source.data;
+        this.mimeType     = source.mimeType;
+        this.etag         = source.etag;
+        this.lastModified = source.lastModified;
+        this.position     = position;
+    }
+
+    /**
+     * @return the encoded tile. The returned array must not be modified.
+     */
+    public byte[] getData() {
+        return data;
+    }
+
+    /**
+     * @return the mime type of the encoded tile.
+     */
+    public String getMimeType() {
+        return mimeType;
+    }
+
+    /**
+     * @return an entity tag identifying the encoded content.
+     */
+    public String getETag() {
+        return etag;
+    }
+
+    /**
+     * @return the modification date of the tile source, or its encoding date if unknown, in milliseconds.
+     */
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ImageReader getImageReader() throws IOException {
+        final ImageReaderSpi spi = getImageReaderSpi();
+        if (spi == null) {
+            return null;
+        }
+        final ImageReader reader = spi.createReaderInstance();
+        reader.setInput(ImageIO.createImageInputStream(new ByteArrayInputStream(data)));
+        return reader;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ImageReaderSpi getImageReaderSpi() {
+        final Iterator<ImageReader> readers = ImageIO.getImageReadersByMIMEType(mimeType);
+        if (readers.hasNext()) {
+            return readers.next().getOriginatingProvider();
+        }
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object getInput() {
+        return data;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getImageIndex() {
+        return 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Point getPosition() {
+        return position;
+    }
+}
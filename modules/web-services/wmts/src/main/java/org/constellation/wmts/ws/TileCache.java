@@ -0,0 +1,321 @@
+/*
+ *    Constellation - An open source and standard compliant SDI
+ *    http://www.constellation-sdi.org
+ *
+ * Copyright 2014 Geomatys.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.constellation.wmts.ws;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import org.apache.commons.io.IOUtils;
+import org.constellation.Cstl;
+import org.geotoolkit.storage.coverage.TileReference;
+import org.geotoolkit.util.ImageIOUtilities;
+
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Point;
+import java.awt.image.RenderedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Memory cache of the encoded tiles of a WMTS service.
+ *
+ * The cache is bounded by the total size of the encoded tiles, the tiles bigger than a
+ * fraction of this size are not cached. A cached tile is dropped when the modification
+ * date of its source file changes, the tiles which source date is unknown expire after
+ * a few minutes. The blank tiles returned for the missing tiles of a mosaic are encoded
+ * only once for each tile size and format, and are shared by all the services.
+ *
+ * @author Guilhem Legal (Geomatys)
+ */
+public final class TileCache {
+
+    /**
+     * The encoded blank tiles, by tile size and mime type.
+     */
+    private static final ConcurrentMap<String, EncodedTile> BLANK_TILES = new ConcurrentHashMap<>();
+
+    private static final Color BLANK_COLOR = new Color(0x00FFFFFF, true);
+
+    /**
+     * Time after which a cached tile is dropped, in minutes.
+     */
+    private static final long EXPIRATION = 5;
+
+    private final Cache<String, EncodedTile> tiles;
+
+    /**
+     * Maximum size of a tile source kept in the cache, in bytes.
+     */
+    private final long maxTileSize;
+
+    /**
+     * Build a new tile cache.
+     *
+     * @param maxBytes maximum total size of the encoded tiles kept in memory.
+     */
+    public TileCache(final long maxBytes) {
+        tiles = CacheBuilder.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher(new Weigher<String, EncodedTile>() {
+                    @Override
+                    public int weigh(final String key, final EncodedTile tile) {
+                        return tile.getData().length;
+                    }
+                })
+                .expireAfterWrite(EXPIRATION, TimeUnit.MINUTES)
+                .build();
+        maxTileSize = maxBytes / 100;
+    }
+
+    /**
+     * @param key the tile key.
+     * @return the cached tile, or {@code null} if this tile is not in cache.
+     */
+    public EncodedTile get(final String key) {
+        return tiles.getIfPresent(key);
+    }
+
+    /**
+     * Return the cached tile if its source has not been modified since it was encoded.
+     *
+     * @param key the tile key.
+     * @param lastModified the modification date of the tile source, or 0 if unknown.
+     * @return the cached tile, or {@code null} if this tile is not in cache or is outdated.
+     */
+    public EncodedTile get(final String key, final long lastModified) {
+        final EncodedTile tile = tiles.getIfPresent(key);
+        if (tile != null && lastModified > 0 && tile.getLastModified() != toHttpDate(lastModified)) {
+            tiles.invalidate(key);
+            return null;
+        }
+        return tile;
+    }
+
+    /**
+     * Return {@code true} if the given tile is small enough to be cached. The size is only known
+     * for the tiles stored in a file, the other ones are always accepted.
+     */
+    public boolean accept(final TileReference tile) {
+        final File file = toFile(tile.getInput());
+        return file == null || file.length() <= maxTileSize;
+    }
+
+    /**
+     * Add a tile in the cache.
+     */
+    public void put(final String key, final EncodedTile tile) {
+        tiles.put(key, tile);
+    }
+
+    /**
+     * Remove all the tiles from the cache.
+     */
+    public void clear() {
+        tiles.invalidateAll();
+    }
+
+    /**
+     * @return the number of tiles currently in cache.
+     */
+    public long size() {
+        return tiles.size();
+    }
+
+    /**
+     * Return the blank tile for the specified size and format, encoding it at the first call.
+     *
+     * @param size the tile size.
+     * @param mimeType the output format.
+     * @param position the position of the tile in the mosaic.
+     * @return the encoded blank tile.
+     * @throws IOException if the format is not supported.
+     */
+    public static EncodedTile getBlankTile(final Dimension size, final String mimeType, final Point position) throws IOException {
+        final String key = size.width + "x" + size.height + ':' + mimeType;
+        EncodedTile blank = BLANK_TILES.get(key);
+        if (blank == null) {
+            final RenderedImage image = Cstl.getPortrayalService().writeBlankImage(BLANK_COLOR, size);
+            blank = new EncodedTile(write(image, mimeType), mimeType, null);
+            final EncodedTile previous = BLANK_TILES.putIfAbsent(key, blank);
+            if (previous != null) {
+                blank = previous;
+            }
+        }
+        return blank.moveTo(position);
+    }
+
+    /**
+     * Encode a tile in the specified format. The tile content is copied as is if it
+     * is already stored in this format, otherwise the tile is decoded then encoded.
+     *
+     * @param tile the tile to encode.
+     * @param mimeType the output format.
+     * @return the encoded tile.
+     * @throws IOException if the tile can not be read or the format is not supported.
+     */
+    public static EncodedTile encode(final TileReference tile, final String mimeType) throws IOException {
+        if (tile instanceof EncodedTile && mimeType.equals(((EncodedTile) tile).getMimeType())) {
+            return (EncodedTile) tile;
+        }
+        final long lastModified = getLastModified(tile);
+        byte[] data = null;
+        if (tile.getImageReaderSpi() != null
+                && Arrays.asList(tile.getImageReaderSpi().getMIMETypes()).contains(mimeType)) {
+            data = readRaw(tile.getInput());
+        }
+        if (data == null) {
+            final RenderedImage image;
+            if (tile.getInput() instanceof RenderedImage) {
+                image = (RenderedImage) tile.getInput();
+            } else {
+                final ImageReader reader = tile.getImageReader();
+                try {
+                    image = reader.read(tile.getImageIndex());
+                } finally {
+                    ImageIOUtilities.releaseReader(reader);
+                }
+            }
+            data = write(image, mimeType);
+        }
+        return new EncodedTile(data, mimeType, tile.getPosition(), lastModified);
+    }
+
+    /**
+     * Return the modification date of the tile source, when the tile is stored in a file.
+     *
+     * @param tile the tile.
+     * @return the modification date in milliseconds, or 0 if unknown.
+     */
+    public static long getLastModified(final TileReference tile) {
+        if (tile instanceof EncodedTile) {
+            return ((EncodedTile) tile).getLastModified();
+        }
+        final File file = toFile(tile.getInput());
+        if (file != null) {
+            return file.lastModified();
+        }
+        return 0;
+    }
+
+    /**
+     * Return an entity tag for a tile stored in a file, built from the file path, size and
+     * modification date, so the tile can be revalidated without reading it.
+     *
+     * @param tile the tile.
+     * @return the entity tag, or {@code null} if the tile is not stored in a local file.
+     */
+    public static String getSourceTag(final TileReference tile) {
+        final File file = toFile(tile.getInput());
+        if (file == null || !file.isFile()) {
+            return null;
+        }
+        return Long.toHexString(file.lastModified()) + '-' + Long.toHexString(file.length())
+                + '-' + Integer.toHexString(file.getPath().hashCode());
+    }
+
+    /**
+     * Truncate a date to the second, which is the precision of the HTTP dates.
+     */
+    static long toHttpDate(final long time) {
+        return (time / 1000) * 1000;
+    }
+
+    /**
+     * Return the file of a tile input, or {@code null} if the tile is not stored in a local file.
+     *
+     * @param input the tile input, can be {@code null}.
+     * @return the local file of the tile, or {@code null}.
+     */
+    public static File toFile(final Object input) {
+        if (input instanceof File) {
+            return (File) input;
+        }
+        try {
+            if (input instanceof URL && "file".equalsIgnoreCase(((URL) input).getProtocol())) {
+                return new File(((URL) input).toURI());
+            } else if (input instanceof URI && "file".equalsIgnoreCase(((URI) input).getScheme())) {
+                return new File((URI) input);
+            }
+        } catch (URISyntaxException | IllegalArgumentException ex) {
+            // not a local file
+        }
+        return null;
+    }
+
+    /**
+     * Read the binary content of a tile input.
+     *
+     * @return the tile bytes, or {@code null} if the input is not a binary source.
+     */
+    private static byte[] readRaw(final Object input) throws IOException {
+        if (input instanceof byte[]) {
+            return (byte[]) input;
+        } else if (input instanceof ImageInputStream) {
+            final ImageInputStream iis = (ImageInputStream) input;
+            try {
+                final ByteArrayOutputStream out = new ByteArrayOutputStream();
+                final byte[] buffer = new byte[8192];
+                int nb;
+                while ((nb = iis.read(buffer)) >= 0) {
+                    out.write(buffer, 0, nb);
+                }
+                return out.toByteArray();
+            } finally {
+                iis.close();
+            }
+        }
+
+        final InputStream stream;
+        if (input instanceof InputStream) {
+            stream = (InputStream) input;
+        } else if (input instanceof URL) {
+            stream = ((URL) input).openStream();
+        } else if (input instanceof URI) {
+            stream = ((URI) input).toURL().openStream();
+        } else if (input instanceof File) {
+            stream = new FileInputStream((File) input);
+        } else {
+            return null;
+        }
+        try {
+            return IOUtils.toByteArray(stream);
+        } finally {
+            stream.close();
+        }
+    }
+
+    private static byte[] write(final RenderedImage image, final String mimeType) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIOUtilities.writeImage(image, mimeType, out);
+        return out.toByteArray();
+    }
+}
@@ -21,20 +21,22 @@ package org.constellation.wmts.ws.rs;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.sis.util.logging.Logging;
+import org.constellation.wmts.ws.EncodedTile;
+import org.constellation.wmts.ws.TileCache;
 import org.geotoolkit.util.ImageIOUtilities;
 
 import javax.imageio.ImageIO;
 import javax.imageio.ImageReader;
+import javax.imageio.spi.ImageReaderSpi;
 import javax.imageio.stream.ImageInputStream;
 import javax.ws.rs.Produces;
 import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.ext.MessageBodyWriter;
 import javax.ws.rs.ext.Provider;
-import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.awt.image.RenderedImage;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -44,6 +46,9 @@ import java.lang.annotation.Annotation;
 import java.lang.reflect.Type;
 import java.net.URI;
 import java.net.URL;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.Arrays;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -66,6 +71,19 @@ public class StreamResponseWriter implements MessageBodyWriter<TileReference>  {
 
     @Override
     public long getSize(final TileReference t, final Class<?> type, final Type type1, final Annotation[] antns, final MediaType mt) {
+        if (t instanceof EncodedTile) {
+            return ((EncodedTile) t).getData().length;
+        }
+        if (canCopy(t, mt)) {
+            final Object input = t.getInput();
+            if (input instanceof byte[]) {
+                return ((byte[]) input).length;
+            }
+            final File file = TileCache.toFile(input);
+            if (file != null) {
+                return file.length();
+            }
+        }
         return -1;
     }
 
@@ -73,69 +91,119 @@ public class StreamResponseWriter implements MessageBodyWriter<TileReference>  {
     public void writeTo(final TileReference t, final Class<?> type, final Type type1, final Annotation[] antns, final MediaType mt,
             final MultivaluedMap<String, Object> mm, final OutputStream out) throws IOException, WebApplicationException {
 
+        final long size = getSize(t, type, type1, antns, mt);
+        if (size >= 0) {
+            mm.putSingle(HttpHeaders.CONTENT_LENGTH, size);
+        }
 
-        InputStream stream = null;
-        if (t.getImageReaderSpi() != null) {
-            final String[] baseType = t.getImageReaderSpi().getMIMETypes();
-            final String mime = mt.getType()+"/"+mt.getSubtype();
-            if(Arrays.asList(baseType).contains(mime)) {
-                Object input = t.getInput();
-                //we can reuse the input directly
-                //try to write the content of the tile if it's alredy in a binary form
-                if (input instanceof byte[]) {
-                    stream = new ByteArrayInputStream((byte[]) input);
-                } else if (input instanceof InputStream) {
-                    stream = (InputStream) input;
-                } else if (input instanceof URL) {
-                    stream = ((URL) input).openStream();
-                } else if (input instanceof URI) {
-                    stream = ((URI) input).toURL().openStream();
-                } else if (input instanceof File) {
-                    stream = new FileInputStream((File) input);
-                }else if (input instanceof ImageInputStream) {
-                    final ImageInputStream iis = (ImageInputStream) input;
-                    final byte[] buffer = new byte[4096];
-                    int bytesRead;
-                    final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                    while ((bytesRead = iis.read(buffer)) >= 0) {
-                        baos.write(buffer, 0, bytesRead);
-                    }
-                    stream = new ByteArrayInputStream(baos.toByteArray());
-                } else {
+        if (t instanceof EncodedTile) {
+            //already encoded by the worker, no copy needed
+            out.write(((EncodedTile) t).getData());
+            return;
+        }
+
+        if (canCopy(t, mt)) {
+            //we can reuse the input directly
+            //try to write the content of the tile if it's alredy in a binary form
+            final Object input = t.getInput();
+            try {
+                if (!copy(input, out)) {
                     LOGGER.log(Level.WARNING, "Unsupported tile type : {0}", input.getClass());
-                    return;
                 }
+            } catch (IOException ex) {
+                LOGGER.log(Level.WARNING, ex.getMessage(), ex);
             }
+            return;
         }
-            
-        if (stream == null) {
-
-            final BufferedImage image;
-            if (t.getInput() instanceof BufferedImage) {
-                image = (BufferedImage) t.getInput();
-            } else {
-                //we need to recode the input
-                final ImageReader reader = t.getImageReader();
+
+        //we need to recode the input, directly in the response stream
+        final RenderedImage image;
+        if (t.getInput() instanceof RenderedImage) {
+            image = (RenderedImage) t.getInput();
+        } else {
+            final ImageReader reader = t.getImageReader();
+            try {
                 image = reader.read(t.getImageIndex());
+            } finally {
                 //dispose reader and substream
                 ImageIOUtilities.releaseReader(reader);
             }
-            
-            final ByteArrayOutputStream bo = new ByteArrayOutputStream();
-            ImageIO.write(image, mt.getSubtype(), bo);
-            bo.flush();
-            stream = new ByteArrayInputStream(bo.toByteArray());
         }
-        
         try {
-            IOUtils.copy(stream, out);
+            if (!ImageIO.write(image, mt.getSubtype(), out)) {
+                LOGGER.log(Level.WARNING, "No image writer for format : {0}", mt.getSubtype());
+            }
         } catch (IOException ex) {
             LOGGER.log(Level.WARNING, ex.getMessage(), ex);
-        } finally {
-            if(stream != null){
-                stream.close();
+        }
+    }
+
+    /**
+     * Return {@code true} if the tile is already stored in the requested format.
+     */
+    private static boolean canCopy(final TileReference t, final MediaType mt) {
+        final ImageReaderSpi spi = t.getImageReaderSpi();
+        if (spi != null && spi.getMIMETypes() != null) {
+            final String mime = mt.getType()+"/"+mt.getSubtype();
+            return Arrays.asList(spi.getMIMETypes()).contains(mime);
+        }
+        return false;
+    }
+
+    /**
+     * Copy the binary content of the tile in the output stream.
+     *
+     * @return {@code false} if the input type is not supported.
+     */
+    private static boolean copy(final Object input, final OutputStream out) throws IOException {
+        if (input instanceof byte[]) {
+            out.write((byte[]) input);
+            return true;
+        }
+
+        final File file = TileCache.toFile(input);
+        if (file != null) {
+            //let the file channel transfer the content, without going through a heap buffer when possible
+            try (FileChannel channel = new FileInputStream(file).getChannel()) {
+                final WritableByteChannel target = Channels.newChannel(out);
+                final long size = channel.size();
+                long position = 0;
+                while (position < size) {
+                    position += channel.transferTo(position, size - position, target);
+                }
+            }
+            return true;
+        }
+
+        if (input instanceof ImageInputStream) {
+            final ImageInputStream iis = (ImageInputStream) input;
+            try {
+                final byte[] buffer = new byte[8192];
+                int bytesRead;
+                while ((bytesRead = iis.read(buffer)) >= 0) {
+                    out.write(buffer, 0, bytesRead);
+                }
+            } finally {
+                iis.close();
             }
+            return true;
+        }
+
+        final InputStream stream;
+        if (input instanceof InputStream) {
+            stream = (InputStream) input;
+        } else if (input instanceof URL) {
+            stream = ((URL) input).openStream();
+        } else if (input instanceof URI) {
+            stream = ((URI) input).toURL().openStream();
+        } else {
+            return false;
+        }
+        try {
+            IOUtils.copy(stream, out);
+        } finally {
+            stream.close();
         }
-        
+        return true;
     }
 }
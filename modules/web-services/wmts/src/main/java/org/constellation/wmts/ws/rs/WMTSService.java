@@ -21,6 +21,8 @@ package org.constellation.wmts.ws.rs;
 import org.constellation.ServiceDef;
 import org.constellation.ServiceDef.Specification;
 import org.constellation.wmts.ws.DefaultWMTSWorker;
+import org.constellation.wmts.ws.EncodedTile;
+import org.constellation.wmts.ws.TileCache;
 import org.constellation.wmts.ws.WMTSWorker;
 import org.constellation.ws.CstlServiceException;
 import org.constellation.ws.MimeType;
@@ -32,6 +34,7 @@ import org.geotoolkit.ows.xml.v110.AcceptFormatsType;
 import org.geotoolkit.ows.xml.v110.AcceptVersionsType;
 import org.geotoolkit.ows.xml.v110.ExceptionReport;
 import org.geotoolkit.ows.xml.v110.SectionsType;
+import org.geotoolkit.storage.coverage.TileReference;
 import org.geotoolkit.util.ImageIOUtilities;
 import org.geotoolkit.wmts.xml.WMTSMarshallerPool;
 import org.geotoolkit.wmts.xml.v100.DimensionNameValue;
@@ -44,9 +47,13 @@ import javax.inject.Singleton;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.StringTokenizer;
@@ -81,6 +88,14 @@ public class WMTSService extends GridWebService<WMTSWorker> {
 
     private static final String NOT_WORKING = "The WMTS service is not running";
 
+    /**
+     * Automatically set by Jersey.
+     *
+     * Used to evaluate the conditional GetTile requests.
+     */
+    @Context
+    private volatile Request httpRequest;
+
     /**
      * Builds a new WMTS service REST (both REST Kvp and RESTFUL). This service only
      * provides the version 1.0.0 of OGC WMTS standard, for the moment.
@@ -126,7 +141,17 @@ public class WMTSService extends GridWebService<WMTSWorker> {
             }
             if (request instanceof GetTile) {
                 final GetTile gt = (GetTile) request;
-                return Response.ok(worker.getTile(gt), gt.getFormat()).build();
+                final TileReference tile = worker.getTile(gt);
+                if (tile instanceof EncodedTile) {
+                    final EncodedTile encoded = (EncodedTile) tile;
+                    return buildTileResponse(encoded, encoded.getMimeType(), new EntityTag(encoded.getETag()), encoded.getLastModified());
+                }
+                final String sourceTag = (tile != null) ? TileCache.getSourceTag(tile) : null;
+                if (sourceTag != null) {
+                    // the tile is sent from its file, it is identified by the file rather than by its content.
+                    return buildTileResponse(tile, gt.getFormat(), new EntityTag(sourceTag, true), TileCache.getLastModified(tile));
+                }
+                return Response.ok(tile, gt.getFormat()).build();
             }
             if (request instanceof GetFeatureInfo) {
                 final GetFeatureInfo gf = (GetFeatureInfo) request;
@@ -145,6 +170,23 @@ public class WMTSService extends GridWebService<WMTSWorker> {
         }
     }
 
+    /**
+     * Build the response for a tile, with its validators.
+     * If the client already has this tile, a "304 Not Modified" response is returned.
+     */
+    private Response buildTileResponse(final TileReference tile, final String mimeType, final EntityTag etag, final long modified) {
+        // HTTP dates have a second precision.
+        final Date lastModified = new Date((modified / 1000) * 1000);
+        Response.ResponseBuilder builder = null;
+        if (httpRequest != null) {
+            builder = httpRequest.evaluatePreconditions(lastModified, etag);
+        }
+        if (builder == null) {
+            builder = Response.ok(tile, mimeType);
+        }
+        return builder.tag(etag).lastModified(lastModified).build();
+    }
+
     /**
      * Build request object fom KVP parameters.
      *
@@ -0,0 +1,175 @@
+/*
+ *    Constellation - An open source and standard compliant SDI
+ *    http://www.constellation-sdi.org
+ *
+ * Copyright 2014 Geomatys.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.constellation.wmts.ws;
+
+import org.geotoolkit.storage.coverage.TileReference;
+import org.junit.Test;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.spi.ImageReaderSpi;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import java.awt.Point;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ *
+ * @author Guilhem Legal (Geomatys)
+ */
+public class TileCacheTest {
+
+    @Test
+    public void etagTest() throws Exception {
+        final EncodedTile t1 = new EncodedTile(new byte[]{1, 2, 3}, "image/png", new Point(0, 0));
+        final EncodedTile t2 = new EncodedTile(new byte[]{1, 2, 3}, "image/png", new Point(1, 0));
+        final EncodedTile t3 = new EncodedTile(new byte[]{1, 2, 4}, "image/png", new Point(0, 0));
+        assertEquals(t1.getETag(), t2.getETag());
+        assertFalse(t1.getETag().equals(t3.getETag()));
+        assertEquals(0, t1.getLastModified() % 1000);
+
+        // an already encoded tile is not encoded again
+        assertSame(t1, TileCache.encode(t1, "image/png"));
+    }
+
+    @Test
+    public void cacheTest() throws Exception {
+        final TileCache cache = new TileCache(1024 * 1024);
+        assertNull(cache.get("a"));
+        final EncodedTile tile = new EncodedTile(new byte[6], "image/png", null);
+        cache.put("a", tile);
+        assertSame(tile, cache.get("a"));
+        assertEquals(1, cache.size());
+
+        cache.clear();
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    public void sourceModificationTest() throws Exception {
+        final File file = File.createTempFile("tile", ".png");
+        try {
+            final byte[] content = new byte[]{1, 2, 3};
+            try (FileOutputStream out = new FileOutputStream(file)) {
+                out.write(content);
+            }
+            assertTrue(file.setLastModified(1400000000000L));
+            final TileReference source = fileTile(file);
+            assertEquals(1400000000000L, TileCache.getLastModified(source));
+            assertNotNull(TileCache.getSourceTag(source));
+
+            // the tile date is the date of its source, not its encoding date
+            final EncodedTile tile = new EncodedTile(content, "image/png", new Point(0, 0), TileCache.getLastModified(source));
+            assertEquals(1400000000000L, tile.getLastModified());
+
+            final TileCache cache = new TileCache(1024 * 1024);
+            assertTrue(cache.accept(source));
+            cache.put("a", tile);
+            assertSame(tile, cache.get("a", TileCache.getLastModified(source)));
+
+            // the tile file is rewritten, the cached tile is outdated
+            final String previousTag = TileCache.getSourceTag(source);
+            assertTrue(file.setLastModified(1400000010000L));
+            assertNull(cache.get("a", TileCache.getLastModified(source)));
+            assertFalse(previousTag.equals(TileCache.getSourceTag(source)));
+
+            // the tiles bigger than a hundredth of the cache are not cached
+            assertFalse(new TileCache(200).accept(source));
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * A tile already stored in the requested format is copied from its input stream, which is closed after.
+     */
+    @Test
+    public void streamTileTest() throws Exception {
+        final byte[] content = new byte[]{1, 2, 3, 4};
+        final AtomicBoolean closed = new AtomicBoolean();
+        final ImageInputStream input = new MemoryCacheImageInputStream(new ByteArrayInputStream(content)) {
+            @Override
+            public void close() throws IOException {
+                closed.set(true);
+                super.close();
+            }
+        };
+        final ImageReaderSpi spi = ImageIO.getImageReadersByMIMEType("image/png").next().getOriginatingProvider();
+        final EncodedTile tile = TileCache.encode(tile(input, spi), "image/png");
+        assertArrayEquals(content, tile.getData());
+        assertTrue(closed.get());
+    }
+
+    @Test
+    public void toFileTest() throws Exception {
+        final File file = new File("tile.png").getAbsoluteFile();
+        assertEquals(file, TileCache.toFile(file));
+        assertEquals(file, TileCache.toFile(file.toURI()));
+        assertEquals(file, TileCache.toFile(file.toURI().toURL()));
+        assertNull(TileCache.toFile(new URL("http://localhost/tile.png")));
+        assertNull(TileCache.toFile(new byte[0]));
+        assertNull(TileCache.toFile(null));
+    }
+
+    private static TileReference fileTile(final File file) {
+        return tile(file, null);
+    }
+
+    private static TileReference tile(final Object input, final ImageReaderSpi spi) {
+        return new TileReference() {
+            @Override
+            public ImageReader getImageReader() throws IOException {
+                return null;
+            }
+
+            @Override
+            public ImageReaderSpi getImageReaderSpi() {
+                return spi;
+            }
+
+            @Override
+            public Object getInput() {
+                return input;
+            }
+
+            @Override
+            public int getImageIndex() {
+                return 0;
+            }
+
+            @Override
+            public Point getPosition() {
+                return new Point(0, 0);
+            }
+        };
+    }
+}
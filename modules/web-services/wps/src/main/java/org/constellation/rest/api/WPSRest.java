@@ -21,6 +21,7 @@ package org.constellation.rest.api;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.inject.Inject;
@@ -44,8 +45,11 @@ import org.constellation.business.IServiceBusiness;
 import org.constellation.configuration.ConfigurationException;
 import org.constellation.configuration.ProcessContext;
 import org.constellation.configuration.ProcessFactory;
+import org.constellation.configuration.TargetNotFoundException;
 import org.constellation.configuration.Process;
 import org.constellation.wps.utils.WPSUtils;
+import org.constellation.wps.ws.WPSExecutor;
+import org.constellation.wps.ws.rs.WPSService;
 import org.opengis.util.NoSuchIdentifierException;
 
 /**
@@ -296,4 +300,28 @@ public class WPSRest {
         // save context
         serviceBusiness.configure("WPS", id, null, context);
     }
+
+    /**
+     * Returns the statistics of the WPS execution engine, shared by all the WPS services.
+     * @return the queue depths, job counts and mean wait/run times.
+     * @see WPSExecutor#getStatistics()
+     */
+    @GET
+    @Path("execution/statistics")
+    public Map<String, Long> getExecutionStatistics() {
+        return WPSService.getExecutor().getStatistics();
+    }
+
+    /**
+     * Cancel an asynchronous execution, queued or running.
+     * @param jobId the job identifier, which is the name of its status document.
+     * @throws ConfigurationException if the job is not queued or running.
+     */
+    @DELETE
+    @Path("execution/{jobId}")
+    public void cancelExecution(final @PathParam("jobId") String jobId) throws ConfigurationException {
+        if (!WPSService.getExecutor().cancel(jobId)) {
+            throw new TargetNotFoundException("No queued or running execution for the job:" + jobId);
+        }
+    }
 }
@@ -59,7 +59,11 @@ import javax.xml.datatype.DatatypeConfigurationException;
 import javax.xml.datatype.DatatypeFactory;
 import javax.xml.datatype.XMLGregorianCalendar;
 import java.io.File;
+import java.io.IOException;
 import java.math.BigInteger;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.GregorianCalendar;
@@ -596,6 +600,9 @@ public class WPSUtils {
      * to store is marshalled by the {@link WPSMarshallerPool}. If the temporary file already exist he will be
      * overwrited.
      *
+     * The object is first marshalled in a temporary file of the same folder, which is then renamed,
+     * so the clients reading the file never see a partially written document.
+     *
      * @param obj object to marshalle and store to a temporary file.
      * @param fileName temporary file name.
      * @return
@@ -605,17 +612,33 @@ public class WPSUtils {
 
         final MarshallerPool marshallerPool = WPSMarshallerPool.getInstance();
         boolean success = false;
+        File tmpFile = null;
 
         try {
 
             final File outputFile = new File(folderPath, fileName);
+            tmpFile = File.createTempFile(fileName, ".tmp", outputFile.getParentFile());
             final Marshaller marshaller = marshallerPool.acquireMarshaller();
-            marshaller.marshal(obj, outputFile);
-            marshallerPool.recycle(marshaller);
+            try {
+                marshaller.marshal(obj, tmpFile);
+            } finally {
+                marshallerPool.recycle(marshaller);
+            }
+            try {
+                Files.move(tmpFile.toPath(), outputFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(tmpFile.toPath(), outputFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
             success = outputFile.exists();
 
         } catch (JAXBException ex) {
             LOGGER.log(Level.WARNING, "Error during unmarshalling", ex);
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Error while writing the file " + fileName, ex);
+        } finally {
+            if (tmpFile != null && tmpFile.exists()) {
+                tmpFile.delete();
+            }
         }
         return success;
     }
@@ -0,0 +1,387 @@
+/*
+ *    Constellation - An open source and standard compliant SDI
+ *    http://www.constellation-sdi.org
+ *
+ * Copyright 2014 Geomatys.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.constellation.wps.ws;
+
+import org.apache.sis.util.logging.Logging;
+import org.constellation.configuration.AppProperty;
+import org.constellation.configuration.Application;
+import org.constellation.ws.CstlServiceException;
+import org.geotoolkit.process.Process;
+import org.geotoolkit.processing.AbstractProcess;
+import org.opengis.parameter.ParameterValueGroup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.constellation.ws.ExceptionCode.SERVER_BUSY;
+
+/**
+ * Execution engine of the WPS processes.
+ *
+ * The synchronous and asynchronous executions run in two separated bounded pools, each one with a
+ * bounded queue. A request is refused with a {@code ServerBusy} exception when the queue of its pool
+ * is full, or when the maximum number of jobs of its process is reached.
+ *
+ * The pools are configured with the application properties {@link AppProperty#WPS_SYNC_THREADS},
+ * {@link AppProperty#WPS_ASYNC_THREADS}, {@link AppProperty#WPS_QUEUE_SIZE} and {@link AppProperty#WPS_PROCESS_MAX_JOBS}.
+ *
+ * @author Guilhem Legal (Geomatys)
+ */
+public class WPSExecutor {
+
+    private static final Logger LOGGER = Logging.getLogger("org.constellation.wps.ws");
+
+    /**
+     * Default maximum number of jobs waiting in the queue of each pool.
+     */
+    private static final int DEFAULT_QUEUE_SIZE = 100;
+
+    private final ThreadPoolExecutor syncPool;
+
+    private final ThreadPoolExecutor asyncPool;
+
+    /**
+     * Maximum number of jobs queued or running for a process, 0 for no limit.
+     */
+    private final int maxJobsByProcess;
+
+    /**
+     * The number of jobs that can still be admitted for each process.
+     */
+    private final ConcurrentHashMap<String, Semaphore> processPermits = new ConcurrentHashMap<>();
+
+    /**
+     * The asynchronous jobs, by job identifier, until their end.
+     */
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong rejected  = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+
+    /**
+     * Cumulated time spent in queue by the jobs, in milliseconds.
+     */
+    private final AtomicLong waitTime = new AtomicLong();
+
+    /**
+     * Cumulated running time of the jobs, in milliseconds.
+     */
+    private final AtomicLong runTime = new AtomicLong();
+
+    public WPSExecutor() {
+        this(getIntProperty(AppProperty.WPS_SYNC_THREADS,  Runtime.getRuntime().availableProcessors()),
+             getIntProperty(AppProperty.WPS_ASYNC_THREADS, Runtime.getRuntime().availableProcessors()),
+             getIntProperty(AppProperty.WPS_QUEUE_SIZE, DEFAULT_QUEUE_SIZE),
+             getIntProperty(AppProperty.WPS_PROCESS_MAX_JOBS, 0));
+    }
+
+    /**
+     * @param syncThreads Number of threads running the synchronous executions.
+     * @param asyncThreads Number of threads running the asynchronous executions.
+     * @param queueSize Maximum number of jobs waiting in the queue of each pool.
+     * @param maxJobsByProcess Maximum number of jobs queued or running for a process, 0 for no limit.
+     */
+    WPSExecutor(final int syncThreads, final int asyncThreads, final int queueSize, final int maxJobsByProcess) {
+        syncPool  = createPool("sync",  syncThreads,  queueSize);
+        asyncPool = createPool("async", asyncThreads, queueSize);
+        this.maxJobsByProcess = maxJobsByProcess;
+    }
+
+    private static ThreadPoolExecutor createPool(final String name, final int nbThreads, final int queueSize) {
+        final int size = Math.max(1, nbThreads);
+        final ThreadPoolExecutor pool = new ThreadPoolExecutor(size, size, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(Math.max(1, queueSize)), new ThreadFactory() {
+                    private final AtomicInteger count = new AtomicInteger();
+                    @Override
+                    public Thread newThread(final Runnable r) {
+                        final Thread thread = new Thread(r, "wps-" + name + '-' + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    private static int getIntProperty(final AppProperty property, final int defaultValue) {
+        final String value = Application.getProperty(property);
+        if (value != null) {
+            try {
+                return Integer.parseInt(value.trim());
+            } catch (NumberFormatException ex) {
+                LOGGER.log(Level.WARNING, "Unable to parse the property {0}:{1}", new Object[]{property.getKey(), value});
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Submit a synchronous execution.
+     *
+     * @param processId The identifier of the process.
+     * @param process The process to run.
+     * @return The result of the process.
+     * @throws CstlServiceException with a {@code ServerBusy} code if the job is refused.
+     */
+    public Future<ParameterValueGroup> submit(final String processId, final Process process) throws CstlServiceException {
+        return submit(syncPool, null, processId, new Callable<Process>() {
+            @Override
+            public Process call() {
+                return process;
+            }
+        }, null);
+    }
+
+    /**
+     * Submit an asynchronous execution, the process is created by the pool thread.
+     *
+     * @param jobId The identifier of the job, used to {@linkplain #cancel cancel} it.
+     * @param processId The identifier of the process.
+     * @param factory Create the process to run, for example by reading its inputs.
+     * @param onCancel Called once the job is cancelled: immediately for a queued job, at the end of
+     *                 its execution for a running one. Used to write the status of the job.
+     * @return The result of the process.
+     * @throws CstlServiceException with a {@code ServerBusy} code if the job is refused.
+     */
+    public Future<ParameterValueGroup> submitAsync(final String jobId, final String processId,
+            final Callable<Process> factory, final Runnable onCancel) throws CstlServiceException {
+        return submit(asyncPool, jobId, processId, factory, onCancel);
+    }
+
+    private Future<ParameterValueGroup> submit(final ThreadPoolExecutor pool, final String jobId, final String processId,
+            final Callable<Process> factory, final Runnable onCancel) throws CstlServiceException {
+        final Semaphore permits = getPermits(processId);
+        if (permits != null && !permits.tryAcquire()) {
+            rejected.incrementAndGet();
+            throw new CstlServiceException("Too many executions of the process " + processId + ", retry later.", SERVER_BUSY);
+        }
+        final Execution execution = new Execution(factory);
+        final Job job = new Job(jobId, execution, permits, onCancel);
+        execution.job = job;
+        if (jobId != null) {
+            jobs.put(jobId, job);
+        }
+        try {
+            pool.execute(job);
+        } catch (RejectedExecutionException ex) {
+            // never run, the caller reports the refusal itself
+            if (execution.start()) {
+                job.end(false);
+            }
+            rejected.incrementAndGet();
+            throw new CstlServiceException("The server is busy, retry later.", ex, SERVER_BUSY);
+        }
+        submitted.incrementAndGet();
+        return job;
+    }
+
+    private Semaphore getPermits(final String processId) {
+        if (maxJobsByProcess <= 0 || processId == null) {
+            return null;
+        }
+        Semaphore permits = processPermits.get(processId);
+        if (permits == null) {
+            permits = new Semaphore(maxJobsByProcess);
+            final Semaphore previous = processPermits.putIfAbsent(processId, permits);
+            if (previous != null) {
+                permits = previous;
+            }
+        }
+        return permits;
+    }
+
+    /**
+     * Cancel an asynchronous job, queued or running.
+     *
+     * @param jobId The identifier of the job.
+     * @return {@code true} if the job has been found and cancelled.
+     */
+    public boolean cancel(final String jobId) {
+        final Job job = jobs.get(jobId);
+        if (job != null && job.cancel(true)) {
+            cancelled.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Return the statistics of the engine: the number of jobs queued and running,
+     * the number of submitted, rejected, completed and cancelled jobs, and the mean
+     * time spent in queue and running in milliseconds.
+     */
+    public Map<String, Long> getStatistics() {
+        final long nbCompleted = completed.get();
+        final Map<String, Long> stats = new HashMap<>();
+        stats.put("syncQueued",   (long) syncPool.getQueue().size());
+        stats.put("syncRunning",  (long) syncPool.getActiveCount());
+        stats.put("asyncQueued",  (long) asyncPool.getQueue().size());
+        stats.put("asyncRunning", (long) asyncPool.getActiveCount());
+        stats.put("submitted",    submitted.get());
+        stats.put("rejected",     rejected.get());
+        stats.put("completed",    nbCompleted);
+        stats.put("cancelled",    cancelled.get());
+        stats.put("meanWaitTime", nbCompleted > 0 ? waitTime.get() / nbCompleted : 0);
+        stats.put("meanRunTime",  nbCompleted > 0 ? runTime.get()  / nbCompleted : 0);
+        return stats;
+    }
+
+    /**
+     * Stop the pools. The new jobs are refused, the queued and running ones are completed.
+     */
+    public void shutdown() {
+        syncPool.shutdown();
+        asyncPool.shutdown();
+    }
+
+    /**
+     * A process execution, from its submission to its end.
+     */
+    private final class Job extends FutureTask<ParameterValueGroup> {
+
+        private final String jobId;
+
+        private final Semaphore permits;
+
+        private final Execution execution;
+
+        private final Runnable onCancel;
+
+        private Job(final String jobId, final Execution execution, final Semaphore permits, final Runnable onCancel) {
+            super(execution);
+            this.jobId     = jobId;
+            this.execution = execution;
+            this.permits   = permits;
+            this.onCancel  = onCancel;
+        }
+
+        @Override
+        public boolean cancel(final boolean mayInterruptIfRunning) {
+            if (!super.cancel(mayInterruptIfRunning)) {
+                return false;
+            }
+            final Process process = execution.process;
+            if (process instanceof AbstractProcess) {
+                ((AbstractProcess) process).cancelProcess();
+            }
+            return true;
+        }
+
+        /**
+         * Called once, when the job ends or is cancelled. A running job cancelled is still winding down,
+         * it is ended by its execution. A queued job cancelled is never run, it is ended here.
+         */
+        @Override
+        protected void done() {
+            if (execution.start()) {
+                end(true);
+            }
+        }
+
+        /**
+         * Release the resources of the job, once its execution is over or will never happen.
+         *
+         * @param notify {@code true} to call the cancel handler if the job has been cancelled.
+         */
+        private void end(final boolean notify) {
+            if (permits != null) {
+                permits.release();
+            }
+            if (jobId != null) {
+                jobs.remove(jobId);
+            }
+            if (notify && onCancel != null && isCancelled()) {
+                try {
+                    onCancel.run();
+                } catch (RuntimeException ex) {
+                    LOGGER.log(Level.WARNING, "Error while ending the cancelled job " + jobId, ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Create and run a process, measuring the time spent in queue and running.
+     */
+    private final class Execution implements Callable<ParameterValueGroup> {
+
+        private final Callable<Process> factory;
+
+        private final long submitTime = System.currentTimeMillis();
+
+        /**
+         * Set when the execution starts, or when the job is ended without being run.
+         */
+        private final AtomicBoolean started = new AtomicBoolean();
+
+        private volatile Process process;
+
+        private Job job;
+
+        private Execution(final Callable<Process> factory) {
+            this.factory = factory;
+        }
+
+        /**
+         * @return {@code true} if the caller is the first to start this execution.
+         */
+        private boolean start() {
+            return started.compareAndSet(false, true);
+        }
+
+        @Override
+        public ParameterValueGroup call() throws Exception {
+            if (!start()) {
+                // cancelled just before its start, already ended
+                return null;
+            }
+            final long start = System.currentTimeMillis();
+            waitTime.addAndGet(start - submitTime);
+            try {
+                process = factory.call();
+                if (job.isCancelled()) {
+                    // cancelled while the process was created
+                    return null;
+                }
+                return process.call();
+            } finally {
+                runTime.addAndGet(System.currentTimeMillis() - start);
+                completed.incrementAndGet();
+                job.end(true);
+            }
+        }
+    }
+}
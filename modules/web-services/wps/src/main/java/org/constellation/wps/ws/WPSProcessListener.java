@@ -35,6 +35,7 @@ import org.geotoolkit.wps.xml.v100.ProcessStartedType;
 import org.geotoolkit.wps.xml.v100.StatusType;
 import org.opengis.parameter.GeneralParameterDescriptor;
 
+import java.io.File;
 import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
@@ -47,7 +48,17 @@ import java.util.logging.Logger;
 public class WPSProcessListener implements ProcessListener{
 
     private static final Logger LOGGER = Logging.getLogger("org.constellation.wps.ws");
-    private static final int TIMEOUT = 200; //processing time step
+
+    /**
+     * Minimum delay between two writes of the status document during the progress, in milliseconds.
+     */
+    private static final long MIN_WRITE_DELAY = 1000;
+
+    /**
+     * Maximum delay between two writes of the status document during the progress, in milliseconds,
+     * the document is written after this delay even if the percentage did not change.
+     */
+    private static final long MAX_WRITE_DELAY = 10000;
 
     private final Execute request;
     private final ExecuteResponse responseDoc;
@@ -55,7 +66,8 @@ public class WPSProcessListener implements ProcessListener{
     private final ServiceDef def;
     final Map<String, Object> parameters;
     private final String folderPath;
-    private long nextTimestamp;
+    private long lastWrite;
+    private int lastPercent = -1;
     private final boolean useStatus;
 
     /**
@@ -73,7 +85,6 @@ public class WPSProcessListener implements ProcessListener{
         this.def = def;
         this.parameters = parameters;
         this.folderPath = (String) parameters.get(WPSConvertersUtils.OUT_STORAGE_DIR);
-        this.nextTimestamp = System.currentTimeMillis() + TIMEOUT;
         this.useStatus = this.request.getResponseForm().getResponseDocument().isStatus();
     }
 
@@ -89,30 +100,37 @@ public class WPSProcessListener implements ProcessListener{
         if (useStatus) {
             responseDoc.setStatus(status);
         }
-        WPSUtils.storeResponse(responseDoc, folderPath, fileName);
+        store();
     }
 
+    /**
+     * The progress events are coalesced : the status is updated in memory when the percentage changes,
+     * and the status document is written at most once by {@link #MIN_WRITE_DELAY}, and at least once by
+     * {@link #MAX_WRITE_DELAY} to refresh the intermediate outputs.
+     */
     @Override
     public void progressing(final ProcessEvent event) {
         if (useStatus) {
-            final long currentTimestamp = System.currentTimeMillis();
-            if (currentTimestamp >= (nextTimestamp)){
+            final long currentTimestamp = currentTimeMillis();
+            final long elapsed = currentTimestamp - lastWrite;
+            final int percent = (int) event.getProgress();
+            if (percent != lastPercent) {
+                lastPercent = percent;
+                setStarted(percent);
+                WPSStatusRegistry.update(fileName, responseDoc);
+            } else if (elapsed < MAX_WRITE_DELAY) {
+                return;
+            }
+            if (elapsed >= MIN_WRITE_DELAY) {
                 //LOGGER.log(Level.INFO, "Process {0} is progressing : {1}.", new Object[]{WPSUtils.buildProcessIdentifier(event.getSource().getDescriptor()), event.getProgress()});
-                nextTimestamp += TIMEOUT;
                 try {
                     final List<GeneralParameterDescriptor> processOutputDesc = event.getSource().getDescriptor().getOutputDescriptor().descriptors();
                     final ExecuteResponse.ProcessOutputs outputs = new ExecuteResponse.ProcessOutputs();
                     WPSWorker.fillOutputsFromProcessResult(outputs, request.getResponseForm().getResponseDocument().getOutput(), processOutputDesc,
                             event.getOutput(), parameters, true);
-                    final StatusType status = new StatusType();
-                    status.setCreationTime(WPSUtils.getCurrentXMLGregorianCalendar());
-                    final ProcessStartedType started = new ProcessStartedType();
-                    started.setValue("Process " + request.getIdentifier().getValue() + " is pending");
-                    started.setPercentCompleted((int) event.getProgress());
-                    status.setProcessStarted(started);
-                    responseDoc.setStatus(status);
+                    setStarted(percent);
                     responseDoc.setProcessOutputs(outputs);
-                    WPSUtils.storeResponse(responseDoc, folderPath, fileName);
+                    store();
                 } catch (CstlServiceException ex) {
                     writeException(ex);
                 }
@@ -120,6 +138,16 @@ public class WPSProcessListener implements ProcessListener{
         }
     }
 
+    private void setStarted(final int percent) {
+        final StatusType status = new StatusType();
+        status.setCreationTime(WPSUtils.getCurrentXMLGregorianCalendar());
+        final ProcessStartedType started = new ProcessStartedType();
+        started.setValue("Process " + request.getIdentifier().getValue() + " is pending");
+        started.setPercentCompleted(percent);
+        status.setProcessStarted(started);
+        responseDoc.setStatus(status);
+    }
+
     @Override
     public void completed(final ProcessEvent event) {
         LOGGER.log(Level.INFO, "Process {0} is finished.", WPSUtils.buildProcessIdentifier(event.getSource().getDescriptor()));
@@ -137,7 +165,7 @@ public class WPSProcessListener implements ProcessListener{
         } catch (CstlServiceException ex) {
             writeException(ex);
         }
-
+        WPSStatusRegistry.finish(fileName, new File(folderPath, fileName));
     }
 
     @Override
@@ -154,6 +182,7 @@ public class WPSProcessListener implements ProcessListener{
         status.setProcessFailed(processFT);
         responseDoc.setStatus(status);
         WPSUtils.storeResponse(responseDoc, folderPath, fileName);
+        WPSStatusRegistry.finish(fileName, new File(folderPath, fileName));
     }
 
     @Override
@@ -167,7 +196,7 @@ public class WPSProcessListener implements ProcessListener{
             paused.setPercentCompleted((int) event.getProgress());
             status.setProcessPaused(paused);
             responseDoc.setStatus(status);
-            WPSUtils.storeResponse(responseDoc, folderPath, fileName);
+            store();
         }
     }
 
@@ -182,10 +211,26 @@ public class WPSProcessListener implements ProcessListener{
             resumed.setPercentCompleted((int) event.getProgress());
             status.setProcessPaused(resumed);
             responseDoc.setStatus(status);
-            WPSUtils.storeResponse(responseDoc, folderPath, fileName);
+            store();
         }
     }
 
+    /**
+     * Return the current time used to throttle the writes of the status document, in milliseconds.
+     */
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Write the status document, and update the in-memory status of the job.
+     */
+    private void store() {
+        lastWrite = currentTimeMillis();
+        WPSStatusRegistry.update(fileName, responseDoc);
+        WPSUtils.storeResponse(responseDoc, folderPath, fileName);
+    }
+
     /**
      * Write the occurred exception in the response file.
      *
@@ -203,6 +248,7 @@ public class WPSProcessListener implements ProcessListener{
         final ExceptionReport report = new ExceptionReport(ex.getMessage(), codeRepresentation, ex.getLocator(),
                                                      def.exceptionVersion.toString());
 
+        WPSStatusRegistry.update(fileName, report);
         WPSUtils.storeResponse(report, folderPath, fileName);
     }
 
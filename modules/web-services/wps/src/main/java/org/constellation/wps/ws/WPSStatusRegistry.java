@@ -0,0 +1,138 @@
+/*
+ *    Constellation - An open source and standard compliant SDI
+ *    http://www.constellation-sdi.org
+ *
+ * Copyright 2014 Geomatys.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.constellation.wps.ws;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.sis.util.logging.Logging;
+import org.apache.sis.xml.MarshallerPool;
+import org.geotoolkit.wps.xml.WPSMarshallerPool;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * In-memory status of the asynchronous WPS executions.
+ *
+ * The status of a running job is kept in memory, where it is updated on each progress event,
+ * while its status document is only rewritten from time to time. The status is marshalled
+ * when it is updated, by the thread which modifies the response, so the readers never see
+ * a response being modified. Once the job is finished, the status is read from its status document.
+ *
+ * @author Guilhem Legal (Geomatys)
+ */
+public final class WPSStatusRegistry {
+
+    private static final Logger LOGGER = Logging.getLogger("org.constellation.wps.ws");
+
+    /**
+     * The marshalled status of the running jobs, by job identifier.
+     */
+    private static final Map<String, byte[]> RUNNING = new ConcurrentHashMap<>();
+
+    /**
+     * The status document of the finished jobs, kept for a limited time.
+     */
+    private static final Cache<String, File> FINISHED = CacheBuilder.newBuilder()
+            .maximumSize(10000)
+            .expireAfterWrite(1, TimeUnit.DAYS)
+            .build();
+
+    private WPSStatusRegistry() {}
+
+    /**
+     * Update the status of a running job.
+     *
+     * @param jobId The job identifier, which is the name of its status document.
+     * @param status The current ExecuteResponse (or ExceptionReport) of the job.
+     */
+    static void update(final String jobId, final Object status) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final MarshallerPool pool = WPSMarshallerPool.getInstance();
+        try {
+            final Marshaller marshaller = pool.acquireMarshaller();
+            try {
+                marshaller.marshal(status, out);
+            } finally {
+                pool.recycle(marshaller);
+            }
+        } catch (JAXBException ex) {
+            LOGGER.log(Level.WARNING, "Unable to marshall the status of the job:" + jobId, ex);
+            return;
+        }
+        RUNNING.put(jobId, out.toByteArray());
+    }
+
+    /**
+     * Mark a job as finished, its final status is in its status document.
+     *
+     * @param jobId The job identifier, which is the name of its status document.
+     * @param statusDocument The status document of the job.
+     */
+    static void finish(final String jobId, final File statusDocument) {
+        FINISHED.put(jobId, statusDocument);
+        RUNNING.remove(jobId);
+    }
+
+    /**
+     * Return the status of a job.
+     *
+     * The jobs which are not in memory any more, finished before a restart or evicted from the cache,
+     * are read from their status document in the given folder.
+     *
+     * @param jobId The job identifier, which is the name of its status document.
+     * @param folder The folder of the status documents, can be {@code null}.
+     * @return The marshalled ExecuteResponse (or ExceptionReport) of the job, or {@code null} if the job is unknown.
+     * @throws IOException if the status document of a finished job can not be read.
+     */
+    public static byte[] getStatus(final String jobId, final File folder) throws IOException {
+        if (!isValidJobId(jobId)) {
+            return null;
+        }
+        final byte[] status = RUNNING.get(jobId);
+        if (status != null) {
+            return status;
+        }
+        File statusDocument = FINISHED.getIfPresent(jobId);
+        if (statusDocument == null && folder != null) {
+            statusDocument = new File(folder, jobId);
+        }
+        if (statusDocument != null && statusDocument.isFile()) {
+            return Files.readAllBytes(statusDocument.toPath());
+        }
+        return null;
+    }
+
+    /**
+     * A job identifier is the name of a file of the status folder, it can not designate another file.
+     */
+    static boolean isValidJobId(final String jobId) {
+        return jobId != null && !jobId.isEmpty() && !jobId.startsWith(".")
+                && jobId.indexOf('/') == -1 && jobId.indexOf('\\') == -1;
+    }
+}
@@ -121,6 +121,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
@@ -435,6 +436,29 @@ public class WPSWorker extends AbstractWorker {
         }
     }
 
+    /**
+     * Return the folder where the status documents and the output files are stored.
+     */
+    public String getWebdavFolderPath() {
+        return webdavFolderPath;
+    }
+
+    /**
+     * Return the URL of the in-memory status of a job, served by this WPS instance.
+     * If the service URL is not known, the status document on the WebDav is used.
+     */
+    private String getStatusURL(final String jobId) {
+        final String webappURL = getServiceUrl();
+        if (webappURL != null) {
+            final String servicePath = "/wps/" + getId();
+            final int index = webappURL.indexOf(servicePath);
+            if (index != -1) {
+                return webappURL.substring(0, index + servicePath.length()) + "/status/" + jobId;
+            }
+        }
+        return webdavURL + "/" + jobId;
+    }
+
     /**
      * Update the current WebDav URL based on the current service URL.
      * TODO find a better way to build webdavURL
@@ -1023,7 +1047,7 @@ public class WPSWorker extends AbstractWorker {
             ////////
             final org.geotoolkit.process.Process process = createProcess(
                     processDesc, request.getDataInputs() ==  null? null : request.getDataInputs().getInput(),tempFiles);
-            final Future<ParameterValueGroup> future = WPSService.getExecutor().submit(process);
+            final Future<ParameterValueGroup> future = WPSService.getExecutor().submit(WPSUtils.buildProcessIdentifier(processDesc), process);
             try {
                 result = future.get();
 
@@ -1093,32 +1117,38 @@ public class WPSWorker extends AbstractWorker {
                 status.setCreationTime(WPSUtils.getCurrentXMLGregorianCalendar());
                 status.setProcessAccepted("Process " + request.getIdentifier().getValue() + " accepted.");
                 response.setStatus(status);
-                response.setStatusLocation(webdavURL + "/" + respDocFileName); //Output data URL
+                response.setStatusLocation(getStatusURL(respDocFileName));
                 //store response document
                 WPSUtils.storeResponse(response, webdavFolderPath, respDocFileName);
+                WPSStatusRegistry.update(respDocFileName, response);
 
-                //run process in asynchronous
-                new Thread(new Runnable() {
-                    @Override
-                    public void run() {
-                        try {
-                            // Prepare and launch process in a separate thread.
-                            final org.geotoolkit.process.Process process = createProcess(
-                                    processDesc, request.getDataInputs() == null ? null : request.getDataInputs().getInput(), tempFiles);
-                            process.addListener(new WPSProcessListener(request, response, respDocFileName, ServiceDef.WPS_1_0_0, parameters));
-                            WPSService.getExecutor().submit(process);
-                        } catch (Exception e) {
-                            // If we've got an exception, input parsing must have failed.
-                            final StatusType status = new StatusType();
-                            status.setCreationTime(WPSUtils.getCurrentXMLGregorianCalendar());
-                            final ProcessFailedType processFT = new ProcessFailedType();
-                            processFT.setExceptionReport(new ExceptionReport(Exceptions.formatStackTrace(e), null, null, ServiceDef.WPS_1_0_0.exceptionVersion.toString()));
-                            status.setProcessFailed(processFT);
-                            response.setStatus(status);
-                            WPSUtils.storeResponse(response, webdavFolderPath, respDocFileName);
+                //run process in asynchronous, the job identifier is the response document name
+                try {
+                    WPSService.getExecutor().submitAsync(respDocFileName, WPSUtils.buildProcessIdentifier(processDesc), new Callable<org.geotoolkit.process.Process>() {
+                        @Override
+                        public org.geotoolkit.process.Process call() throws Exception {
+                            try {
+                                // Prepare the process in the pool thread.
+                                final org.geotoolkit.process.Process process = createProcess(
+                                        processDesc, request.getDataInputs() == null ? null : request.getDataInputs().getInput(), tempFiles);
+                                process.addListener(new WPSProcessListener(request, response, respDocFileName, ServiceDef.WPS_1_0_0, parameters));
+                                return process;
+                            } catch (Exception e) {
+                                // If we've got an exception, input parsing must have failed.
+                                storeFailedStatus(response, respDocFileName, Exceptions.formatStackTrace(e));
+                                throw e;
+                            }
                         }
-                    }
-                }).start();
+                    }, new Runnable() {
+                        @Override
+                        public void run() {
+                            storeFailedStatus(response, respDocFileName, "The execution has been cancelled.");
+                        }
+                    });
+                } catch (CstlServiceException ex) {
+                    storeFailedStatus(response, respDocFileName, ex.getMessage());
+                    throw ex;
+                }
 
             } else {
 
@@ -1127,7 +1157,7 @@ public class WPSWorker extends AbstractWorker {
                 ////////
                 final org.geotoolkit.process.Process process = createProcess(
                         processDesc, request.getDataInputs() ==  null? null : request.getDataInputs().getInput(),tempFiles);
-                final Future<ParameterValueGroup> future = WPSService.getExecutor().submit(process);
+                final Future<ParameterValueGroup> future = WPSService.getExecutor().submit(WPSUtils.buildProcessIdentifier(processDesc), process);
 
                 final ProcessFailedType processFT = new ProcessFailedType();
                 ExceptionReport report = null;
@@ -1177,6 +1207,20 @@ public class WPSWorker extends AbstractWorker {
         }
     }
 
+    /**
+     * Store the status document of a failed asynchronous execution.
+     */
+    private void storeFailedStatus(final ExecuteResponse response, final String respDocFileName, final String message) {
+        final StatusType status = new StatusType();
+        status.setCreationTime(WPSUtils.getCurrentXMLGregorianCalendar());
+        final ProcessFailedType processFT = new ProcessFailedType();
+        processFT.setExceptionReport(new ExceptionReport(message, null, null, ServiceDef.WPS_1_0_0.exceptionVersion.toString()));
+        status.setProcessFailed(processFT);
+        response.setStatus(status);
+        WPSUtils.storeResponse(response, webdavFolderPath, respDocFileName);
+        WPSStatusRegistry.finish(respDocFileName, new File(webdavFolderPath, respDocFileName));
+    }
+
     /**
      * Create a Process object from the given descriptor, and set its input using the {@link org.geotoolkit.wps.xml.v100.Execute}
      * request input in parameter.
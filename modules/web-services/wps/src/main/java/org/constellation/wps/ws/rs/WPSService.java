@@ -22,10 +22,13 @@ import org.apache.sis.util.ArgumentChecks;
 import org.constellation.ServiceDef;
 import org.constellation.ServiceDef.Specification;
 import org.constellation.wps.configuration.WPSConfigurer;
+import org.constellation.wps.ws.WPSExecutor;
+import org.constellation.wps.ws.WPSStatusRegistry;
 import org.constellation.wps.ws.WPSWorker;
 import org.constellation.ws.CstlServiceException;
 import org.constellation.ws.MimeType;
 import org.constellation.ws.ServiceConfigurer;
+import org.constellation.ws.WSEngine;
 import org.constellation.ws.Worker;
 import org.constellation.ws.rs.OGCWebService;
 import org.geotoolkit.coverage.grid.GridCoverage2D;
@@ -49,19 +52,21 @@ import org.geotoolkit.wps.xml.v100.ResponseFormType;
 import org.geotoolkit.wps.xml.v100.WPSCapabilitiesType;
 
 import javax.inject.Singleton;
+import javax.ws.rs.GET;
 import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
 import java.awt.image.BufferedImage;
 import java.awt.image.RenderedImage;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.ws.rs.NotSupportedException;
@@ -133,9 +138,9 @@ public class WPSService extends OGCWebService<WPSWorker> {
     private static final CoordinateReferenceSystem DEFAULT_CRS = CommonCRS.WGS84.normalizedGeographic();
 
     /**
-     * Executor thread pool.
+     * Execution engine of the processes.
      */
-    public static ExecutorService EXECUTOR;
+    public static WPSExecutor EXECUTOR;
 
     /**
      * Build a new instance of the webService and initialize the JAXB context.
@@ -174,13 +179,39 @@ public class WPSService extends OGCWebService<WPSWorker> {
         }
     }
 
-    public static synchronized ExecutorService getExecutor() {
+    public static synchronized WPSExecutor getExecutor() {
         if (EXECUTOR == null) {
-            EXECUTOR = Executors.newCachedThreadPool();
+            EXECUTOR = new WPSExecutor();
         }
         return EXECUTOR;
     }
 
+    /**
+     * Return the status of an asynchronous execution, which is the statusLocation of its ExecuteResponse.
+     * The status of a running job is read from memory, the one of a finished job from its status document.
+     * The unknown jobs, and the invalid job identifiers, give a 404 response.
+     *
+     * @param serviceId the WPS instance identifier.
+     * @param jobId the job identifier, which is the name of its status document.
+     */
+    @GET
+    @Path("status/{jobId}")
+    public Response getExecutionStatus(@PathParam("serviceId") final String serviceId, @PathParam("jobId") final String jobId) {
+        final Worker worker = WSEngine.getInstance("WPS", serviceId);
+        if (worker instanceof WPSWorker) {
+            try {
+                final byte[] status = WPSStatusRegistry.getStatus(jobId, new File(((WPSWorker) worker).getWebdavFolderPath()));
+                if (status != null) {
+                    return Response.ok(status, MimeType.TEXT_XML).build();
+                }
+            } catch (IOException ex) {
+                LOGGER.log(Level.WARNING, "Unable to read the status of the job:" + jobId, ex);
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
+            }
+        }
+        return Response.status(Response.Status.NOT_FOUND).build();
+    }
+
     @Override
     protected Response treatIncomingRequest(final Object objectRequest, final WPSWorker worker) {
         final UriInfo uriContext = getUriContext();
@@ -0,0 +1,153 @@
+/*
+ *    Constellation - An open source and standard compliant SDI
+ *    http://www.constellation-sdi.org
+ *
+ * Copyright 2014 Geomatys.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.constellation.wps.utils;
+
+import org.apache.sis.xml.MarshallerPool;
+import org.geotoolkit.util.FileUtilities;
+import org.geotoolkit.wps.xml.WPSMarshallerPool;
+import org.geotoolkit.wps.xml.v100.ExecuteResponse;
+import org.geotoolkit.wps.xml.v100.StatusType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.xml.bind.Unmarshaller;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test the writes of the status documents by {@link WPSUtils#storeResponse(Object, String, String)}.
+ *
+ * @author Guilhem Legal (Geomatys)
+ */
+public class WPSUtilsTest {
+
+    private File folder;
+
+    @Before
+    public void setUp() throws Exception {
+        folder = File.createTempFile("wps-store", "");
+        folder.delete();
+        folder.mkdir();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtilities.deleteDirectory(folder);
+    }
+
+    /**
+     * A reader never sees a partially written status document.
+     */
+    @Test
+    public void concurrentReadTest() throws Exception {
+        final File document = new File(folder, "job");
+        assertTrue(WPSUtils.storeResponse(createResponse(0), folder.getAbsolutePath(), "job"));
+
+        final AtomicBoolean writing = new AtomicBoolean(true);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final Future<Integer> reads = executor.submit(new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                int nb = 0;
+                while (writing.get()) {
+                    final byte[] content;
+                    try {
+                        content = Files.readAllBytes(document.toPath());
+                    } catch (NoSuchFileException ex) {
+                        // replaced without atomic move support
+                        continue;
+                    }
+                    // fails on a truncated document
+                    unmarshal(content);
+                    nb++;
+                }
+                return nb;
+            }
+        });
+        try {
+            for (int i = 1; i <= 200; i++) {
+                assertTrue(WPSUtils.storeResponse(createResponse(i), folder.getAbsolutePath(), "job"));
+            }
+        } finally {
+            writing.set(false);
+            executor.shutdown();
+        }
+        // rethrows the failures of the reader
+        reads.get(10, TimeUnit.SECONDS);
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals("Process 200 is pending", unmarshal(Files.readAllBytes(document.toPath())).getStatus().getProcessAccepted());
+        // no temporary file left
+        assertArrayEquals(new String[]{"job"}, folder.list());
+    }
+
+    /**
+     * A failed write keeps the previous status document.
+     */
+    @Test
+    public void failedWriteTest() throws Exception {
+        final File document = new File(folder, "job");
+        assertTrue(WPSUtils.storeResponse(createResponse(1), folder.getAbsolutePath(), "job"));
+        final byte[] previous = Files.readAllBytes(document.toPath());
+
+        // not a JAXB object
+        assertFalse(WPSUtils.storeResponse(new Object(), folder.getAbsolutePath(), "job"));
+        assertArrayEquals(previous, Files.readAllBytes(document.toPath()));
+        assertArrayEquals(new String[]{"job"}, folder.list());
+    }
+
+    /**
+     * Create a response whose size varies with the given number.
+     */
+    private static ExecuteResponse createResponse(final int i) {
+        final StatusType status = new StatusType();
+        final StringBuilder value = new StringBuilder("Process ").append(i).append(" is pending");
+        for (int j = 0; j < (i % 20) * 100; j++) {
+            value.append('.');
+        }
+        status.setProcessAccepted(value.toString());
+        final ExecuteResponse response = new ExecuteResponse();
+        response.setStatus(status);
+        return response;
+    }
+
+    private static ExecuteResponse unmarshal(final byte[] status) throws Exception {
+        final MarshallerPool pool = WPSMarshallerPool.getInstance();
+        final Unmarshaller unmarshaller = pool.acquireUnmarshaller();
+        try {
+            return (ExecuteResponse) unmarshaller.unmarshal(new ByteArrayInputStream(status));
+        } finally {
+            pool.recycle(unmarshaller);
+        }
+    }
+}
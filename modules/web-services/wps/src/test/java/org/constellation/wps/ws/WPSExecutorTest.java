@@ -0,0 +1,201 @@
+/*
+ *    Constellation - An open source and standard compliant SDI
+ *    http://www.constellation-sdi.org
+ *
+ * Copyright 2014 Geomatys.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.constellation.wps.ws;
+
+import org.apache.sis.geometry.GeneralEnvelope;
+import org.apache.sis.referencing.CommonCRS;
+import org.constellation.process.test.testprocess.TestDescriptor;
+import org.constellation.ws.CstlServiceException;
+import org.geotoolkit.process.Process;
+import org.junit.After;
+import org.junit.Test;
+import org.opengis.parameter.ParameterValueGroup;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.geotoolkit.parameter.Parameters.getOrCreate;
+import static org.geotoolkit.parameter.Parameters.value;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test the admission control, the cancellation and the shutdown of {@link WPSExecutor}.
+ *
+ * @author Guilhem Legal (Geomatys)
+ */
+public class WPSExecutorTest {
+
+    private static final String PROCESS_ID = "test:wpstest";
+
+    private WPSExecutor executor;
+
+    @After
+    public void tearDown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * The permit of a running job cancelled is released only once its execution is over.
+     */
+    @Test
+    public void cancelRunningJobTest() throws Exception {
+        executor = new WPSExecutor(1, 2, 10, 1);
+        final CountDownLatch running  = new CountDownLatch(1);
+        final CountDownLatch release  = new CountDownLatch(1);
+        final CountDownLatch notified = new CountDownLatch(1);
+        final Future<ParameterValueGroup> future = executor.submitAsync("job-1", PROCESS_ID, new BlockingFactory(running, release), new CountDown(notified));
+        assertTrue(running.await(10, TimeUnit.SECONDS));
+
+        assertTrue(executor.cancel("job-1"));
+        assertTrue(future.isCancelled());
+        // the execution is still winding down
+        assertEquals(1, notified.getCount());
+        try {
+            executor.submitAsync("job-2", PROCESS_ID, new BlockingFactory(null, null), null);
+            fail("The process has already its maximum number of jobs.");
+        } catch (CstlServiceException ex) {
+            // expected
+        }
+
+        release.countDown();
+        assertTrue(notified.await(10, TimeUnit.SECONDS));
+        final Future<ParameterValueGroup> next = executor.submitAsync("job-3", PROCESS_ID, new BlockingFactory(null, null), null);
+        assertTrue(value(TestDescriptor.STRING_OUT, next.get(10, TimeUnit.SECONDS)).endsWith(" ok"));
+    }
+
+    /**
+     * A queued job cancelled is never run, and its cancel handler is called immediately.
+     */
+    @Test
+    public void cancelQueuedJobTest() throws Exception {
+        executor = new WPSExecutor(1, 1, 10, 0);
+        final CountDownLatch running  = new CountDownLatch(1);
+        final CountDownLatch release  = new CountDownLatch(1);
+        final CountDownLatch notified = new CountDownLatch(1);
+        final AtomicInteger created   = new AtomicInteger();
+        final Future<ParameterValueGroup> first = executor.submitAsync("job-1", PROCESS_ID, new BlockingFactory(running, release), null);
+        assertTrue(running.await(10, TimeUnit.SECONDS));
+        final Future<ParameterValueGroup> queued = executor.submitAsync("job-2", PROCESS_ID, new Callable<Process>() {
+            @Override
+            public Process call() throws Exception {
+                created.incrementAndGet();
+                return createProcess();
+            }
+        }, new CountDown(notified));
+
+        assertTrue(executor.cancel("job-2"));
+        assertTrue(queued.isCancelled());
+        assertEquals(0, notified.getCount());
+        assertFalse(executor.cancel("job-2"));
+
+        release.countDown();
+        assertNotNull(first.get(10, TimeUnit.SECONDS));
+        assertEquals(0, created.get());
+        assertEquals(Long.valueOf(1), executor.getStatistics().get("cancelled"));
+    }
+
+    /**
+     * The shutdown lets the queued and running jobs complete.
+     */
+    @Test
+    public void shutdownTest() throws Exception {
+        executor = new WPSExecutor(1, 1, 10, 0);
+        final CountDownLatch running = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Future<ParameterValueGroup> first  = executor.submitAsync("job-1", PROCESS_ID, new BlockingFactory(running, release), null);
+        final Future<ParameterValueGroup> second = executor.submitAsync("job-2", PROCESS_ID, new BlockingFactory(null, null), null);
+        assertTrue(running.await(10, TimeUnit.SECONDS));
+
+        executor.shutdown();
+        release.countDown();
+        assertNotNull(first.get(10, TimeUnit.SECONDS));
+        assertNotNull(second.get(10, TimeUnit.SECONDS));
+        assertFalse(first.isCancelled());
+        assertFalse(second.isCancelled());
+    }
+
+    private static Process createProcess() {
+        final ParameterValueGroup input = TestDescriptor.INPUT_DESC.createValue();
+        getOrCreate(TestDescriptor.BBOX_IN, input).setValue(new GeneralEnvelope(CommonCRS.WGS84.normalizedGeographic()));
+        getOrCreate(TestDescriptor.DOUBLE_IN, input).setValue(1.0);
+        getOrCreate(TestDescriptor.STRING_IN, input).setValue("ok");
+        return TestDescriptor.INSTANCE.createProcess(input);
+    }
+
+    /**
+     * Create a test process, after waiting for a latch without being interrupted,
+     * like a process which is slow to stop.
+     */
+    private static final class BlockingFactory implements Callable<Process> {
+
+        private final CountDownLatch running;
+
+        private final CountDownLatch release;
+
+        private BlockingFactory(final CountDownLatch running, final CountDownLatch release) {
+            this.running = running;
+            this.release = release;
+        }
+
+        @Override
+        public Process call() {
+            if (running != null) {
+                running.countDown();
+            }
+            if (release != null) {
+                boolean interrupted = false;
+                while (true) {
+                    try {
+                        release.await();
+                        break;
+                    } catch (InterruptedException ex) {
+                        interrupted = true;
+                    }
+                }
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return createProcess();
+        }
+    }
+
+    private static final class CountDown implements Runnable {
+
+        private final CountDownLatch latch;
+
+        private CountDown(final CountDownLatch latch) {
+            this.latch = latch;
+        }
+
+        @Override
+        public void run() {
+            latch.countDown();
+        }
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ *    Constellation - An open source and standard compliant SDI
+ *    http://www.constellation-sdi.org
+ *
+ * Copyright 2014 Geomatys.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.constellation.wps.ws;
+
+import org.apache.sis.geometry.GeneralEnvelope;
+import org.apache.sis.referencing.CommonCRS;
+import org.apache.sis.util.SimpleInternationalString;
+import org.apache.sis.xml.MarshallerPool;
+import org.constellation.ServiceDef;
+import org.constellation.process.test.testprocess.TestDescriptor;
+import org.geotoolkit.ows.xml.v110.CodeType;
+import org.geotoolkit.process.Process;
+import org.geotoolkit.process.ProcessEvent;
+import org.geotoolkit.util.FileUtilities;
+import org.geotoolkit.wps.converters.WPSConvertersUtils;
+import org.geotoolkit.wps.xml.WPSMarshallerPool;
+import org.geotoolkit.wps.xml.v100.Execute;
+import org.geotoolkit.wps.xml.v100.ExecuteResponse;
+import org.geotoolkit.wps.xml.v100.ResponseDocumentType;
+import org.geotoolkit.wps.xml.v100.ResponseFormType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengis.parameter.ParameterValueGroup;
+
+import javax.xml.bind.Unmarshaller;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.geotoolkit.parameter.Parameters.getOrCreate;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test the writes of the status document by {@link WPSProcessListener}, and the status read by {@link WPSStatusRegistry}.
+ *
+ * @author Guilhem Legal (Geomatys)
+ */
+public class WPSProcessListenerTest {
+
+    private File folder;
+
+    private String jobId;
+
+    private File statusDocument;
+
+    private Process process;
+
+    /**
+     * The current time seen by the listener.
+     */
+    private long now;
+
+    private WPSProcessListener listener;
+
+    @Before
+    public void setUp() throws Exception {
+        folder = File.createTempFile("wps-status", "");
+        folder.delete();
+        folder.mkdir();
+        jobId = UUID.randomUUID().toString();
+        statusDocument = new File(folder, jobId);
+
+        final ParameterValueGroup input = TestDescriptor.INPUT_DESC.createValue();
+        getOrCreate(TestDescriptor.BBOX_IN, input).setValue(new GeneralEnvelope(CommonCRS.WGS84.normalizedGeographic()));
+        getOrCreate(TestDescriptor.DOUBLE_IN, input).setValue(1.0);
+        getOrCreate(TestDescriptor.STRING_IN, input).setValue("ok");
+        process = TestDescriptor.INSTANCE.createProcess(input);
+
+        final ResponseDocumentType responseDocument = new ResponseDocumentType();
+        responseDocument.setStatus(true);
+        responseDocument.setStoreExecuteResponse(true);
+        final ResponseFormType responseForm = new ResponseFormType();
+        responseForm.setResponseDocument(responseDocument);
+        final Execute request = new Execute();
+        request.setIdentifier(new CodeType("urn:ogc:cstl:wps:test:" + TestDescriptor.NAME));
+        request.setResponseForm(responseForm);
+
+        final Map<String, Object> parameters = new HashMap<>();
+        parameters.put(WPSConvertersUtils.OUT_STORAGE_DIR, folder.getAbsolutePath());
+        listener = new WPSProcessListener(request, new ExecuteResponse(), jobId, ServiceDef.WPS_1_0_0, parameters) {
+            @Override
+            long currentTimeMillis() {
+                return now;
+            }
+        };
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtilities.deleteDirectory(folder);
+    }
+
+    /**
+     * The status in memory follows each percentage, the status document is written at most once a second,
+     * and at least every ten seconds.
+     */
+    @Test
+    public void progressingTest() throws Exception {
+        now = 100000;
+        listener.started(new ProcessEvent(process));
+        assertEquals(Integer.valueOf(0), getPercent(Files.readAllBytes(statusDocument.toPath())));
+
+        now += 100;
+        listener.progressing(progress(10));
+        assertEquals(Integer.valueOf(10), getPercent(WPSStatusRegistry.getStatus(jobId, folder)));
+        assertEquals(Integer.valueOf(0),  getPercent(Files.readAllBytes(statusDocument.toPath())));
+
+        // a new percentage after the minimum delay is written
+        now += 1000;
+        listener.progressing(progress(20));
+        assertEquals(Integer.valueOf(20), getPercent(WPSStatusRegistry.getStatus(jobId, folder)));
+        assertEquals(Integer.valueOf(20), getPercent(Files.readAllBytes(statusDocument.toPath())));
+
+        // the same percentage is not written before the maximum delay
+        assertTrue(statusDocument.delete());
+        now += 5000;
+        listener.progressing(progress(20));
+        assertFalse(statusDocument.exists());
+        now += 5000;
+        listener.progressing(progress(20));
+        assertTrue(statusDocument.isFile());
+        assertEquals(Integer.valueOf(20), getPercent(Files.readAllBytes(statusDocument.toPath())));
+    }
+
+    /**
+     * The status of a finished job is read from its status document, even once the job is not in memory any more.
+     */
+    @Test
+    public void finishedStatusTest() throws Exception {
+        now = 100000;
+        listener.started(new ProcessEvent(process));
+        listener.completed(progress(100));
+        final byte[] expected = Files.readAllBytes(statusDocument.toPath());
+        assertNotNull(unmarshal(expected).getStatus().getProcessSucceeded());
+        assertEquals(new String(expected, "UTF-8"), new String(WPSStatusRegistry.getStatus(jobId, null), "UTF-8"));
+
+        // an unknown job which has a status document, like the jobs finished before a restart
+        final String previous = UUID.randomUUID().toString();
+        Files.copy(statusDocument.toPath(), new File(folder, previous).toPath());
+        assertNull(WPSStatusRegistry.getStatus(previous, null));
+        assertEquals(new String(expected, "UTF-8"), new String(WPSStatusRegistry.getStatus(previous, folder), "UTF-8"));
+        assertNull(WPSStatusRegistry.getStatus(UUID.randomUUID().toString(), folder));
+    }
+
+    /**
+     * The job identifiers can not designate a file outside of the status folder.
+     */
+    @Test
+    public void invalidJobIdTest() throws Exception {
+        final File inner = new File(folder, "inner");
+        assertTrue(inner.mkdir());
+        Files.write(new File(folder, "secret").toPath(), "secret".getBytes("UTF-8"));
+
+        assertNull(WPSStatusRegistry.getStatus("../" + folder.getName() + "/secret", inner));
+        assertNull(WPSStatusRegistry.getStatus("..\\secret", inner));
+        assertNull(WPSStatusRegistry.getStatus("..", inner));
+        assertNull(WPSStatusRegistry.getStatus("", folder));
+        assertNull(WPSStatusRegistry.getStatus(null, folder));
+        // the directories are not status documents
+        assertNull(WPSStatusRegistry.getStatus("inner", folder));
+        assertNotNull(WPSStatusRegistry.getStatus("secret", folder));
+    }
+
+    private ProcessEvent progress(final float percent) {
+        return new ProcessEvent(process, new SimpleInternationalString("progress"), percent, TestDescriptor.OUTPUT_DESC.createValue());
+    }
+
+    private static Integer getPercent(final byte[] status) throws Exception {
+        return unmarshal(status).getStatus().getProcessStarted().getPercentCompleted();
+    }
+
+    private static ExecuteResponse unmarshal(final byte[] status) throws Exception {
+        final MarshallerPool pool = WPSMarshallerPool.getInstance();
+        final Unmarshaller unmarshaller = pool.acquireUnmarshaller();
+        try {
+            return (ExecuteResponse) unmarshaller.unmarshal(new ByteArrayInputStream(status));
+        } finally {
+            pool.recycle(unmarshaller);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ *    Constellation - An open source and standard compliant SDI
+ *    http://www.constellation-sdi.org
+ *
+ * Copyright 2014 Geomatys.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.constellation.configuration;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * The progress of the current or last indexation of a CSW service.
+ *
+ * @author Guilhem Legal (Geomatys)
+ */
+@XmlRootElement(name="IndexationStatus")
+@XmlAccessorType(XmlAccessType.FIELD)
+public class IndexationStatus {
+
+    private String serviceId;
+
+    /**
+     * RUNNING, FINISHED, STOPPED, FAILED, or NONE if there is no indexation for this service.
+     */
+    private String state;
+
+    private boolean incremental;
+
+    /**
+     * The number of records to index, or -1 if unknown.
+     */
+    private int total;
+
+    private int processed;
+
+    private int failed;
+
+    /**
+     * Time in milliseconds.
+     */
+    private long elapsedTime;
+
+    /**
+     * Estimated time in milliseconds, or -1 if unknown.
+     */
+    private long remainingTime;
+
+    public IndexationStatus() {
+
+    }
+
+    public IndexationStatus(final String serviceId, final String state) {
+        this.serviceId     = serviceId;
+        this.state         = state;
+        this.total         = -1;
+        this.remainingTime = -1;
+    }
+
+    public String getServiceId() {
+        return serviceId;
+    }
+
+    public void setServiceId(final String serviceId) {
+        this.serviceId = serviceId;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public void setState(final String state) {
+        this.state = state;
+    }
+
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    public void setIncremental(final boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public void setTotal(final int total) {
+        this.total = total;
+    }
+
+    public int getProcessed() {
+        return processed;
+    }
+
+    public void setProcessed(final int processed) {
+        this.processed = processed;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public void setFailed(final int failed) {
+        this.failed = failed;
+    }
+
+    public long getElapsedTime() {
+        return elapsedTime;
+    }
+
+    public void setElapsedTime(final long elapsedTime) {
+        this.elapsedTime = elapsedTime;
+    }
+
+    public long getRemainingTime() {
+        return remainingTime;
+    }
+
+    public void setRemainingTime(final long remainingTime) {
+        this.remainingTime = remainingTime;
+    }
+
+    @Override
+    public String toString() {
+        return "[IndexationStatus] " + serviceId + " state:" + state + " processed:" + processed + '/' + total
+                + " failed:" + failed + " elapsed:" + elapsedTime + "ms remaining:" + remainingTime + "ms";
+    }
+}
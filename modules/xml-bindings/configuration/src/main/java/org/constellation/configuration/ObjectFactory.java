@@ -145,6 +145,10 @@ public class ObjectFactory {
         return new BriefNodeList();
     }
 
+    public IndexationStatus createIndexationStatus(){
+        return new IndexationStatus();
+    }
+
     public StringMap createSimpleMap(){
         return new StringMap();
     }